@@ -0,0 +1,145 @@
+import java.util.Arrays;
+
+/**
+ * Tracks the availability of every book in a library catalog as a compact bitmap.
+ * <p>
+ * Bit {@code i} is set when the book at catalog position {@code i} is available for borrowing.
+ * The number of set bits is maintained incrementally, so availability counts are answered in
+ * constant time, and iterating the set (or clear) bits visits whole 64-bit words at a time so
+ * that listing available books costs time proportional to the number of available books.
+ * <p>
+ * All methods are synchronized; updates are short and never call out of this class.
+ */
+final class AvailabilityBitmap {
+
+    /**
+     * The bits of the bitmap, 64 catalog positions per word.
+     */
+    private long[] words;
+
+    /**
+     * The number of catalog positions tracked by the bitmap.
+     */
+    private int size;
+
+    /**
+     * The number of set bits, i.e. the number of available books.
+     */
+    private int availableCount;
+
+    /**
+     * Constructs an empty bitmap.
+     */
+    AvailabilityBitmap() {
+        this.words = new long[16];
+    }
+
+    /**
+     * Records the availability of the book at a catalog position, growing the bitmap if needed.
+     *
+     * @param position The catalog position of the book. Must be non-negative.
+     * @param available True if the book is available, false otherwise.
+     */
+    synchronized void set(int position, boolean available) {
+        int wordIndex = position >>> 6;
+        if (wordIndex >= words.length) {
+            words = Arrays.copyOf(words, Math.max(words.length * 2, wordIndex + 1));
+        }
+        if (position >= size) {
+            size = position + 1;
+        }
+        long mask = 1L << position;
+        boolean wasAvailable = (words[wordIndex] & mask) != 0;
+        if (available && !wasAvailable) {
+            words[wordIndex] |= mask;
+            availableCount++;
+        } else if (!available && wasAvailable) {
+            words[wordIndex] &= ~mask;
+            availableCount--;
+        }
+    }
+
+    /**
+     * Checks the availability recorded for a catalog position.
+     *
+     * @param position The catalog position of the book.
+     * @return True if the book at the position is recorded as available, false otherwise.
+     */
+    synchronized boolean get(int position) {
+        int wordIndex = position >>> 6;
+        return position < size && (words[wordIndex] & (1L << position)) != 0;
+    }
+
+    /**
+     * Retrieves the number of catalog positions tracked by the bitmap.
+     *
+     * @return The number of tracked positions.
+     */
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Retrieves the number of available books.
+     *
+     * @return The number of set bits.
+     */
+    synchronized int availableCount() {
+        return availableCount;
+    }
+
+    /**
+     * Retrieves the number of unavailable books.
+     *
+     * @return The number of clear bits among the tracked positions.
+     */
+    synchronized int unavailableCount() {
+        return size - availableCount;
+    }
+
+    /**
+     * Finds the next catalog position, at or after {@code from}, whose book is available.
+     *
+     * @param from The position to start searching from, inclusive.
+     * @return The next available position, or -1 if there is none.
+     */
+    synchronized int nextAvailable(int from) {
+        return next(from, 0L);
+    }
+
+    /**
+     * Finds the next catalog position, at or after {@code from}, whose book is unavailable.
+     *
+     * @param from The position to start searching from, inclusive.
+     * @return The next unavailable position, or -1 if there is none.
+     */
+    synchronized int nextUnavailable(int from) {
+        return next(from, -1L);
+    }
+
+    /**
+     * Finds the next position at or after {@code from} whose bit, after XOR with {@code flip}, is set.
+     *
+     * @param from The position to start searching from, inclusive.
+     * @param flip Zero to search for set bits, all ones to search for clear bits.
+     * @return The matching position, or -1 if there is none within the tracked positions.
+     */
+    private int next(int from, long flip) {
+        if (from >= size) {
+            return -1;
+        }
+        int wordIndex = from >>> 6;
+        long word = (words[wordIndex] ^ flip) & (-1L << from);
+        int lastWord = (size - 1) >>> 6;
+        while (true) {
+            if (word != 0) {
+                int position = (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+                return position < size ? position : -1;
+            }
+            if (++wordIndex > lastWord) {
+                return -1;
+            }
+            word = words[wordIndex] ^ flip;
+        }
+    }
+}
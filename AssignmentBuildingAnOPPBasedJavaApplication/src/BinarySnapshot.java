@@ -0,0 +1,539 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Saves libraries to, and restores them from, a compact binary snapshot file.
+ * <p>
+ * Snapshots are written through a {@link FileChannel} from a reusable direct buffer and read back
+ * through memory-mapped windows of the file, so neither direction copies the file through the Java heap.
+ * Restoring trusts the snapshot: books and members are rebuilt without re-running field validation
+ * or re-parsing their IDs, as every value was validated before it was saved.
+ * <p>
+ * File layout (big-endian):
+ * - Header: magic number, format version, book count and member count, each a 4-byte integer.
+ * - Books, in catalog order: a kind byte (book or ebook), the ID as two longs, an availability byte,
+ *   then title, author and ISBN. Ebooks are followed by their file format and an integer file size.
+ * - Members: a kind byte (member or premium member), the ID as two longs, the name, the borrowing
+ *   limit and the number of borrowed books, followed by one entry per borrowed book. An entry is the
+ *   book's catalog position followed by the checkout time of its loan (-1 if the library did not lend
+ *   it), or -1 followed by a full book record for a book outside the catalog.
+ * <p>
+ * A snapshot is written from a single {@link LibrarySnapshot}, so the catalog, the members and the
+ * loans it stores all come from the same version of the library, and every borrowed book it stores is
+ * a loan of that version.
+ * <p>
+ * Strings are stored as an unsigned 2-byte length followed by their UTF-8 bytes.
+ */
+public final class BinarySnapshot {
+
+    /**
+     * Magic number at the start of every snapshot file ("LIBS").
+     */
+    private static final int MAGIC = 0x4C494253;
+
+    /**
+     * Version of the file layout written by this class.
+     */
+    private static final int VERSION = 2;
+
+    /**
+     * Size of the header in bytes.
+     */
+    private static final int HEADER_SIZE = 16;
+
+    /**
+     * Size of the buffer used while writing.
+     */
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+    /**
+     * Size of the file window mapped at a time while reading.
+     */
+    private static final long READ_WINDOW_SIZE = 1L << 28;
+
+    /**
+     * Smallest size of a book record: kind, ID, availability and three empty strings.
+     */
+    private static final int MIN_BOOK_SIZE = 1 + 16 + 1 + 3 * 2;
+
+    /**
+     * Smallest size of a member record: kind, ID, empty name, borrowing limit and borrowed book count.
+     */
+    private static final int MIN_MEMBER_SIZE = 1 + 16 + 2 + 4 + 4;
+
+    /**
+     * Smallest size of a borrowed book entry: a catalog position and a checkout time.
+     */
+    private static final int MIN_ENTRY_SIZE = 4 + 8;
+
+    private static final byte KIND_BOOK = 0;
+    private static final byte KIND_EBOOK = 1;
+    private static final byte KIND_MEMBER = 0;
+    private static final byte KIND_PREMIUM_MEMBER = 1;
+
+    /**
+     * Catalog position marking a borrowed book that is stored inline.
+     */
+    private static final int INLINE_BOOK = -1;
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private BinarySnapshot() {
+    }
+
+    /**
+     * Writes a snapshot of a library to a file.
+     * <p>
+     * The library is saved as of {@link Library#snapshot()}; changes made while the file is written
+     * are left out.
+     *
+     * @param library The library to save. Must be non-null.
+     * @param file The snapshot file to create or replace. Must be non-null.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void write(Library library, Path file) throws IOException {
+        write(library.snapshot(), file);
+    }
+
+    /**
+     * Writes a version of a library's state to a file.
+     * <p>
+     * The snapshot is written to a temporary file next to the target, forced to disk and then moved
+     * over the target, so an existing snapshot is never left half-written.
+     *
+     * @param snapshot The state to save. Must be non-null.
+     * @param file The snapshot file to create or replace. Must be non-null.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void write(LibrarySnapshot snapshot, Path file) throws IOException {
+        Path absolute = file.toAbsolutePath();
+        Path temporary = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            Output out = new Output(channel);
+            out.require(HEADER_SIZE);
+            out.buffer.position(HEADER_SIZE); // Counts are filled in once known
+
+            // Books on loan are referred to by their position in this catalog, not their live one
+            List<Book> books = snapshot.getBooks();
+            HashMap<Identifier, Integer> positions = new HashMap<>();
+            for (int i = 0; i < books.size(); i++) {
+                Book book = books.get(i);
+                boolean lent = snapshot.loanOf(book.getIdentifier()) != null;
+                if (lent) {
+                    positions.put(book.getIdentifier(), i);
+                }
+                writeBook(out, book, !lent);
+            }
+
+            List<Member> members = snapshot.getMembers();
+            HashMap<Identifier, HashMap<Identifier, Loan>> loans = snapshot.loansByMember();
+            for (Member member : members) {
+                writeMember(out, member, LibrarySnapshot.inBorrowingOrder(member, loans.get(member.getMemberIdentifier())),
+                        positions);
+            }
+            out.flush();
+            int bookCount = books.size();
+            int memberCount = members.size();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(bookCount).putInt(memberCount).flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Restores a library from a snapshot file.
+     *
+     * @param file The snapshot file to read. Must be non-null.
+     * @return A new library holding the books and members of the snapshot.
+     * @throws IOException If the file cannot be read, is not a snapshot, or is truncated or inconsistent.
+     */
+    public static Library read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Input in = new Input(channel);
+            in.require(HEADER_SIZE);
+            if (in.window.getInt() != MAGIC) {
+                throw new IOException("Not a library snapshot: " + file);
+            }
+            int version = in.window.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported library snapshot version " + version + ": " + file);
+            }
+            int bookCount = in.window.getInt();
+            int memberCount = in.window.getInt();
+            if (bookCount < 0 || memberCount < 0) {
+                throw new IOException("Invalid library snapshot: negative book or member count.");
+            }
+            if ((long) bookCount * MIN_BOOK_SIZE + (long) memberCount * MIN_MEMBER_SIZE > in.remaining()) {
+                throw new IOException("Invalid library snapshot: " + bookCount + " books and " + memberCount
+                        + " members cannot fit in " + channel.size() + " bytes.");
+            }
+
+            Library library = new Library(bookCount, memberCount);
+            try {
+                Book[] catalog = new Book[bookCount];
+                for (int i = 0; i < bookCount; i++) {
+                    catalog[i] = readBook(in);
+                    library.addBook(catalog[i]);
+                }
+                for (int i = 0; i < memberCount; i++) {
+                    readMember(in, catalog, library);
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Invalid library snapshot: " + e.getMessage(), e);
+            }
+            return library;
+        }
+    }
+
+    /**
+     * Writes a single book record with the book's current availability.
+     *
+     * @param out The output to write to.
+     * @param book The book to write.
+     * @throws IOException If the file cannot be written.
+     */
+    static void writeBook(Output out, Book book) throws IOException {
+        writeBook(out, book, book.getAvailability());
+    }
+
+    /**
+     * Writes a single book record.
+     *
+     * @param out The output to write to.
+     * @param book The book to write.
+     * @param availability The availability to store for the book.
+     * @throws IOException If the file cannot be written.
+     */
+    private static void writeBook(Output out, Book book, boolean availability) throws IOException {
+        Ebook ebook = book instanceof Ebook ? (Ebook) book : null;
+        out.require(1);
+        out.buffer.put(ebook != null ? KIND_EBOOK : KIND_BOOK);
+        out.putIdentifier(book.getIdentifier());
+        out.require(1);
+        out.buffer.put((byte) (availability ? 1 : 0));
+        out.putString(book.getTitle());
+        out.putString(book.getAuthor());
+        out.putString(book.getISBN());
+        if (ebook != null) {
+            out.putString(ebook.getFileFormat());
+            out.require(4);
+            out.buffer.putInt(ebook.getFileSize());
+        }
+    }
+
+    /**
+     * Writes a single member record, with its loans as catalog positions and checkout times.
+     *
+     * @param out The output to write to.
+     * @param member The member to write.
+     * @param loans The loans of the member, in the order to store them.
+     * @param positions The catalog positions of the books on loan, by book ID.
+     * @throws IOException If the file cannot be written.
+     */
+    private static void writeMember(Output out, Member member, List<Loan> loans, HashMap<Identifier, Integer> positions)
+            throws IOException {
+        out.require(1);
+        out.buffer.put(member instanceof PremiumMember ? KIND_PREMIUM_MEMBER : KIND_MEMBER);
+        out.putIdentifier(member.getMemberIdentifier());
+        out.putString(member.getName());
+        out.require(8);
+        out.buffer.putInt(member.getBorrowingLimit());
+        out.buffer.putInt(loans.size());
+        for (Loan loan : loans) {
+            out.require(MIN_ENTRY_SIZE);
+            out.buffer.putInt(positions.get(loan.getBookIdentifier()));
+            out.buffer.putLong(loan.getCheckoutMillis());
+        }
+    }
+
+    /**
+     * Reads a single book record.
+     *
+     * @param in The input to read from.
+     * @return The restored book or ebook.
+     * @throws IOException If the record is truncated or malformed.
+     */
+    static Book readBook(Input in) throws IOException {
+        in.require(1);
+        byte kind = in.window.get();
+        Identifier id = in.getIdentifier();
+        in.require(1);
+        boolean availability = in.window.get() != 0;
+        String title = in.getString();
+        String author = in.getString();
+        String isbn = in.getString();
+        switch (kind) {
+            case KIND_BOOK:
+                return new Book(id, title, author, isbn, availability);
+            case KIND_EBOOK:
+                String fileFormat = in.getString();
+                in.require(4);
+                return new Ebook(id, title, author, isbn, availability, in.window.getInt(), fileFormat);
+            default:
+                throw new IOException("Invalid library snapshot: unknown book kind " + kind + ".");
+        }
+    }
+
+    /**
+     * Reads a single member record and registers the member, with its loans, in a library.
+     *
+     * @param in The input to read from.
+     * @param catalog The books of the snapshot's catalog, by position.
+     * @param library The library to register the member in.
+     * @throws IOException If the record is truncated, malformed or refers to a book outside the catalog.
+     */
+    private static void readMember(Input in, Book[] catalog, Library library) throws IOException {
+        in.require(1);
+        byte kind = in.window.get();
+        Identifier id = in.getIdentifier();
+        String name = in.getString();
+        in.require(8);
+        int borrowingLimit = in.window.getInt();
+        int borrowedCount = in.window.getInt();
+        if (borrowedCount < 0) {
+            throw new IOException("Invalid library snapshot: negative borrowed book count.");
+        }
+        if ((long) borrowedCount * MIN_ENTRY_SIZE > in.remaining()) {
+            throw new IOException("Invalid library snapshot: " + borrowedCount + " borrowed books cannot fit in the rest of the file.");
+        }
+
+        ArrayList<Book> borrowedBooks = new ArrayList<>(borrowedCount);
+        ArrayList<Book> loanedBooks = new ArrayList<>();
+        ArrayList<Long> checkoutTimes = new ArrayList<>();
+        for (int i = 0; i < borrowedCount; i++) {
+            in.require(4);
+            int position = in.window.getInt();
+            if (position == INLINE_BOOK) {
+                borrowedBooks.add(readBook(in));
+            } else if (position >= 0 && position < catalog.length) {
+                borrowedBooks.add(catalog[position]);
+                in.require(8);
+                long checkoutTime = in.window.getLong();
+                if (checkoutTime >= 0) {
+                    loanedBooks.add(catalog[position]);
+                    checkoutTimes.add(checkoutTime);
+                }
+            } else {
+                throw new IOException("Invalid library snapshot: borrowed book position " + position + " is outside the catalog.");
+            }
+        }
+
+        Member member;
+        switch (kind) {
+            case KIND_MEMBER:
+                member = new Member(id, name, borrowingLimit, borrowedBooks);
+                break;
+            case KIND_PREMIUM_MEMBER:
+                member = new PremiumMember(id, name, borrowingLimit, borrowedBooks);
+                break;
+            default:
+                throw new IOException("Invalid library snapshot: unknown member kind " + kind + ".");
+        }
+        library.registerMember(member);
+        for (int i = 0; i < loanedBooks.size(); i++) {
+            library.restoreCheckout(member, loanedBooks.get(i), checkoutTimes.get(i));
+        }
+    }
+
+    /**
+     * Buffered output to a file channel, or to a growing in-memory buffer.
+     * <p>
+     * The in-memory form encodes records that are stored elsewhere, such as transaction log entries.
+     */
+    static final class Output {
+
+        private final FileChannel channel;
+        ByteBuffer buffer;
+
+        /**
+         * Creates an output that writes to a file channel through a reusable direct buffer.
+         *
+         * @param channel The channel to write to.
+         */
+        Output(FileChannel channel) {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+        }
+
+        /**
+         * Creates an output that collects everything written in memory.
+         *
+         * @param initialCapacity The initial size of the buffer, in bytes.
+         */
+        Output(int initialCapacity) {
+            this.channel = null;
+            this.buffer = ByteBuffer.allocate(initialCapacity);
+        }
+
+        /**
+         * Makes sure the buffer has room for a number of bytes, flushing or growing it if needed.
+         *
+         * @param bytes The number of bytes about to be written. At most the buffer size for file output.
+         * @throws IOException If the file cannot be written.
+         */
+        void require(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return;
+            }
+            if (channel != null) {
+                flush();
+            } else {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+                buffer.flip();
+                grown.put(buffer);
+                buffer = grown;
+            }
+        }
+
+        /**
+         * Writes a string as its length followed by its UTF-8 bytes.
+         *
+         * @param value The string to write.
+         * @throws IOException If the file cannot be written or the string is too long.
+         */
+        void putString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > Character.MAX_VALUE) {
+                throw new IOException("String is too long for a library snapshot: " + bytes.length + " bytes.");
+            }
+            require(2 + bytes.length);
+            buffer.putChar((char) bytes.length);
+            buffer.put(bytes);
+        }
+
+        /**
+         * Writes a book ID as two longs.
+         *
+         * @param id The ID to write.
+         * @throws IOException If the file cannot be written.
+         */
+        void putIdentifier(Identifier id) throws IOException {
+            require(16);
+            buffer.putLong(id.getMostSignificantBits());
+            buffer.putLong(id.getLeastSignificantBits());
+        }
+
+        /**
+         * Writes everything buffered so far to the file.
+         *
+         * @throws IOException If the file cannot be written.
+         */
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Input from a file, read through a sliding memory-mapped window, or from an in-memory buffer.
+     */
+    static final class Input {
+
+        private final FileChannel channel;
+        private final long size;
+        private long windowStart;
+        ByteBuffer window;
+        private byte[] scratch = new byte[256];
+
+        /**
+         * Creates an input that reads a whole file through memory-mapped windows.
+         *
+         * @param channel The channel to read from.
+         * @throws IOException If the file cannot be mapped.
+         */
+        Input(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            this.window = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, READ_WINDOW_SIZE));
+        }
+
+        /**
+         * Creates an input that reads the remaining bytes of a buffer.
+         *
+         * @param buffer The buffer to read from.
+         */
+        Input(ByteBuffer buffer) {
+            this.channel = null;
+            this.size = buffer.limit();
+            this.window = buffer;
+        }
+
+        /**
+         * Makes sure the window covers a number of bytes past the current position, remapping it if needed.
+         *
+         * @param bytes The number of bytes about to be read.
+         * @throws IOException If the file ends before that many bytes.
+         */
+        void require(int bytes) throws IOException {
+            if (window.remaining() >= bytes) {
+                return;
+            }
+            long position = windowStart + window.position();
+            if (channel == null || position + bytes > size) {
+                throw new EOFException("Library snapshot is truncated.");
+            }
+            windowStart = position;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(size - position, Math.max(READ_WINDOW_SIZE, bytes)));
+        }
+
+        /**
+         * Retrieves the number of bytes left to read.
+         *
+         * @return The number of bytes between the current position and the end of the input.
+         */
+        long remaining() {
+            return size - windowStart - window.position();
+        }
+
+        /**
+         * Reads a book or member ID stored as two longs.
+         *
+         * @return The ID read.
+         * @throws IOException If the file ends before the end of the ID.
+         */
+        Identifier getIdentifier() throws IOException {
+            require(16);
+            return new Identifier(window.getLong(), window.getLong());
+        }
+
+        /**
+         * Reads a string stored as its length followed by its UTF-8 bytes.
+         *
+         * @return The string read.
+         * @throws IOException If the file ends before the end of the string.
+         */
+        String getString() throws IOException {
+            require(2);
+            int length = window.getChar();
+            require(length);
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            window.get(scratch, 0, length);
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+}
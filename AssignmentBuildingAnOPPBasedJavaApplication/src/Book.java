@@ -1,5 +1,6 @@
+import java.io.IOException;
+import java.time.Duration;
 import java.util.ArrayList;
-import java.util.UUID;
 
 /**
  * Represents a book in the library system.
@@ -9,12 +10,25 @@ import java.util.UUID;
  * and methods for setting and retrieving the book's attributes, including data validation.
  * <p>
  * Key Features:
- * - Generates a unique ID for each book using UUID.
+ * - Generates a unique ID for each book, stored as a compact 128-bit {@link Identifier} in UUID format.
  * - Supports validation for attributes like title, author, and ISBN to ensure data integrity.
- * - Tracks the availability status to indicate whether the book can be borrowed.
+ * - Tracks the availability status to indicate whether the book can be borrowed. Once the book is in a
+ *   library catalog, its availability is decided by the library's loans: it is available exactly when
+ *   no member has it on loan, whatever availability it was created with.
  */
 public class Book {
 
+    /**
+     * Visible widths of the ID, Title, Author, ISBN and Availability columns used when books are
+     * rendered as table rows.
+     */
+    static final int[] TABLE_COLUMN_WIDTHS = {37, 52, 38, 14, 13};
+
+    /**
+     * The time a book may be kept before it is due back.
+     */
+    private static final Duration LOAN_PERIOD = Duration.ofDays(21);
+
     /**
      * Represents the title of the book.
      * The title is a descriptive name assigned to the book by its author or publisher.
@@ -29,9 +43,10 @@ public class Book {
 
     /**
      * Represents the unique identifier for the book.
-     * This ID is expected to follow the UUID format for global uniqueness.
+     * This ID follows the UUID format for global uniqueness and is kept in its compact
+     * 128-bit form; it is only converted to a string when read through {@link #getId()}.
      */
-    private String id;
+    private Identifier id;
 
     /**
      * Represents the International Standard Book Number (ISBN) of the book.
@@ -42,8 +57,25 @@ public class Book {
     /**
      * Represents the availability status of the book.
      * True indicates the book is available for borrowing; false indicates it is not.
+     * Volatile so that checkouts running on other threads always see the latest status.
+     * <p>
+     * While the book is in a catalog, this is the status last reported to the library's indexes,
+     * and only the library's loan ledger changes it, as it lends and takes back the book.
      */
-    private boolean availability;
+    private volatile boolean availability;
+
+    /**
+     * Represents the library whose catalog currently holds the book, or {@code null} if the book
+     * is not in any catalog. Availability, ISBN, title and author changes are reported to it so that its
+     * availability, ISBN and search indexes always match the book.
+     * Volatile so that availability checks running on other threads see the catalog the book is in.
+     */
+    private volatile Library library;
+
+    /**
+     * Represents the position of the book in its library's catalog, or -1 if the book is not in any catalog.
+     */
+    private int catalogPosition = -1;
 
     /**
      * Default constructor for the Book class.
@@ -58,7 +90,7 @@ public class Book {
     public Book() {
         this.title = "NA";
         this.author = "NA";
-        this.id = UUID.randomUUID().toString();
+        this.id = Identifier.random();
         this.ISBN = "NA";
         this.availability = false;
     }
@@ -76,7 +108,7 @@ public class Book {
     public Book(String title, String author, String ISBN, boolean availability) {
         this.setTitle(title);
         this.setAuthor(author);
-        this.id = UUID.randomUUID().toString();
+        this.id = Identifier.random();
         this.setISBN(ISBN);
         this.availability = availability;
     }
@@ -101,6 +133,26 @@ public class Book {
         this.availability = availability;
     }
 
+    /**
+     * Constructor for the Book class that restores a book from trusted data without validation.
+     * <p>
+     * Used when loading books that were validated before they were saved, such as from a JSON dump
+     * written by {@link LibraryJson}, so that loading does not re-run field validation.
+     *
+     * @param id The unique identifier of the book.
+     * @param title The title of the book.
+     * @param author The name of the author of the book.
+     * @param ISBN The ISBN of the book.
+     * @param availability The availability status of the book. True if available, false otherwise.
+     */
+    Book(Identifier id, String title, String author, String ISBN, boolean availability) {
+        this.id = id;
+        this.title = title;
+        this.author = author;
+        this.ISBN = ISBN;
+        this.availability = availability;
+    }
+
     /**
      * Retrieves the title of the book.
      * <p>
@@ -114,24 +166,21 @@ public class Book {
 
     /**
      * Sets the title of the book with validation to ensure data integrity.
+     * <p>
+     * If the book is in a library catalog, the library's search index is updated as part of the same operation.
      *
      * @param title The title to be assigned. Must be non-null, non-empty, and within an acceptable length range.
      * @throws IllegalArgumentException If the title is null, empty, or exceeds the defined character limit.
      */
     public void setTitle(String title) {
-
-        String tmpTitle = title.trim();
-        if (tmpTitle.isEmpty()) {
-            throw new IllegalArgumentException("Title cannot be null or empty.");
-        }
-        if (tmpTitle.length() > 100) { // Example character limit for a title
-            throw new IllegalArgumentException("Title cannot exceed 100 characters.");
-        }
-        if (!tmpTitle.matches("[a-zA-Z0-9\\s.,'-]+")) { // Allows letters, numbers, spaces, and some punctuation
-            throw new IllegalArgumentException("Title contains invalid characters. Only letters, numbers, spaces, and common punctuation are allowed.");
+        String validated = FieldValidator.validateTitle(title);
+        synchronized (this) {
+            String previous = this.title;
+            this.title = validated;
+            if (this.library != null) {
+                this.library.textChanged(this.catalogPosition, previous, validated, this.author, this.author);
+            }
         }
-
-        this.title = tmpTitle;
     }
 
     /**
@@ -147,30 +196,22 @@ public class Book {
 
     /**
      * Sets the author's name with validation to ensure data integrity.
+     * <p>
+     * If the book is in a library catalog, the library's search index is updated as part of the same operation.
      *
      * @param author The name of the author to be assigned. Must be non-null, non-empty, include
      *               at least a first name and a last name, and cannot exceed the maximum length.
      * @throws IllegalArgumentException If the author name is null, empty, too long, or contains invalid characters.
      */
     public void setAuthor(String author) {
-
-        final int MAX_LENGTH = 50;
-        String tmpAuthor = author.trim();
-
-        if (tmpAuthor.isEmpty()) {
-            throw new IllegalArgumentException("Author name cannot be null or empty.");
-        }
-        if (tmpAuthor.length() > MAX_LENGTH) {
-            throw new IllegalArgumentException("Author name cannot exceed " + MAX_LENGTH + " characters.");
-        }
-        if (!tmpAuthor.matches("[a-zA-Z\\s]+")) {
-            throw new IllegalArgumentException("Author name can only contain letters and spaces.");
-        }
-        if (!tmpAuthor.contains(" ")) {
-            throw new IllegalArgumentException("Name must include at least a first name and a last name.");
+        String validated = FieldValidator.validateAuthor(author);
+        synchronized (this) {
+            String previous = this.author;
+            this.author = validated;
+            if (this.library != null) {
+                this.library.textChanged(this.catalogPosition, this.title, this.title, previous, validated);
+            }
         }
-
-        this.author = tmpAuthor;
     }
 
     /**
@@ -181,6 +222,17 @@ public class Book {
      * @return The unique ID of the book as a string.
      */
     public String getId() {
+        return this.id.toString();
+    }
+
+    /**
+     * Retrieves the unique identifier (ID) of the book in its compact 128-bit form.
+     * <p>
+     * Used by the library for indexing and comparisons without converting the ID to a string.
+     *
+     * @return The unique ID of the book as an {@link Identifier}.
+     */
+    Identifier getIdentifier() {
         return this.id;
     }
 
@@ -188,20 +240,28 @@ public class Book {
      * Sets the unique identifier (ID) for the book with validation to ensure data integrity.
      * <p>
      * The ID must follow the UUID format to uniquely identify books in the system.
-     * Validation is performed by attempting to parse the input string as a UUID.
+     * Validation is performed by attempting to parse the input string as a UUID. The ID of a book
+     * in a library catalog cannot change, as the library finds the book and its loan by ID.
      *
      * @param id The ID to be assigned to the book. Must be a valid UUID string.
-     * @throws IllegalArgumentException If the provided ID does not conform to the UUID format.
+     * @throws IllegalArgumentException If the provided ID does not conform to the UUID format,
+     *                                  or the book is in a library catalog.
      */
     public void setId(String id) {
+        Identifier identifier;
         try {
-            // Validate the book ID by attempting to parse it as a UUID.
-            UUID.fromString(id);
+            // Validate the book ID by parsing it as a UUID.
+            identifier = Identifier.fromString(id);
         } catch (IllegalArgumentException e) {
             // Throw an exception with a clear error message if validation fails
             throw new IllegalArgumentException("Invalid Book ID. It must follow the UUID format.");
         }
-        this.id = id;
+        synchronized (this) {
+            if (this.library != null) {
+                throw new IllegalArgumentException("Book ID cannot change while the book is in a library catalog.");
+            }
+            this.id = identifier;
+        }
     }
 
     /**
@@ -219,49 +279,131 @@ public class Book {
      * Sets the International Standard Book Number (ISBN) for the book with validation.
      * <p>
      * The ISBN must be either 10 or 13 digits long and follow the valid ISBN format. This method
-     * ensures that only properly formatted ISBNs are accepted.
+     * ensures that only properly formatted ISBNs are accepted. If the book is in a library catalog,
+     * the book moves to the copies of its new ISBN in the library's ISBN index.
      *
      * @param ISBN The ISBN to be assigned to the book. Must be a valid 10- or 13-digit string.
      * @throws IllegalArgumentException If the ISBN is null, empty, or does not adhere to the valid ISBN format.
      */
     public void setISBN(String ISBN) {
-
-        String tmpISBN = ISBN.trim();
-
-        // Validate that ISBN is not null or empty
-        if (tmpISBN.isEmpty()) {
-            throw new IllegalArgumentException("ISBN cannot be null or empty.");
-        }
-
-        // Validate the length and format of the ISBN (10 or 13 digits)
-        if (!tmpISBN.matches("\\d{10}|\\d{13}")) {
-            throw new IllegalArgumentException("Invalid ISBN. It must be either 10 or 13 digits long.");
+        String validated = FieldValidator.validateIsbn(ISBN);
+        synchronized (this) {
+            String previous = this.ISBN;
+            this.ISBN = validated;
+            if (this.library != null) {
+                this.library.isbnChanged(this, previous, validated);
+            }
         }
-
-        this.ISBN = tmpISBN; // Assign the validated ISBN
     }
 
     /**
      * Retrieves the availability status of the book.
      * <p>
-     * The availability indicates whether the book is currently available for borrowing.
+     * The availability indicates whether the book is currently available for borrowing. For a book
+     * in a library catalog, it is read from the library's loans: the book is available exactly when
+     * nobody has it on loan.
      *
      * @return True if the book is available for borrowing, false otherwise.
      */
     public boolean getAvailability() {
+        Library owner = this.library;
+        if (owner != null) {
+            return owner.findLoan(this.id) == null;
+        }
         return this.availability;
     }
 
+    /**
+     * Retrieves the availability status last reported to the indexes of the library holding the book.
+     * <p>
+     * It only differs from {@link #getAvailability()} while a loan of the book is being made or
+     * ended. The caller must hold the book's monitor, so that the figures it reports match the indexes.
+     *
+     * @return True if the book is indexed as available, false otherwise.
+     */
+    boolean reportedAvailability() {
+        return this.availability;
+    }
+
+    /**
+     * Retrieves the time the book may be kept before it is due back.
+     * <p>
+     * The due date of a loan is its checkout time plus the loan period of the book, which members
+     * may extend (see {@link Member#getLoanPeriod(Book)}).
+     *
+     * @return The loan period of the book; 21 days for printed books.
+     */
+    public Duration getLoanPeriod() {
+        return LOAN_PERIOD;
+    }
+
     /**
      * Sets the availability status of the book.
      * <p>
-     * The availability indicates whether the book is available for borrowing.
+     * The availability indicates whether the book is available for borrowing. If the book is in a
+     * library catalog, the library's availability index is updated as part of the same operation;
+     * only the library's loan ledger does so, as it lends and takes back the book.
      *
      * @param availability The availability status to be assigned to the book.
      *                     True if the book is available, false otherwise.
      */
-    public void setAvailability(boolean availability) {
+    synchronized void setAvailability(boolean availability) {
+        boolean previous = this.availability;
         this.availability = availability;
+        if (this.library != null) {
+            this.library.availabilityChanged(this, this.catalogPosition, previous, availability);
+        }
+    }
+
+    /**
+     * Retrieves the library whose catalog currently holds the book.
+     *
+     * @return The library holding the book, or {@code null} if the book is not in any catalog.
+     */
+    synchronized Library getLibrary() {
+        return this.library;
+    }
+
+    /**
+     * Retrieves the position of the book in the catalog of the library holding it.
+     *
+     * @return The catalog position of the book, or -1 if the book is not in any catalog.
+     */
+    synchronized int getCatalogPosition() {
+        return this.catalogPosition;
+    }
+
+    /**
+     * Places the book at a position in a library's catalog and reports its current availability, ISBN, title and author.
+     * <p>
+     * The book is available in the catalog unless the library has it on loan, whatever its availability before.
+     *
+     * @param library The library whose catalog holds the book.
+     * @param position The position of the book in the catalog.
+     * @throws IllegalArgumentException If the book is already in a library catalog.
+     */
+    synchronized void attachToCatalog(Library library, int position) {
+        if (this.library != null) {
+            throw new IllegalArgumentException("Book is already in a library catalog.");
+        }
+        this.availability = library.findLoan(this.id) == null;
+        this.library = library;
+        this.catalogPosition = position;
+        library.availabilityChanged(this, position, this.availability, this.availability);
+        library.isbnChanged(this, null, this.ISBN);
+        library.textChanged(position, null, this.title, null, this.author);
+    }
+
+    /**
+     * Removes the book from a library's catalog so that it no longer reports availability changes to it.
+     *
+     * @param library The library whose catalog held the book.
+     */
+    synchronized void detachFromCatalog(Library library) {
+        if (this.library == library) {
+            this.library = null;
+            this.catalogPosition = -1;
+        }
     }
 
     /**
@@ -270,15 +412,16 @@ public class Book {
      * This method checks that the provided collection of books is not null or empty, and that
      * each book in the collection meets the following criteria:
      * - The book itself must not be null.
-     * - The book must have a non-null, non-empty title.
+     * - The book must have a valid title and author, as accepted by the setters.
      * - The book must have a valid ISBN, which is either a 10-digit or 13-digit numeric string.
      * <p>
-     * If any of these conditions are not met, the method throws an {@code IllegalArgumentException}
-     * with a descriptive error message.
+     * Every book is checked before failing, and a {@code ValidationException} listing all
+     * violations is thrown if any of these conditions are not met.
      *
      * @param booksCollection The collection of books to validate. Must be non-null, non-empty,
      *                        and contain valid book objects.
-     * @throws IllegalArgumentException If the books collection is null, empty, or contains invalid books.
+     * @throws IllegalArgumentException If the books collection is null or empty.
+     * @throws ValidationException If the books collection contains invalid books.
      */
     public static void areValidBooksCollection(ArrayList<Book> booksCollection) {
 
@@ -287,37 +430,63 @@ public class Book {
             throw new IllegalArgumentException("Books collection cannot be null or empty.");
         }
 
-        // Verify that the new books collection does not contain null books
-        for (Book book : booksCollection) {
-            if (book == null) {
-                throw new IllegalArgumentException("Books collection cannot contain null book entries.");
-            }
-            if (book.getTitle() == null || book.getTitle().trim().isEmpty()) {
-                throw new IllegalArgumentException("Each book must have a non-null, non-empty title.");
-            }
-            if (book.getISBN() == null || (!book.getISBN().matches("\\d{10}") && !book.getISBN().matches("\\d{13}"))) {
-                throw new IllegalArgumentException("Each book must have a valid ISBN.");
-            }
-        }
+        // Verify every book in the collection, gathering all violations at once
+        FieldValidator.validateBooks(booksCollection);
+    }
+
+    /**
+     * Renders the header row of a book table, naming the columns in {@link #TABLE_COLUMN_WIDTHS}.
+     *
+     * @param table The renderer of the table, laid out with {@link #TABLE_COLUMN_WIDTHS}.
+     */
+    static void renderTableHeader(TableRenderer table) {
+        table.header("Id", "Title", "Author", "ISBN", "Availability");
+    }
+
+    /**
+     * Renders the book as a row of a book table.
+     *
+     * @param table The renderer of the table, laid out with {@link #TABLE_COLUMN_WIDTHS}.
+     */
+    void renderTableRow(TableRenderer table) {
+        table.row(getId(), getTitle(), getAuthor(), getISBN(), getAvailability());
+    }
+
+    /**
+     * Retrieves the type tag identifying this kind of book in JSON documents.
+     *
+     * @return The type tag {@code "book"}.
+     */
+    String jsonType() {
+        return "book";
+    }
+
+    /**
+     * Writes the attributes of the book as members of the JSON object currently being written.
+     *
+     * @param json The writer positioned inside the book's JSON object.
+     * @param availability The availability to write for the book.
+     * @throws IOException If the writer fails to accept the output.
+     */
+    void writeJsonFields(JsonWriter json, boolean availability) throws IOException {
+        json.name("id").value(getId());
+        json.name("title").value(title);
+        json.name("author").value(author);
+        json.name("ISBN").value(ISBN);
+        json.name("availability").value(availability);
     }
 
     /**
-     * Returns a string representation of the book object in a JSON-like format.
+     * Returns a string representation of the book object in JSON format.
      * <p>
-     * The string includes the title, author, ISBN, and availability status of the book,
-     * formatted for readability.
+     * The string includes the type, ID, title, author, ISBN, and availability status of the book,
+     * properly quoted and escaped, and formatted for readability.
      *
-     * @return A string representation of the book with its key attributes.
+     * @return A JSON representation of the book with its key attributes.
      */
     @Override
     public String toString() {
-        return "{\n" +
-                "  \"id\": \"" + id + "\",\n" +
-                "  \"title\": \"" + title + "\",\n" +
-                "  \"author\": \"" + author + "\",\n" +
-                "  \"ISBN\": " + ISBN + ",\n" +
-                "  \"availability\": " + availability + "\n" +
-                "}";
+        return LibraryJson.toJson(this);
     }
 
 }
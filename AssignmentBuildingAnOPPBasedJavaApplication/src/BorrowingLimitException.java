@@ -0,0 +1,22 @@
+/**
+ * Signals that a checkout would take a member over their borrowing limit.
+ * <p>
+ * Thrown by {@link Member#borrowBook(Book)}, {@link Member#borrowBooks(java.util.ArrayList)} and the
+ * checkout methods of {@link Library}, which count these refusals in their metrics.
+ * <p>
+ * Extends {@code IllegalArgumentException} so existing callers that expect an exceeded borrowing
+ * limit as an illegal argument keep working.
+ */
+public class BorrowingLimitException extends IllegalArgumentException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructs a BorrowingLimitException with the given message.
+     *
+     * @param message The description of the exceeded limit.
+     */
+    public BorrowingLimitException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,23 @@
+/**
+ * Represents the outcome of checking out a single book ID as part of a batch checkout.
+ * <p>
+ * Returned per requested ID by {@code Library.assignBooksToMember()} so that callers can tell
+ * which books were lent and why the others were not.
+ */
+public enum CheckoutStatus {
+
+    /**
+     * The book was found, was available, and is now borrowed by the member.
+     */
+    BORROWED,
+
+    /**
+     * No book with the requested ID exists in the library.
+     */
+    NOT_FOUND,
+
+    /**
+     * The book exists but is not available because it is already on loan.
+     */
+    ALREADY_ON_LOAN
+}
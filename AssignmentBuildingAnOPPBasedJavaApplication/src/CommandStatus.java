@@ -0,0 +1,43 @@
+/**
+ * Represents the outcome of a single command of a batch run by {@code Library.execute()}.
+ * <p>
+ * A failed command does not stop the batch: every command gets its own status, so callers can
+ * tell which ones took effect and why the others did not.
+ */
+public enum CommandStatus {
+
+    /**
+     * The command took effect.
+     */
+    COMPLETED,
+
+    /**
+     * The command was missing from the batch.
+     */
+    INVALID,
+
+    /**
+     * The book or member to add is already in the library, earlier in the batch, or in another catalog.
+     */
+    DUPLICATE,
+
+    /**
+     * No book with the requested ID exists in the library.
+     */
+    BOOK_NOT_FOUND,
+
+    /**
+     * No member with the requested ID is registered.
+     */
+    MEMBER_NOT_FOUND,
+
+    /**
+     * The book exists but is not available because it is already on loan.
+     */
+    UNAVAILABLE,
+
+    /**
+     * The checkout would exceed the member's borrowing limit.
+     */
+    LIMIT_REACHED
+}
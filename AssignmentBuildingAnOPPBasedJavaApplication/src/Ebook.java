@@ -1,4 +1,5 @@
-import java.util.Set;
+import java.io.IOException;
+import java.time.Duration;
 
 /**
  * Represents an electronic book (ebook) in the library system.
@@ -14,11 +15,16 @@ import java.util.Set;
  */
 public class Ebook extends Book {
 
+    /**
+     * The time an ebook may be kept before it is returned automatically.
+     */
+    private static final Duration EBOOK_LOAN_PERIOD = Duration.ofDays(14);
+
     /**
      * Represents the file format of the ebook.
      * The file format specifies the type of file (e.g., "pdf", "epub", "mobi", "txt").
      */
-    private String fileFormat;
+    private EbookFormat fileFormat;
 
     /**
      * Represents the file size of the ebook.
@@ -36,7 +42,7 @@ public class Ebook extends Book {
      */
     public Ebook() {
         super();
-        this.fileFormat = "txt";
+        this.fileFormat = EbookFormat.TXT;
         this.fileSize = 500;
     }
 
@@ -77,14 +83,43 @@ public class Ebook extends Book {
         this.setFileSize(fileSize);
     }
 
+    /**
+     * Constructor for the Ebook class that restores an ebook from trusted data without validating
+     * the attributes inherited from the Book class.
+     * <p>
+     * The file format and file size are still validated, as they are cheap to check.
+     *
+     * @param id The unique identifier of the ebook.
+     * @param title The title of the ebook.
+     * @param author The author of the ebook.
+     * @param ISBN The ISBN of the ebook.
+     * @param availability The availability status of the ebook. True if available, false otherwise.
+     * @param fileSize The size of the ebook file in kilobytes (KB).
+     * @param fileFormat The file format of the ebook (e.g., "pdf", "epub", "mobi").
+     */
+    Ebook(Identifier id, String title, String author, String ISBN, boolean availability, int fileSize, String fileFormat) {
+        super(id, title, author, ISBN, availability);
+        this.setFileFormat(fileFormat);
+        this.setFileSize(fileSize);
+    }
+
     /**
      * Retrieves the file format of the book.
      * <p>
      * The file format indicates the type or extension of the book file (e.g., "pdf", "epub", "mobi").
      *
-     * @return The file format of the book as a string.
+     * @return The file format of the book as a lower-case string.
      */
     public String getFileFormat() {
+        return this.fileFormat.getExtension();
+    }
+
+    /**
+     * Retrieves the file format of the book as one of the supported formats.
+     *
+     * @return The file format of the book.
+     */
+    public EbookFormat getFormat() {
         return this.fileFormat;
     }
 
@@ -92,28 +127,32 @@ public class Ebook extends Book {
      * Sets the file format for the ebook with validation to ensure it adheres to acceptable formats.
      * <p>
      * The file format must be a non-null, non-empty string and match one of the supported formats
-     * (e.g., "pdf", "epub", "mobi").
+     * (e.g., "pdf", "epub", "mobi"), ignoring case.
      *
      * @param fileFormat The file format to be assigned. Must be a valid file extension.
      * @throws IllegalArgumentException If the file format is null, empty, or not in the supported formats.
      */
     public void setFileFormat(String fileFormat) {
+        setFormat(EbookFormat.fromExtension(fileFormat));
+    }
 
-        String tmpFileFormat = fileFormat.trim();
-        String trimmedFileFormat = tmpFileFormat.toLowerCase();
-        Set<String> supportedFormats = Set.of("pdf", "epub", "mobi", "txt");
-
-        // Verifies that the input is not empty or null
-        if (tmpFileFormat.isEmpty()) {
+    /**
+     * Sets the file format for the ebook.
+     * <p>
+     * If the ebook is in a library catalog, the library's format statistics are updated as part of the same operation.
+     *
+     * @param format The file format to be assigned.
+     * @throws IllegalArgumentException If the format is null.
+     */
+    public void setFormat(EbookFormat format) {
+        if (format == null) {
             throw new IllegalArgumentException("File format cannot be null or empty.");
         }
-
-        // Validates that the file has a supported format
-        if (!supportedFormats.contains(trimmedFileFormat)) {
-            throw new IllegalArgumentException("Invalid file format. Supported formats are: " + supportedFormats);
+        synchronized (this) {
+            EbookFormat previous = this.fileFormat;
+            this.fileFormat = format;
+            reportStorageChange(previous, this.fileSize);
         }
-
-        this.fileFormat = trimmedFileFormat;
     }
 
     /**
@@ -127,6 +166,19 @@ public class Ebook extends Book {
         return this.fileSize;
     }
 
+    /**
+     * Retrieves the time the ebook may be kept before it is due back.
+     * <p>
+     * Ebook loans are shorter than printed book loans, and are returned automatically by the
+     * library once they are overdue.
+     *
+     * @return The loan period of the ebook; 14 days.
+     */
+    @Override
+    public Duration getLoanPeriod() {
+        return EBOOK_LOAN_PERIOD;
+    }
+
     /**
      * Sets the file size of the book with validation to ensure it is within acceptable limits.
      * <p>
@@ -146,27 +198,66 @@ public class Ebook extends Book {
             throw new IllegalArgumentException("File size cannot exceed " + MAX_FILE_SIZE + " KB.");
         }
 
-        this.fileSize = fileSize;
+        synchronized (this) {
+            int previous = this.fileSize;
+            this.fileSize = fileSize;
+            reportStorageChange(this.fileFormat, previous);
+        }
     }
 
     /**
-     * Returns a string representation of the book object in a JSON-like format.
+     * Reports a format or size change to the library holding the ebook, if any.
      * <p>
-     * The string includes the book's title, author, ISBN, availability, file format,
-     * and file size, making it suitable for logging or debugging purposes.
+     * Must be called while the ebook's monitor is held. Ebooks under construction have no previous
+     * format and are not in a catalog yet, so nothing is reported for them.
+     *
+     * @param previousFormat The format before the change.
+     * @param previousSize The file size before the change.
+     */
+    private void reportStorageChange(EbookFormat previousFormat, int previousSize) {
+        Library library = getLibrary();
+        if (library != null && previousFormat != null) {
+            boolean available = reportedAvailability();
+            library.ebookChanged(previousFormat, previousSize, available, -1);
+            library.ebookChanged(this.fileFormat, this.fileSize, available, 1);
+        }
+    }
+
+    /**
+     * Places the ebook at a position in a library's catalog and adds it to the library's format statistics.
+     *
+     * @param library The library whose catalog holds the ebook.
+     * @param position The position of the ebook in the catalog.
+     * @throws IllegalArgumentException If the ebook is already in a library catalog.
+     */
+    @Override
+    synchronized void attachToCatalog(Library library, int position) {
+        super.attachToCatalog(library, position);
+        library.ebookChanged(this.fileFormat, this.fileSize, reportedAvailability(), 1);
+    }
+
+    /**
+     * Retrieves the type tag identifying ebooks in JSON documents.
+     *
+     * @return The type tag {@code "ebook"}.
+     */
+    @Override
+    String jsonType() {
+        return "ebook";
+    }
+
+    /**
+     * Writes the attributes of the ebook, including the file format and file size, as members of
+     * the JSON object currently being written.
      *
-     * @return A JSON-like string representation of the book with its key attributes.
+     * @param json The writer positioned inside the ebook's JSON object.
+     * @param availability The availability to write for the ebook.
+     * @throws IOException If the writer fails to accept the output.
      */
     @Override
-    public String toString() {
-        return "{\n" +
-                "  \"id\": \"" + super.getId() + "\",\n" +
-                "  \"title\": \"" + super.getTitle() + "\",\n" +
-                "  \"author\": \"" + super.getAuthor() + "\",\n" +
-                "  \"ISBN\": " + super.getISBN() + ",\n" +
-                "  \"availability\": " + super.getAvailability() + "\n" +
-                "  \"fileFormat\": " + fileFormat + "\n" +
-                "  \"fileSize\": " + fileSize + "\n" +
-                "}";
+    void writeJsonFields(JsonWriter json, boolean availability) throws IOException {
+        super.writeJsonFields(json, availability);
+        json.name("fileFormat").value(fileFormat.getExtension());
+        json.name("fileSize").value(fileSize);
     }
 }
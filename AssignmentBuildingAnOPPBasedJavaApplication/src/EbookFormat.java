@@ -0,0 +1,106 @@
+/**
+ * Enumerates the file formats supported for ebooks.
+ * <p>
+ * Each format is a single shared instance, so ebooks refer to their format instead of each holding a
+ * string, and the library can keep per-format statistics in arrays indexed by {@link #ordinal()}.
+ */
+public enum EbookFormat {
+
+    /**
+     * Portable Document Format.
+     */
+    PDF("pdf"),
+
+    /**
+     * Electronic Publication format.
+     */
+    EPUB("epub"),
+
+    /**
+     * Mobipocket format.
+     */
+    MOBI("mobi"),
+
+    /**
+     * Plain text.
+     */
+    TXT("txt");
+
+    /**
+     * The supported formats, listed once for lookups and error messages.
+     */
+    private static final EbookFormat[] FORMATS = values();
+
+    /**
+     * The file extension of the format, in lower case.
+     */
+    private final String extension;
+
+    /**
+     * Constructs a format with its file extension.
+     *
+     * @param extension The file extension of the format, in lower case.
+     */
+    EbookFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * Retrieves the file extension of the format.
+     *
+     * @return The file extension in lower case (e.g., "pdf").
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Finds the format matching a file extension, ignoring case and surrounding whitespace.
+     *
+     * @param extension The file extension to look up (e.g., "pdf" or "EPUB").
+     * @return The matching format.
+     * @throws IllegalArgumentException If the extension is null, empty, or not a supported format.
+     */
+    public static EbookFormat fromExtension(String extension) {
+        String trimmed = extension == null ? "" : extension.trim();
+
+        // Verifies that the input is not empty or null
+        if (trimmed.isEmpty()) {
+            throw new IllegalArgumentException("File format cannot be null or empty.");
+        }
+
+        // Validates that the file has a supported format
+        for (EbookFormat format : FORMATS) {
+            if (format.extension.equalsIgnoreCase(trimmed)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Invalid file format. Supported formats are: " + supportedExtensions());
+    }
+
+    /**
+     * Lists the file extensions of the supported formats.
+     *
+     * @return The extensions in declaration order, formatted as a list (e.g., "[pdf, epub, mobi, txt]").
+     */
+    private static String supportedExtensions() {
+        StringBuilder list = new StringBuilder("[");
+        for (EbookFormat format : FORMATS) {
+            if (list.length() > 1) {
+                list.append(", ");
+            }
+            list.append(format.extension);
+        }
+        return list.append(']').toString();
+    }
+
+    /**
+     * Returns the file extension of the format.
+     *
+     * @return The file extension in lower case.
+     */
+    @Override
+    public String toString() {
+        return extension;
+    }
+}
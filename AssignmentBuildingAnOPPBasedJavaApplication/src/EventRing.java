@@ -0,0 +1,133 @@
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free ring buffer of library events, read independently by every subscriber.
+ * <p>
+ * Publishers claim a sequence number with a single atomic increment and store the event in the slot
+ * of that number; they never wait for subscribers. Once the ring has wrapped, a new event overwrites
+ * the oldest one, so a subscriber that falls more than a ring's length behind loses events instead
+ * of slowing the library down. Each subscriber keeps its own cursor and detects lost events from the
+ * sequence numbers stored in the slots.
+ * <p>
+ * Subscribers with nothing to read park until a publisher wakes them; waking is an unpark of the
+ * parked subscribers only, so publishing stays free of locks and waits.
+ */
+final class EventRing {
+
+    /**
+     * The slots of the ring. The length is always a power of two.
+     */
+    private final AtomicReferenceArray<LibraryEvent> slots;
+
+    /**
+     * Mask applied to a sequence number to select its slot.
+     */
+    private final int mask;
+
+    /**
+     * The sequence number of the next event to be published.
+     */
+    private final AtomicLong nextSequence = new AtomicLong();
+
+    /**
+     * The subscriptions reading the ring, woken after each publication.
+     */
+    private final CopyOnWriteArrayList<EventSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    /**
+     * Constructs an empty ring.
+     *
+     * @param minimumCapacity The minimum number of events kept; rounded up to the next power of two.
+     * @throws IllegalArgumentException If the capacity is not positive or too large.
+     */
+    EventRing(int minimumCapacity) {
+        if (minimumCapacity <= 0 || minimumCapacity > 1 << 30) {
+            throw new IllegalArgumentException("Event ring capacity must be between 1 and 2^30.");
+        }
+        int size = 1;
+        while (size < minimumCapacity) {
+            size <<= 1;
+        }
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Publishes an event and wakes the subscriptions waiting for one.
+     * <p>
+     * If a publisher that claimed a later number of the same slot has already stored its event, the
+     * event is dropped, as it would have been overwritten anyway; that publisher wakes the
+     * subscriptions instead.
+     *
+     * @param type The kind of change.
+     * @param timestamp The time the change took effect, in milliseconds since the epoch.
+     * @param bookId The ID of the book concerned, or {@code null}.
+     * @param memberId The ID of the member concerned, or {@code null}.
+     */
+    void publish(LibraryEventType type, long timestamp, Identifier bookId, Identifier memberId) {
+        long sequence = nextSequence.getAndIncrement();
+        LibraryEvent event = new LibraryEvent(sequence, type, timestamp, bookId, memberId);
+        int slot = (int) sequence & mask;
+        while (true) {
+            LibraryEvent current = slots.get(slot);
+            if (current != null && current.getSequence() > sequence) {
+                return;
+            }
+            if (slots.compareAndSet(slot, current, event)) {
+                break;
+            }
+        }
+        for (EventSubscription subscription : subscriptions) {
+            subscription.wake();
+        }
+    }
+
+    /**
+     * Registers a subscription to be woken by each publication.
+     *
+     * @param subscription The subscription.
+     */
+    void addSubscription(EventSubscription subscription) {
+        subscriptions.add(subscription);
+    }
+
+    /**
+     * Stops waking a subscription.
+     *
+     * @param subscription The subscription.
+     */
+    void removeSubscription(EventSubscription subscription) {
+        subscriptions.remove(subscription);
+    }
+
+    /**
+     * Retrieves the sequence number the next event will get.
+     *
+     * @return The number of events published so far.
+     */
+    long nextSequence() {
+        return nextSequence.get();
+    }
+
+    /**
+     * Retrieves the number of events the ring keeps.
+     *
+     * @return The capacity of the ring.
+     */
+    int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Retrieves the event stored in the slot of a sequence number.
+     *
+     * @param sequence The sequence number.
+     * @return The event in the slot, which has a lower sequence number if the event has not been stored
+     *         yet, or a higher one if it has been overwritten; {@code null} if the slot was never used.
+     */
+    LibraryEvent slotOf(long sequence) {
+        return slots.get((int) sequence & mask);
+    }
+}
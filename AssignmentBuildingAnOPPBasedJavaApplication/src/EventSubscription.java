@@ -0,0 +1,252 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * A subscription to the events of a library, delivered in batches on a thread of its own.
+ * <p>
+ * Created by {@link Library#subscribe(Predicate, int, Consumer)}. The delivery thread reads the
+ * library's event ring from the position it had when the subscription was made, keeps the events
+ * accepted by the filter, and hands them to the subscriber in publication order, in batches of at
+ * most the requested size. A batch is delivered as soon as it is full or no further event is
+ * waiting, so batches only grow large when events arrive faster than the subscriber takes them.
+ * Between events the delivery thread parks until the next publication wakes it.
+ * <p>
+ * A subscriber that falls more than the ring's capacity behind loses the oldest events; the number
+ * lost is reported by {@link #getDroppedEvents()}. Exceptions thrown by the subscriber are counted
+ * and do not end the subscription.
+ */
+public final class EventSubscription implements AutoCloseable {
+
+    /**
+     * Number used to name the delivery threads.
+     */
+    private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+    private final EventRing ring;
+    private final Predicate<? super LibraryEvent> filter;
+    private final int maxBatchSize;
+    private final Consumer<? super List<LibraryEvent>> subscriber;
+    private final Thread thread;
+
+    private final LongAdder deliveredEvents = new LongAdder();
+    private final LongAdder droppedEvents = new LongAdder();
+    private final LongAdder failedDeliveries = new LongAdder();
+
+    /**
+     * The sequence number of the next event to read. Only the delivery thread writes it.
+     */
+    private volatile long cursor;
+
+    /**
+     * Set once the subscription is closed.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Set while the delivery thread is parked, or about to park, waiting for an event.
+     */
+    private volatile boolean waiting;
+
+    /**
+     * Constructs a subscription. Delivery begins once {@link #start()} is called.
+     *
+     * @param ring The event ring to read.
+     * @param filter The events to deliver.
+     * @param maxBatchSize The maximum number of events per batch.
+     * @param subscriber The receiver of the batches.
+     */
+    EventSubscription(EventRing ring, Predicate<? super LibraryEvent> filter, int maxBatchSize,
+                      Consumer<? super List<LibraryEvent>> subscriber) {
+        this.ring = ring;
+        this.filter = filter;
+        this.maxBatchSize = maxBatchSize;
+        this.subscriber = subscriber;
+        this.cursor = ring.nextSequence();
+        this.thread = new Thread(this::run, "library-events-" + THREAD_NUMBER.incrementAndGet());
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Starts the delivery thread.
+     */
+    void start() {
+        ring.addSubscription(this);
+        thread.start();
+    }
+
+    /**
+     * Wakes the delivery thread if it is waiting for an event. Called by publishers once their event
+     * is stored.
+     */
+    void wake() {
+        if (waiting) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Retrieves the number of events delivered to the subscriber.
+     *
+     * @return The number of delivered events.
+     */
+    public long getDeliveredEvents() {
+        return deliveredEvents.sum();
+    }
+
+    /**
+     * Retrieves the number of events lost because the subscriber fell too far behind.
+     *
+     * @return The number of lost events.
+     */
+    public long getDroppedEvents() {
+        return droppedEvents.sum();
+    }
+
+    /**
+     * Retrieves the number of batches for which the subscriber threw an exception.
+     *
+     * @return The number of failed deliveries.
+     */
+    public long getFailedDeliveries() {
+        return failedDeliveries.sum();
+    }
+
+    /**
+     * Retrieves the number of published events the subscription has not read yet.
+     *
+     * @return The backlog of the subscription.
+     */
+    public long getBacklog() {
+        return Math.max(0, ring.nextSequence() - cursor);
+    }
+
+    /**
+     * Checks whether the subscription has been closed.
+     *
+     * @return True if the subscription is closed.
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Stops the delivery of events and waits for the delivery thread to finish its current batch.
+     * <p>
+     * Events read but not yet delivered are delivered before the thread ends. Does nothing if the
+     * subscription is already closed; does not wait when called by the subscriber itself.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(thread);
+        if (Thread.currentThread() == thread) {
+            return;
+        }
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Reads and delivers events until the subscription is closed.
+     */
+    private void run() {
+        ArrayList<LibraryEvent> batch = new ArrayList<>(Math.min(maxBatchSize, 1024));
+        while (!closed) {
+            boolean caughtUp = fill(batch);
+            if (batch.size() >= maxBatchSize || (caughtUp && !batch.isEmpty())) {
+                deliver(batch);
+                batch = new ArrayList<>(Math.min(maxBatchSize, 1024));
+            } else if (caughtUp) {
+                awaitEvent();
+            }
+        }
+        ring.removeSubscription(this);
+        if (!batch.isEmpty()) {
+            deliver(batch);
+        }
+    }
+
+    /**
+     * Parks the delivery thread until an event is stored at the cursor or the subscription is closed.
+     * <p>
+     * The flag is raised before the slot is checked again, and publishers check the flag after storing
+     * their event, so either this thread sees the event or its publisher unparks it. Spurious returns
+     * only cost a pass through {@link #fill}.
+     */
+    private void awaitEvent() {
+        waiting = true;
+        try {
+            LibraryEvent event = ring.slotOf(cursor);
+            if (!closed && (event == null || event.getSequence() < cursor)) {
+                LockSupport.park(this);
+            }
+        } finally {
+            waiting = false;
+        }
+    }
+
+    /**
+     * Reads published events into a batch until it is full or no further event is available.
+     *
+     * @param batch The batch being filled.
+     * @return True if every published event was read, false if the batch is full.
+     */
+    private boolean fill(ArrayList<LibraryEvent> batch) {
+        long next = cursor;
+        long published = ring.nextSequence();
+        long oldestKept = published - ring.capacity();
+        if (next < oldestKept) {
+            droppedEvents.add(oldestKept - next);
+            next = oldestKept;
+        }
+        try {
+            while (next < published) {
+                if (batch.size() >= maxBatchSize) {
+                    return false;
+                }
+                LibraryEvent event = ring.slotOf(next);
+                if (event == null || event.getSequence() < next) {
+                    return true; // Claimed by a publisher that has not stored it yet
+                }
+                if (event.getSequence() > next) {
+                    droppedEvents.increment(); // Overwritten before it was read
+                } else if (filter.test(event)) {
+                    batch.add(event);
+                }
+                next++;
+            }
+            return true;
+        } finally {
+            cursor = next;
+        }
+    }
+
+    /**
+     * Hands a batch to the subscriber.
+     *
+     * @param batch The events to deliver.
+     */
+    private void deliver(ArrayList<LibraryEvent> batch) {
+        try {
+            subscriber.accept(Collections.unmodifiableList(batch));
+        } catch (RuntimeException e) {
+            failedDeliveries.increment();
+        }
+        deliveredEvents.add(batch.size());
+    }
+}
@@ -0,0 +1,521 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Validates the text fields of books and members.
+ * <p>
+ * All rules are implemented as hand-written character-class scanners instead of regular
+ * expressions, so checking a value neither compiles a pattern nor allocates when the value is
+ * valid. Every rule exists in two forms:
+ * - {@code xxxError(value)} returns the violation message, or {@code null} if the value is valid.
+ * - {@code validateXxx(value)} returns the trimmed value, or throws an {@code IllegalArgumentException}.
+ * <p>
+ * The bulk methods check a whole batch and gather every violation instead of stopping at the first one.
+ * Large batches are split into ranges checked in parallel on the common fork-join pool; violations are
+ * still reported in batch order.
+ */
+public final class FieldValidator {
+
+    /**
+     * Maximum number of characters allowed in a book title.
+     */
+    public static final int MAX_TITLE_LENGTH = 100;
+
+    /**
+     * Maximum number of characters allowed in an author name.
+     */
+    public static final int MAX_AUTHOR_LENGTH = 50;
+
+    /**
+     * Minimum number of characters required in a member name.
+     */
+    public static final int MIN_NAME_LENGTH = 2;
+
+    /**
+     * Maximum number of characters allowed in a member name.
+     */
+    public static final int MAX_NAME_LENGTH = 50;
+
+    /**
+     * Smallest number of entries checked by a single fork-join task. Smaller batches are checked on
+     * the calling thread.
+     */
+    private static final int PARALLEL_THRESHOLD = 4096;
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private FieldValidator() {
+    }
+
+    /**
+     * Checks a book title.
+     * <p>
+     * The title must be non-empty after trimming, at most 100 characters long, and contain only letters,
+     * numbers, whitespace and the punctuation characters {@code . , ' -}.
+     *
+     * @param title The title to check.
+     * @return The violation message, or {@code null} if the title is valid.
+     */
+    public static String titleError(String title) {
+        if (title == null) {
+            return "Title cannot be null or empty.";
+        }
+        int start = trimStart(title);
+        int end = trimEnd(title, start);
+        if (start == end) {
+            return "Title cannot be null or empty.";
+        }
+        if (end - start > MAX_TITLE_LENGTH) {
+            return "Title cannot exceed 100 characters.";
+        }
+        for (int i = start; i < end; i++) {
+            char c = title.charAt(i);
+            if (!isAsciiLetter(c) && !isAsciiDigit(c) && !isRegexWhitespace(c)
+                    && c != '.' && c != ',' && c != '\'' && c != '-') {
+                return "Title contains invalid characters. Only letters, numbers, spaces, and common punctuation are allowed.";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks an author name.
+     * <p>
+     * The name must be non-empty after trimming, at most 50 characters long, contain only letters and
+     * whitespace, and include at least a first name and a last name separated by a space.
+     *
+     * @param author The author name to check.
+     * @return The violation message, or {@code null} if the author name is valid.
+     */
+    public static String authorError(String author) {
+        if (author == null) {
+            return "Author name cannot be null or empty.";
+        }
+        int start = trimStart(author);
+        int end = trimEnd(author, start);
+        if (start == end) {
+            return "Author name cannot be null or empty.";
+        }
+        if (end - start > MAX_AUTHOR_LENGTH) {
+            return "Author name cannot exceed 50 characters.";
+        }
+        if (!isLettersAndSpaces(author, start, end)) {
+            return "Author name can only contain letters and spaces.";
+        }
+        if (author.indexOf(' ', start) < 0 || author.indexOf(' ', start) >= end) {
+            return "Name must include at least a first name and a last name.";
+        }
+        return null;
+    }
+
+    /**
+     * Checks a member name.
+     * <p>
+     * The name must be non-empty after trimming, between 2 and 50 characters long, contain only letters
+     * and whitespace, and include at least a first and last name separated by a space.
+     *
+     * @param name The member name to check.
+     * @return The violation message, or {@code null} if the name is valid.
+     */
+    public static String nameError(String name) {
+        if (name == null) {
+            return "Name cannot be null or empty.";
+        }
+        int start = trimStart(name);
+        int end = trimEnd(name, start);
+        if (start == end) {
+            return "Name cannot be null or empty.";
+        }
+        if (end - start < MIN_NAME_LENGTH) {
+            return "Name must be at least 2 characters long.";
+        }
+        if (end - start > MAX_NAME_LENGTH) {
+            return "Name cannot be longer than 50 characters.";
+        }
+        if (!isLettersAndSpaces(name, start, end)) {
+            return "Name can only contain letters and spaces.";
+        }
+        if (name.indexOf(' ', start) < 0 || name.indexOf(' ', start) >= end) {
+            return "Name must include at least a first and last name.";
+        }
+        return null;
+    }
+
+    /**
+     * Checks an International Standard Book Number (ISBN).
+     * <p>
+     * The ISBN must be non-empty after trimming and consist of exactly 10 or 13 decimal digits.
+     *
+     * @param ISBN The ISBN to check.
+     * @return The violation message, or {@code null} if the ISBN is valid.
+     */
+    public static String isbnError(String ISBN) {
+        if (ISBN == null) {
+            return "ISBN cannot be null or empty.";
+        }
+        int start = trimStart(ISBN);
+        int end = trimEnd(ISBN, start);
+        if (start == end) {
+            return "ISBN cannot be null or empty.";
+        }
+        int length = end - start;
+        if (length != 10 && length != 13) {
+            return "Invalid ISBN. It must be either 10 or 13 digits long.";
+        }
+        for (int i = start; i < end; i++) {
+            if (!isAsciiDigit(ISBN.charAt(i))) {
+                return "Invalid ISBN. It must be either 10 or 13 digits long.";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Validates a book title and returns it trimmed.
+     *
+     * @param title The title to validate.
+     * @return The trimmed title.
+     * @throws IllegalArgumentException If the title is invalid.
+     */
+    public static String validateTitle(String title) {
+        return requireValid(title, titleError(title));
+    }
+
+    /**
+     * Validates an author name and returns it trimmed.
+     *
+     * @param author The author name to validate.
+     * @return The trimmed author name.
+     * @throws IllegalArgumentException If the author name is invalid.
+     */
+    public static String validateAuthor(String author) {
+        return requireValid(author, authorError(author));
+    }
+
+    /**
+     * Validates a member name and returns it trimmed.
+     *
+     * @param name The member name to validate.
+     * @return The trimmed member name.
+     * @throws IllegalArgumentException If the member name is invalid.
+     */
+    public static String validateName(String name) {
+        return requireValid(name, nameError(name));
+    }
+
+    /**
+     * Validates an ISBN and returns it trimmed.
+     *
+     * @param ISBN The ISBN to validate.
+     * @return The trimmed ISBN.
+     * @throws IllegalArgumentException If the ISBN is invalid.
+     */
+    public static String validateIsbn(String ISBN) {
+        return requireValid(ISBN, isbnError(ISBN));
+    }
+
+    /**
+     * Checks every book in a batch and gathers all violations.
+     * <p>
+     * Each book is checked for null entries, and its title, author and ISBN are checked against the
+     * same rules as the {@code Book} setters. Each violation is prefixed with the position of the book
+     * in the batch.
+     *
+     * @param books The books to check. Must be non-null.
+     * @return A list of every violation found; empty if all books are valid.
+     */
+    public static List<String> collectBookErrors(List<? extends Book> books) {
+        return collectErrors(books.size(), (from, to, violations) -> collectBookErrors(books, from, to, violations));
+    }
+
+    /**
+     * Checks a range of books in a batch and appends every violation to the given list.
+     *
+     * @param books The books to check. Must be non-null.
+     * @param from The index of the first book to check, inclusive.
+     * @param to The index of the last book to check, exclusive.
+     * @param violations The list to which violations are appended.
+     */
+    static void collectBookErrors(List<? extends Book> books, int from, int to, List<String> violations) {
+        for (int i = from; i < to; i++) {
+            Book book = books.get(i);
+            if (book == null) {
+                violations.add("Book at index " + i + ": Books collection cannot contain null book entries.");
+                continue;
+            }
+            addViolation(violations, "Book at index ", i, titleError(book.getTitle()));
+            addViolation(violations, "Book at index ", i, authorError(book.getAuthor()));
+            addViolation(violations, "Book at index ", i, isbnError(book.getISBN()));
+        }
+    }
+
+    /**
+     * Checks every book in a batch and throws if any violation is found.
+     *
+     * @param books The books to check. Must be non-null.
+     * @throws ValidationException If any book is invalid, listing every violation found.
+     */
+    public static void validateBooks(List<? extends Book> books) {
+        List<String> violations = collectBookErrors(books);
+        if (!violations.isEmpty()) {
+            throw new ValidationException(violations);
+        }
+    }
+
+    /**
+     * Checks every member in a batch and gathers all violations.
+     * <p>
+     * Each member is checked for null entries, and its name, ID, borrowed books and borrowing limit
+     * are checked against the same rules as the {@code Member} setters. Each violation is prefixed
+     * with the position of the member in the batch.
+     *
+     * @param members The members to check. Must be non-null.
+     * @return A list of every violation found; empty if all members are valid.
+     */
+    public static List<String> collectMemberErrors(List<? extends Member> members) {
+        return collectErrors(members.size(), (from, to, violations) -> collectMemberErrors(members, from, to, violations));
+    }
+
+    /**
+     * Checks a range of members in a batch and appends every violation to the given list.
+     *
+     * @param members The members to check. Must be non-null.
+     * @param from The index of the first member to check, inclusive.
+     * @param to The index of the last member to check, exclusive.
+     * @param violations The list to which violations are appended.
+     */
+    static void collectMemberErrors(List<? extends Member> members, int from, int to, List<String> violations) {
+        for (int i = from; i < to; i++) {
+            Member member = members.get(i);
+            if (member == null) {
+                violations.add("Member at index " + i + ": Members collection cannot contain null member entries.");
+                continue;
+            }
+            addViolation(violations, "Member at index ", i, nameError(member.getName()));
+            if (member.getMemberIdentifier() == null) {
+                addViolation(violations, "Member at index ", i, "Invalid Member ID. It must follow the UUID format.");
+            }
+            addViolation(violations, "Member at index ", i, borrowedBooksError(member.getBorrowedBooks(), member.getBorrowingLimit()));
+        }
+    }
+
+    /**
+     * Checks every member in a batch and throws if any violation is found.
+     *
+     * @param members The members to check. Must be non-null.
+     * @throws ValidationException If any member is invalid, listing every violation found.
+     */
+    public static void validateMembers(List<? extends Member> members) {
+        List<String> violations = collectMemberErrors(members);
+        if (!violations.isEmpty()) {
+            throw new ValidationException(violations);
+        }
+    }
+
+    /**
+     * Checks the borrowed books and borrowing limit of a member.
+     *
+     * @param borrowedBooks The books held by the member.
+     * @param borrowingLimit The borrowing limit of the member.
+     * @return The violation message, or {@code null} if they are valid.
+     */
+    private static String borrowedBooksError(List<Book> borrowedBooks, int borrowingLimit) {
+        if (borrowedBooks == null) {
+            return "Borrowed books list cannot be null.";
+        }
+        if (borrowingLimit < 0) {
+            return "Borrowing limit cannot be negative.";
+        }
+        if (borrowedBooks.size() > borrowingLimit) {
+            return "Borrowed books list exceeds the borrowing limit of " + borrowingLimit + " books.";
+        }
+        for (int i = 0; i < borrowedBooks.size(); i++) {
+            if (borrowedBooks.get(i) == null) {
+                return "Borrowed books on the borrowed list cannot contain null entries.";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Runs a range check over a whole batch, splitting large batches across the common fork-join pool.
+     *
+     * @param size The number of entries in the batch.
+     * @param check The check to run on each range.
+     * @return Every violation found, in batch order.
+     */
+    private static List<String> collectErrors(int size, RangeCheck check) {
+        int leaf = Math.max(PARALLEL_THRESHOLD, size / (ForkJoinPool.getCommonPoolParallelism() * 4));
+        if (size <= leaf) {
+            ArrayList<String> violations = new ArrayList<>();
+            check.collect(0, size, violations);
+            return violations;
+        }
+        return ForkJoinPool.commonPool().invoke(new RangeTask(check, 0, size, leaf));
+    }
+
+    /**
+     * Checks a range of entries of a batch and appends every violation to a list.
+     */
+    @FunctionalInterface
+    private interface RangeCheck {
+
+        /**
+         * Checks a range of entries.
+         *
+         * @param from The index of the first entry to check, inclusive.
+         * @param to The index of the last entry to check, exclusive.
+         * @param violations The list to which violations are appended.
+         */
+        void collect(int from, int to, List<String> violations);
+    }
+
+    /**
+     * Fork-join task checking a range of a batch by halves, joining the violations in batch order.
+     */
+    private static final class RangeTask extends RecursiveTask<List<String>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient RangeCheck check;
+        private final int from;
+        private final int to;
+        private final int leaf;
+
+        RangeTask(RangeCheck check, int from, int to, int leaf) {
+            this.check = check;
+            this.from = from;
+            this.to = to;
+            this.leaf = leaf;
+        }
+
+        @Override
+        protected List<String> compute() {
+            if (to - from <= leaf) {
+                ArrayList<String> violations = new ArrayList<>();
+                check.collect(from, to, violations);
+                return violations;
+            }
+            int middle = (from + to) >>> 1;
+            RangeTask right = new RangeTask(check, middle, to, leaf);
+            right.fork();
+            List<String> violations = new RangeTask(check, from, middle, leaf).compute();
+            List<String> rightViolations = right.join();
+            if (violations.isEmpty()) {
+                return rightViolations;
+            }
+            violations.addAll(rightViolations);
+            return violations;
+        }
+    }
+
+    /**
+     * Appends a violation to the list, prefixed with the position of the offending entry.
+     *
+     * @param violations The list to which the violation is appended.
+     * @param prefix The description of the entry kind.
+     * @param index The position of the entry in the batch.
+     * @param error The violation message, or {@code null} if there is no violation.
+     */
+    static void addViolation(List<String> violations, String prefix, int index, String error) {
+        if (error != null) {
+            violations.add(prefix + index + ": " + error);
+        }
+    }
+
+    /**
+     * Returns the trimmed value, or throws if a violation was reported for it.
+     *
+     * @param value The checked value.
+     * @param error The violation message, or {@code null} if the value is valid.
+     * @return The trimmed value.
+     * @throws IllegalArgumentException If a violation was reported.
+     */
+    private static String requireValid(String value, String error) {
+        if (error != null) {
+            throw new IllegalArgumentException(error);
+        }
+        return value.trim();
+    }
+
+    /**
+     * Checks that a range of a string contains only ASCII letters and whitespace.
+     *
+     * @param value The string to check.
+     * @param start The start of the range, inclusive.
+     * @param end The end of the range, exclusive.
+     * @return True if every character in the range is a letter or whitespace, false otherwise.
+     */
+    private static boolean isLettersAndSpaces(String value, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            if (!isAsciiLetter(c) && !isRegexWhitespace(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds the first character that {@code String.trim()} would keep.
+     *
+     * @param value The string to scan.
+     * @return The index of the first character above U+0020, or the string length if there is none.
+     */
+    private static int trimStart(String value) {
+        int start = 0;
+        int length = value.length();
+        while (start < length && value.charAt(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    /**
+     * Finds the end of the range that {@code String.trim()} would keep.
+     *
+     * @param value The string to scan.
+     * @param start The index returned by {@link #trimStart(String)}.
+     * @return The index just after the last character above U+0020.
+     */
+    private static int trimEnd(String value, int start) {
+        int end = value.length();
+        while (end > start && value.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * Checks whether a character is an ASCII letter.
+     *
+     * @param c The character to check.
+     * @return True if the character is in {@code [a-zA-Z]}, false otherwise.
+     */
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    /**
+     * Checks whether a character is an ASCII digit.
+     *
+     * @param c The character to check.
+     * @return True if the character is in {@code [0-9]}, false otherwise.
+     */
+    private static boolean isAsciiDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Checks whether a character is whitespace as defined by the regular expression class {@code \s}.
+     *
+     * @param c The character to check.
+     * @return True if the character is a space, tab, line feed, vertical tab, form feed or carriage return.
+     */
+    private static boolean isRegexWhitespace(char c) {
+        return c == ' ' || (c >= '\t' && c <= '\r');
+    }
+}
@@ -0,0 +1,77 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Running totals of the ebooks in a library's catalog, per file format.
+ * <p>
+ * For each {@link EbookFormat}, the number of ebooks, their total file size and the number of
+ * available ebooks are kept up to date as ebooks join the catalog, change format or size, and are
+ * lent or returned, so they are read in constant time instead of by scanning the catalog.
+ * <p>
+ * Ebooks report their changes while their monitor is held; each total is updated atomically, so
+ * totals stay exact under concurrent changes of different ebooks.
+ */
+final class FormatStatistics {
+
+    private static final int FORMATS = EbookFormat.values().length;
+
+    private final AtomicLongArray counts = new AtomicLongArray(FORMATS);
+    private final AtomicLongArray sizes = new AtomicLongArray(FORMATS);
+    private final AtomicLongArray available = new AtomicLongArray(FORMATS);
+
+    /**
+     * Adds an ebook to the totals, or removes it.
+     *
+     * @param format The format of the ebook.
+     * @param fileSize The file size of the ebook, in kilobytes.
+     * @param isAvailable The availability status of the ebook.
+     * @param sign 1 to add the ebook, -1 to remove it.
+     */
+    void update(EbookFormat format, int fileSize, boolean isAvailable, int sign) {
+        int index = format.ordinal();
+        counts.addAndGet(index, sign);
+        sizes.addAndGet(index, (long) sign * fileSize);
+        if (isAvailable) {
+            available.addAndGet(index, sign);
+        }
+    }
+
+    /**
+     * Records that an ebook was lent or returned.
+     *
+     * @param format The format of the ebook.
+     * @param isAvailable The new availability status of the ebook.
+     */
+    void availabilityChanged(EbookFormat format, boolean isAvailable) {
+        available.addAndGet(format.ordinal(), isAvailable ? 1 : -1);
+    }
+
+    /**
+     * Retrieves the number of ebooks of a format.
+     *
+     * @param format The format.
+     * @return The number of ebooks.
+     */
+    int count(EbookFormat format) {
+        return (int) counts.get(format.ordinal());
+    }
+
+    /**
+     * Retrieves the total file size of the ebooks of a format.
+     *
+     * @param format The format.
+     * @return The total size, in kilobytes.
+     */
+    long totalSize(EbookFormat format) {
+        return sizes.get(format.ordinal());
+    }
+
+    /**
+     * Retrieves the number of available ebooks of a format.
+     *
+     * @param format The format.
+     * @return The number of available ebooks.
+     */
+    int availableCount(EbookFormat format) {
+        return (int) available.get(format.ordinal());
+    }
+}
@@ -0,0 +1,164 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Keeps the queue of members waiting for each book of a library's catalog.
+ * <p>
+ * Holds of premium members rank ahead of holds of regular members, and holds of the same tier are
+ * served in the order they were placed. Each queue is a tree keyed by rank, with the rank of each
+ * holder indexed by member ID, so placing, cancelling and serving a hold take logarithmic time in
+ * the length of the queue. Books nobody waits for have no queue at all, so millions of outstanding
+ * holds cost memory in proportion to the holds only.
+ * <p>
+ * Concurrency follows the library's checkout locking: the queue of a book is read and changed only
+ * under the lock stripe of that book.
+ */
+final class HoldQueues {
+
+    /**
+     * Added to the sequence number of a regular member's hold, so that it ranks after every premium hold.
+     */
+    private static final long REGULAR_TIER = 1L << 62;
+
+    /**
+     * Source of the sequence numbers giving holds their order within a tier.
+     */
+    private final AtomicLong nextSequence = new AtomicLong();
+
+    /**
+     * The queue of each book that has holds, keyed by book ID.
+     */
+    private final ConcurrentHashMap<Identifier, Queue> queues = new ConcurrentHashMap<>();
+
+    /**
+     * Places a hold at the end of the tier of a member.
+     * <p>
+     * The caller must hold the book's lock stripe.
+     *
+     * @param bookId The ID of the book.
+     * @param memberId The ID of the member.
+     * @param premium True if the member is a premium member.
+     * @return True if the hold was placed, false if the member already had a hold on the book.
+     */
+    boolean add(Identifier bookId, Identifier memberId, boolean premium) {
+        Queue queue = queues.computeIfAbsent(bookId, id -> new Queue());
+        if (queue.rankOf.containsKey(memberId)) {
+            return false;
+        }
+        long rank = nextSequence.getAndIncrement() + (premium ? 0 : REGULAR_TIER);
+        queue.byRank.put(rank, memberId);
+        queue.rankOf.put(memberId, rank);
+        return true;
+    }
+
+    /**
+     * Cancels the hold of a member on a book.
+     * <p>
+     * The caller must hold the book's lock stripe.
+     *
+     * @param bookId The ID of the book.
+     * @param memberId The ID of the member.
+     * @return True if the member had a hold on the book, false otherwise.
+     */
+    boolean remove(Identifier bookId, Identifier memberId) {
+        Queue queue = queues.get(bookId);
+        if (queue == null) {
+            return false;
+        }
+        Long rank = queue.rankOf.remove(memberId);
+        if (rank == null) {
+            return false;
+        }
+        queue.byRank.remove(rank);
+        if (queue.rankOf.isEmpty()) {
+            queues.remove(bookId);
+        }
+        return true;
+    }
+
+    /**
+     * Counts the holds on a book.
+     * <p>
+     * The caller must hold the book's lock stripe.
+     *
+     * @param bookId The ID of the book.
+     * @return The number of members waiting for the book.
+     */
+    int size(Identifier bookId) {
+        Queue queue = queues.get(bookId);
+        return queue == null ? 0 : queue.rankOf.size();
+    }
+
+    /**
+     * Lists the members waiting for a book, in the order they will be served.
+     * <p>
+     * The caller must hold the book's lock stripe.
+     *
+     * @param bookId The ID of the book.
+     * @return A new list of the IDs of the waiting members; empty if nobody waits for the book.
+     */
+    ArrayList<Identifier> holders(Identifier bookId) {
+        Queue queue = queues.get(bookId);
+        return queue == null ? new ArrayList<>() : new ArrayList<>(queue.byRank.values());
+    }
+
+    /**
+     * Hands a book over to the first holder in rank order that accepts it.
+     * <p>
+     * Holders that are no longer registered lose their hold; holders that cannot take the book, for
+     * example because they reached their borrowing limit, keep their place for the next return.
+     * <p>
+     * The caller must hold the book's lock stripe.
+     *
+     * @param bookId The ID of the book.
+     * @param members Resolves a member ID to the registered member, or {@code null}.
+     * @param lender Lends the book to a member, returning false if the member cannot take it.
+     * @return The member the book was lent to, whose hold is removed, or {@code null} if no holder took it.
+     */
+    Member handOff(Identifier bookId, Function<Identifier, Member> members, Predicate<Member> lender) {
+        Queue queue = queues.get(bookId);
+        if (queue == null) {
+            return null;
+        }
+        Map.Entry<Long, Identifier> entry = queue.byRank.firstEntry();
+        Member recipient = null;
+        while (entry != null && recipient == null) {
+            Member member = members.apply(entry.getValue());
+            if (member == null || lender.test(member)) {
+                queue.byRank.remove(entry.getKey());
+                queue.rankOf.remove(entry.getValue());
+                recipient = member;
+            }
+            entry = queue.byRank.higherEntry(entry.getKey());
+        }
+        if (queue.rankOf.isEmpty()) {
+            queues.remove(bookId);
+        }
+        return recipient;
+    }
+
+    /**
+     * Drops the queues of books that are no longer in the catalog.
+     * <p>
+     * The caller must hold every lock stripe of the library.
+     *
+     * @param catalog The books of the catalog by ID.
+     */
+    void retainBooks(Map<Identifier, Book> catalog) {
+        queues.keySet().removeIf(bookId -> !catalog.containsKey(bookId));
+    }
+
+    /**
+     * The holds on one book: members by rank, and the rank of each member.
+     */
+    private static final class Queue {
+        private final TreeMap<Long, Identifier> byRank = new TreeMap<>();
+        private final HashMap<Identifier, Long> rankOf = new HashMap<>();
+    }
+}
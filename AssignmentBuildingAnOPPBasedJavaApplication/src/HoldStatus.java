@@ -0,0 +1,18 @@
+/**
+ * Represents the outcome of placing a hold on a book.
+ * <p>
+ * Returned by {@code Library.placeHold()} so that callers can tell whether the member got the book
+ * straight away or is waiting for it.
+ */
+public enum HoldStatus {
+
+    /**
+     * The book was available and is now borrowed by the member; no hold was queued.
+     */
+    BORROWED,
+
+    /**
+     * The book is on loan and the member has joined its hold queue.
+     */
+    QUEUED
+}
@@ -0,0 +1,216 @@
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Represents a compact 128-bit unique identifier used internally for books and members.
+ * <p>
+ * The identifier holds the two halves of a UUID as primitive {@code long} values instead of the
+ * 36-character string form, which keeps the heap cost of every ID small and turns equality and
+ * hashing into a couple of primitive operations.
+ * <p>
+ * Key Features:
+ * - Generates random version 4 identifiers compatible with the UUID format.
+ * - Parses the canonical UUID string form without intermediate allocations.
+ * - Converts back to the canonical string form only when the ID is read or printed.
+ */
+public final class Identifier {
+
+    /**
+     * Lowercase hexadecimal digits used when formatting the identifier.
+     */
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * The most significant 64 bits of the identifier.
+     */
+    private final long mostSignificantBits;
+
+    /**
+     * The least significant 64 bits of the identifier.
+     */
+    private final long leastSignificantBits;
+
+    /**
+     * Constructs an identifier from its two 64-bit halves.
+     *
+     * @param mostSignificantBits The most significant 64 bits of the identifier.
+     * @param leastSignificantBits The least significant 64 bits of the identifier.
+     */
+    public Identifier(long mostSignificantBits, long leastSignificantBits) {
+        this.mostSignificantBits = mostSignificantBits;
+        this.leastSignificantBits = leastSignificantBits;
+    }
+
+    /**
+     * Generates a new random identifier.
+     * <p>
+     * The version and variant bits are set as for {@code UUID.randomUUID()}, so the string form
+     * is a valid version 4 UUID.
+     *
+     * @return A new random identifier.
+     */
+    public static Identifier random() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long msb = (random.nextLong() & 0xFFFFFFFFFFFF0FFFL) | 0x0000000000004000L; // Version 4
+        long lsb = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L; // IETF variant
+        return new Identifier(msb, lsb);
+    }
+
+    /**
+     * Parses an identifier from its UUID string form.
+     * <p>
+     * The canonical 36-character form is parsed directly; any other form accepted by
+     * {@code UUID.fromString()} is delegated to it.
+     *
+     * @param id The UUID string to parse. Must be non-null and follow the UUID format.
+     * @return The identifier represented by the string.
+     * @throws IllegalArgumentException If the string does not follow the UUID format.
+     */
+    public static Identifier fromString(String id) {
+        if (id == null) {
+            throw new IllegalArgumentException("Identifier cannot be null.");
+        }
+        Identifier identifier = parseCanonical(id);
+        if (identifier != null) {
+            return identifier;
+        }
+        UUID uuid = UUID.fromString(id);
+        return new Identifier(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+    }
+
+    /**
+     * Parses an identifier from its UUID string form without throwing on invalid input.
+     *
+     * @param id The UUID string to parse.
+     * @return The identifier represented by the string, or {@code null} if the string is null or not a valid UUID.
+     */
+    public static Identifier tryParse(String id) {
+        if (id == null) {
+            return null;
+        }
+        Identifier identifier = parseCanonical(id);
+        if (identifier != null || id.length() == 36) {
+            return identifier;
+        }
+        try {
+            UUID uuid = UUID.fromString(id);
+            return new Identifier(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Parses the canonical {@code 8-4-4-4-12} hexadecimal form of a UUID.
+     *
+     * @param id The string to parse.
+     * @return The parsed identifier, or {@code null} if the string is not in canonical form.
+     */
+    private static Identifier parseCanonical(String id) {
+        if (id.length() != 36
+                || id.charAt(8) != '-' || id.charAt(13) != '-'
+                || id.charAt(18) != '-' || id.charAt(23) != '-') {
+            return null;
+        }
+        long msb = 0;
+        long lsb = 0;
+        for (int i = 0; i < 36; i++) {
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                continue;
+            }
+            int digit = Character.digit(id.charAt(i), 16);
+            if (digit < 0) {
+                return null;
+            }
+            if (i < 19) {
+                msb = (msb << 4) | digit;
+            } else {
+                lsb = (lsb << 4) | digit;
+            }
+        }
+        return new Identifier(msb, lsb);
+    }
+
+    /**
+     * Retrieves the most significant 64 bits of the identifier.
+     *
+     * @return The most significant 64 bits.
+     */
+    public long getMostSignificantBits() {
+        return this.mostSignificantBits;
+    }
+
+    /**
+     * Retrieves the least significant 64 bits of the identifier.
+     *
+     * @return The least significant 64 bits.
+     */
+    public long getLeastSignificantBits() {
+        return this.leastSignificantBits;
+    }
+
+    /**
+     * Compares this identifier with another object for equality.
+     *
+     * @param o The object to compare with.
+     * @return True if the other object is an identifier with the same 128 bits, false otherwise.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Identifier)) {
+            return false;
+        }
+        Identifier other = (Identifier) o;
+        return mostSignificantBits == other.mostSignificantBits
+                && leastSignificantBits == other.leastSignificantBits;
+    }
+
+    /**
+     * Computes a hash code that mixes all 128 bits of the identifier.
+     *
+     * @return The hash code of the identifier.
+     */
+    @Override
+    public int hashCode() {
+        long hash = mostSignificantBits * 0x9E3779B97F4A7C15L ^ leastSignificantBits;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    /**
+     * Returns the canonical UUID string form of the identifier.
+     *
+     * @return The identifier formatted as a lowercase {@code 8-4-4-4-12} UUID string.
+     */
+    @Override
+    public String toString() {
+        char[] chars = new char[36];
+        formatHex(chars, 0, mostSignificantBits >>> 32, 8);
+        chars[8] = '-';
+        formatHex(chars, 9, mostSignificantBits >>> 16, 4);
+        chars[13] = '-';
+        formatHex(chars, 14, mostSignificantBits, 4);
+        chars[18] = '-';
+        formatHex(chars, 19, leastSignificantBits >>> 48, 4);
+        chars[23] = '-';
+        formatHex(chars, 24, leastSignificantBits, 12);
+        return new String(chars);
+    }
+
+    /**
+     * Writes the lowest {@code digits} hexadecimal digits of a value into a character array.
+     *
+     * @param chars The destination array.
+     * @param offset The index of the first character to write.
+     * @param value The value to format.
+     * @param digits The number of hexadecimal digits to write.
+     */
+    private static void formatHex(char[] chars, int offset, long value, int digits) {
+        for (int i = digits - 1; i >= 0; i--) {
+            chars[offset + i] = HEX_DIGITS[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Summarizes a bulk import: how many records were read and imported, and which lines were rejected and why.
+ * <p>
+ * Returned by {@link LibraryImporter}. Rejected lines are listed in file order with their line number,
+ * their text and the reason they were rejected, so they can be fixed and imported again.
+ */
+public final class ImportReport {
+
+    /**
+     * The number of records read, excluding blank lines, comments and the header.
+     */
+    private final long recordsRead;
+
+    /**
+     * The number of books and ebooks added to the catalog.
+     */
+    private final long booksImported;
+
+    /**
+     * The number of members and premium members registered.
+     */
+    private final long membersImported;
+
+    /**
+     * The rejected lines, in file order.
+     */
+    private final List<RejectedLine> rejectedLines;
+
+    /**
+     * The time taken by the import.
+     */
+    private final Duration duration;
+
+    /**
+     * Constructs an import report.
+     *
+     * @param recordsRead The number of records read.
+     * @param booksImported The number of books and ebooks added to the catalog.
+     * @param membersImported The number of members and premium members registered.
+     * @param rejectedLines The rejected lines, in file order.
+     * @param duration The time taken by the import.
+     */
+    ImportReport(long recordsRead, long booksImported, long membersImported, List<RejectedLine> rejectedLines, Duration duration) {
+        this.recordsRead = recordsRead;
+        this.booksImported = booksImported;
+        this.membersImported = membersImported;
+        this.rejectedLines = Collections.unmodifiableList(rejectedLines);
+        this.duration = duration;
+    }
+
+    /**
+     * Retrieves the number of records read, excluding blank lines, comments and the header.
+     *
+     * @return The number of records read.
+     */
+    public long getRecordsRead() {
+        return recordsRead;
+    }
+
+    /**
+     * Retrieves the number of books and ebooks added to the catalog.
+     *
+     * @return The number of books imported.
+     */
+    public long getBooksImported() {
+        return booksImported;
+    }
+
+    /**
+     * Retrieves the number of members and premium members registered.
+     *
+     * @return The number of members imported.
+     */
+    public long getMembersImported() {
+        return membersImported;
+    }
+
+    /**
+     * Retrieves the lines that were rejected.
+     *
+     * @return An unmodifiable list of the rejected lines, in file order.
+     */
+    public List<RejectedLine> getRejectedLines() {
+        return rejectedLines;
+    }
+
+    /**
+     * Retrieves the time taken by the import.
+     *
+     * @return The duration of the import.
+     */
+    public Duration getDuration() {
+        return duration;
+    }
+
+    /**
+     * Computes the import rate.
+     *
+     * @return The number of records read per second.
+     */
+    public double getRecordsPerSecond() {
+        long nanos = Math.max(1, duration.toNanos());
+        return recordsRead * 1e9 / nanos;
+    }
+
+    /**
+     * Returns a one-line summary of the import.
+     *
+     * @return The summary.
+     */
+    @Override
+    public String toString() {
+        return "Imported " + booksImported + " book(s) and " + membersImported + " member(s) from "
+                + recordsRead + " record(s) in " + duration.toMillis() + " ms; "
+                + rejectedLines.size() + " line(s) rejected.";
+    }
+
+    /**
+     * Represents a line of an import that was rejected.
+     */
+    public static final class RejectedLine {
+
+        /**
+         * The line number in the input, starting at 1.
+         */
+        private final long lineNumber;
+
+        /**
+         * The text of the line.
+         */
+        private final String line;
+
+        /**
+         * The reason the line was rejected.
+         */
+        private final String reason;
+
+        /**
+         * Constructs a rejected line.
+         *
+         * @param lineNumber The line number in the input, starting at 1.
+         * @param line The text of the line.
+         * @param reason The reason the line was rejected.
+         */
+        RejectedLine(long lineNumber, String line, String reason) {
+            this.lineNumber = lineNumber;
+            this.line = line;
+            this.reason = reason;
+        }
+
+        /**
+         * Retrieves the line number in the input.
+         *
+         * @return The line number, starting at 1.
+         */
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        /**
+         * Retrieves the text of the line.
+         *
+         * @return The line as read.
+         */
+        public String getLine() {
+            return line;
+        }
+
+        /**
+         * Retrieves the reason the line was rejected.
+         *
+         * @return The violation messages, separated by spaces.
+         */
+        public String getReason() {
+            return reason;
+        }
+
+        /**
+         * Returns the line number and the reason of the rejection.
+         *
+         * @return A description of the rejection.
+         */
+        @Override
+        public String toString() {
+            return "Line " + lineNumber + ": " + reason;
+        }
+    }
+}
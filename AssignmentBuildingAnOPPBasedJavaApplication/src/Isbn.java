@@ -0,0 +1,156 @@
+/**
+ * Converts ISBNs to a single numeric form so that ISBN-10 and ISBN-13 spellings of the same book compare equal.
+ * <p>
+ * An ISBN with a correct check digit is normalized to its ISBN-13 value: ISBN-13s are read as they are,
+ * and ISBN-10s are moved to the 978 prefix with the ISBN-13 check digit recomputed. ISBNs whose check
+ * digit is wrong cannot be related to any other spelling, so they are keyed by their own digits, in a
+ * negative range that never collides with a normalized ISBN. This keeps books whose ISBN passes
+ * {@code FieldValidator.validateIsbn()} but fails the checksum findable by the exact digits they carry.
+ * <p>
+ * An ISBN-10 check digit of ten is written {@code X}; it is accepted here even though the book setters
+ * only accept digits, so that keys can be built from ISBNs coming from outside the library.
+ */
+final class Isbn {
+
+    /**
+     * Key returned for strings that are not made of 10 or 13 digits and cannot be indexed.
+     */
+    static final long NO_KEY = Long.MIN_VALUE;
+
+    /**
+     * Offset separating keys of 10-digit ISBNs with a wrong check digit from those of 13-digit ones.
+     */
+    private static final long TEN_DIGIT_OFFSET = 10_000_000_000_000L;
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private Isbn() {
+    }
+
+    /**
+     * Computes the normalized key of an ISBN.
+     * <p>
+     * Surrounding whitespace is ignored, as it is by the book setters.
+     *
+     * @param isbn The ISBN to convert.
+     * @return The ISBN-13 value if the check digit is correct, a negative key derived from the digits if it
+     *         is not, or {@link #NO_KEY} if the string is null or not made of 10 or 13 digits.
+     */
+    static long key(String isbn) {
+        if (isbn == null) {
+            return NO_KEY;
+        }
+        String digits = isbn.trim();
+        if (digits.length() == 13) {
+            long value = digits13(digits);
+            if (value < 0) {
+                return NO_KEY;
+            }
+            return checkDigit13(value / 10) == value % 10 ? value : -value - 1;
+        }
+        if (digits.length() == 10) {
+            long body = digits9(digits);
+            int check = checkValue10(digits.charAt(9));
+            if (body < 0 || check < 0) {
+                return NO_KEY;
+            }
+            if (checkDigit10(body) == check) {
+                long isbn13 = 978_000_000_000L + body;
+                return isbn13 * 10 + checkDigit13(isbn13);
+            }
+            return check == 10 ? NO_KEY : -(TEN_DIGIT_OFFSET + body * 10 + check) - 1;
+        }
+        return NO_KEY;
+    }
+
+    /**
+     * Checks whether an ISBN-10 or ISBN-13 has a correct check digit.
+     *
+     * @param isbn The ISBN to check.
+     * @return True if the ISBN is made of 10 or 13 digits and its check digit is correct, false otherwise.
+     */
+    static boolean hasValidCheckDigit(String isbn) {
+        return key(isbn) >= 0;
+    }
+
+    /**
+     * Reads a 13-digit string as a number.
+     *
+     * @param digits The string to read.
+     * @return The value, or -1 if a character is not a digit.
+     */
+    private static long digits13(String digits) {
+        long value = 0;
+        for (int i = 0; i < 13; i++) {
+            char c = digits.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Reads the first nine characters of an ISBN-10 as a number.
+     *
+     * @param digits The ISBN-10.
+     * @return The value, or -1 if a character is not a digit.
+     */
+    private static long digits9(String digits) {
+        long value = 0;
+        for (int i = 0; i < 9; i++) {
+            char c = digits.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Reads the check character of an ISBN-10.
+     *
+     * @param c The check character.
+     * @return Its value from 0 to 10, or -1 if it is not a digit or {@code X}.
+     */
+    private static int checkValue10(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        return c == 'X' || c == 'x' ? 10 : -1;
+    }
+
+    /**
+     * Computes the ISBN-10 check value of nine digits: weights 10 down to 2, modulo 11.
+     *
+     * @param body The first nine digits.
+     * @return The check value from 0 to 10.
+     */
+    private static int checkDigit10(long body) {
+        int sum = 0;
+        for (int weight = 2; weight <= 10; weight++) {
+            sum += (int) (body % 10) * weight;
+            body /= 10;
+        }
+        return (11 - sum % 11) % 11;
+    }
+
+    /**
+     * Computes the ISBN-13 check digit of twelve digits: alternate weights 1 and 3, modulo 10.
+     *
+     * @param body The first twelve digits.
+     * @return The check digit.
+     */
+    private static int checkDigit13(long body) {
+        int sum = 0;
+        for (int i = 0; i < 12; i++) {
+            // Digits are read from the right, where the twelfth digit has weight 3
+            sum += (int) (body % 10) * (i % 2 == 0 ? 3 : 1);
+            body /= 10;
+        }
+        return (10 - sum % 10) % 10;
+    }
+}
@@ -0,0 +1,160 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index of the physical copies in a library's catalog, grouped by normalized ISBN.
+ * <p>
+ * Each group keeps every copy of an ISBN and, separately, the copies that are currently available,
+ * so the first available copy of an ISBN is found in constant time however many copies are on loan.
+ * Available copies are handed out in the order they became available, which spreads loans across copies.
+ * <p>
+ * Books in the catalog report their ISBN and availability changes through the library while their
+ * monitor is held. Groups are created and dropped atomically in the map; each group guards its own sets.
+ */
+final class IsbnIndex {
+
+    /**
+     * Copy groups keyed by {@link Isbn#key(String)}.
+     */
+    private final ConcurrentHashMap<Long, Copies> groups = new ConcurrentHashMap<>();
+
+    /**
+     * Adds a book to the group of its ISBN.
+     *
+     * @param book The book to add.
+     * @param isbn The ISBN of the book.
+     * @param available The availability status of the book.
+     */
+    void add(Book book, String isbn, boolean available) {
+        long key = Isbn.key(isbn);
+        if (key == Isbn.NO_KEY) {
+            return;
+        }
+        groups.compute(key, (k, copies) -> {
+            if (copies == null) {
+                copies = new Copies();
+            }
+            copies.add(book, available);
+            return copies;
+        });
+    }
+
+    /**
+     * Removes a book from the group of its ISBN, dropping the group once it is empty.
+     *
+     * @param book The book to remove.
+     * @param isbn The ISBN the book was indexed under.
+     */
+    void remove(Book book, String isbn) {
+        long key = Isbn.key(isbn);
+        if (key == Isbn.NO_KEY) {
+            return;
+        }
+        groups.computeIfPresent(key, (k, copies) -> copies.remove(book) ? null : copies);
+    }
+
+    /**
+     * Records an availability change of a book.
+     *
+     * @param book The book whose availability changed.
+     * @param isbn The ISBN of the book.
+     * @param available The new availability status of the book.
+     */
+    void setAvailable(Book book, String isbn, boolean available) {
+        long key = Isbn.key(isbn);
+        if (key == Isbn.NO_KEY) {
+            return;
+        }
+        Copies copies = groups.get(key);
+        if (copies != null) {
+            copies.setAvailable(book, available);
+        }
+    }
+
+    /**
+     * Retrieves the first available copy of an ISBN.
+     *
+     * @param key The normalized ISBN.
+     * @return An available copy, or {@code null} if every copy is on loan or there is none.
+     */
+    Book firstAvailable(long key) {
+        Copies copies = groups.get(key);
+        return copies == null ? null : copies.firstAvailable();
+    }
+
+    /**
+     * Retrieves every copy of an ISBN.
+     *
+     * @param key The normalized ISBN.
+     * @return A new list of the copies in the order they joined the catalog; empty if there is none.
+     */
+    ArrayList<Book> copies(long key) {
+        Copies copies = groups.get(key);
+        return copies == null ? new ArrayList<>() : copies.all();
+    }
+
+    /**
+     * Counts the available copies of an ISBN.
+     *
+     * @param key The normalized ISBN.
+     * @return The number of available copies.
+     */
+    int availableCount(long key) {
+        Copies copies = groups.get(key);
+        return copies == null ? 0 : copies.availableCount();
+    }
+
+    /**
+     * The copies of one ISBN.
+     */
+    private static final class Copies {
+
+        private final LinkedHashSet<Book> all = new LinkedHashSet<>();
+        private final LinkedHashSet<Book> available = new LinkedHashSet<>();
+
+        synchronized void add(Book book, boolean isAvailable) {
+            all.add(book);
+            if (isAvailable) {
+                available.add(book);
+            }
+        }
+
+        /**
+         * Removes a copy.
+         *
+         * @param book The copy to remove.
+         * @return True if the group is now empty, false otherwise.
+         */
+        synchronized boolean remove(Book book) {
+            all.remove(book);
+            available.remove(book);
+            return all.isEmpty();
+        }
+
+        synchronized void setAvailable(Book book, boolean isAvailable) {
+            if (!all.contains(book)) {
+                return;
+            }
+            if (isAvailable) {
+                available.add(book);
+            } else {
+                available.remove(book);
+            }
+        }
+
+        synchronized Book firstAvailable() {
+            Iterator<Book> iterator = available.iterator();
+            return iterator.hasNext() ? iterator.next() : null;
+        }
+
+        synchronized ArrayList<Book> all() {
+            return new ArrayList<>(all);
+        }
+
+        synchronized int availableCount() {
+            return available.size();
+        }
+    }
+}
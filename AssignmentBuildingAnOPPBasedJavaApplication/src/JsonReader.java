@@ -0,0 +1,587 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Reads a JSON document from a character stream one token at a time.
+ * <p>
+ * The reader is a pull parser: callers inspect the next token with {@link #peek()} and consume it with
+ * the matching method, such as {@link #beginObject()}, {@link #nextName()} or {@link #nextString()}.
+ * Only a small fixed-size buffer and the current token are held in memory, so documents of any size can
+ * be read in constant memory.
+ * <p>
+ * Malformed input is reported as an {@code IOException} that names the offending line.
+ */
+public final class JsonReader implements Closeable {
+
+    /**
+     * Kinds of tokens produced by the reader.
+     */
+    public enum Token {
+        BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+    }
+
+    /**
+     * Nesting state: inside an array with no elements yet.
+     */
+    private static final int EMPTY_ARRAY = 1;
+
+    /**
+     * Nesting state: inside an array with at least one element.
+     */
+    private static final int NONEMPTY_ARRAY = 2;
+
+    /**
+     * Nesting state: inside an object with no members yet.
+     */
+    private static final int EMPTY_OBJECT = 3;
+
+    /**
+     * Nesting state: inside an object, after a member value.
+     */
+    private static final int NONEMPTY_OBJECT = 4;
+
+    /**
+     * Nesting state: inside an object, after a member name and before its value.
+     */
+    private static final int DANGLING_NAME = 5;
+
+    /**
+     * Nesting state: at the top level, before the single root value.
+     */
+    private static final int EMPTY_DOCUMENT = 6;
+
+    /**
+     * Nesting state: at the top level, after the single root value.
+     */
+    private static final int NONEMPTY_DOCUMENT = 7;
+
+    /**
+     * The source of the document.
+     */
+    private final Reader in;
+
+    /**
+     * Input buffer, refilled from the source whenever it is exhausted.
+     */
+    private final char[] buffer = new char[8192];
+
+    /**
+     * Position of the next unread character in the buffer.
+     */
+    private int pos;
+
+    /**
+     * Number of valid characters in the buffer.
+     */
+    private int limit;
+
+    /**
+     * Current line number, used in error messages.
+     */
+    private int line = 1;
+
+    /**
+     * Stack of nesting states; the top is the innermost open structure.
+     */
+    private int[] stack = new int[32];
+
+    /**
+     * Number of entries on the nesting stack.
+     */
+    private int stackSize;
+
+    /**
+     * The next token, or {@code null} if it has not been read yet.
+     */
+    private Token peeked;
+
+    /**
+     * Text of the peeked name, string or number token.
+     */
+    private String peekedText;
+
+    /**
+     * Value of the peeked boolean token.
+     */
+    private boolean peekedBoolean;
+
+    /**
+     * Reusable builder for string tokens.
+     */
+    private final StringBuilder text = new StringBuilder();
+
+    /**
+     * Constructs a JSON reader.
+     *
+     * @param in The source of the document. Must be non-null.
+     * @throws IllegalArgumentException If the source is null.
+     */
+    public JsonReader(Reader in) {
+        if (in == null) {
+            throw new IllegalArgumentException("Input cannot be null.");
+        }
+        this.in = in;
+        this.stack[stackSize++] = EMPTY_DOCUMENT;
+    }
+
+    /**
+     * Retrieves the kind of the next token without consuming it.
+     *
+     * @return The kind of the next token.
+     * @throws IOException If the source cannot be read or the document is malformed.
+     */
+    public Token peek() throws IOException {
+        if (peeked != null) {
+            return peeked;
+        }
+        int c;
+        switch (stack[stackSize - 1]) {
+            case EMPTY_ARRAY:
+                stack[stackSize - 1] = NONEMPTY_ARRAY;
+                c = nextNonWhitespace();
+                if (c == ']') {
+                    return peeked = Token.END_ARRAY;
+                }
+                return peeked = readValue(c);
+            case NONEMPTY_ARRAY:
+                c = nextNonWhitespace();
+                if (c == ']') {
+                    return peeked = Token.END_ARRAY;
+                }
+                if (c != ',') {
+                    throw syntaxError("Expected ',' or ']' in array");
+                }
+                return peeked = readValue(nextNonWhitespace());
+            case EMPTY_OBJECT:
+            case NONEMPTY_OBJECT:
+                c = nextNonWhitespace();
+                if (c == '}') {
+                    return peeked = Token.END_OBJECT;
+                }
+                if (stack[stackSize - 1] == NONEMPTY_OBJECT) {
+                    if (c != ',') {
+                        throw syntaxError("Expected ',' or '}' in object");
+                    }
+                    c = nextNonWhitespace();
+                }
+                if (c != '"') {
+                    throw syntaxError("Expected a quoted member name");
+                }
+                peekedText = readString();
+                if (nextNonWhitespace() != ':') {
+                    throw syntaxError("Expected ':' after member name");
+                }
+                stack[stackSize - 1] = DANGLING_NAME;
+                return peeked = Token.NAME;
+            case DANGLING_NAME:
+                stack[stackSize - 1] = NONEMPTY_OBJECT;
+                return peeked = readValue(nextNonWhitespace());
+            case EMPTY_DOCUMENT:
+                stack[stackSize - 1] = NONEMPTY_DOCUMENT;
+                return peeked = readValue(nextNonWhitespace());
+            default:
+                if (nextNonWhitespace() != -1) {
+                    throw syntaxError("Unexpected content after the root value");
+                }
+                return peeked = Token.END_DOCUMENT;
+        }
+    }
+
+    /**
+     * Checks whether the current object or array has more entries.
+     *
+     * @return True if the next token is not the end of an object, an array or the document.
+     * @throws IOException If the source cannot be read or the document is malformed.
+     */
+    public boolean hasNext() throws IOException {
+        Token token = peek();
+        return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END_DOCUMENT;
+    }
+
+    /**
+     * Consumes the start of an object.
+     *
+     * @throws IOException If the source cannot be read or the next token is not the start of an object.
+     */
+    public void beginObject() throws IOException {
+        expect(Token.BEGIN_OBJECT);
+        push(EMPTY_OBJECT);
+    }
+
+    /**
+     * Consumes the end of the current object.
+     *
+     * @throws IOException If the source cannot be read or the next token is not the end of an object.
+     */
+    public void endObject() throws IOException {
+        expect(Token.END_OBJECT);
+        stackSize--;
+    }
+
+    /**
+     * Consumes the start of an array.
+     *
+     * @throws IOException If the source cannot be read or the next token is not the start of an array.
+     */
+    public void beginArray() throws IOException {
+        expect(Token.BEGIN_ARRAY);
+        push(EMPTY_ARRAY);
+    }
+
+    /**
+     * Consumes the end of the current array.
+     *
+     * @throws IOException If the source cannot be read or the next token is not the end of an array.
+     */
+    public void endArray() throws IOException {
+        expect(Token.END_ARRAY);
+        stackSize--;
+    }
+
+    /**
+     * Consumes a member name.
+     *
+     * @return The member name.
+     * @throws IOException If the source cannot be read or the next token is not a name.
+     */
+    public String nextName() throws IOException {
+        expect(Token.NAME);
+        return peekedText;
+    }
+
+    /**
+     * Consumes a string value.
+     *
+     * @return The string value.
+     * @throws IOException If the source cannot be read or the next token is not a string.
+     */
+    public String nextString() throws IOException {
+        expect(Token.STRING);
+        return peekedText;
+    }
+
+    /**
+     * Consumes a boolean value.
+     *
+     * @return The boolean value.
+     * @throws IOException If the source cannot be read or the next token is not a boolean.
+     */
+    public boolean nextBoolean() throws IOException {
+        expect(Token.BOOLEAN);
+        return peekedBoolean;
+    }
+
+    /**
+     * Consumes an integer value.
+     *
+     * @return The integer value as a long.
+     * @throws IOException If the source cannot be read or the next token is not an integer that fits in a long.
+     */
+    public long nextLong() throws IOException {
+        expect(Token.NUMBER);
+        try {
+            return Long.parseLong(peekedText);
+        } catch (NumberFormatException e) {
+            throw syntaxError("Expected an integer but was " + peekedText);
+        }
+    }
+
+    /**
+     * Consumes an integer value that fits in an int.
+     *
+     * @return The integer value.
+     * @throws IOException If the source cannot be read or the next token is not an integer that fits in an int.
+     */
+    public int nextInt() throws IOException {
+        long value = nextLong();
+        if (value != (int) value) {
+            throw syntaxError("Integer out of range: " + value);
+        }
+        return (int) value;
+    }
+
+    /**
+     * Consumes a {@code null} value.
+     *
+     * @throws IOException If the source cannot be read or the next token is not null.
+     */
+    public void nextNull() throws IOException {
+        expect(Token.NULL);
+    }
+
+    /**
+     * Consumes the next value, including all nested values if it is an object or array.
+     *
+     * @throws IOException If the source cannot be read or the document is malformed.
+     */
+    public void skipValue() throws IOException {
+        int depth = 0;
+        do {
+            Token token = peek();
+            peeked = null;
+            switch (token) {
+                case BEGIN_OBJECT:
+                    push(EMPTY_OBJECT);
+                    depth++;
+                    break;
+                case BEGIN_ARRAY:
+                    push(EMPTY_ARRAY);
+                    depth++;
+                    break;
+                case END_OBJECT:
+                case END_ARRAY:
+                    stackSize--;
+                    depth--;
+                    break;
+                case END_DOCUMENT:
+                    throw syntaxError("Unexpected end of document");
+                default:
+                    break;
+            }
+        } while (depth > 0 || peekedIsName());
+    }
+
+    /**
+     * Closes the underlying source.
+     *
+     * @throws IOException If the source cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Checks whether the last consumed token was a member name, in which case its value must be skipped too.
+     *
+     * @return True if the reader is positioned after a member name.
+     */
+    private boolean peekedIsName() {
+        return stack[stackSize - 1] == DANGLING_NAME;
+    }
+
+    /**
+     * Consumes the next token, checking that it is of the expected kind.
+     *
+     * @param expected The expected kind of token.
+     * @throws IOException If the source cannot be read or the next token is of another kind.
+     */
+    private void expect(Token expected) throws IOException {
+        Token token = peek();
+        if (token != expected) {
+            throw syntaxError("Expected " + expected + " but was " + token);
+        }
+        peeked = null;
+    }
+
+    /**
+     * Pushes a new nesting state.
+     *
+     * @param state The state to push.
+     */
+    private void push(int state) {
+        if (stackSize == stack.length) {
+            stack = Arrays.copyOf(stack, stackSize * 2);
+        }
+        stack[stackSize++] = state;
+    }
+
+    /**
+     * Reads the value starting with the given character.
+     *
+     * @param c The first character of the value.
+     * @return The kind of the value.
+     * @throws IOException If the source cannot be read or the value is malformed.
+     */
+    private Token readValue(int c) throws IOException {
+        switch (c) {
+            case '{':
+                return Token.BEGIN_OBJECT;
+            case '[':
+                return Token.BEGIN_ARRAY;
+            case '"':
+                peekedText = readString();
+                return Token.STRING;
+            case 't':
+                readLiteral("rue");
+                peekedBoolean = true;
+                return Token.BOOLEAN;
+            case 'f':
+                readLiteral("alse");
+                peekedBoolean = false;
+                return Token.BOOLEAN;
+            case 'n':
+                readLiteral("ull");
+                return Token.NULL;
+            case -1:
+                throw syntaxError("Unexpected end of document");
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    peekedText = readNumber((char) c);
+                    return Token.NUMBER;
+                }
+                throw syntaxError("Unexpected character '" + (char) c + "'");
+        }
+    }
+
+    /**
+     * Reads the rest of a literal such as {@code true}, {@code false} or {@code null}.
+     *
+     * @param rest The characters expected after the first one.
+     * @throws IOException If the source cannot be read or the literal does not match.
+     */
+    private void readLiteral(String rest) throws IOException {
+        for (int i = 0; i < rest.length(); i++) {
+            if (read() != rest.charAt(i)) {
+                throw syntaxError("Invalid literal");
+            }
+        }
+    }
+
+    /**
+     * Reads the rest of a number.
+     *
+     * @param first The first character of the number.
+     * @return The text of the number.
+     * @throws IOException If the source cannot be read.
+     */
+    private String readNumber(char first) throws IOException {
+        text.setLength(0);
+        text.append(first);
+        while (true) {
+            if (pos == limit && !fill()) {
+                break;
+            }
+            char c = buffer[pos];
+            if ((c >= '0' && c <= '9') || c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-') {
+                text.append(c);
+                pos++;
+            } else {
+                break;
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Reads the rest of a quoted string, resolving escape sequences.
+     *
+     * @return The unescaped string.
+     * @throws IOException If the source cannot be read or the string is malformed.
+     */
+    private String readString() throws IOException {
+        text.setLength(0);
+        while (true) {
+            int c = read();
+            if (c == '"') {
+                return text.toString();
+            }
+            if (c == -1) {
+                throw syntaxError("Unterminated string");
+            }
+            if (c < 0x20) {
+                throw syntaxError("Unescaped control character in string");
+            }
+            if (c != '\\') {
+                text.append((char) c);
+                continue;
+            }
+            int escaped = read();
+            switch (escaped) {
+                case '"':
+                case '\\':
+                case '/':
+                    text.append((char) escaped);
+                    break;
+                case 'n':
+                    text.append('\n');
+                    break;
+                case 'r':
+                    text.append('\r');
+                    break;
+                case 't':
+                    text.append('\t');
+                    break;
+                case 'b':
+                    text.append('\b');
+                    break;
+                case 'f':
+                    text.append('\f');
+                    break;
+                case 'u':
+                    int value = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int digit = Character.digit(read(), 16);
+                        if (digit < 0) {
+                            throw syntaxError("Invalid unicode escape");
+                        }
+                        value = (value << 4) | digit;
+                    }
+                    text.append((char) value);
+                    break;
+                default:
+                    throw syntaxError("Invalid escape sequence");
+            }
+        }
+    }
+
+    /**
+     * Skips whitespace and reads the next significant character.
+     *
+     * @return The next non-whitespace character, or -1 at the end of the source.
+     * @throws IOException If the source cannot be read.
+     */
+    private int nextNonWhitespace() throws IOException {
+        while (true) {
+            int c = read();
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+                return c;
+            }
+        }
+    }
+
+    /**
+     * Reads the next character from the buffer, refilling it from the source when needed.
+     *
+     * @return The next character, or -1 at the end of the source.
+     * @throws IOException If the source cannot be read.
+     */
+    private int read() throws IOException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+        char c = buffer[pos++];
+        if (c == '\n') {
+            line++;
+        }
+        return c;
+    }
+
+    /**
+     * Refills the buffer from the source.
+     *
+     * @return True if at least one character was read, false at the end of the source.
+     * @throws IOException If the source cannot be read.
+     */
+    private boolean fill() throws IOException {
+        int read = in.read(buffer, 0, buffer.length);
+        if (read <= 0) {
+            return false;
+        }
+        pos = 0;
+        limit = read;
+        return true;
+    }
+
+    /**
+     * Builds an exception describing malformed input at the current line.
+     *
+     * @param message The description of the problem.
+     * @return The exception to throw.
+     */
+    private IOException syntaxError(String message) {
+        return new IOException("Malformed JSON at line " + line + ": " + message);
+    }
+}
@@ -0,0 +1,429 @@
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Writes a JSON document to a character stream one token at a time.
+ * <p>
+ * The writer never holds more than a small fixed-size buffer of output, so documents of any size can be
+ * produced in constant memory. Strings are escaped as required by RFC 8259, and the output is
+ * pretty-printed with two-space indentation.
+ * <p>
+ * Usage follows the structure of the document: {@link #beginObject()}, then {@link #name(String)} and a
+ * value for every member, then {@link #endObject()}; arrays work the same way without names. Misuse,
+ * such as a value without a name inside an object, throws an {@code IllegalStateException}.
+ */
+public final class JsonWriter implements Closeable, Flushable {
+
+    /**
+     * Nesting state: inside an array with no elements yet.
+     */
+    private static final int EMPTY_ARRAY = 1;
+
+    /**
+     * Nesting state: inside an array with at least one element.
+     */
+    private static final int NONEMPTY_ARRAY = 2;
+
+    /**
+     * Nesting state: inside an object with no members yet.
+     */
+    private static final int EMPTY_OBJECT = 3;
+
+    /**
+     * Nesting state: inside an object, after a member value.
+     */
+    private static final int NONEMPTY_OBJECT = 4;
+
+    /**
+     * Nesting state: inside an object, after a member name and before its value.
+     */
+    private static final int DANGLING_NAME = 5;
+
+    /**
+     * Nesting state: at the top level, before the single root value.
+     */
+    private static final int EMPTY_DOCUMENT = 6;
+
+    /**
+     * Nesting state: at the top level, after the single root value.
+     */
+    private static final int NONEMPTY_DOCUMENT = 7;
+
+    /**
+     * Hexadecimal digits used for {@code \\u} escapes.
+     */
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * The destination of the document.
+     */
+    private final Writer out;
+
+    /**
+     * Output buffer, written to the destination whenever it fills up.
+     */
+    private final char[] buffer = new char[8192];
+
+    /**
+     * Number of characters currently held in the buffer.
+     */
+    private int count;
+
+    /**
+     * Stack of nesting states; the top is the innermost open structure.
+     */
+    private int[] stack = new int[32];
+
+    /**
+     * Number of entries on the nesting stack.
+     */
+    private int stackSize;
+
+    /**
+     * Constructs a JSON writer.
+     *
+     * @param out The destination of the document. Must be non-null.
+     * @throws IllegalArgumentException If the destination is null.
+     */
+    public JsonWriter(Writer out) {
+        if (out == null) {
+            throw new IllegalArgumentException("Output cannot be null.");
+        }
+        this.out = out;
+        this.stack[stackSize++] = EMPTY_DOCUMENT;
+    }
+
+    /**
+     * Starts a JSON object.
+     *
+     * @return This writer.
+     * @throws IOException If the destination fails to accept the output.
+     */
+    public JsonWriter beginObject() throws IOException {
+        beforeValue();
+        push(EMPTY_OBJECT);
+        write('{');
+        return this;
+    }
+
+    /**
+     * Ends the current JSON object.
+     *
+     * @return This writer.
+     * @throws IOException If the destination fails to accept the output.
+     */
+    public JsonWriter endObject() throws IOException {
+        return close(EMPTY_OBJECT, NONEMPTY_OBJECT, '}');
+    }
+
+    /**
+     * Starts a JSON array.
+     *
+     * @return This writer.
+     * @throws IOException If the destination fails to accept the output.
+     */
+    public JsonWriter beginArray() throws IOException {
+        beforeValue();
+        push(EMPTY_ARRAY);
+        write('[');
+        return this;
+    }
+
+    /**
+     * Ends the current JSON array.
+     *
+     * @return This writer.
+     * @throws IOException If the destination fails to accept the output.
+     */
+    public JsonWriter endArray() throws IOException {
+        return close(EMPTY_ARRAY, NONEMPTY_ARRAY, ']');
+    }
+
+    /**
+     * Writes the name of the next member of the current object.
+     *
+     * @param name The member name. Must be non-null.
+     * @return This writer.
+     * @throws IOException If the destination fails to accept the output.
+     * @throws IllegalStateException If the writer is not inside an object awaiting a name.
+     */
+    public JsonWriter name(String name) throws IOException {
+        if (name == null) {
+            throw new IllegalArgumentException("Name cannot be null.");
+        }
+        int context = peek();
+        if (context != EMPTY_OBJECT && context != NONEMPTY_OBJECT) {
+            throw new IllegalStateException("A name is only allowed inside an object.");
+        }
+        if (context == NONEMPTY_OBJECT) {
+            write(',');
+        }
+        newline();
+        stack[stackSize - 1] = DANGLING_NAME;
+        writeString(name);
+        write(':');
+        write(' ');
+        return this;
+    }
+
+    /**
+     * Writes a string value, or {@code null} if the value is null.
+     *
+     * @param value The value to write.
+     * @return This writer.
+     * @throws IOException If the destination fails to accept the output.
+     */
+    public JsonWriter value(String value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        beforeValue();
+        writeString(value);
+        return this;
+    }
+
+    /**
+     * Writes a boolean value.
+     *
+     * @param value The value to write.
+     * @return This writer.
+     * @throws IOException If the destination fails to accept the output.
+     */
+    public JsonWriter value(boolean value) throws IOException {
+        beforeValue();
+        write(value ? "true" : "false");
+        return this;
+    }
+
+    /**
+     * Writes an integer value.
+     *
+     * @param value The value to write.
+     * @return This writer.
+     * @throws IOException If the destination fails to accept the output.
+     */
+    public JsonWriter value(long value) throws IOException {
+        beforeValue();
+        write(Long.toString(value));
+        return this;
+    }
+
+    /**
+     * Writes a {@code null} value.
+     *
+     * @return This writer.
+     * @throws IOException If the destination fails to accept the output.
+     */
+    public JsonWriter nullValue() throws IOException {
+        beforeValue();
+        write("null");
+        return this;
+    }
+
+    /**
+     * Writes all buffered output to the destination and flushes it.
+     *
+     * @throws IOException If the destination fails to accept the output.
+     */
+    @Override
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    /**
+     * Writes all buffered output and closes the destination.
+     *
+     * @throws IOException If the destination fails to accept the output, or the document is incomplete.
+     */
+    @Override
+    public void close() throws IOException {
+        drain();
+        out.close();
+        if (stackSize > 1 || peek() != NONEMPTY_DOCUMENT) {
+            throw new IOException("Incomplete JSON document.");
+        }
+    }
+
+    /**
+     * Prepares for a value: writes the separator and indentation it needs and updates the nesting state.
+     *
+     * @throws IOException If the destination fails to accept the output.
+     * @throws IllegalStateException If a value is not allowed at this point of the document.
+     */
+    private void beforeValue() throws IOException {
+        switch (peek()) {
+            case EMPTY_DOCUMENT:
+                stack[stackSize - 1] = NONEMPTY_DOCUMENT;
+                break;
+            case EMPTY_ARRAY:
+                stack[stackSize - 1] = NONEMPTY_ARRAY;
+                newline();
+                break;
+            case NONEMPTY_ARRAY:
+                write(',');
+                newline();
+                break;
+            case DANGLING_NAME:
+                stack[stackSize - 1] = NONEMPTY_OBJECT;
+                break;
+            case NONEMPTY_DOCUMENT:
+                throw new IllegalStateException("A JSON document can only hold a single root value.");
+            default:
+                throw new IllegalStateException("A value inside an object must be preceded by a name.");
+        }
+    }
+
+    /**
+     * Closes the current object or array.
+     *
+     * @param empty The nesting state of the structure when it has no entries.
+     * @param nonempty The nesting state of the structure when it has entries.
+     * @param bracket The closing bracket.
+     * @return This writer.
+     * @throws IOException If the destination fails to accept the output.
+     * @throws IllegalStateException If the current structure is not of the expected kind.
+     */
+    private JsonWriter close(int empty, int nonempty, char bracket) throws IOException {
+        int context = peek();
+        if (context != empty && context != nonempty) {
+            throw new IllegalStateException("Nesting problem: cannot close '" + bracket + "' here.");
+        }
+        stackSize--;
+        if (context == nonempty) {
+            newline();
+        }
+        write(bracket);
+        return this;
+    }
+
+    /**
+     * Retrieves the innermost nesting state.
+     *
+     * @return The state on top of the nesting stack.
+     */
+    private int peek() {
+        return stack[stackSize - 1];
+    }
+
+    /**
+     * Pushes a new nesting state.
+     *
+     * @param state The state to push.
+     */
+    private void push(int state) {
+        if (stackSize == stack.length) {
+            stack = Arrays.copyOf(stack, stackSize * 2);
+        }
+        stack[stackSize++] = state;
+    }
+
+    /**
+     * Starts a new line indented to the current nesting depth.
+     *
+     * @throws IOException If the destination fails to accept the output.
+     */
+    private void newline() throws IOException {
+        write('\n');
+        for (int i = 1; i < stackSize; i++) {
+            write(' ');
+            write(' ');
+        }
+    }
+
+    /**
+     * Writes a quoted and escaped JSON string.
+     *
+     * @param value The string to write.
+     * @throws IOException If the destination fails to accept the output.
+     */
+    private void writeString(String value) throws IOException {
+        write('"');
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    write('\\');
+                    write('"');
+                    break;
+                case '\\':
+                    write('\\');
+                    write('\\');
+                    break;
+                case '\n':
+                    write('\\');
+                    write('n');
+                    break;
+                case '\r':
+                    write('\\');
+                    write('r');
+                    break;
+                case '\t':
+                    write('\\');
+                    write('t');
+                    break;
+                case '\b':
+                    write('\\');
+                    write('b');
+                    break;
+                case '\f':
+                    write('\\');
+                    write('f');
+                    break;
+                default:
+                    if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                        write('\\');
+                        write('u');
+                        write(HEX_DIGITS[(c >> 12) & 0xF]);
+                        write(HEX_DIGITS[(c >> 8) & 0xF]);
+                        write(HEX_DIGITS[(c >> 4) & 0xF]);
+                        write(HEX_DIGITS[c & 0xF]);
+                    } else {
+                        write(c);
+                    }
+            }
+        }
+        write('"');
+    }
+
+    /**
+     * Appends a string to the buffer.
+     *
+     * @param text The text to append.
+     * @throws IOException If the destination fails to accept the output.
+     */
+    private void write(String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            write(text.charAt(i));
+        }
+    }
+
+    /**
+     * Appends a character to the buffer, draining the buffer to the destination when it is full.
+     *
+     * @param c The character to append.
+     * @throws IOException If the destination fails to accept the output.
+     */
+    private void write(char c) throws IOException {
+        if (count == buffer.length) {
+            drain();
+        }
+        buffer[count++] = c;
+    }
+
+    /**
+     * Writes the buffered characters to the destination.
+     *
+     * @throws IOException If the destination fails to accept the output.
+     */
+    private void drain() throws IOException {
+        if (count > 0) {
+            out.write(buffer, 0, count);
+            count = 0;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records latencies into log-linear buckets, in the manner of an HDR histogram.
+ * <p>
+ * Each power of two of nanoseconds is split into {@value #SUB_BUCKETS} equal buckets, so every
+ * recorded value is kept with a relative error below 1/{@value #SUB_BUCKETS} (about 3%) across the
+ * whole range, in a fixed amount of memory. Latencies of {@code 2^MAX_EXPONENT} nanoseconds (about
+ * 18 minutes) or more are counted in the last bucket.
+ * <p>
+ * Recording is lock-free and touches a single bucket: threads are spread over striped bucket arrays,
+ * allocated the first time a thread of a stripe records, so concurrent recorders rarely write to the
+ * same cache line. Snapshots add the stripes up and may miss values recorded while they run.
+ */
+final class LatencyHistogram {
+
+    /**
+     * Number of bits of precision kept below the highest set bit of a value.
+     */
+    private static final int SUB_BUCKET_BITS = 5;
+
+    /**
+     * Number of buckets per power of two.
+     */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Exponent of the first power of two of nanoseconds that is no longer recorded exactly.
+     */
+    private static final int MAX_EXPONENT = 40;
+
+    /**
+     * Total number of buckets: values below {@code SUB_BUCKETS} have a bucket each, and every
+     * power of two above them up to {@code MAX_EXPONENT} has {@code SUB_BUCKETS} buckets.
+     */
+    private static final int BUCKETS = SUB_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    /**
+     * Upper bound on the number of stripes, whatever the number of processors.
+     */
+    private static final int MAX_STRIPES = 64;
+
+    /**
+     * The striped bucket arrays, created on first use.
+     */
+    private final AtomicReferenceArray<AtomicLongArray> stripes;
+
+    /**
+     * Mask applied to a spread thread hash to select a stripe.
+     */
+    private final int mask;
+
+    /**
+     * The sum of every recorded value, in nanoseconds.
+     */
+    private final LongAdder sum = new LongAdder();
+
+    /**
+     * The highest recorded value, in nanoseconds.
+     */
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Constructs an empty histogram with one stripe per processor, rounded up to a power of two.
+     */
+    LatencyHistogram() {
+        int processors = Math.min(MAX_STRIPES, Runtime.getRuntime().availableProcessors());
+        int size = 1;
+        while (size < processors) {
+            size <<= 1;
+        }
+        this.stripes = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos The latency, in nanoseconds. Negative values are recorded as zero.
+     */
+    void record(long nanos) {
+        long value = Math.max(0, nanos);
+        int hash = Thread.currentThread().hashCode();
+        int stripe = (hash ^ (hash >>> 16)) & mask;
+        AtomicLongArray buckets = stripes.get(stripe);
+        if (buckets == null) {
+            stripes.compareAndSet(stripe, null, new AtomicLongArray(BUCKETS));
+            buckets = stripes.get(stripe);
+        }
+        buckets.incrementAndGet(bucketOf(value));
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Takes a snapshot of the recorded latencies.
+     *
+     * @return The count, mean, maximum and percentiles of the latencies recorded so far.
+     */
+    LatencySnapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        long count = 0;
+        for (int s = 0; s < stripes.length(); s++) {
+            AtomicLongArray buckets = stripes.get(s);
+            if (buckets == null) {
+                continue;
+            }
+            for (int i = 0; i < BUCKETS; i++) {
+                long c = buckets.get(i);
+                counts[i] += c;
+                count += c;
+            }
+        }
+        long highest = max.get();
+        return new LatencySnapshot(count, count == 0 ? 0 : (double) sum.sum() / count, highest,
+                valueAt(counts, count, 0.50, highest), valueAt(counts, count, 0.90, highest),
+                valueAt(counts, count, 0.99, highest), valueAt(counts, count, 0.999, highest));
+    }
+
+    /**
+     * Clears every recorded latency. Values recorded concurrently may or may not survive the reset.
+     */
+    void reset() {
+        for (int s = 0; s < stripes.length(); s++) {
+            AtomicLongArray buckets = stripes.get(s);
+            if (buckets == null) {
+                continue;
+            }
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets.set(i, 0);
+            }
+        }
+        sum.reset();
+        max.reset();
+    }
+
+    /**
+     * Maps a value to its bucket.
+     *
+     * @param value The value, in nanoseconds. Must not be negative.
+     * @return The index of the bucket counting the value.
+     */
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent >= MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Finds the highest value counted by a bucket.
+     *
+     * @param bucket The index of the bucket.
+     * @return The highest value, in nanoseconds, that maps to the bucket.
+     */
+    static long highestValueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = (bucket - SUB_BUCKETS) / SUB_BUCKETS + SUB_BUCKET_BITS;
+        long subBucket = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return (1L << exponent) + subBucket * width + width - 1;
+    }
+
+    /**
+     * Finds the value below or at which a fraction of the recorded values fall.
+     *
+     * @param counts The merged bucket counts.
+     * @param count The total of the counts.
+     * @param quantile The fraction, between 0 and 1.
+     * @param highest The highest recorded value, which bounds the result.
+     * @return The value at the quantile, in nanoseconds, or 0 if nothing was recorded.
+     */
+    private static long valueAt(long[] counts, long count, double quantile, long highest) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestValueOf(i), highest);
+            }
+        }
+        return highest;
+    }
+}
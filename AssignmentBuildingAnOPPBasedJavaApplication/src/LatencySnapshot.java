@@ -0,0 +1,139 @@
+/**
+ * A point-in-time summary of the latencies of a library operation.
+ * <p>
+ * Taken from the metrics of a library through {@link LibraryMetrics}. All latencies are in
+ * nanoseconds; percentiles are accurate to about 3% of their value. Published over JMX as a
+ * composite value whose items are named after the getters.
+ */
+public final class LatencySnapshot {
+
+    /**
+     * The number of recorded operations.
+     */
+    private final long count;
+
+    /**
+     * The mean latency.
+     */
+    private final double mean;
+
+    /**
+     * The highest latency.
+     */
+    private final long max;
+
+    /**
+     * The median latency.
+     */
+    private final long p50;
+
+    /**
+     * The 90th percentile of the latencies.
+     */
+    private final long p90;
+
+    /**
+     * The 99th percentile of the latencies.
+     */
+    private final long p99;
+
+    /**
+     * The 99.9th percentile of the latencies.
+     */
+    private final long p999;
+
+    /**
+     * Constructs a latency snapshot.
+     *
+     * @param count The number of recorded operations.
+     * @param mean The mean latency.
+     * @param max The highest latency.
+     * @param p50 The median latency.
+     * @param p90 The 90th percentile of the latencies.
+     * @param p99 The 99th percentile of the latencies.
+     * @param p999 The 99.9th percentile of the latencies.
+     */
+    LatencySnapshot(long count, double mean, long max, long p50, long p90, long p99, long p999) {
+        this.count = count;
+        this.mean = mean;
+        this.max = max;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.p999 = p999;
+    }
+
+    /**
+     * Retrieves the number of recorded operations.
+     *
+     * @return The number of operations.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Retrieves the mean latency.
+     *
+     * @return The mean latency, in nanoseconds, or 0 if nothing was recorded.
+     */
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * Retrieves the highest latency.
+     *
+     * @return The highest latency, in nanoseconds.
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Retrieves the median latency.
+     *
+     * @return The median latency, in nanoseconds.
+     */
+    public long getP50() {
+        return p50;
+    }
+
+    /**
+     * Retrieves the 90th percentile of the latencies.
+     *
+     * @return The 90th percentile, in nanoseconds.
+     */
+    public long getP90() {
+        return p90;
+    }
+
+    /**
+     * Retrieves the 99th percentile of the latencies.
+     *
+     * @return The 99th percentile, in nanoseconds.
+     */
+    public long getP99() {
+        return p99;
+    }
+
+    /**
+     * Retrieves the 99.9th percentile of the latencies.
+     *
+     * @return The 99.9th percentile, in nanoseconds.
+     */
+    public long getP999() {
+        return p999;
+    }
+
+    /**
+     * Returns a one-line summary of the latencies, in microseconds.
+     *
+     * @return The summary.
+     */
+    @Override
+    public String toString() {
+        return String.format("count=%d mean=%.1fus p50=%.1fus p90=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus",
+                count, mean / 1e3, p50 / 1e3, p90 / 1e3, p99 / 1e3, p999 / 1e3, max / 1e3);
+    }
+}
@@ -1,4 +1,20 @@
+import java.time.Clock;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
 
 /**
  * Represents a library system that manages collections of books and members.
@@ -10,36 +26,181 @@ import java.util.ArrayList;
  * Key Features:
  * - Maintains two main collections: {@code booksCollection} and {@code membersCollection}.
  * - Provides methods for robust management of library operations.
+ * - Is safe to share between threads: lookups go through concurrent indexes without a global lock,
+ *   checkouts lock only the stripes of the books involved, and a book is lent to at most one member.
  * <p>
  * This class assumes that valid book and member objects are provided for its operations.
  */
 public class Library {
 
     /**
-     * Represents the collection of books in the library.
+     * The minimum number of lock stripes guarding checkouts, keyed on book ID.
+     */
+    private static final int CHECKOUT_LOCK_STRIPES = 256;
+
+    /**
+     * The number of rows gathered under the read lock at a time by the display methods.
+     */
+    private static final int DISPLAY_CHUNK_SIZE = 1024;
+
+    /**
+     * The number of events kept for subscribers that fall behind.
+     */
+    private static final int EVENT_RING_CAPACITY = 1 << 16;
+
+    /**
+     * The number of events per batch delivered to subscribers that do not choose one.
+     */
+    private static final int DEFAULT_EVENT_BATCH_SIZE = 256;
+
+    /**
+     * Represents the collection of books, the collection of members and the loans of the library,
+     * as successive immutable versions.
+     * <p>
+     * The current version holds the {@code booksCollection} and {@code membersCollection} as
+     * persistent lists, which every addition or replacement extends or rebuilds before publishing
+     * the next version. Each book in the collection must be a valid instance of the Book class, and
+     * each member a valid instance of the Member class. Readers take the current version with a
+     * single read, so {@link #snapshot()} never waits for writers and never delays them.
+     */
+    private final VersionedState versions = new VersionedState();
+
+    /**
+     * Index of the books collection keyed by the compact form of the book ID.
+     * <p>
+     * Kept in step with {@code booksCollection} so that a book can be resolved in constant time
+     * instead of scanning the whole collection. Lookups read it without taking any lock.
+     */
+    private volatile ConcurrentHashMap<Identifier, Book> booksIndex;
+
+    /**
+     * Index of the members collection keyed by the compact form of the member ID.
+     * <p>
+     * Kept in step with {@code membersCollection} so that a member can be resolved in constant time
+     * instead of scanning the whole collection. Lookups read it without taking any lock.
+     */
+    private volatile ConcurrentHashMap<Identifier, Member> membersIndex;
+
+    /**
+     * Bitmap of book availability indexed by position in {@code booksCollection}.
+     * <p>
+     * Books in the catalog report every availability change to it, so available and unavailable
+     * books can be listed without scanning the whole catalog and counted in constant time.
+     */
+    private volatile AvailabilityBitmap availabilityIndex = new AvailabilityBitmap();
+
+    /**
+     * Inverted index of the words of the titles and authors in {@code booksCollection}, by catalog position.
+     * <p>
+     * Books in the catalog report every title and author change to it, so searches never scan the catalog.
+     */
+    private volatile TextIndex textIndex = new TextIndex();
+
+    /**
+     * Index of the copies in {@code booksCollection} grouped by normalized ISBN.
+     * <p>
+     * Books in the catalog report every ISBN and availability change to it, so the first available
+     * copy of an ISBN is found in constant time.
+     */
+    private volatile IsbnIndex isbnIndex = new IsbnIndex();
+
+    /**
+     * Running totals of the ebooks in {@code booksCollection} per file format.
+     * <p>
+     * Ebooks in the catalog report every format, size and availability change to it, so storage and
+     * format figures are read in constant time.
+     */
+    private volatile FormatStatistics formatStatistics = new FormatStatistics();
+
+    /**
+     * Guards structural changes to {@code booksCollection} and {@code membersCollection}.
+     * <p>
+     * Adding and replacing entries takes the write lock; iterating the collections takes the read lock.
+     * Lookups by ID never take this lock.
+     */
+    private final ReentrantReadWriteLock collectionsLock = new ReentrantReadWriteLock();
+
+    /**
+     * Lock stripes keyed on book ID, held while a book's availability is checked and changed.
+     * <p>
+     * Together with the member's monitor, they guarantee that a book is given to at most one member.
+     */
+    private final LockStripes checkoutLocks = new LockStripes(CHECKOUT_LOCK_STRIPES);
+
+    /**
+     * Due dates of the current loans, one timing wheel per checkout lock stripe.
+     * <p>
+     * Loans are scheduled and cancelled by the checkouts and returns holding their stripe, and
+     * {@link #scanOverdue()} advances each wheel under its stripe to find the loans just become overdue.
+     */
+    private final OverdueWheel overdueWheel = new OverdueWheel(checkoutLocks, () -> this.clock.millis());
+
+    /**
+     * The clock giving the time of checkouts, due dates and events.
+     */
+    private volatile Clock clock = Clock.systemUTC();
+
+    /**
+     * Transaction log that records every state-changing operation, or {@code null} if the library is not logged.
+     * <p>
+     * Records are appended while the locks of the operation are held, so they are logged in the order
+     * the operations take effect, and each operation waits for its record to be durable after releasing them.
+     */
+    private volatile TransactionLog journal;
+
+    /**
+     * Ledger of the books currently lent by the library, indexed by book and by member.
+     * <p>
+     * Every checkout and return goes through it, and it keeps the availability of books and the
+     * borrowed books of members in step with the loans it records.
+     */
+    private volatile LoanLedger loanLedger = new LoanLedger(overdueWheel, versions);
+
+    /**
+     * Queues of the members waiting for books on loan.
+     * <p>
+     * When a book is returned, it is lent straight away to the first member of its queue whose
+     * borrowing limit allows it, under the same lock stripe as the return.
+     */
+    private final HoldQueues holdQueues = new HoldQueues();
+
+    /**
+     * Counters and latency histograms of the operations of this library.
      * <p>
-     * Each book in this collection must be a valid instance of the Book class,
-     * containing attributes such as title, author, ISBN, and availability.
+     * Always on; published over JMX once {@link LibraryMetrics#registerMBean(String)} is called.
      */
-    private ArrayList<Book> booksCollection;
+    private final LibraryMetrics metrics = new LibraryMetrics();
 
     /**
-     * Represents the collection of members registered in the library system.
+     * Ring buffer of the events published to subscribers, or {@code null} until the first subscription.
      * <p>
-     * Each member in this collection must be a valid instance of the Member class,
-     * with attributes such as ID, name, and membership details.
+     * Events are published while the locks of the operation are held, so the events of a book are
+     * numbered in the order its changes took effect; publishing never waits for subscribers.
      */
-    private ArrayList<Member> membersCollection;
+    private volatile EventRing events;
 
     /**
      * Default constructor for the Library class.
      * <p>
      * Initializes a Library object with empty collections for books and members.
-     * Both collections are instantiated as new ArrayList objects.
      */
     public Library() {
-        booksCollection = new ArrayList<>();
-        membersCollection = new ArrayList<>();
+        booksIndex = new ConcurrentHashMap<>();
+        membersIndex = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Constructor for the Library class that sizes its empty indexes for a known number of books and members.
+     * <p>
+     * Used when restoring a library whose size is known up front, so that its indexes are not
+     * repeatedly grown while it is filled.
+     *
+     * @param expectedBooks The number of books the library is about to receive.
+     * @param expectedMembers The number of members the library is about to receive.
+     */
+    Library(int expectedBooks, int expectedMembers) {
+        booksIndex = new ConcurrentHashMap<>(expectedBooks);
+        membersIndex = new ConcurrentHashMap<>(expectedMembers);
     }
 
     /**
@@ -58,42 +219,176 @@ public class Library {
 
     /**
      * Retrieves the collection of books.
+     * <p>
+     * The list is a copy of the current catalog: changing it does not change the library, and
+     * iterating it is not affected by concurrent checkouts. Use {@link #snapshot()} to read the
+     * catalog without copying it.
      *
-     * @return an arrayList of integers representing the books collection
+     * @return A new list holding the books of the catalog, in catalog order.
      */
     public ArrayList<Book> getBooksCollection() {
-        return booksCollection;
+        return new ArrayList<>(versions.current().getBooks());
     }
 
     /**
      * Sets the books collection for the library with validation to ensure data integrity.
      * <p>
-     * This method uses the static method {@code Book.areValidBooksCollection()} to validate the provided
-     * collection of books. If the validation fails, an exception is thrown. The validated collection
-     * is then assigned to the {@code booksCollection} field.
+     * The provided collection of books is validated with the same rules as
+     * {@code Book.areValidBooksCollection()}, and book IDs must be unique. Large collections are
+     * validated in parallel, and every violation is reported at once. The validated books then
+     * become the {@code booksCollection}; later changes to the given list do not affect the library.
      *
      * @param booksCollection The collection of books to be assigned to the library.
      *                        Must be non-null and meet all validation requirements.
-     * @throws RuntimeException If the books collection fails validation.
+     * @throws IllegalArgumentException If the books collection is null or empty.
+     * @throws ValidationException If the books collection fails validation, listing every violation found.
      */
     public void setBooksCollection(ArrayList<Book> booksCollection) {
 
+        // Validate if new book collection is not null and not empty
+        if (booksCollection == null || booksCollection.isEmpty()) {
+            throw new IllegalArgumentException("Books collection cannot be null or empty.");
+        }
+
+        // Verify every book in the collection and build the new index, gathering all violations at once
+        List<String> violations = FieldValidator.collectBookErrors(booksCollection);
+        ConcurrentHashMap<Identifier, Book> newBooksIndex = buildIndex(booksCollection, Book::getIdentifier,
+                "Book at index ", "Books collection cannot contain duplicate book IDs.", violations);
+        if (!violations.isEmpty()) {
+            metrics.validationFailed(violations.size());
+            throw new ValidationException(violations);
+        }
+
+        TransactionLog log = this.journal;
+        long ticket = 0;
+        int[] stripes = checkoutLocks.allStripes();
+        collectionsLock.writeLock().lock();
+        checkoutLocks.lockAll(stripes);
         try {
-            Book.areValidBooksCollection(booksCollection);
-        } catch (RuntimeException e) {
-            throw new RuntimeException(e);
+            for (Book book : booksCollection) {
+                Library owner = book.getLibrary();
+                if (owner != null && owner != this) {
+                    throw new IllegalArgumentException("Books collection cannot contain books from another library.");
+                }
+            }
+            if (log != null) {
+                ticket = log.append(TransactionLog.replaceBooksRecord(booksCollection, this));
+            }
+
+            for (Book book : versions.current().getBooks()) {
+                book.detachFromCatalog(this);
+            }
+
+            // Loans and holds of books that left the catalog are dropped, and their members give the books back
+            LoanLedger previous = this.loanLedger;
+            this.loanLedger = previous.retain(this.membersIndex, newBooksIndex);
+            this.loanLedger.releaseDropped(previous, this.membersIndex, this.booksIndex);
+            this.holdQueues.retainBooks(newBooksIndex);
+
+            // Move the catalog positions and availability index over to the new collection
+            this.availabilityIndex = new AvailabilityBitmap();
+            this.textIndex = new TextIndex();
+            this.isbnIndex = new IsbnIndex();
+            this.formatStatistics = new FormatStatistics();
+            for (int position = 0; position < booksCollection.size(); position++) {
+                booksCollection.get(position).attachToCatalog(this, position);
+            }
+
+            this.booksIndex = newBooksIndex;
+            versions.catalogReplaced(booksCollection, this.loanLedger.loans());
+        } finally {
+            checkoutLocks.unlockAll(stripes);
+            collectionsLock.writeLock().unlock();
+        }
+        if (log != null) {
+            log.awaitDurable(ticket);
         }
+    }
+
+    /**
+     * Builds the ID index of a collection in parallel on the common fork-join pool, reporting duplicate IDs.
+     * <p>
+     * Null entries and entries without an ID are skipped, as they are reported by field validation.
+     * Every entry whose ID already appears earlier in the collection is reported, so the violations do
+     * not depend on which thread indexed which entry first.
+     *
+     * @param entries The collection to index.
+     * @param id Extracts the ID of an entry.
+     * @param prefix The description of the entry kind, used to prefix violations.
+     * @param duplicate The violation message for a duplicate ID.
+     * @param violations The list to which violations are appended.
+     * @return The index of the entries by ID.
+     */
+    private static <T> ConcurrentHashMap<Identifier, T> buildIndex(List<T> entries, Function<T, Identifier> id,
+                                                                   String prefix, String duplicate, List<String> violations) {
+        ConcurrentHashMap<Identifier, T> index = new ConcurrentHashMap<>(entries.size() * 2);
+        Set<Identifier> duplicated = ConcurrentHashMap.newKeySet();
+        IntStream.range(0, entries.size()).parallel().forEach(i -> {
+            T entry = entries.get(i);
+            Identifier key = entry == null ? null : id.apply(entry);
+            if (key != null && index.putIfAbsent(key, entry) != null) {
+                duplicated.add(key);
+            }
+        });
 
-        this.booksCollection = booksCollection;
+        // Duplicates are rare, so they are attributed in collection order by a second, sequential pass
+        if (!duplicated.isEmpty()) {
+            HashSet<Identifier> seen = new HashSet<>();
+            for (int i = 0; i < entries.size(); i++) {
+                T entry = entries.get(i);
+                Identifier key = entry == null ? null : id.apply(entry);
+                if (key != null && duplicated.contains(key) && !seen.add(key)) {
+                    FieldValidator.addViolation(violations, prefix, i, duplicate);
+                }
+            }
+        }
+        return index;
     }
 
     /**
      * Retrieves the collection of members.
+     * <p>
+     * The list is a copy of the current members: changing it does not change the library, and
+     * iterating it is not affected by concurrent registrations. Use {@link #snapshot()} to read the
+     * members without copying them.
      *
-     * @return an arrayList of members representing the members collection
+     * @return A new list holding the registered members, in registration order.
      */
     public ArrayList<Member> getMembersCollection() {
-        return membersCollection;
+        return new ArrayList<>(versions.current().getMembers());
+    }
+
+    /**
+     * Takes a snapshot of the catalog, the members and the loans of the library.
+     * <p>
+     * The snapshot is the current version of the library state, published by the last change, so
+     * taking it costs a single read whatever the size of the library. It never changes afterwards:
+     * reports can walk it for as long as they need without locking anything, and checkouts, returns
+     * and additions go on meanwhile, publishing later versions.
+     *
+     * @return An immutable view of the library state at one point in time.
+     */
+    public LibrarySnapshot snapshot() {
+        return versions.current();
+    }
+
+    /**
+     * Takes a snapshot once every change made under the write lock has been published.
+     * <p>
+     * Replacements, additions and registrations are logged before their version is published, so a
+     * snapshot taken with {@link #snapshot()} just after their record was appended could miss them.
+     * Taking it under the read lock waits for them. Checkouts and returns are published before they
+     * are logged and need no wait.
+     *
+     * @return The current version of the library state.
+     */
+    LibrarySnapshot settledSnapshot() {
+        collectionsLock.readLock().lock();
+        try {
+            return versions.current();
+        } finally {
+            collectionsLock.readLock().unlock();
+        }
     }
 
     /**
@@ -101,17 +396,22 @@ public class Library {
      * <p>
      * This method validates that the provided collection is not null or empty. Additionally,
      * it checks that each member in the collection meets specific criteria:
+     * - The member must not be null.
      * - The member's name must be valid (non-null and non-empty).
-     * - The member's ID must be valid (non-null and follow expected formatting).
-     * - The borrowed books collection must be valid.
-     * - The member's borrowing limit must be within acceptable ranges.
+     * - The member's ID must be present and unique within the collection.
+     * - The borrowed books list must be non-null, hold no null entries and fit within the borrowing limit.
+     * - The member's borrowing limit must not be negative.
+     * <p>
+     * Large collections are validated in parallel, and every violation is reported at once.
      * <p>
-     * Any validation failures will throw an exception with a descriptive message.
+     * Members that stay keep their loans. The books held by members joining the library become their
+     * loans, as by {@link #registerMember(Member)}, and members leaving it give their books back.
      *
      * @param membersCollection The collection of members to be assigned to the library.
      *                          Must be non-null, non-empty, and contain valid member objects.
-     * @throws IllegalArgumentException If the collection is null or empty.
-     * @throws RuntimeException If any member in the collection fails validation checks.
+     * @throws IllegalArgumentException If the collection is null or empty, holds members of another library,
+     *                                  or a joining member holds a book the library cannot lend it.
+     * @throws ValidationException If any member in the collection fails validation checks, listing every violation found.
      */
     public void setMembersCollection(ArrayList<Member> membersCollection) {
 
@@ -120,296 +420,2166 @@ public class Library {
             throw new IllegalArgumentException("Member collection cannot be null or empty.");
         }
 
-        // Verify that the new members collection does not contain invalid members
-        for (Member member : membersCollection) {
+        // Verify every member in the collection and build the new index, gathering all violations at once
+        List<String> violations = FieldValidator.collectMemberErrors(membersCollection);
+        ConcurrentHashMap<Identifier, Member> newMembersIndex = buildIndex(membersCollection, Member::getMemberIdentifier,
+                "Member at index ", "Members collection cannot contain duplicate member IDs.", violations);
+        if (!violations.isEmpty()) {
+            metrics.validationFailed(violations.size());
+            throw new ValidationException(violations);
+        }
 
-            try {
-                Member.isValidName(member.getName());
-                Member.isValidMemberId(member.getName());
-                member.areValidBorrowedBooks(member.getBorrowedBooks());
-                member.isValidBorrowingLimit(member.getBorrowingLimit());
-            } catch (Exception e) {
-                throw new RuntimeException(e);
+        TransactionLog log = this.journal;
+        long ticket = 0;
+        int[] stripes = checkoutLocks.allStripes();
+        collectionsLock.writeLock().lock();
+        checkoutLocks.lockAll(stripes);
+        try {
+            ArrayList<Member> joining = new ArrayList<>();
+            HashSet<Identifier> held = new HashSet<>();
+            for (Member member : membersCollection) {
+                Library library = member.getLibrary();
+                if (library != null && library != this) {
+                    throw new IllegalArgumentException("Members collection cannot contain members from another library.");
+                }
+                if (library == null) {
+                    String error = holdingsError(holdingsStatus(member));
+                    if (error != null) {
+                        throw new IllegalArgumentException(error);
+                    }
+                    for (Book book : member.getBorrowedBooks()) {
+                        if (!held.add(book.getIdentifier())) {
+                            throw new IllegalArgumentException("Members collection cannot contain two members holding the same book.");
+                        }
+                    }
+                    joining.add(member);
+                }
+            }
+            if (log != null) {
+                ticket = log.append(TransactionLog.replaceMembersRecord(membersCollection, this));
             }
+            ConcurrentHashMap<Identifier, Member> previousMembers = this.membersIndex;
+            this.membersIndex = newMembersIndex;
 
-        }
+            // Loans of members that are no longer registered end, and their books become available
+            LoanLedger previous = this.loanLedger;
+            this.loanLedger = previous.retain(newMembersIndex, this.booksIndex);
+            this.loanLedger.releaseDropped(previous, previousMembers, this.booksIndex);
+            for (Member member : versions.current().getMembers()) {
+                if (newMembersIndex.get(member.getMemberIdentifier()) != member) {
+                    member.leaveLibrary(this);
+                    synchronized (member) {
+                        member.clearBorrowedBooks();
+                    }
+                }
+            }
 
-        this.membersCollection = membersCollection;
+            // Joining members borrow the books they bring
+            for (Member member : joining) {
+                member.joinLibrary(this);
+                ticket = Math.max(ticket, adopt(member, log));
+            }
+            versions.membersReplaced(membersCollection, this.loanLedger.loans());
+        } finally {
+            checkoutLocks.unlockAll(stripes);
+            collectionsLock.writeLock().unlock();
+        }
+        if (log != null) {
+            log.awaitDurable(ticket);
+        }
     }
 
     /**
      * Adds a book to the library's collection.
      * <p>
-     * This method appends the provided book to the {@code booksCollection}. It assumes the book has
-     * already been validated prior to invocation to ensure data integrity.
+     * This method appends the provided book to the {@code booksCollection} and records its availability
+     * in the availability index. The book joins the catalog available, as the library has not lent it
+     * to anyone yet. It assumes the book has already been validated prior to invocation to ensure data integrity.
      *
      * @param book The book to be added to the library's collection. Must be a valid instance of the Book class.
+     * @throws IllegalArgumentException If the book is null, is already in a library catalog, or its ID is already in use.
      */
     public void addBook(Book book) {
-        this.booksCollection.add(book);
+        long start = System.nanoTime();
+        boolean added = false;
+        try {
+            if (book == null) {
+                throw new IllegalArgumentException("Book cannot be null.");
+            }
+
+            TransactionLog log = this.journal;
+            long ticket = 0;
+            collectionsLock.writeLock().lock();
+            try {
+                if (this.booksIndex.containsKey(book.getIdentifier())) {
+                    throw new IllegalArgumentException("A book with the same ID is already in the library.");
+                }
+                if (book.getLibrary() != null) {
+                    throw new IllegalArgumentException("Book is already in a library catalog.");
+                }
+                ticket = catalog(book, versions.current().getBookCount(), log);
+                versions.booksAdded(List.of(book));
+            } finally {
+                collectionsLock.writeLock().unlock();
+            }
+            if (log != null) {
+                log.awaitDurable(ticket);
+            }
+            added = true;
+        } finally {
+            metrics.addBookCompleted(start, added);
+        }
     }
 
     /**
-     * Registers a new member in the library's members collection.
+     * Adds a batch of books to the library's collection under a single acquisition of the write lock.
      * <p>
-     * This method adds the provided member to the {@code membersCollection}. It assumes that the
-     * member has been validated prior to invocation to ensure data integrity.
+     * Used by bulk imports. Books whose ID is already in use, including earlier in the batch, or that
+     * already belong to a catalog are skipped rather than failing the batch. The books added are
+     * published as a single new version of the catalog. When the library is
+     * logged, the additions are appended one record per book and the method waits once for all of
+     * them to be durable.
      *
-     * @param member The member to be registered in the library. Must be a valid instance of the Member class.
+     * @param books The books to add, already validated.
+     * @return The positions in the batch of the books that were skipped, in ascending order.
      */
-    public void registerMember(Member member) {
-        this.membersCollection.add(member);
+    int[] addBooks(List<Book> books) {
+        TransactionLog log = this.journal;
+        long ticket = 0;
+        int[] skipped = new int[0];
+        int skippedCount = 0;
+        ArrayList<Book> added = new ArrayList<>(books.size());
+        collectionsLock.writeLock().lock();
+        try {
+            int position = versions.current().getBookCount();
+            for (int i = 0; i < books.size(); i++) {
+                Book book = books.get(i);
+                if (this.booksIndex.containsKey(book.getIdentifier()) || book.getLibrary() != null) {
+                    if (skippedCount == skipped.length) {
+                        skipped = Arrays.copyOf(skipped, Math.max(8, skippedCount * 2));
+                    }
+                    skipped[skippedCount++] = i;
+                    continue;
+                }
+                ticket = catalog(book, position++, log);
+                added.add(book);
+            }
+        } finally {
+            versions.booksAdded(added);
+            collectionsLock.writeLock().unlock();
+        }
+        metrics.booksAdded(books.size() - skippedCount, skippedCount);
+        if (log != null && ticket != 0) {
+            log.awaitDurable(ticket);
+        }
+        return Arrays.copyOf(skipped, skippedCount);
     }
 
     /**
-     * Assigns a book to a member in the library system.
-     * <p>
-     * This method takes the ID of a book and the ID of a member and performs the following actions:
-     * - Finds the book in the {@code booksCollection} and updates its availability status to false.
-     * - Finds the member in the {@code membersCollection} and adds the book to their borrowed books list.
+     * Registers a batch of members under a single acquisition of the write lock.
      * <p>
-     * If either the book or the member cannot be found, an exception is thrown with a descriptive message.
+     * Used by bulk imports. Members whose ID is already registered, including earlier in the batch,
+     * that are already registered in a library, or that hold books the library cannot lend them are
+     * skipped rather than failing the batch. The members registered are published as a single new
+     * version of the members. When the library is logged, the method waits once for all the
+     * registrations to be durable.
      *
-     * @param memberId The ID of the member to whom the book is being assigned. Must be non-null and valid.
-     * @param bookId The ID of the book to be assigned. Must be non-null and valid.
-     * @throws IllegalArgumentException If the book or member cannot be found.
+     * @param members The members to register, already validated.
+     * @return The positions in the batch of the members that were skipped, in ascending order.
      */
-    public void assignBookToMember(String memberId, String bookId) {
-
-        // Find the book
-        Book borrowedBook = null;
-        for (Book book : booksCollection) {
-            if (book.getId().equals(bookId)) {
-                book.setAvailability(false);
-                borrowedBook = book;
-                break;
-            }
-        }
-
-        if (borrowedBook == null) {
-            throw new IllegalArgumentException("Book not found");
-        }
-
-        // Find the member
-        Member user = null;
-        for (Member member : membersCollection) {
-            if (member.getMemberId().equals(memberId)) {
-                member.borrowBook(borrowedBook);
-                user = member;
-                break; // Exit loop once the member is found
+    int[] registerMembers(List<Member> members) {
+        TransactionLog log = this.journal;
+        long ticket = 0;
+        int[] skipped = new int[0];
+        int skippedCount = 0;
+        ArrayList<Member> registered = new ArrayList<>(members.size());
+        long[] logged = new long[1];
+        collectionsLock.writeLock().lock();
+        try {
+            for (int i = 0; i < members.size(); i++) {
+                Member member = members.get(i);
+                if (!this.membersIndex.containsKey(member.getMemberIdentifier()) && member.getLibrary() == null
+                        && enroll(member, log, logged) == CommandStatus.COMPLETED) {
+                    ticket = logged[0];
+                    registered.add(member);
+                    continue;
+                }
+                if (skippedCount == skipped.length) {
+                    skipped = Arrays.copyOf(skipped, Math.max(8, skippedCount * 2));
+                }
+                skipped[skippedCount++] = i;
             }
+        } finally {
+            versions.membersAdded(registered);
+            collectionsLock.writeLock().unlock();
         }
-
-        if (user == null) {
-            throw new IllegalArgumentException("Member not found");
+        metrics.membersRegistered(members.size() - skippedCount, skippedCount);
+        if (log != null && ticket != 0) {
+            log.awaitDurable(ticket);
         }
-
+        return Arrays.copyOf(skipped, skippedCount);
     }
 
     /**
-     * Assigns multiple books to a member in the library system.
+     * Registers a new member in the library's members collection.
      * <p>
-     * This method takes an array of book IDs and a member ID to perform the following actions:
-     * - Finds each book in the {@code booksCollection} that matches the provided IDs and is available.
-     * - Sets the availability of each assigned book to false.
-     * - Adds the books to the borrowing list of the specified member.
+     * This method adds the provided member to the {@code membersCollection}. It assumes that the
+     * member has been validated prior to invocation to ensure data integrity.
      * <p>
-     * If any book cannot be found or is unavailable, or if the member cannot be located, an exception is thrown.
+     * The books the member already holds must be books of the catalog that nobody has on loan: they
+     * become the member's loans, made at the time of registration.
      *
-     * @param memberId The ID of the member to whom the books are being assigned. Must be non-null and valid.
-     * @param bookId An array of book IDs to be assigned. All IDs must correspond to valid, available books.
-     * @throws IllegalArgumentException If no books are found, or if the member cannot be located.
+     * @param member The member to be registered in the library. Must be a valid instance of the Member class.
+     * @throws IllegalArgumentException If the member is null, is already registered in a library, its
+     *                                  member ID is already registered, or it holds a book the library cannot lend it.
      */
-    public void assignBooksToMember(String memberId, String[] bookId) {
+    public void registerMember(Member member) {
+        long start = System.nanoTime();
+        boolean registered = false;
+        try {
+            if (member == null) {
+                throw new IllegalArgumentException("Member cannot be null.");
+            }
 
-        // Find the book
-        ArrayList<Book> borrowedBooks = new ArrayList<>();
-        for (Book book : booksCollection) {
-            for (String id : bookId) {
-                if (book.getId().equals(id) && book.getAvailability()) {
-                    book.setAvailability(false);
-                    borrowedBooks.add(book);
+            TransactionLog log = this.journal;
+            long ticket = 0;
+            collectionsLock.writeLock().lock();
+            try {
+                if (this.membersIndex.containsKey(member.getMemberIdentifier())) {
+                    throw new IllegalArgumentException("A member with the same ID is already registered.");
+                }
+                if (member.getLibrary() != null) {
+                    throw new IllegalArgumentException("Member is already registered in a library.");
                 }
+                long[] logged = new long[1];
+                String error = holdingsError(enroll(member, log, logged));
+                if (error != null) {
+                    throw new IllegalArgumentException(error);
+                }
+                ticket = logged[0];
+                versions.membersAdded(List.of(member));
+            } finally {
+                collectionsLock.writeLock().unlock();
+            }
+            if (log != null) {
+                log.awaitDurable(ticket);
             }
+            registered = true;
+        } finally {
+            metrics.registerMemberCompleted(start, registered);
         }
+    }
 
-        if (borrowedBooks.isEmpty()) {
-            throw new IllegalArgumentException("Books not found");
-        }
+    /**
+     * Adds a book to the books index and logs the addition.
+     * <p>
+     * The caller must hold the write lock, and publish the book in a new version of the catalog.
+     *
+     * @param book The book to add.
+     * @param position The position of the book in the catalog.
+     * @param log The transaction log of the library, or {@code null}.
+     * @return The sequence number of the log record, or 0 if the library is not logged.
+     */
+    private long catalog(Book book, int position, TransactionLog log) {
+        long ticket = log == null ? 0 : log.append(TransactionLog.addBookRecord(book));
+        book.attachToCatalog(this, position);
+        this.booksIndex.put(book.getIdentifier(), book);
+        publish(LibraryEventType.BOOK_ADDED, book.getIdentifier(), null);
+        return ticket;
+    }
 
-        // Find the member
-        Member user = null;
-        for (Member member : membersCollection) {
-            if (member.getMemberId().equals(memberId)) {
-                member.borrowBooks(borrowedBooks);
-                user = member;
-                break; // Exit loop once the member is found
+    /**
+     * Adds a member to the members index, lends it the books it holds, and logs the registration.
+     * <p>
+     * The books are checked and lent under their lock stripes, so no checkout can take one of them
+     * in between. The caller must hold the write lock, and publish the member in a new version of the members.
+     *
+     * @param member The member to register.
+     * @param log The transaction log of the library, or {@code null}.
+     * @param ticket Receives the sequence number of the last log record if the member is registered
+     *               and the library is logged, or 0 if it is not logged.
+     * @return {@link CommandStatus#COMPLETED} if the member was registered, or why its books cannot be
+     *         lent to it, as by {@link #holdingsStatus(Member)}.
+     */
+    private CommandStatus enroll(Member member, TransactionLog log, long[] ticket) {
+        int[] stripes = holdingStripes(member);
+        checkoutLocks.lockAll(stripes);
+        try {
+            CommandStatus status = holdingsStatus(member);
+            if (status != CommandStatus.COMPLETED) {
+                return status;
             }
+            ticket[0] = log == null ? 0 : log.append(TransactionLog.registerMemberRecord(member, this));
+            member.joinLibrary(this);
+            this.membersIndex.put(member.getMemberIdentifier(), member);
+            ticket[0] = Math.max(ticket[0], adopt(member, log));
+            publish(LibraryEventType.MEMBER_REGISTERED, null, member.getMemberIdentifier());
+            return status;
+        } finally {
+            checkoutLocks.unlockAll(stripes);
         }
-
-        if (user == null) {
-            throw new IllegalArgumentException("Member not found");
-        }
-
     }
 
     /**
-     * Displays the list of all books in the library's collection in a tabular format.
-     * <p>
-     * This method prints a visually formatted table with columns for book attributes such as ID, Title, Author,
-     * ISBN, and Availability. It uses ANSI escape codes to apply bold formatting to column headers for better
-     * readability. The table is bordered with horizontal lines for enhanced presentation.
-     * <p>
-     * Key Features:
-     * - Uses `System.out.printf()` to ensure alignment of columns.
-     * - Iterates through the {@code booksCollection} to print details of each book.
-     * - Includes a header row with bold formatting using ANSI escape codes.
+     * Lends a member joining the library the books it holds, as of now, and logs them as a checkout.
      * <p>
-     * This method assumes that the {@code booksCollection} is initialized and populated with valid book objects.
+     * The caller must hold the lock stripes of the books and have checked them with {@link #holdingsStatus(Member)}.
+     *
+     * @param member The joining member.
+     * @param log The transaction log of the library, or {@code null}.
+     * @return The sequence number of the log record, or 0 if nothing was logged.
      */
-    public void displayBooks() {
-        System.out.println("-".repeat(165));
-        System.out.printf("|  \u001B[1mAll Books\u001B[0m%-152s|%n", "");
-        System.out.println("-".repeat(165));
-        System.out.printf("| %-45s| %-60s| %-46s| %-22s| %-21s|\n",
-                "\033[1m" + "Id" + "\033[0m",
-                "\033[1m" + "Title" + "\033[0m",
-                "\033[1m" + "Author" + "\033[0m",
-                "\033[1m" + "ISBN" + "\033[0m",
-                "\033[1m" + "Availability" + "\033[0m");
-
-        // Print table rows
-        for (Book book : booksCollection) {
-            System.out.printf("| %-37s| %-52s| %-38s| %-14s| %-13s|\n",
-                    book.getId(),
-                    book.getTitle(),
-                    book.getAuthor(),
-                    book.getISBN(),
-                    book.getAvailability());
-        }
-        System.out.println("-".repeat(165));
+    private long adopt(Member member, TransactionLog log) {
+        synchronized (member) {
+            long now = clock.millis();
+            ArrayList<Book> adopted = this.loanLedger.adopt(member, now);
+            return log == null || adopted.isEmpty() ? 0 : log.append(TransactionLog.checkoutRecord(member, adopted, now));
+        }
     }
 
-    public void displayAvailableBooks() {
-        System.out.println("-".repeat(165));
-        System.out.printf("|  \u001B[1mAvailable Books\u001B[0m%-146s|%n", "");
-        System.out.println("-".repeat(165));
-        System.out.printf("| %-45s| %-60s| %-46s| %-22s| %-21s|\n",
-                "\033[1m" + "Id" + "\033[0m",
-                "\033[1m" + "Title" + "\033[0m",
-                "\033[1m" + "Author" + "\033[0m",
-                "\033[1m" + "ISBN" + "\033[0m",
-                "\033[1m" + "Availability" + "\033[0m");
-
-        // Print table rows
-        for (Book book : booksCollection) {
-            if (!book.getAvailability()){
-                continue;
+    /**
+     * Computes the lock stripes of the books a member holds.
+     *
+     * @param member The member.
+     * @return The distinct stripes of the member's books in ascending order; empty if it holds none.
+     */
+    private int[] holdingStripes(Member member) {
+        List<Book> held = member.getBorrowedBooks();
+        if (held == null) {
+            return new int[0];
+        }
+        Identifier[] ids = new Identifier[held.size()];
+        int count = 0;
+        for (Book book : held) {
+            if (book != null) {
+                ids[count++] = book.getIdentifier();
             }
-            System.out.printf("| %-37s| %-52s| %-38s| %-14s| %-13s|\n",
-                    book.getId(),
-                    book.getTitle(),
-                    book.getAuthor(),
-                    book.getISBN(),
-                    book.getAvailability());
         }
-        System.out.println("-".repeat(165));
+        return checkoutLocks.stripesOf(ids, count);
     }
 
     /**
-     * Displays the list of available books in the library's collection in a tabular format.
+     * Checks that the books a member holds can be lent to it as it joins the library.
      * <p>
-     * This method iterates through the {@code booksCollection} and filters books that are marked
-     * as available. It then prints a formatted table with columns for book attributes such as ID,
-     * Title, Author, ISBN, and Availability. Bold formatting is applied to the headers using ANSI
-     * escape codes for better readability. The table is bordered with horizontal lines to enhance
-     * its presentation.
-     * <p>
-     * Key Features:
-     * - Filters and displays only books with availability set to true.
-     * - Uses `System.out.printf()` for proper alignment and formatting of table columns.
-     * - Includes bold headers for better visual hierarchy and organization.
-     * <p>
-     * This method assumes that the {@code booksCollection} is initialized and populated with valid
-     * book objects, and that each book's availability status is properly set.
+     * The caller must hold the lock stripes of the books.
+     *
+     * @param member The joining member.
+     * @return {@link CommandStatus#COMPLETED} if every book can be lent to the member,
+     *         {@link CommandStatus#INVALID} if its list is null or holds a null or repeated book,
+     *         {@link CommandStatus#BOOK_NOT_FOUND} if a book is not in the catalog, or
+     *         {@link CommandStatus#UNAVAILABLE} if another member has a book on loan.
      */
-    public void displayUnavailableBooks() {
-        System.out.println("-".repeat(165));
-        System.out.printf("|  \u001B[1mUnavailable Books\u001B[0m%-144s|%n", "");
-        System.out.println("-".repeat(165));
-        System.out.printf("| %-45s| %-60s| %-46s| %-22s| %-21s|\n",
-                "\033[1m" + "Id" + "\033[0m",
-                "\033[1m" + "Title" + "\033[0m",
-                "\033[1m" + "Author" + "\033[0m",
-                "\033[1m" + "ISBN" + "\033[0m",
-                "\033[1m" + "Availability" + "\033[0m");
-
-        // Print table rows
-        for (Book book : booksCollection) {
-            if (book.getAvailability()){
-                continue;
+    private CommandStatus holdingsStatus(Member member) {
+        List<Book> held = member.getBorrowedBooks();
+        if (held == null) {
+            return CommandStatus.INVALID;
+        }
+        HashSet<Identifier> seen = new HashSet<>(held.size() * 2);
+        for (Book book : held) {
+            if (book == null || !seen.add(book.getIdentifier())) {
+                return CommandStatus.INVALID;
+            }
+            if (book.getLibrary() != this) {
+                return CommandStatus.BOOK_NOT_FOUND;
+            }
+            Loan loan = this.loanLedger.loanOf(book.getIdentifier());
+            if (loan != null && !loan.getMemberIdentifier().equals(member.getMemberIdentifier())) {
+                return CommandStatus.UNAVAILABLE;
             }
-            System.out.printf("| %-37s| %-52s| %-38s| %-14s| %-13s|\n",
-                    book.getId(),
-                    book.getTitle(),
-                    book.getAuthor(),
-                    book.getISBN(),
-                    book.getAvailability());
         }
-        System.out.println("-".repeat(165));
+        return CommandStatus.COMPLETED;
     }
 
     /**
-     * Displays the list of all members in the library's collection in a tabular format.
-     * <p>
-     * This method prints a formatted table with columns for member attributes, including ID, Name,
-     * and Borrowing Limit. Bold headers are applied using ANSI escape codes for enhanced readability.
-     * Horizontal lines are used to frame the table for a professional presentation.
+     * Describes why the books of a joining member cannot be lent to it.
+     *
+     * @param status The outcome of {@link #holdingsStatus(Member)}.
+     * @return The error message, or {@code null} if the books can be lent.
+     */
+    private static String holdingsError(CommandStatus status) {
+        switch (status) {
+            case COMPLETED:
+                return null;
+            case BOOK_NOT_FOUND:
+                return "Member holds a book that is not in the library's catalog.";
+            case UNAVAILABLE:
+                return "Member holds a book that is on loan to another member.";
+            default:
+                return "Borrowed books list cannot be null, contain null entries or hold the same book twice.";
+        }
+    }
+
+    /**
+     * Runs a batch of book additions, member registrations and checkouts in a single pass.
      * <p>
-     * Key Features:
-     * - Iterates through the {@code membersCollection} to display details of each member.
-     * - Uses `System.out.printf()` for proper alignment and formatting of table columns.
-     * - Assumes the {@code membersCollection} is initialized and populated with valid member objects.
+     * Rather than running the commands one at a time, this method groups them:
+     * - Book additions and member registrations run first, in batch order, under a single acquisition
+     *   of the write lock, and are published as one new version of the catalog and of the members.
+     *   A checkout can therefore lend a book or serve a member added by the same batch.
+     * - Checkouts are then grouped by member, in the order of each member's first checkout. Every
+     *   distinct book and member ID is looked up once. The lock stripes of a member's books and the
+     *   member's monitor are acquired once for the whole group, whose loans are published as one
+     *   version and logged as one checkout record.
      * <p>
-     * This method provides a quick overview of all registered members and their borrowing capacities.
+     * A failed command does not stop the batch: it gets a status saying why it failed. The checkouts
+     * of a member are granted in batch order until the borrowing limit is reached, and members asking
+     * for the same book are served in the order of their groups. When the library is logged, the
+     * method waits once, at the end, for every change to be durable.
+     *
+     * @param commands The commands to run. A null entry gets {@link CommandStatus#INVALID}.
+     * @return The status of each command, in batch order.
+     * @throws IllegalArgumentException If the list of commands is null.
      */
-    public void displayMembers() {
-        System.out.println("-".repeat(110));
-        System.out.printf("|  \u001B[1mAll Members\u001B[0m%-95s|%n", "");
-        System.out.println("-".repeat(110));
-        System.out.printf("| %-45s| %-58s| %-24s|\n",
-                "\033[1m" + "ID" + "\033[0m",
-                "\033[1m" + "Name" + "\033[0m",
-                "\033[1m" + "Borrowing Limit" + "\033[0m");
+    public List<CommandStatus> execute(List<LibraryCommand> commands) {
+        if (commands == null) {
+            throw new IllegalArgumentException("Commands cannot be null.");
+        }
+        TransactionLog log = this.journal;
+        CommandStatus[] results = new CommandStatus[commands.size()];
+        long ticket = addAndRegister(commands, results, log);
+        ticket = Math.max(ticket, checkOutByMember(commands, results, log));
+        if (log != null && ticket != 0) {
+            log.awaitDurable(ticket);
+        }
+        return Collections.unmodifiableList(Arrays.asList(results));
+    }
 
-        // Print table rows
-        for (Member member : membersCollection) {
-            System.out.printf("| %-37s| %-50s| %-16s|\n",
-                    member.getMemberId(),
-                    member.getName(),
-                    member.getBorrowingLimit());
+    /**
+     * Runs the book additions and member registrations of a batch under a single acquisition of the write lock.
+     *
+     * @param commands The commands of the batch.
+     * @param results The statuses of the commands, filled in for the additions, the registrations and the null entries.
+     * @param log The transaction log of the library, or {@code null}.
+     * @return The sequence number of the last log record, or 0 if nothing was logged.
+     */
+    private long addAndRegister(List<LibraryCommand> commands, CommandStatus[] results, TransactionLog log) {
+        long ticket = 0;
+        int invalid = 0;
+        int rejectedBooks = 0;
+        int rejectedMembers = 0;
+        ArrayList<Book> added = new ArrayList<>();
+        ArrayList<Member> registered = new ArrayList<>();
+        long[] logged = new long[1];
+        collectionsLock.writeLock().lock();
+        try {
+            int position = versions.current().getBookCount();
+            for (int i = 0; i < results.length; i++) {
+                LibraryCommand command = commands.get(i);
+                if (command == null) {
+                    results[i] = CommandStatus.INVALID;
+                    invalid++;
+                } else if (command.getType() == LibraryCommandType.ADD_BOOK) {
+                    Book book = command.getBook();
+                    if (this.booksIndex.containsKey(book.getIdentifier()) || book.getLibrary() != null) {
+                        results[i] = CommandStatus.DUPLICATE;
+                        rejectedBooks++;
+                    } else {
+                        ticket = catalog(book, position++, log);
+                        added.add(book);
+                        results[i] = CommandStatus.COMPLETED;
+                    }
+                } else if (command.getType() == LibraryCommandType.REGISTER_MEMBER) {
+                    Member member = command.getMember();
+                    if (this.membersIndex.containsKey(member.getMemberIdentifier()) || member.getLibrary() != null) {
+                        results[i] = CommandStatus.DUPLICATE;
+                    } else {
+                        results[i] = enroll(member, log, logged);
+                    }
+                    if (results[i] == CommandStatus.COMPLETED) {
+                        ticket = logged[0];
+                        registered.add(member);
+                    } else {
+                        rejectedMembers++;
+                    }
+                }
+            }
+        } finally {
+            versions.booksAdded(added);
+            versions.membersAdded(registered);
+            collectionsLock.writeLock().unlock();
+        }
+        metrics.booksAdded(added.size(), rejectedBooks);
+        metrics.membersRegistered(registered.size(), rejectedMembers);
+        metrics.validationFailed(invalid);
+        return ticket;
+    }
+
+    /**
+     * Runs the checkouts of a batch, grouped by member.
+     *
+     * @param commands The commands of the batch.
+     * @param results The statuses of the commands, filled in for the checkouts.
+     * @param log The transaction log of the library, or {@code null}.
+     * @return The sequence number of the last log record, or 0 if nothing was logged.
+     */
+    private long checkOutByMember(List<LibraryCommand> commands, CommandStatus[] results, TransactionLog log) {
+
+        // Resolve every distinct ID once, and number the members in order of their first checkout
+        HashMap<String, Book> booksById = new HashMap<>();
+        HashMap<String, Member> membersById = new HashMap<>();
+        IdentityHashMap<Member, Integer> groupOfMember = new IdentityHashMap<>();
+        ArrayList<Member> groupMembers = new ArrayList<>();
+        Book[] books = new Book[results.length];
+        int[] groupOf = new int[results.length];
+        int[] groupSizes = new int[8];
+        int rejected = 0;
+        for (int i = 0; i < results.length; i++) {
+            groupOf[i] = -1;
+            LibraryCommand command = commands.get(i);
+            if (command == null || command.getType() != LibraryCommandType.ASSIGN_BOOK_TO_MEMBER) {
+                continue;
+            }
+            Book book = booksById.get(command.getBookId());
+            if (book == null && !booksById.containsKey(command.getBookId())) {
+                book = findBook(command.getBookId());
+                booksById.put(command.getBookId(), book);
+            }
+            if (book == null) {
+                results[i] = CommandStatus.BOOK_NOT_FOUND;
+                rejected++;
+                continue;
+            }
+            Member member = membersById.get(command.getMemberId());
+            if (member == null && !membersById.containsKey(command.getMemberId())) {
+                member = findMember(command.getMemberId());
+                membersById.put(command.getMemberId(), member);
+            }
+            if (member == null) {
+                results[i] = CommandStatus.MEMBER_NOT_FOUND;
+                rejected++;
+                continue;
+            }
+            Integer group = groupOfMember.get(member);
+            if (group == null) {
+                group = groupMembers.size();
+                groupOfMember.put(member, group);
+                groupMembers.add(member);
+                if (group == groupSizes.length) {
+                    groupSizes = Arrays.copyOf(groupSizes, group * 2);
+                }
+            }
+            books[i] = book;
+            groupOf[i] = group;
+            groupSizes[group]++;
+        }
+        metrics.checkoutsRejected(rejected);
+
+        // Order the checkouts by group, keeping batch order within each group
+        int[] groupStarts = new int[groupMembers.size() + 1];
+        for (int group = 0; group < groupMembers.size(); group++) {
+            groupStarts[group + 1] = groupStarts[group] + groupSizes[group];
+        }
+        int[] order = new int[groupStarts[groupMembers.size()]];
+        int[] next = Arrays.copyOf(groupStarts, groupMembers.size());
+        for (int i = 0; i < results.length; i++) {
+            if (groupOf[i] >= 0) {
+                order[next[groupOf[i]]++] = i;
+            }
+        }
+
+        long ticket = 0;
+        for (int group = 0; group < groupMembers.size(); group++) {
+            long groupTicket = lendGroup(groupMembers.get(group), order, groupStarts[group], groupStarts[group + 1],
+                    books, results, log);
+            ticket = Math.max(ticket, groupTicket);
+        }
+        return ticket;
+    }
+
+    /**
+     * Lends the books of one member's checkouts under a single acquisition of their lock stripes and
+     * of the member's monitor.
+     * <p>
+     * Unlike {@link #assignBooksToMember(String, String[])}, each checkout succeeds or fails on its
+     * own: books that are not available, or that would exceed the borrowing limit, are refused while
+     * the others are lent.
+     *
+     * @param user The borrowing member.
+     * @param order The positions in the batch of the checkouts, grouped by member.
+     * @param from The index in {@code order} of the first checkout of the member.
+     * @param to The index in {@code order} after the last checkout of the member.
+     * @param books The book of each checkout, by position in the batch.
+     * @param results The statuses of the commands, filled in for the member's checkouts.
+     * @param log The transaction log of the library, or {@code null}.
+     * @return The sequence number of the log record, or 0 if nothing was logged.
+     */
+    private long lendGroup(Member user, int[] order, int from, int to, Book[] books, CommandStatus[] results,
+                           TransactionLog log) {
+        Identifier[] ids = new Identifier[to - from];
+        for (int k = from; k < to; k++) {
+            ids[k - from] = books[order[k]].getIdentifier();
+        }
+        long ticket = 0;
+        int refused = 0;
+        ArrayList<Book> lent = new ArrayList<>(to - from);
+        HashSet<Identifier> requested = new HashSet<>((to - from) * 2);
+        int[] stripes = checkoutLocks.stripesOf(ids, ids.length);
+        checkoutLocks.lockAll(stripes);
+        try {
+            synchronized (user) {
+                int room = user.getBorrowingLimit() - user.getBorrowedBooks().size();
+                for (int k = from; k < to; k++) {
+                    int i = order[k];
+                    Book book = books[i];
+                    if (!requested.add(book.getIdentifier()) || !book.getAvailability()) {
+                        results[i] = CommandStatus.UNAVAILABLE;
+                        refused++;
+                    } else if (lent.size() >= room) {
+                        results[i] = CommandStatus.LIMIT_REACHED;
+                        metrics.borrowingLimitHit();
+                        refused++;
+                    } else {
+                        results[i] = CommandStatus.COMPLETED;
+                        lent.add(book);
+                    }
+                }
+                if (!lent.isEmpty()) {
+                    long now = clock.millis();
+                    LoanLedger ledger = this.loanLedger;
+                    ledger.lendAll(user, lent, now);
+
+                    // Logged once applied, so that a checkpoint never misses a logged checkout
+                    if (log != null) {
+                        try {
+                            ticket = log.append(TransactionLog.checkoutRecord(user, lent, now));
+                        } catch (RuntimeException e) {
+                            ledger.releaseAll(user, lent);
+                            throw e;
+                        }
+                    }
+                }
+            }
+            for (Book book : lent) {
+                holdQueues.remove(book.getIdentifier(), user.getMemberIdentifier());
+                publish(LibraryEventType.BOOK_BORROWED, book.getIdentifier(), user.getMemberIdentifier());
+            }
+        } finally {
+            checkoutLocks.unlockAll(stripes);
+        }
+        metrics.booksLent(lent.size());
+        metrics.checkoutsRejected(refused);
+        return ticket;
+    }
+
+    /**
+     * Retrieves the metrics of this library.
+     * <p>
+     * The counters and latency histograms are updated by every checkout, book addition and member
+     * registration, and can be read at any time from any thread.
+     *
+     * @return The metrics of this library.
+     */
+    public LibraryMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Subscribes to the changes of this library.
+     * <p>
+     * Book additions, checkouts, returns and member registrations made after this call are delivered
+     * to the subscriber on a dedicated thread, in the order they were published, in batches of at most
+     * {@code maxBatchSize} events. Publishing an event costs the library an atomic increment and a
+     * write to a bounded ring buffer: a slow subscriber never delays checkouts, but loses the oldest
+     * events once it falls more than the ring's capacity behind.
+     *
+     * @param filter Selects the events to deliver. Must be non-null.
+     * @param maxBatchSize The maximum number of events per batch. Must be positive.
+     * @param subscriber Receives the batches of events. Must be non-null.
+     * @return The subscription, to be closed when the events are no longer needed.
+     * @throws IllegalArgumentException If the filter or subscriber is null, or the batch size is not positive.
+     */
+    public EventSubscription subscribe(Predicate<? super LibraryEvent> filter, int maxBatchSize,
+                                       Consumer<? super List<LibraryEvent>> subscriber) {
+        if (filter == null) {
+            throw new IllegalArgumentException("Event filter cannot be null.");
+        }
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Event batch size must be positive.");
+        }
+        if (subscriber == null) {
+            throw new IllegalArgumentException("Event subscriber cannot be null.");
+        }
+        EventRing ring = this.events;
+        if (ring == null) {
+            synchronized (this) {
+                ring = this.events;
+                if (ring == null) {
+                    ring = new EventRing(EVENT_RING_CAPACITY);
+                    this.events = ring;
+                }
+            }
+        }
+        EventSubscription subscription = new EventSubscription(ring, filter, maxBatchSize, subscriber);
+        subscription.start();
+        return subscription;
+    }
+
+    /**
+     * Subscribes to every change of this library, delivered in batches of up to 256 events.
+     *
+     * @param subscriber Receives the batches of events. Must be non-null.
+     * @return The subscription, to be closed when the events are no longer needed.
+     * @throws IllegalArgumentException If the subscriber is null.
+     * @see #subscribe(Predicate, int, Consumer)
+     */
+    public EventSubscription subscribe(Consumer<? super List<LibraryEvent>> subscriber) {
+        return subscribe(event -> true, DEFAULT_EVENT_BATCH_SIZE, subscriber);
+    }
+
+    /**
+     * Publishes an event to the subscribers, if there are any.
+     *
+     * @param type The kind of change.
+     * @param bookId The ID of the book concerned, or {@code null}.
+     * @param memberId The ID of the member concerned, or {@code null}.
+     */
+    private void publish(LibraryEventType type, Identifier bookId, Identifier memberId) {
+        EventRing ring = this.events;
+        if (ring != null) {
+            ring.publish(type, clock.millis(), bookId, memberId);
+        }
+    }
+
+    /**
+     * Retrieves the clock giving the time of checkouts, due dates and events.
+     *
+     * @return The clock of this library; the system clock in UTC unless replaced.
+     */
+    public Clock getClock() {
+        return clock;
+    }
+
+    /**
+     * Replaces the clock giving the time of checkouts, due dates and events.
+     * <p>
+     * Meant for simulations and tests, which can move time forward to make loans overdue. Loans
+     * already made keep their due dates.
+     *
+     * @param clock The new clock. Must be non-null.
+     * @throws IllegalArgumentException If the clock is null.
+     */
+    public void setClock(Clock clock) {
+        if (clock == null) {
+            throw new IllegalArgumentException("Clock cannot be null.");
+        }
+        this.clock = clock;
+    }
+
+    /**
+     * Reports the loans that became overdue since the last scan, and returns the overdue ebooks.
+     * <p>
+     * The due dates of the loans are kept on timing wheels, so a scan only touches the loans that
+     * just became due, plus a constant amount of work per minute elapsed since the previous scan; it
+     * never walks the members or their borrowed books. Each loan is reported by one scan only, about
+     * a minute after it became due at the latest. Ebook loans are ended as they are reported, as if
+     * the member had returned the ebook, and the ebook goes to the next member of its hold queue.
+     * <p>
+     * Meant to be called periodically, for example every minute from a scheduled executor.
+     *
+     * @return The loans that became overdue, in due order. Those of ebooks have already been ended.
+     */
+    public List<Loan> scanOverdue() {
+        long now = clock.millis();
+        TransactionLog log = this.journal;
+        long ticket = 0;
+        ArrayList<Loan> overdue = new ArrayList<>();
+        for (int stripe : checkoutLocks.allStripes()) {
+            checkoutLocks.lock(stripe);
+            try {
+                for (Loan loan : overdueWheel.advance(stripe, now)) {
+                    LoanLedger ledger = this.loanLedger;
+                    if (ledger.loanOf(loan.getBookIdentifier()) != loan) {
+                        continue; // Ended since it was scheduled
+                    }
+                    overdue.add(loan);
+                    Book book = this.booksIndex.get(loan.getBookIdentifier());
+                    Member user = this.membersIndex.get(loan.getMemberIdentifier());
+                    if (book instanceof Ebook && user != null) {
+                        long returnTicket = expire(ledger, user, book, loan, now, log);
+                        if (returnTicket != 0) {
+                            ticket = returnTicket;
+                        }
+                    }
+                }
+            } finally {
+                checkoutLocks.unlock(stripe);
+            }
+        }
+        if (log != null && ticket != 0) {
+            log.awaitDurable(ticket);
+        }
+        overdue.sort(Comparator.comparingLong(Loan::getDueMillis));
+        return overdue;
+    }
+
+    /**
+     * Ends an overdue ebook loan, logging it as a return, and hands the ebook to the next holder.
+     * <p>
+     * The caller must hold the ebook's lock stripe and no member's monitor.
+     *
+     * @param ledger The current loan ledger.
+     * @param user The member holding the ebook.
+     * @param book The ebook.
+     * @param loan The overdue loan.
+     * @param now The time of the scan, in milliseconds since the epoch.
+     * @param log The transaction log of the library, or {@code null} if it is not logged.
+     * @return The ticket of the last logged record, or 0 if nothing was logged.
+     */
+    private long expire(LoanLedger ledger, Member user, Book book, Loan loan, long now, TransactionLog log) {
+        long ticket = 0;
+        synchronized (user) {
+            if (!ledger.release(user, book)) {
+                return 0;
+            }
+            if (log != null) {
+                try {
+                    ticket = log.append(TransactionLog.returnRecord(user, List.of(book), now));
+                } catch (RuntimeException e) {
+                    undoReturn(ledger, user, book, loan);
+                    throw e;
+                }
+            }
+        }
+        publish(LibraryEventType.BOOK_RETURNED, book.getIdentifier(), user.getMemberIdentifier());
+        long handOffTicket = handOff(book, log);
+        return handOffTicket != 0 ? handOffTicket : ticket;
+    }
+
+    /**
+     * Finds a book in the library by its ID.
+     * <p>
+     * The lookup goes through the books index and runs in constant time regardless of the
+     * size of the {@code booksCollection}.
+     *
+     * @param id The ID of the book to find.
+     * @return The book with the given ID, or {@code null} if the library has no such book.
+     */
+    public Book findBook(String id) {
+        Identifier identifier = Identifier.tryParse(id);
+        return identifier == null ? null : this.booksIndex.get(identifier);
+    }
+
+    /**
+     * Finds a member in the library by its member ID.
+     * <p>
+     * The lookup goes through the members index and runs in constant time regardless of the
+     * size of the {@code membersCollection}.
+     *
+     * @param memberId The ID of the member to find.
+     * @return The member with the given ID, or {@code null} if no such member is registered.
+     */
+    public Member findMember(String memberId) {
+        Identifier identifier = Identifier.tryParse(memberId);
+        return identifier == null ? null : this.membersIndex.get(identifier);
+    }
+
+    /**
+     * Finds a book in the library by the compact form of its ID.
+     *
+     * @param id The ID of the book to find.
+     * @return The book with the given ID, or {@code null} if the library has no such book.
+     */
+    Book findBook(Identifier id) {
+        return this.booksIndex.get(id);
+    }
+
+    /**
+     * Finds a member in the library by the compact form of its member ID.
+     *
+     * @param memberId The ID of the member to find.
+     * @return The member with the given ID, or {@code null} if no such member is registered.
+     */
+    Member findMember(Identifier memberId) {
+        return this.membersIndex.get(memberId);
+    }
+
+    /**
+     * Starts recording every state-changing operation of the library in a transaction log.
+     *
+     * @param log The log to append to.
+     */
+    void attachJournal(TransactionLog log) {
+        this.journal = log;
+    }
+
+    /**
+     * Retrieves the number of books in the catalog that are available for borrowing.
+     * <p>
+     * The count is read from the availability index and runs in constant time.
+     *
+     * @return The number of available books.
+     */
+    public int getAvailableBooksCount() {
+        return this.availabilityIndex.availableCount();
+    }
+
+    /**
+     * Retrieves the number of books in the catalog that are not available for borrowing.
+     * <p>
+     * The count is read from the availability index and runs in constant time.
+     *
+     * @return The number of unavailable books.
+     */
+    public int getUnavailableBooksCount() {
+        return this.availabilityIndex.unavailableCount();
+    }
+
+    /**
+     * Retrieves the books in the catalog that are available for borrowing, in catalog order.
+     * <p>
+     * The books are located through the availability index, so the cost is proportional to the
+     * number of available books rather than to the size of the catalog.
+     *
+     * @return A new list holding the available books.
+     */
+    public ArrayList<Book> getAvailableBooks() {
+        return collectBooks(true);
+    }
+
+    /**
+     * Retrieves the books in the catalog that are not available for borrowing, in catalog order.
+     * <p>
+     * The books are located through the availability index, so the cost is proportional to the
+     * number of unavailable books rather than to the size of the catalog.
+     *
+     * @return A new list holding the unavailable books.
+     */
+    public ArrayList<Book> getUnavailableBooks() {
+        return collectBooks(false);
+    }
+
+    /**
+     * Collects the books whose availability matches the given status by walking the availability index.
+     *
+     * @param available True to collect available books, false to collect unavailable books.
+     * @return A new list holding the matching books in catalog order.
+     */
+    private ArrayList<Book> collectBooks(boolean available) {
+        collectionsLock.readLock().lock();
+        try {
+            AvailabilityBitmap index = this.availabilityIndex;
+            List<Book> catalog = versions.current().getBooks();
+            ArrayList<Book> books = new ArrayList<>(available ? index.availableCount() : index.unavailableCount());
+            int position = available ? index.nextAvailable(0) : index.nextUnavailable(0);
+            while (position >= 0) {
+                books.add(catalog.get(position));
+                position = available ? index.nextAvailable(position + 1) : index.nextUnavailable(position + 1);
+            }
+            return books;
+        } finally {
+            collectionsLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Records an availability change reported by a book in the catalog.
+     * <p>
+     * Called by {@code Book.setAvailability()} while the book's monitor is held, so updates for the
+     * same book reach the index in the same order as they were made.
+     *
+     * @param book The book whose availability changed.
+     * @param position The catalog position of the book.
+     * @param previous The availability status of the book before the change.
+     * @param available The new availability status of the book.
+     */
+    void availabilityChanged(Book book, int position, boolean previous, boolean available) {
+        this.availabilityIndex.set(position, available);
+        if (previous != available) {
+            this.isbnIndex.setAvailable(book, book.getISBN(), available);
+            if (book instanceof Ebook ebook) {
+                this.formatStatistics.availabilityChanged(ebook.getFormat(), available);
+            }
+        }
+    }
+
+    /**
+     * Adds an ebook to the format statistics, or removes it, as reported by an ebook in the catalog.
+     * <p>
+     * Called by {@code Ebook.setFormat()}, {@code Ebook.setFileSize()} and when the ebook joins the
+     * catalog, while the ebook's monitor is held. A change is reported as the removal of the old
+     * figures followed by the addition of the new ones.
+     *
+     * @param format The format of the ebook.
+     * @param fileSize The file size of the ebook, in kilobytes.
+     * @param available The availability status of the ebook.
+     * @param sign 1 to add the ebook, -1 to remove it.
+     */
+    void ebookChanged(EbookFormat format, int fileSize, boolean available, int sign) {
+        this.formatStatistics.update(format, fileSize, available, sign);
+    }
+
+    /**
+     * Counts the ebooks of a file format in the catalog.
+     * <p>
+     * The count is kept up to date as ebooks change, so it is read in constant time.
+     *
+     * @param format The file format.
+     * @return The number of ebooks of the format.
+     * @throws IllegalArgumentException If the format is null.
+     */
+    public int getEbookCount(EbookFormat format) {
+        return this.formatStatistics.count(requireFormat(format));
+    }
+
+    /**
+     * Counts the available ebooks of a file format in the catalog.
+     *
+     * @param format The file format.
+     * @return The number of ebooks of the format that can be borrowed.
+     * @throws IllegalArgumentException If the format is null.
+     */
+    public int getAvailableEbookCount(EbookFormat format) {
+        return this.formatStatistics.availableCount(requireFormat(format));
+    }
+
+    /**
+     * Retrieves the storage taken by the ebooks of a file format in the catalog.
+     *
+     * @param format The file format.
+     * @return The total file size of the ebooks of the format, in kilobytes.
+     * @throws IllegalArgumentException If the format is null.
+     */
+    public long getEbookStorageSize(EbookFormat format) {
+        return this.formatStatistics.totalSize(requireFormat(format));
+    }
+
+    /**
+     * Retrieves the storage taken by all the ebooks in the catalog.
+     *
+     * @return The total file size of the ebooks, in kilobytes.
+     */
+    public long getEbookStorageSize() {
+        FormatStatistics statistics = this.formatStatistics;
+        long total = 0;
+        for (EbookFormat format : EbookFormat.values()) {
+            total += statistics.totalSize(format);
+        }
+        return total;
+    }
+
+    /**
+     * Checks that a format given to a statistics query is not null.
+     *
+     * @param format The format to check.
+     * @return The format.
+     * @throws IllegalArgumentException If the format is null.
+     */
+    private static EbookFormat requireFormat(EbookFormat format) {
+        if (format == null) {
+            throw new IllegalArgumentException("File format cannot be null.");
+        }
+        return format;
+    }
+
+    /**
+     * Records an ISBN change reported by a book in the catalog.
+     * <p>
+     * Called by {@code Book.setISBN()} and when the book joins the catalog, while the book's monitor
+     * is held, so the book is never indexed under two ISBNs.
+     *
+     * @param book The book whose ISBN changed.
+     * @param oldIsbn The ISBN previously indexed, or {@code null} if the book is joining the catalog.
+     * @param isbn The current ISBN of the book.
+     */
+    void isbnChanged(Book book, String oldIsbn, String isbn) {
+        IsbnIndex index = this.isbnIndex;
+        if (oldIsbn != null) {
+            index.remove(book, oldIsbn);
+        }
+        index.add(book, isbn, book.reportedAvailability());
+    }
+
+    /**
+     * Finds an available copy of a book by ISBN.
+     * <p>
+     * ISBN-10 and ISBN-13 spellings of the same book find the same copies when their check digits are
+     * correct; ISBNs with a wrong check digit only find copies carrying exactly the same digits.
+     * The lookup runs in constant time regardless of the number of copies.
+     *
+     * @param isbn The ISBN to look for.
+     * @return An available copy, or {@code null} if every copy is on loan or the library has no copy.
+     * @throws IllegalArgumentException If the ISBN is not made of 10 or 13 digits.
+     */
+    public Book findAvailableCopy(String isbn) {
+        return this.isbnIndex.firstAvailable(isbnKey(isbn));
+    }
+
+    /**
+     * Retrieves every copy of a book held in the catalog, by ISBN.
+     *
+     * @param isbn The ISBN to look for.
+     * @return A new list of the copies, available or not, in the order they joined the catalog; empty if there is none.
+     * @throws IllegalArgumentException If the ISBN is not made of 10 or 13 digits.
+     */
+    public List<Book> getCopies(String isbn) {
+        return this.isbnIndex.copies(isbnKey(isbn));
+    }
+
+    /**
+     * Counts the available copies of a book, by ISBN.
+     *
+     * @param isbn The ISBN to look for.
+     * @return The number of copies that can be borrowed.
+     * @throws IllegalArgumentException If the ISBN is not made of 10 or 13 digits.
+     */
+    public int getAvailableCopiesCount(String isbn) {
+        return this.isbnIndex.availableCount(isbnKey(isbn));
+    }
+
+    /**
+     * Validates an ISBN given to a lookup and computes its index key.
+     *
+     * @param isbn The ISBN to convert.
+     * @return The normalized key of the ISBN.
+     * @throws IllegalArgumentException If the ISBN is not made of 10 or 13 digits.
+     */
+    private static long isbnKey(String isbn) {
+        return Isbn.key(FieldValidator.validateIsbn(isbn));
+    }
+
+    /**
+     * Records a title or author change reported by a book in the catalog.
+     * <p>
+     * Called by {@code Book.setTitle()}, {@code Book.setAuthor()} and when the book joins the catalog,
+     * while the book's monitor is held, so updates for the same book reach the index in order.
+     *
+     * @param position The catalog position of the book.
+     * @param oldTitle The title previously indexed, or {@code null} if the book is joining the catalog.
+     * @param title The current title of the book.
+     * @param oldAuthor The author previously indexed, or {@code null} if the book is joining the catalog.
+     * @param author The current author of the book.
+     */
+    void textChanged(int position, String oldTitle, String title, String oldAuthor, String author) {
+        this.textIndex.update(position, oldTitle, title, oldAuthor, author);
+    }
+
+    /**
+     * Searches the titles and authors of the catalog, returning one page of matches, best matches first.
+     * <p>
+     * The query is made of words separated by spaces, all of which must match, case-insensitively:
+     * - A plain word matches books with that word in their title or author.
+     * - A word ending with {@code *} matches books with a word starting with it.
+     * - Words between double quotes match books whose title or author holds them next to each other, in order.
+     * <p>
+     * Books matching in their title rank above books matching only in their author; equally ranked
+     * books come in catalog order. The search walks the text index rather than the catalog.
+     *
+     * @param query The search query. Must contain at least one letter or digit.
+     * @param offset The number of ranked matches to skip. Must be non-negative.
+     * @param limit The maximum number of matches to return. Must be non-negative.
+     * @return The requested page of matches, with the total number of matches.
+     * @throws IllegalArgumentException If the query is null or empty, or the offset or limit is negative.
+     */
+    public SearchResults searchBooks(String query, int offset, int limit) {
+        validatePage(offset, limit);
+        collectionsLock.readLock().lock();
+        try {
+            return this.textIndex.search(query, versions.current().getBooks(), offset, limit);
+        } finally {
+            collectionsLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Assigns a book to a member in the library system.
+     * <p>
+     * This method takes the ID of a book and the ID of a member and performs the following actions:
+     * - Finds the book in the {@code booksCollection} and updates its availability status to false.
+     * - Finds the member in the {@code membersCollection} and adds the book to their borrowed books list.
+     * <p>
+     * The availability check and update happen under the lock stripe of the book, so two concurrent
+     * checkouts of the same book can never both succeed.
+     * <p>
+     * If either the book or the member cannot be found, or the book is not available, an exception is
+     * thrown with a descriptive message.
+     *
+     * @param memberId The ID of the member to whom the book is being assigned. Must be non-null and valid.
+     * @param bookId The ID of the book to be assigned. Must be non-null and valid.
+     * @throws IllegalArgumentException If the book or member cannot be found, or the book is not available.
+     */
+    public void assignBookToMember(String memberId, String bookId) {
+        long start = System.nanoTime();
+        boolean lent = false;
+        try {
+
+            // Find the book
+            Book borrowedBook = findBook(bookId);
+            if (borrowedBook == null) {
+                throw new IllegalArgumentException("Book not found");
+            }
+
+            // Find the member
+            Member user = findMember(memberId);
+            if (user == null) {
+                throw new IllegalArgumentException("Member not found");
+            }
+
+            if (!lend(user, borrowedBook)) {
+                throw new IllegalArgumentException("Book is not available");
+            }
+            lent = true;
+        } catch (BorrowingLimitException e) {
+            metrics.borrowingLimitHit();
+            throw e;
+        } finally {
+            metrics.checkoutCompleted(start, lent);
+        }
+    }
+
+    /**
+     * Lends an available copy of a book, chosen by ISBN, to a member.
+     * <p>
+     * The copy is taken from the ISBN index in constant time. If another checkout takes it first, the
+     * next available copy is tried, until one is lent or no copy is left.
+     *
+     * @param memberId The ID of the member borrowing the book. Must be non-null and valid.
+     * @param isbn The ISBN of the book to borrow. Must be made of 10 or 13 digits.
+     * @return The copy lent to the member.
+     * @throws IllegalArgumentException If the ISBN is invalid, the member cannot be found, no copy is
+     *                                  available, or the member's borrowing limit would be exceeded.
+     */
+    public Book assignCopyToMember(String memberId, String isbn) {
+        long start = System.nanoTime();
+        boolean lent = false;
+        try {
+            long key = isbnKey(isbn);
+
+            // Find the member
+            Member user = findMember(memberId);
+            if (user == null) {
+                throw new IllegalArgumentException("Member not found");
+            }
+
+            while (true) {
+                Book copy = this.isbnIndex.firstAvailable(key);
+                if (copy == null) {
+                    throw new IllegalArgumentException("No copy available");
+                }
+                if (lend(user, copy)) {
+                    lent = true;
+                    return copy;
+                }
+            }
+        } catch (BorrowingLimitException e) {
+            metrics.borrowingLimitHit();
+            throw e;
+        } finally {
+            metrics.checkoutCompleted(start, lent);
+        }
+    }
+
+    /**
+     * Lends a book to a member if it is available, logging the checkout.
+     * <p>
+     * The availability check and update happen under the lock stripe of the book, and the method
+     * waits for the checkout to be durable after releasing it.
+     *
+     * @param user The borrowing member.
+     * @param book The book to lend.
+     * @return True if the book was lent, false if it was not available.
+     * @throws IllegalArgumentException If the member's borrowing limit would be exceeded.
+     */
+    private boolean lend(Member user, Book book) {
+        TransactionLog log = this.journal;
+        long ticket = 0;
+        int stripe = checkoutLocks.stripeOf(book.getIdentifier());
+        checkoutLocks.lock(stripe);
+        try {
+            if (!book.getAvailability()) {
+                return false;
+            }
+            synchronized (user) {
+                long now = clock.millis();
+                LoanLedger ledger = this.loanLedger;
+                ledger.lend(user, book, now);
+
+                // Logged once applied, so that a checkpoint never misses a logged checkout
+                if (log != null) {
+                    try {
+                        ticket = log.append(TransactionLog.checkoutRecord(user, List.of(book), now));
+                    } catch (RuntimeException e) {
+                        ledger.release(user, book);
+                        throw e;
+                    }
+                }
+            }
+            holdQueues.remove(book.getIdentifier(), user.getMemberIdentifier());
+            metrics.booksLent(1);
+            publish(LibraryEventType.BOOK_BORROWED, book.getIdentifier(), user.getMemberIdentifier());
+        } finally {
+            checkoutLocks.unlock(stripe);
+        }
+        if (log != null) {
+            log.awaitDurable(ticket);
+        }
+        return true;
+    }
+
+    /**
+     * Assigns multiple books to a member in the library system as a single all-or-nothing checkout.
+     * <p>
+     * This method takes an array of book IDs and a member ID to perform the following actions:
+     * - Resolves the member and checks that it exists before any book is touched.
+     * - Resolves each distinct book ID once through the books index and classifies it as
+     *   {@link CheckoutStatus#BORROWED}, {@link CheckoutStatus#NOT_FOUND} or {@link CheckoutStatus#ALREADY_ON_LOAN}.
+     * - Checks up front that the member's borrowing limit allows all borrowable books.
+     * - Sets the availability of every borrowable book to false and adds them to the member's borrowed books.
+     * <p>
+     * Either every borrowable book is lent, or none is: if the member cannot be located, the borrowing limit
+     * would be exceeded, or the member rejects the books, all availability changes are rolled back before the
+     * exception is propagated.
+     *
+     * @param memberId The ID of the member to whom the books are being assigned. Must be non-null and valid.
+     * @param bookId An array of book IDs to be assigned. Duplicate IDs are only processed once.
+     * @return A map from each distinct requested book ID to its checkout status, in request order.
+     * @throws IllegalArgumentException If the book IDs array is null, the member cannot be located,
+     *                                  or the borrowing limit would be exceeded.
+     */
+    public LinkedHashMap<String, CheckoutStatus> assignBooksToMember(String memberId, String[] bookId) {
+        long start = System.nanoTime();
+        boolean completed = false;
+        try {
+            LinkedHashMap<String, CheckoutStatus> results = checkOutBooks(memberId, bookId);
+            completed = true;
+            return results;
+        } catch (BorrowingLimitException e) {
+            metrics.borrowingLimitHit();
+            throw e;
+        } finally {
+            metrics.batchCheckoutCompleted(start, completed);
+        }
+    }
+
+    /**
+     * Performs the batch checkout of {@link #assignBooksToMember(String, String[])}.
+     *
+     * @param memberId The ID of the member to whom the books are being assigned.
+     * @param bookId An array of book IDs to be assigned.
+     * @return A map from each distinct requested book ID to its checkout status, in request order.
+     * @throws IllegalArgumentException If the book IDs array is null or the member cannot be located.
+     * @throws BorrowingLimitException If the borrowing limit would be exceeded.
+     */
+    private LinkedHashMap<String, CheckoutStatus> checkOutBooks(String memberId, String[] bookId) {
+
+        if (bookId == null) {
+            throw new IllegalArgumentException("Book IDs cannot be null.");
+        }
+
+        // Find the member
+        Member user = findMember(memberId);
+        if (user == null) {
+            throw new IllegalArgumentException("Member not found");
+        }
+
+        // Resolve every distinct book ID in a single pass
+        LinkedHashMap<String, CheckoutStatus> results = new LinkedHashMap<>(bookId.length * 2);
+        HashSet<String> requestedIds = new HashSet<>(bookId.length * 2);
+        HashSet<Identifier> requestedBooks = new HashSet<>(bookId.length * 2);
+        ArrayList<Book> candidates = new ArrayList<>();
+        ArrayList<String> candidateKeys = new ArrayList<>();
+        for (String id : bookId) {
+            if (!requestedIds.add(id)) {
+                continue; // Duplicate request for the same book
+            }
+            Book book = findBook(id);
+            if (book == null) {
+                results.put(id, CheckoutStatus.NOT_FOUND);
+            } else if (!requestedBooks.add(book.getIdentifier())) {
+                results.put(id, CheckoutStatus.ALREADY_ON_LOAN); // Same book requested under another spelling of its ID
+            } else {
+                results.put(id, CheckoutStatus.ALREADY_ON_LOAN); // Settled once the book is locked
+                candidates.add(book);
+                candidateKeys.add(id);
+            }
+        }
+
+        if (candidates.isEmpty()) {
+            return results;
+        }
+
+        // Lock the stripes of every candidate book in a deadlock-free order
+        TransactionLog log = this.journal;
+        long ticket = 0;
+        Identifier[] candidateIds = new Identifier[candidates.size()];
+        for (int i = 0; i < candidateIds.length; i++) {
+            candidateIds[i] = candidates.get(i).getIdentifier();
+        }
+        int[] stripes = checkoutLocks.stripesOf(candidateIds, candidateIds.length);
+        checkoutLocks.lockAll(stripes);
+        try {
+            ArrayList<Book> borrowedBooks = new ArrayList<>(candidates.size());
+            for (int i = 0; i < candidates.size(); i++) {
+                Book book = candidates.get(i);
+                if (book.getAvailability()) {
+                    results.put(candidateKeys.get(i), CheckoutStatus.BORROWED);
+                    borrowedBooks.add(book);
+                }
+            }
+
+            if (borrowedBooks.isEmpty()) {
+                return results;
+            }
+
+            synchronized (user) {
+
+                // Validate that the borrowing limit won't be exceeded before changing any state
+                int borrowedCount = user.getBorrowedBooks().size();
+                if (borrowedCount + borrowedBooks.size() > user.getBorrowingLimit()) {
+                    throw new BorrowingLimitException("Borrowing limit exceeded: You need to return "
+                            + (borrowedCount + borrowedBooks.size() - user.getBorrowingLimit()) + " book(s) before borrowing more books");
+                }
+
+                // Commit every book, or none of them
+                long now = clock.millis();
+                LoanLedger ledger = this.loanLedger;
+                ledger.lendAll(user, borrowedBooks, now);
+
+                // Logged once applied, so that a checkpoint never misses a logged checkout
+                if (log != null) {
+                    try {
+                        ticket = log.append(TransactionLog.checkoutRecord(user, borrowedBooks, now));
+                    } catch (RuntimeException e) {
+                        ledger.releaseAll(user, borrowedBooks);
+                        throw e;
+                    }
+                }
+            }
+            metrics.booksLent(borrowedBooks.size());
+            for (Book book : borrowedBooks) {
+                holdQueues.remove(book.getIdentifier(), user.getMemberIdentifier());
+                publish(LibraryEventType.BOOK_BORROWED, book.getIdentifier(), user.getMemberIdentifier());
+            }
+        } finally {
+            checkoutLocks.unlockAll(stripes);
+        }
+        if (log != null) {
+            log.awaitDurable(ticket);
+        }
+
+        return results;
+    }
+
+    /**
+     * Takes a book back from the member who borrowed it.
+     * <p>
+     * This method takes the ID of a member and the ID of a book and performs the following actions:
+     * - Finds the book and the member through their indexes.
+     * - Removes the book from the member's borrowed books through the member's loan index.
+     * - Updates the availability status of the book to true.
+     * - Lends the book to the next member of its hold queue who can take it, if anyone waits for it.
+     * <p>
+     * Every step runs in constant time, and the book is handled under its lock stripe so that a
+     * return never interleaves with a checkout of the same book.
+     *
+     * @param memberId The ID of the member returning the book. Must be non-null and valid.
+     * @param bookId The ID of the book being returned. Must be non-null and valid.
+     * @throws IllegalArgumentException If the book or member cannot be found, or the member has not borrowed the book.
+     */
+    public void returnBook(String memberId, String bookId) {
+
+        // Find the book
+        Book returnedBook = findBook(bookId);
+        if (returnedBook == null) {
+            throw new IllegalArgumentException("Book not found");
+        }
+
+        // Find the member
+        Member user = findMember(memberId);
+        if (user == null) {
+            throw new IllegalArgumentException("Member not found");
+        }
+
+        TransactionLog log = this.journal;
+        long ticket = 0;
+        int stripe = checkoutLocks.stripeOf(returnedBook.getIdentifier());
+        checkoutLocks.lock(stripe);
+        try {
+            synchronized (user) {
+                LoanLedger ledger = this.loanLedger;
+                Loan loan = ledger.loanOf(returnedBook.getIdentifier());
+                if (!ledger.release(user, returnedBook)) {
+                    throw new IllegalArgumentException("Book is not borrowed by this member");
+                }
+
+                // Logged once applied, so that a checkpoint never misses a logged return
+                if (log != null) {
+                    try {
+                        ticket = log.append(TransactionLog.returnRecord(user, List.of(returnedBook), clock.millis()));
+                    } catch (RuntimeException e) {
+                        undoReturn(ledger, user, returnedBook, loan);
+                        throw e;
+                    }
+                }
+            }
+            publish(LibraryEventType.BOOK_RETURNED, returnedBook.getIdentifier(), user.getMemberIdentifier());
+
+            // The next holder gets the book before any other checkout can take it
+            long handOffTicket = handOff(returnedBook, log);
+            if (handOffTicket != 0) {
+                ticket = handOffTicket;
+            }
+        } finally {
+            checkoutLocks.unlock(stripe);
+        }
+        if (log != null) {
+            log.awaitDurable(ticket);
+        }
+    }
+
+    /**
+     * Lends a book that has just been returned to the first member of its hold queue who can take it.
+     * <p>
+     * Holders are tried in rank order: premium members first, then regular members, each tier in the
+     * order the holds were placed. A holder whose borrowing limit is reached keeps their place, and a
+     * holder who is no longer registered loses their hold. The checkout is logged like any other.
+     * <p>
+     * The caller must hold the book's lock stripe and no member's monitor.
+     *
+     * @param book The returned book.
+     * @param log The transaction log of the library, or {@code null} if it is not logged.
+     * @return The ticket of the logged checkout, or 0 if the book was not handed over or the library is not logged.
+     */
+    private long handOff(Book book, TransactionLog log) {
+        long[] ticket = new long[1];
+        holdQueues.handOff(book.getIdentifier(), this.membersIndex::get, holder -> {
+            synchronized (holder) {
+                if (holder.hasBorrowed(book)) {
+                    return false;
+                }
+                if (holder.getBorrowedBooks().size() >= holder.getBorrowingLimit()) {
+                    metrics.borrowingLimitHit();
+                    return false;
+                }
+                long now = clock.millis();
+                LoanLedger ledger = this.loanLedger;
+                ledger.lend(holder, book, now);
+                if (log != null) {
+                    try {
+                        ticket[0] = log.append(TransactionLog.checkoutRecord(holder, List.of(book), now));
+                    } catch (RuntimeException e) {
+                        ledger.release(holder, book);
+                        throw e;
+                    }
+                }
+            }
+            metrics.booksLent(1);
+            publish(LibraryEventType.BOOK_BORROWED, book.getIdentifier(), holder.getMemberIdentifier());
+            return true;
+        });
+        return ticket[0];
+    }
+
+    /**
+     * Places a hold on a book for a member.
+     * <p>
+     * If the book is available, it is lent to the member straight away instead. Otherwise the member
+     * joins the book's hold queue, behind the holds of their tier placed before theirs: premium members
+     * rank ahead of regular members. When the book is returned, it is lent to the first holder whose
+     * borrowing limit allows it, so members do not need to retry checkouts. Placing a hold takes
+     * logarithmic time in the length of the queue.
+     *
+     * @param memberId The ID of the member placing the hold. Must be non-null and valid.
+     * @param bookId The ID of the book. Must be non-null and valid.
+     * @return {@link HoldStatus#BORROWED} if the book was lent straight away, {@link HoldStatus#QUEUED} otherwise.
+     * @throws IllegalArgumentException If the book or member cannot be found, the member already holds the
+     *                                  book or has a hold on it, or the book is available but the member's
+     *                                  borrowing limit is reached.
+     */
+    public HoldStatus placeHold(String memberId, String bookId) {
+
+        // Find the book
+        Book book = findBook(bookId);
+        if (book == null) {
+            throw new IllegalArgumentException("Book not found");
+        }
+
+        // Find the member
+        Member user = findMember(memberId);
+        if (user == null) {
+            throw new IllegalArgumentException("Member not found");
+        }
+
+        while (true) {
+            int stripe = checkoutLocks.stripeOf(book.getIdentifier());
+            checkoutLocks.lock(stripe);
+            try {
+                if (!book.getAvailability()) {
+                    synchronized (user) {
+                        if (user.hasBorrowed(book)) {
+                            throw new IllegalArgumentException("Member already holds this book");
+                        }
+                    }
+                    if (!holdQueues.add(book.getIdentifier(), user.getMemberIdentifier(), user instanceof PremiumMember)) {
+                        throw new IllegalArgumentException("Member already has a hold on this book");
+                    }
+                    return HoldStatus.QUEUED;
+                }
+            } finally {
+                checkoutLocks.unlock(stripe);
+            }
+
+            // Lent outside the stripe so that the wait for durability does not hold it; queue up if another checkout wins
+            if (lend(user, book)) {
+                return HoldStatus.BORROWED;
+            }
+        }
+    }
+
+    /**
+     * Cancels the hold of a member on a book.
+     *
+     * @param memberId The ID of the member. Must be non-null and valid.
+     * @param bookId The ID of the book. Must be non-null and valid.
+     * @return True if the member had a hold on the book, false otherwise.
+     * @throws IllegalArgumentException If the book or member cannot be found.
+     */
+    public boolean cancelHold(String memberId, String bookId) {
+        Book book = findBook(bookId);
+        if (book == null) {
+            throw new IllegalArgumentException("Book not found");
+        }
+        Member user = findMember(memberId);
+        if (user == null) {
+            throw new IllegalArgumentException("Member not found");
+        }
+        int stripe = checkoutLocks.stripeOf(book.getIdentifier());
+        checkoutLocks.lock(stripe);
+        try {
+            return holdQueues.remove(book.getIdentifier(), user.getMemberIdentifier());
+        } finally {
+            checkoutLocks.unlock(stripe);
+        }
+    }
+
+    /**
+     * Lists the members waiting for a book, in the order the book will be offered to them.
+     *
+     * @param bookId The ID of the book. Must be non-null and valid.
+     * @return A new list of the waiting members; empty if nobody waits for the book.
+     * @throws IllegalArgumentException If the book cannot be found.
+     */
+    public List<Member> getHoldQueue(String bookId) {
+        Book book = findBook(bookId);
+        if (book == null) {
+            throw new IllegalArgumentException("Book not found");
+        }
+        ArrayList<Identifier> holders;
+        int stripe = checkoutLocks.stripeOf(book.getIdentifier());
+        checkoutLocks.lock(stripe);
+        try {
+            holders = holdQueues.holders(book.getIdentifier());
+        } finally {
+            checkoutLocks.unlock(stripe);
+        }
+        ArrayList<Member> members = new ArrayList<>(holders.size());
+        for (Identifier holder : holders) {
+            Member member = this.membersIndex.get(holder);
+            if (member != null) {
+                members.add(member);
+            }
+        }
+        return members;
+    }
+
+    /**
+     * Counts the members waiting for a book.
+     *
+     * @param bookId The ID of the book.
+     * @return The number of holds on the book; 0 if the book is not found.
+     */
+    public int getHoldCount(String bookId) {
+        Identifier identifier = Identifier.tryParse(bookId);
+        if (identifier == null) {
+            return 0;
+        }
+        int stripe = checkoutLocks.stripeOf(identifier);
+        checkoutLocks.lock(stripe);
+        try {
+            return holdQueues.size(identifier);
+        } finally {
+            checkoutLocks.unlock(stripe);
+        }
+    }
+
+    /**
+     * Takes several books back from a member in a single call.
+     * <p>
+     * This method takes a member ID and an array of book IDs and performs the following actions:
+     * - Resolves the member and checks that it exists before any book is touched.
+     * - Resolves each distinct book ID once through the books index.
+     * - Returns every book the member holds, classifying each requested ID as {@link ReturnStatus#RETURNED},
+     *   {@link ReturnStatus#NOT_FOUND} or {@link ReturnStatus#NOT_BORROWED}.
+     * <p>
+     * Books that cannot be returned do not prevent the others from being returned. Returned books that
+     * members are waiting for are lent to the next member of their hold queue who can take them.
+     *
+     * @param memberId The ID of the member returning the books. Must be non-null and valid.
+     * @param bookId An array of book IDs to be returned. Duplicate IDs are only processed once.
+     * @return A map from each distinct requested book ID to its return status, in request order.
+     * @throws IllegalArgumentException If the book IDs array is null or the member cannot be located.
+     */
+    public LinkedHashMap<String, ReturnStatus> returnBooks(String memberId, String[] bookId) {
+
+        if (bookId == null) {
+            throw new IllegalArgumentException("Book IDs cannot be null.");
+        }
+
+        // Find the member
+        Member user = findMember(memberId);
+        if (user == null) {
+            throw new IllegalArgumentException("Member not found");
+        }
+
+        // Resolve every distinct book ID in a single pass
+        LinkedHashMap<String, ReturnStatus> results = new LinkedHashMap<>(bookId.length * 2);
+        HashSet<Identifier> requestedBooks = new HashSet<>(bookId.length * 2);
+        ArrayList<Book> candidates = new ArrayList<>();
+        ArrayList<String> candidateKeys = new ArrayList<>();
+        for (String id : bookId) {
+            if (results.containsKey(id)) {
+                continue; // Duplicate request for the same book
+            }
+            Book book = findBook(id);
+            if (book == null) {
+                results.put(id, ReturnStatus.NOT_FOUND);
+            } else {
+                results.put(id, ReturnStatus.NOT_BORROWED); // Settled once the book is locked
+                if (requestedBooks.add(book.getIdentifier())) {
+                    candidates.add(book);
+                    candidateKeys.add(id);
+                }
+            }
+        }
+
+        if (candidates.isEmpty()) {
+            return results;
+        }
+
+        TransactionLog log = this.journal;
+        long ticket = 0;
+        Identifier[] candidateIds = new Identifier[candidates.size()];
+        for (int i = 0; i < candidateIds.length; i++) {
+            candidateIds[i] = candidates.get(i).getIdentifier();
+        }
+        int[] stripes = checkoutLocks.stripesOf(candidateIds, candidateIds.length);
+        checkoutLocks.lockAll(stripes);
+        try {
+            ArrayList<Book> returnedBooks = new ArrayList<>(candidates.size());
+            synchronized (user) {
+                LoanLedger ledger = this.loanLedger;
+                Loan[] loans = new Loan[candidates.size()];
+                for (int i = 0; i < loans.length; i++) {
+                    loans[i] = ledger.loanOf(candidates.get(i).getIdentifier());
+                }
+                boolean[] released = ledger.releaseAll(user, candidates);
+                ArrayList<Loan> endedLoans = new ArrayList<>(candidates.size());
+                for (int i = 0; i < released.length; i++) {
+                    if (released[i]) {
+                        returnedBooks.add(candidates.get(i));
+                        endedLoans.add(loans[i]);
+                        results.put(candidateKeys.get(i), ReturnStatus.RETURNED);
+                    }
+                }
+
+                // Logged once applied, so that a checkpoint never misses a logged return
+                if (log != null && !returnedBooks.isEmpty()) {
+                    try {
+                        ticket = log.append(TransactionLog.returnRecord(user, returnedBooks, clock.millis()));
+                    } catch (RuntimeException e) {
+                        for (int i = 0; i < returnedBooks.size(); i++) {
+                            undoReturn(ledger, user, returnedBooks.get(i), endedLoans.get(i));
+                        }
+                        throw e;
+                    }
+                }
+                for (Book book : returnedBooks) {
+                    publish(LibraryEventType.BOOK_RETURNED, book.getIdentifier(), user.getMemberIdentifier());
+                }
+            }
+
+            // The next holders get the books before any other checkout can take them
+            for (Book book : returnedBooks) {
+                long handOffTicket = handOff(book, log);
+                if (handOffTicket != 0) {
+                    ticket = handOffTicket;
+                }
+            }
+        } finally {
+            checkoutLocks.unlockAll(stripes);
+        }
+        if (log != null && ticket != 0) {
+            log.awaitDurable(ticket);
+        }
+
+        return results;
+    }
+
+    /**
+     * Puts a returned book back in the hands of the member after the return could not be logged.
+     *
+     * @param ledger The ledger the book was returned through.
+     * @param user The member who returned the book.
+     * @param book The returned book.
+     * @param loan The loan the return ended.
+     */
+    private static void undoReturn(LoanLedger ledger, Member user, Book book, Loan loan) {
+        ledger.restore(user, book, loan.getCheckoutMillis());
+    }
+
+    /**
+     * Finds the current loan of a book.
+     * <p>
+     * The lookup goes through the loan ledger and runs in constant time.
+     *
+     * @param bookId The ID of the book.
+     * @return The loan of the book, or {@code null} if the book is not found or not lent by the library.
+     */
+    public Loan getLoan(String bookId) {
+        Identifier identifier = Identifier.tryParse(bookId);
+        return identifier == null ? null : this.loanLedger.loanOf(identifier);
+    }
+
+    /**
+     * Finds the member currently holding a book lent by the library.
+     * <p>
+     * The lookup goes through the loan ledger and the members index, and runs in constant time.
+     *
+     * @param bookId The ID of the book.
+     * @return The member holding the book, or {@code null} if the book is not found or not lent by the library.
+     */
+    public Member getBorrower(String bookId) {
+        Loan loan = getLoan(bookId);
+        return loan == null ? null : this.membersIndex.get(loan.getMemberIdentifier());
+    }
+
+    /**
+     * Lists the books a member currently holds on loan from the library, in checkout order.
+     * <p>
+     * The loans are read from the loan ledger, in time proportional to the number of loans of the member.
+     *
+     * @param memberId The ID of the member.
+     * @return A new list of the member's loans; empty if the member holds no book from the library.
+     * @throws IllegalArgumentException If the member cannot be found.
+     */
+    public List<Loan> getLoans(String memberId) {
+        Member user = findMember(memberId);
+        if (user == null) {
+            throw new IllegalArgumentException("Member not found");
+        }
+        synchronized (user) {
+            return this.loanLedger.loansOf(user.getMemberIdentifier());
+        }
+    }
+
+    /**
+     * Finds the current loan of a book by the compact form of its ID.
+     *
+     * @param bookId The ID of the book.
+     * @return The loan of the book, or {@code null} if it is not lent by the library.
+     */
+    Loan findLoan(Identifier bookId) {
+        return this.loanLedger.loanOf(bookId);
+    }
+
+    /**
+     * Re-applies a checkout read back from a snapshot or transaction log, without enforcing the borrowing limit.
+     * <p>
+     * If the member already has the book on loan, such as a book it held when it was registered, the
+     * loan takes the original checkout time. Nothing changes if another member has the book on loan,
+     * as the restored state then already reflects a later change.
+     *
+     * @param user The borrowing member.
+     * @param book The borrowed book.
+     * @param checkoutTime The original checkout time, in milliseconds since the epoch.
+     */
+    void restoreCheckout(Member user, Book book, long checkoutTime) {
+        int stripe = checkoutLocks.stripeOf(book.getIdentifier());
+        checkoutLocks.lock(stripe);
+        try {
+            synchronized (user) {
+                LoanLedger ledger = this.loanLedger;
+                Loan loan = ledger.loanOf(book.getIdentifier());
+                if (loan == null || (loan.getMemberIdentifier().equals(user.getMemberIdentifier())
+                        && loan.getCheckoutMillis() != checkoutTime)) {
+                    ledger.restore(user, book, checkoutTime);
+                }
+            }
+        } finally {
+            checkoutLocks.unlock(stripe);
+        }
+    }
+
+    /**
+     * Re-applies a return read back from a transaction log.
+     * <p>
+     * Nothing changes if the member no longer has the book on loan, as the restored state then
+     * already reflects this return or a later change.
+     *
+     * @param user The returning member.
+     * @param book The returned book.
+     */
+    void restoreReturn(Member user, Book book) {
+        int stripe = checkoutLocks.stripeOf(book.getIdentifier());
+        checkoutLocks.lock(stripe);
+        try {
+            synchronized (user) {
+                this.loanLedger.release(user, book);
+            }
+        } finally {
+            checkoutLocks.unlock(stripe);
+        }
+    }
+
+    /**
+     * Displays the list of all books in the library's collection in a tabular format.
+     * <p>
+     * This method prints a visually formatted table with columns for book attributes such as ID, Title, Author,
+     * ISBN, and Availability. It uses ANSI escape codes to apply bold formatting to column headers for better
+     * readability. The table is bordered with horizontal lines for enhanced presentation.
+     * <p>
+     * Key Features:
+     * - Renders through a buffered {@link TableRenderer}, so the whole table costs a handful of console writes.
+     * - Iterates through the {@code booksCollection} to print details of each book.
+     * - Includes a header row with bold formatting using ANSI escape codes.
+     * <p>
+     * This method assumes that the {@code booksCollection} is initialized and populated with valid book objects.
+     */
+    public void displayBooks() {
+        displayBooks(System.out, true, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Writes one page of the list of all books in the library's collection to the given output.
+     *
+     * @param out The destination of the table. Must be non-null.
+     * @param ansi True to render bold captions and headers with ANSI escape codes, false for plain text.
+     * @param offset The number of books to skip from the start of the collection. Must be non-negative.
+     * @param limit The maximum number of books to write. Must be non-negative.
+     * @throws IllegalArgumentException If the output is null, or the offset or limit is negative.
+     * @throws java.io.UncheckedIOException If the output fails to accept the table.
+     */
+    public void displayBooks(Appendable out, boolean ansi, int offset, int limit) {
+        renderBooks(out, ansi, "All Books", null, offset, limit);
+    }
+
+    /**
+     * Displays the list of available books in the library's collection in a tabular format.
+     * <p>
+     * This method walks the availability index to find the books that are marked as available,
+     * without scanning the rest of the {@code booksCollection}. It then prints a formatted table
+     * with columns for book attributes such as ID, Title, Author, ISBN, and Availability. Bold
+     * formatting is applied to the headers using ANSI escape codes for better readability. The
+     * table is bordered with horizontal lines to enhance its presentation.
+     * <p>
+     * Key Features:
+     * - Filters and displays only books with availability set to true.
+     * - Renders through a buffered {@link TableRenderer} for proper alignment of table columns.
+     * - Includes bold headers for better visual hierarchy and organization.
+     */
+    public void displayAvailableBooks() {
+        displayAvailableBooks(System.out, true, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Writes one page of the list of available books in the library's collection to the given output.
+     *
+     * @param out The destination of the table. Must be non-null.
+     * @param ansi True to render bold captions and headers with ANSI escape codes, false for plain text.
+     * @param offset The number of available books to skip. Must be non-negative.
+     * @param limit The maximum number of books to write. Must be non-negative.
+     * @throws IllegalArgumentException If the output is null, or the offset or limit is negative.
+     * @throws java.io.UncheckedIOException If the output fails to accept the table.
+     */
+    public void displayAvailableBooks(Appendable out, boolean ansi, int offset, int limit) {
+        renderBooks(out, ansi, "Available Books", Boolean.TRUE, offset, limit);
+    }
+
+    /**
+     * Displays the list of unavailable books in the library's collection in a tabular format.
+     * <p>
+     * This method walks the availability index to find the books that are marked as unavailable,
+     * without scanning the rest of the {@code booksCollection}. It then prints a formatted table
+     * with the same columns and styling as {@link #displayAvailableBooks()}.
+     * <p>
+     * Key Features:
+     * - Filters and displays only books with availability set to false.
+     * - Renders through a buffered {@link TableRenderer} for proper alignment of table columns.
+     * - Includes bold headers for better visual hierarchy and organization.
+     */
+    public void displayUnavailableBooks() {
+        displayUnavailableBooks(System.out, true, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Writes one page of the list of unavailable books in the library's collection to the given output.
+     *
+     * @param out The destination of the table. Must be non-null.
+     * @param ansi True to render bold captions and headers with ANSI escape codes, false for plain text.
+     * @param offset The number of unavailable books to skip. Must be non-negative.
+     * @param limit The maximum number of books to write. Must be non-negative.
+     * @throws IllegalArgumentException If the output is null, or the offset or limit is negative.
+     * @throws java.io.UncheckedIOException If the output fails to accept the table.
+     */
+    public void displayUnavailableBooks(Appendable out, boolean ansi, int offset, int limit) {
+        renderBooks(out, ansi, "Unavailable Books", Boolean.FALSE, offset, limit);
+    }
+
+    /**
+     * Displays the list of all members in the library's collection in a tabular format.
+     * <p>
+     * This method prints a formatted table with columns for member attributes, including ID, Name,
+     * and Borrowing Limit. Bold headers are applied using ANSI escape codes for enhanced readability.
+     * Horizontal lines are used to frame the table for a professional presentation.
+     * <p>
+     * Key Features:
+     * - Iterates through the {@code membersCollection} to display details of each member.
+     * - Renders through a buffered {@link TableRenderer} for proper alignment of table columns.
+     * - Assumes the {@code membersCollection} is initialized and populated with valid member objects.
+     * <p>
+     * This method provides a quick overview of all registered members and their borrowing capacities.
+     */
+    public void displayMembers() {
+        displayMembers(System.out, true, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Writes one page of the list of all members in the library's collection to the given output.
+     *
+     * @param out The destination of the table. Must be non-null.
+     * @param ansi True to render bold captions and headers with ANSI escape codes, false for plain text.
+     * @param offset The number of members to skip from the start of the collection. Must be non-negative.
+     * @param limit The maximum number of members to write. Must be non-negative.
+     * @throws IllegalArgumentException If the output is null, or the offset or limit is negative.
+     * @throws java.io.UncheckedIOException If the output fails to accept the table.
+     */
+    public void displayMembers(Appendable out, boolean ansi, int offset, int limit) {
+        validatePage(offset, limit);
+        TableRenderer table = new TableRenderer(out, ansi, Member.TABLE_COLUMN_WIDTHS);
+        table.rule();
+        table.caption("All Members");
+        table.rule();
+        Member.renderTableHeader(table);
+
+        // Print table rows in chunks so that writers are never blocked for the whole table
+        Member[] chunk = new Member[DISPLAY_CHUNK_SIZE];
+        int position = offset;
+        int remaining = limit;
+        while (remaining > 0) {
+            int count = 0;
+            collectionsLock.readLock().lock();
+            try {
+                List<Member> members = versions.current().getMembers();
+                while (count < chunk.length && count < remaining && position < members.size()) {
+                    chunk[count++] = members.get(position++);
+                }
+            } finally {
+                collectionsLock.readLock().unlock();
+            }
+            if (count == 0) {
+                break;
+            }
+            for (int i = 0; i < count; i++) {
+                chunk[i].renderTableRow(table);
+            }
+            remaining -= count;
+        }
+        table.rule();
+        table.flush();
+    }
+
+    /**
+     * Writes one page of a book table, optionally filtered by availability, to the given output.
+     * <p>
+     * Books are gathered in small chunks under the read lock and rendered outside of it, so long
+     * tables never block writers for more than one chunk. Filtered tables walk the availability index.
+     *
+     * @param out The destination of the table.
+     * @param ansi True to render bold captions and headers with ANSI escape codes, false for plain text.
+     * @param title The caption of the table.
+     * @param availability {@code null} for all books, or the availability status of the books to include.
+     * @param offset The number of matching books to skip.
+     * @param limit The maximum number of books to write.
+     */
+    private void renderBooks(Appendable out, boolean ansi, String title, Boolean availability, int offset, int limit) {
+        validatePage(offset, limit);
+        TableRenderer table = new TableRenderer(out, ansi, Book.TABLE_COLUMN_WIDTHS);
+        table.rule();
+        table.caption(title);
+        table.rule();
+        Book.renderTableHeader(table);
+
+        // Print table rows in chunks so that writers are never blocked for the whole table
+        Book[] chunk = new Book[DISPLAY_CHUNK_SIZE];
+        int skipped = availability == null ? offset : 0;
+        int position = availability == null ? offset : 0;
+        int remaining = limit;
+        boolean exhausted = false;
+        while (remaining > 0 && !exhausted) {
+            int count = 0;
+            collectionsLock.readLock().lock();
+            try {
+                List<Book> books = versions.current().getBooks();
+                AvailabilityBitmap index = this.availabilityIndex;
+                while (count < chunk.length && count < remaining) {
+                    if (availability != null) {
+                        position = availability ? index.nextAvailable(position) : index.nextUnavailable(position);
+                    }
+                    if (position < 0 || position >= books.size()) {
+                        exhausted = true;
+                        break;
+                    }
+                    Book book = books.get(position++);
+                    if (skipped < offset) {
+                        skipped++;
+                    } else {
+                        chunk[count++] = book;
+                    }
+                }
+            } finally {
+                collectionsLock.readLock().unlock();
+            }
+            for (int i = 0; i < count; i++) {
+                chunk[i].renderTableRow(table);
+            }
+            remaining -= count;
+        }
+        table.rule();
+        table.flush();
+    }
+
+    /**
+     * Validates the paging arguments of the display methods.
+     *
+     * @param offset The number of entries to skip.
+     * @param limit The maximum number of entries to write.
+     * @throws IllegalArgumentException If the offset or limit is negative.
+     */
+    private static void validatePage(int offset, int limit) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Offset cannot be negative.");
+        }
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit cannot be negative.");
         }
-        System.out.println("-".repeat(110));
     }
 
     /**
-     * Provides a string representation of the Library object in a JSON-like format.
+     * Provides a JSON representation of the Library object.
      * <p>
      * This method overrides the {@code toString()} method to return a structured view of the
      * library's collections, including:
      * - {@code booksCollection}: The list of books in the library.
-     * - {@code membersCollection}: The list of members registered in the library.
+     * - {@code membersCollection}: The list of members registered in the library, whose borrowed
+     *   books from the catalog are written as references to the book IDs.
      * <p>
-     * The resulting string uses a JSON-like structure for readability and ease of debugging.
+     * The whole document is built in memory; use {@link LibraryJson#write(Library, java.io.Writer)}
+     * to stream large libraries instead.
      *
-     * @return A JSON-like string representation of the library object, showing the books
+     * @return A JSON representation of the library object, showing the books
      *         and members collections.
      */
     @Override
     public String toString() {
-        return "{\n" +
-                "  \"booksCollection\": " + booksCollection + ",\n" +
-                "  \"membersCollection\": " + membersCollection + "\n" +
-                "}";
+        return LibraryJson.toJson(this);
     }
 }
@@ -0,0 +1,137 @@
+/**
+ * Represents one operation of a batch run by {@link Library#execute(java.util.List)}.
+ * <p>
+ * Commands are immutable and are created through the factory method named after the library
+ * operation they stand for.
+ */
+public final class LibraryCommand {
+
+    /**
+     * The kind of operation.
+     */
+    private final LibraryCommandType type;
+
+    /**
+     * The book to add, or {@code null} for other commands.
+     */
+    private final Book book;
+
+    /**
+     * The member to register, or {@code null} for other commands.
+     */
+    private final Member member;
+
+    /**
+     * The ID of the borrowing member, or {@code null} for other commands.
+     */
+    private final String memberId;
+
+    /**
+     * The ID of the book to lend, or {@code null} for other commands.
+     */
+    private final String bookId;
+
+    private LibraryCommand(LibraryCommandType type, Book book, Member member, String memberId, String bookId) {
+        this.type = type;
+        this.book = book;
+        this.member = member;
+        this.memberId = memberId;
+        this.bookId = bookId;
+    }
+
+    /**
+     * Creates a command adding a book to the catalog.
+     *
+     * @param book The book to add, already validated. Must be non-null.
+     * @return The command.
+     * @throws IllegalArgumentException If the book is null.
+     */
+    public static LibraryCommand addBook(Book book) {
+        if (book == null) {
+            throw new IllegalArgumentException("Book cannot be null.");
+        }
+        return new LibraryCommand(LibraryCommandType.ADD_BOOK, book, null, null, null);
+    }
+
+    /**
+     * Creates a command registering a member.
+     *
+     * @param member The member to register, already validated. Must be non-null.
+     * @return The command.
+     * @throws IllegalArgumentException If the member is null.
+     */
+    public static LibraryCommand registerMember(Member member) {
+        if (member == null) {
+            throw new IllegalArgumentException("Member cannot be null.");
+        }
+        return new LibraryCommand(LibraryCommandType.REGISTER_MEMBER, null, member, null, null);
+    }
+
+    /**
+     * Creates a command lending a book to a member.
+     *
+     * @param memberId The ID of the borrowing member.
+     * @param bookId The ID of the book to lend.
+     * @return The command.
+     */
+    public static LibraryCommand assignBookToMember(String memberId, String bookId) {
+        return new LibraryCommand(LibraryCommandType.ASSIGN_BOOK_TO_MEMBER, null, null, memberId, bookId);
+    }
+
+    /**
+     * Retrieves the kind of operation.
+     *
+     * @return The command type.
+     */
+    public LibraryCommandType getType() {
+        return type;
+    }
+
+    /**
+     * Retrieves the book to add.
+     *
+     * @return The book, or {@code null} if this command does not add a book.
+     */
+    public Book getBook() {
+        return book;
+    }
+
+    /**
+     * Retrieves the member to register.
+     *
+     * @return The member, or {@code null} if this command does not register a member.
+     */
+    public Member getMember() {
+        return member;
+    }
+
+    /**
+     * Retrieves the ID of the borrowing member.
+     *
+     * @return The member ID, or {@code null} if this command is not a checkout.
+     */
+    public String getMemberId() {
+        return memberId;
+    }
+
+    /**
+     * Retrieves the ID of the book to lend.
+     *
+     * @return The book ID, or {@code null} if this command is not a checkout.
+     */
+    public String getBookId() {
+        return bookId;
+    }
+
+    @Override
+    public String toString() {
+        switch (type) {
+            case ADD_BOOK:
+                return "addBook(" + book.getId() + ")";
+            case REGISTER_MEMBER:
+                return "registerMember(" + member.getMemberId() + ")";
+            default:
+                return "assignBookToMember(" + memberId + ", " + bookId + ")";
+        }
+    }
+}
@@ -0,0 +1,20 @@
+/**
+ * The kinds of commands that can be run in a batch by {@code Library.execute()}.
+ */
+public enum LibraryCommandType {
+
+    /**
+     * Adds a book to the catalog, like {@code Library.addBook()}.
+     */
+    ADD_BOOK,
+
+    /**
+     * Registers a member, like {@code Library.registerMember()}.
+     */
+    REGISTER_MEMBER,
+
+    /**
+     * Lends a book to a member, like {@code Library.assignBookToMember()}.
+     */
+    ASSIGN_BOOK_TO_MEMBER
+}
@@ -0,0 +1,111 @@
+import java.time.Instant;
+
+/**
+ * Represents a change to a library, delivered asynchronously to subscribers.
+ * <p>
+ * Events are immutable. They are numbered in the order they were published: events about the same
+ * book are published while its lock stripe is held, so their sequence numbers follow the order in
+ * which the changes took effect. A gap in the sequence numbers seen by a subscriber means events
+ * were lost because the subscriber fell behind.
+ */
+public final class LibraryEvent {
+
+    /**
+     * The position of the event in the stream of events of the library, starting at 0.
+     */
+    private final long sequence;
+
+    /**
+     * The kind of change.
+     */
+    private final LibraryEventType type;
+
+    /**
+     * The time the change took effect, in milliseconds since the epoch.
+     */
+    private final long timestamp;
+
+    /**
+     * The ID of the book concerned, or {@code null} for membership events.
+     */
+    private final Identifier bookId;
+
+    /**
+     * The ID of the member concerned, or {@code null} for catalog events.
+     */
+    private final Identifier memberId;
+
+    /**
+     * Constructs an event.
+     *
+     * @param sequence The position of the event in the stream of events of the library.
+     * @param type The kind of change.
+     * @param timestamp The time the change took effect, in milliseconds since the epoch.
+     * @param bookId The ID of the book concerned, or {@code null}.
+     * @param memberId The ID of the member concerned, or {@code null}.
+     */
+    LibraryEvent(long sequence, LibraryEventType type, long timestamp, Identifier bookId, Identifier memberId) {
+        this.sequence = sequence;
+        this.type = type;
+        this.timestamp = timestamp;
+        this.bookId = bookId;
+        this.memberId = memberId;
+    }
+
+    /**
+     * Retrieves the position of the event in the stream of events of the library.
+     *
+     * @return The sequence number, starting at 0.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Retrieves the kind of change.
+     *
+     * @return The event type.
+     */
+    public LibraryEventType getType() {
+        return type;
+    }
+
+    /**
+     * Retrieves the time the change took effect.
+     *
+     * @return The event time.
+     */
+    public Instant getTimestamp() {
+        return Instant.ofEpochMilli(timestamp);
+    }
+
+    /**
+     * Retrieves the ID of the book concerned.
+     *
+     * @return The ID of the book as a string, or {@code null} for membership events.
+     */
+    public String getBookId() {
+        return bookId == null ? null : bookId.toString();
+    }
+
+    /**
+     * Retrieves the ID of the member concerned.
+     *
+     * @return The ID of the member as a string, or {@code null} for catalog events.
+     */
+    public String getMemberId() {
+        return memberId == null ? null : memberId.toString();
+    }
+
+    /**
+     * Generates a string representation of the event.
+     *
+     * @return The sequence number, type, time and IDs of the event.
+     */
+    @Override
+    public String toString() {
+        return "LibraryEvent{sequence=" + sequence + ", type=" + type + ", timestamp=" + getTimestamp()
+                + (bookId != null ? ", bookId=" + bookId : "")
+                + (memberId != null ? ", memberId=" + memberId : "") + "}";
+    }
+}
@@ -0,0 +1,27 @@
+/**
+ * Represents the kind of change a {@link LibraryEvent} reports.
+ * <p>
+ * Subscribers typically filter on it, for example to receive only checkouts and returns.
+ */
+public enum LibraryEventType {
+
+    /**
+     * A book joined the catalog. The event carries the book ID only.
+     */
+    BOOK_ADDED,
+
+    /**
+     * A book was lent to a member. The event carries the book ID and the member ID.
+     */
+    BOOK_BORROWED,
+
+    /**
+     * A member returned a book. The event carries the book ID and the member ID.
+     */
+    BOOK_RETURNED,
+
+    /**
+     * A member was registered. The event carries the member ID only.
+     */
+    MEMBER_REGISTERED
+}
@@ -0,0 +1,471 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Imports books, ebooks, members and premium members into a library from CSV or TSV files.
+ * <p>
+ * The input is streamed: lines are read in chunks, each chunk is parsed and validated on the common
+ * fork-join pool while the next ones are read, and validated chunks are added to the library in
+ * input order, one batch per chunk. Only a bounded number of chunks is in flight at a time, so files
+ * of any size are imported with a constant amount of working memory on top of the imported objects.
+ * <p>
+ * Record layout, one record per line, with the same type tags as {@link LibraryJson}:
+ * - {@code book,<title>,<author>,<ISBN>,<availability>[,<id>]}
+ * - {@code ebook,<title>,<author>,<ISBN>,<availability>,<fileSize>,<fileFormat>[,<id>]}
+ * - {@code member,<name>[,<id>]}
+ * - {@code premiumMember,<name>[,<id>]}
+ * <p>
+ * Availability is {@code true} or {@code false}. Imported members hold no books, so nothing imported is on
+ * loan: every book joins the catalog available, whatever its availability field says. A missing or
+ * empty ID is replaced by a random one.
+ * Fields may be enclosed in double quotes, with embedded quotes doubled, to hold the delimiter;
+ * records cannot span lines. Blank lines, lines starting with {@code #} and a first line starting
+ * with {@code type} are skipped.
+ * <p>
+ * Fields are checked against the same rules as the setters. Invalid records, and records whose ID is
+ * already in use, are not imported; they are listed with their reasons in the returned {@link ImportReport}.
+ */
+public final class LibraryImporter {
+
+    /**
+     * Number of lines parsed and inserted as one chunk.
+     */
+    private static final int CHUNK_LINES = 8192;
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private LibraryImporter() {
+    }
+
+    /**
+     * Imports the records of a UTF-8 file into a library.
+     * <p>
+     * Files whose name ends with {@code .tsv} are read as tab-separated; all others as comma-separated.
+     *
+     * @param library The library receiving the records. Must be non-null.
+     * @param file The file to import. Must be non-null.
+     * @return The report of the import.
+     * @throws IOException If the file cannot be read.
+     */
+    public static ImportReport importFile(Library library, Path file) throws IOException {
+        String name = file.getFileName().toString().toLowerCase();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return importRecords(library, reader, name.endsWith(".tsv") ? '\t' : ',');
+        }
+    }
+
+    /**
+     * Imports the records read from a character stream into a library.
+     * <p>
+     * The stream is read to its end but not closed.
+     *
+     * @param library The library receiving the records. Must be non-null.
+     * @param in The source of the records. Must be non-null.
+     * @param delimiter The field delimiter, such as {@code ','} or {@code '\t'}. Cannot be a double quote.
+     * @return The report of the import.
+     * @throws IllegalArgumentException If the library or source is null, or the delimiter is a double quote.
+     * @throws IOException If the source cannot be read.
+     */
+    public static ImportReport importRecords(Library library, Reader in, char delimiter) throws IOException {
+        if (library == null || in == null) {
+            throw new IllegalArgumentException("Library and source cannot be null.");
+        }
+        if (delimiter == '"') {
+            throw new IllegalArgumentException("Delimiter cannot be a double quote.");
+        }
+
+        long start = System.nanoTime();
+        BufferedReader reader = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in, 1 << 16);
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        int window = Math.max(2, pool.getParallelism() * 2);
+        ArrayDeque<CompletableFuture<Chunk>> inFlight = new ArrayDeque<>();
+        Totals totals = new Totals();
+
+        try {
+            long lineNumber = 0;
+            boolean exhausted = false;
+            while (!exhausted) {
+                String[] lines = new String[CHUNK_LINES];
+                long firstLine = lineNumber + 1;
+                int count = 0;
+                while (count < CHUNK_LINES) {
+                    String line = reader.readLine();
+                    if (line == null) {
+                        exhausted = true;
+                        break;
+                    }
+                    lines[count++] = line;
+                }
+                lineNumber += count;
+                if (count > 0) {
+                    int lineCount = count;
+                    inFlight.add(CompletableFuture.supplyAsync(() -> parse(lines, lineCount, firstLine, delimiter), pool));
+                }
+
+                // Insert the oldest chunks once enough are being parsed, keeping memory bounded
+                while (inFlight.size() >= window || (exhausted && !inFlight.isEmpty())) {
+                    insert(library, join(inFlight.poll()), totals);
+                }
+            }
+        } finally {
+            for (CompletableFuture<Chunk> chunk : inFlight) {
+                chunk.cancel(false);
+            }
+        }
+
+        totals.rejectedLines.sort(Comparator.comparingLong(ImportReport.RejectedLine::getLineNumber));
+        return new ImportReport(totals.recordsRead, totals.booksImported, totals.membersImported,
+                totals.rejectedLines, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    /**
+     * Waits for a chunk to be parsed, rethrowing any unexpected failure of the parser.
+     *
+     * @param future The chunk being parsed.
+     * @return The parsed chunk.
+     */
+    private static Chunk join(CompletableFuture<Chunk> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Adds the records of a parsed chunk to the library and to the totals of the import.
+     *
+     * @param library The library receiving the records.
+     * @param chunk The parsed chunk.
+     * @param totals The totals of the import.
+     */
+    private static void insert(Library library, Chunk chunk, Totals totals) {
+        totals.recordsRead += chunk.records;
+        totals.rejectedLines.addAll(chunk.rejectedLines);
+        if (!chunk.rejectedLines.isEmpty()) {
+            library.getMetrics().validationFailed(chunk.rejectedLines.size());
+        }
+        if (!chunk.books.isEmpty()) {
+            int[] rejected = library.addBooks(chunk.books);
+            totals.booksImported += chunk.books.size() - rejected.length;
+            for (int index : rejected) {
+                totals.rejectedLines.add(chunk.bookLines.get(index).reject("A book with the same ID is already in the library."));
+            }
+        }
+        if (!chunk.members.isEmpty()) {
+            int[] rejected = library.registerMembers(chunk.members);
+            totals.membersImported += chunk.members.size() - rejected.length;
+            for (int index : rejected) {
+                totals.rejectedLines.add(chunk.memberLines.get(index).reject("A member with the same ID is already registered."));
+            }
+        }
+    }
+
+    /**
+     * Parses and validates a chunk of lines.
+     *
+     * @param lines The lines of the chunk.
+     * @param count The number of lines in the chunk.
+     * @param firstLine The line number of the first line of the chunk.
+     * @param delimiter The field delimiter.
+     * @return The books, members and rejected lines of the chunk.
+     */
+    private static Chunk parse(String[] lines, int count, long firstLine, char delimiter) {
+        Chunk chunk = new Chunk();
+        ArrayList<String> fields = new ArrayList<>(8);
+        ArrayList<String> errors = new ArrayList<>(4);
+        for (int i = 0; i < count; i++) {
+            String line = lines[i];
+            long lineNumber = firstLine + i;
+            if (isSkipped(line, lineNumber)) {
+                continue;
+            }
+            chunk.records++;
+            Line source = new Line(lineNumber, line);
+            if (!split(line, delimiter, fields)) {
+                chunk.rejectedLines.add(source.reject("Unterminated quoted field."));
+                continue;
+            }
+            errors.clear();
+            Object record = parseRecord(fields, errors);
+            if (record instanceof Book book) {
+                chunk.books.add(book);
+                chunk.bookLines.add(source);
+            } else if (record instanceof Member member) {
+                chunk.members.add(member);
+                chunk.memberLines.add(source);
+            } else {
+                chunk.rejectedLines.add(source.reject(String.join(" ", errors)));
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * Checks whether a line holds no record: blank lines, comments and the header.
+     *
+     * @param line The line.
+     * @param lineNumber The line number.
+     * @return True if the line is skipped, false if it holds a record.
+     */
+    private static boolean isSkipped(String line, long lineNumber) {
+        String trimmed = line.strip();
+        return trimmed.isEmpty() || trimmed.startsWith("#") || (lineNumber == 1 && trimmed.regionMatches(true, 0, "type", 0, 4));
+    }
+
+    /**
+     * Builds the book or member described by the fields of a record.
+     *
+     * @param fields The fields of the record.
+     * @param errors Receives every violation found.
+     * @return The book or member, or {@code null} if the record is invalid.
+     */
+    private static Object parseRecord(ArrayList<String> fields, ArrayList<String> errors) {
+        String type = fields.get(0).trim();
+        switch (type) {
+            case "book":
+                return parseBook(fields, false, errors);
+            case "ebook":
+                return parseBook(fields, true, errors);
+            case "member":
+                return parseMember(fields, false, errors);
+            case "premiumMember":
+                return parseMember(fields, true, errors);
+            default:
+                errors.add("Unknown record type '" + type + "'.");
+                return null;
+        }
+    }
+
+    /**
+     * Builds a book or an ebook from the fields of a record.
+     *
+     * @param fields The fields of the record, starting with the type.
+     * @param ebook True if the record describes an ebook.
+     * @param errors Receives every violation found.
+     * @return The book, or {@code null} if the record is invalid.
+     */
+    private static Book parseBook(ArrayList<String> fields, boolean ebook, ArrayList<String> errors) {
+        int required = ebook ? 7 : 5;
+        if (fields.size() < required || fields.size() > required + 1) {
+            errors.add((ebook ? "An ebook" : "A book") + " record must have " + required + " or " + (required + 1) + " fields.");
+            return null;
+        }
+        String title = fields.get(1);
+        String author = fields.get(2);
+        String isbn = fields.get(3);
+        addError(errors, FieldValidator.titleError(title));
+        addError(errors, FieldValidator.authorError(author));
+        addError(errors, FieldValidator.isbnError(isbn));
+        checkAvailability(fields.get(4), errors);
+        Identifier id = parseId(fields, required, "Invalid Book ID. It must follow the UUID format.", errors);
+
+        int fileSize = 0;
+        if (ebook) {
+            try {
+                fileSize = Integer.parseInt(fields.get(5).trim());
+            } catch (NumberFormatException e) {
+                errors.add("File size must be a whole number of kilobytes.");
+            }
+        }
+        if (!errors.isEmpty()) {
+            return null;
+        }
+
+        if (!ebook) {
+            return new Book(id, title.trim(), author.trim(), isbn.trim(), true);
+        }
+        try {
+            return new Ebook(id, title.trim(), author.trim(), isbn.trim(), true, fileSize, fields.get(6));
+        } catch (IllegalArgumentException e) {
+            errors.add(e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Builds a member or a premium member from the fields of a record.
+     *
+     * @param fields The fields of the record, starting with the type.
+     * @param premium True if the record describes a premium member.
+     * @param errors Receives every violation found.
+     * @return The member, or {@code null} if the record is invalid.
+     */
+    private static Member parseMember(ArrayList<String> fields, boolean premium, ArrayList<String> errors) {
+        if (fields.size() < 2 || fields.size() > 3) {
+            errors.add((premium ? "A premium member" : "A member") + " record must have 2 or 3 fields.");
+            return null;
+        }
+        String name = fields.get(1);
+        addError(errors, FieldValidator.nameError(name));
+        Identifier id = parseId(fields, 2, "Invalid Member ID. It must follow the UUID format.", errors);
+        if (!errors.isEmpty()) {
+            return null;
+        }
+        String memberId = id.toString();
+        return premium
+                ? new PremiumMember(name.trim(), memberId, new ArrayList<>())
+                : new Member(name.trim(), memberId, new ArrayList<>());
+    }
+
+    /**
+     * Checks the availability field of a book record.
+     * <p>
+     * Malformed fields are reported, but the value is not used: an imported book has no borrower, so it
+     * is always available.
+     *
+     * @param field The field.
+     * @param errors Receives the violation, if any.
+     */
+    private static void checkAvailability(String field, ArrayList<String> errors) {
+        String value = field.trim();
+        if (!value.equalsIgnoreCase("true") && !value.equalsIgnoreCase("false")) {
+            errors.add("Availability must be true or false.");
+        }
+    }
+
+    /**
+     * Reads the optional ID field of a record, generating a random ID if it is missing or empty.
+     *
+     * @param fields The fields of the record.
+     * @param index The index of the ID field.
+     * @param message The violation message for a malformed ID.
+     * @param errors Receives the violation, if any.
+     * @return The ID, or {@code null} if the field is malformed.
+     */
+    private static Identifier parseId(ArrayList<String> fields, int index, String message, ArrayList<String> errors) {
+        String value = index < fields.size() ? fields.get(index).trim() : "";
+        if (value.isEmpty()) {
+            return Identifier.random();
+        }
+        try {
+            return Identifier.fromString(value);
+        } catch (IllegalArgumentException e) {
+            errors.add(message);
+            return null;
+        }
+    }
+
+    /**
+     * Adds a violation message to the list if there is one.
+     *
+     * @param errors The list of violations.
+     * @param error The violation message, or {@code null} if there is no violation.
+     */
+    private static void addError(ArrayList<String> errors, String error) {
+        if (error != null) {
+            errors.add(error);
+        }
+    }
+
+    /**
+     * Splits a line into fields, honouring double-quoted fields.
+     *
+     * @param line The line to split.
+     * @param delimiter The field delimiter.
+     * @param fields Receives the fields, replacing any previous content.
+     * @return True if the line was split, false if a quoted field is not terminated.
+     */
+    static boolean split(String line, char delimiter, ArrayList<String> fields) {
+        fields.clear();
+        int length = line.length();
+        int i = 0;
+        while (true) {
+            if (i < length && line.charAt(i) == '"') {
+                StringBuilder field = new StringBuilder();
+                i++;
+                while (true) {
+                    if (i >= length) {
+                        return false;
+                    }
+                    char c = line.charAt(i++);
+                    if (c != '"') {
+                        field.append(c);
+                    } else if (i < length && line.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+
+                // Anything between the closing quote and the delimiter is kept as is
+                int end = line.indexOf(delimiter, i);
+                if (end < 0) {
+                    end = length;
+                }
+                field.append(line, i, end);
+                fields.add(field.toString());
+                i = end;
+            } else {
+                int end = line.indexOf(delimiter, i);
+                if (end < 0) {
+                    end = length;
+                }
+                fields.add(line.substring(i, end));
+                i = end;
+            }
+            if (i >= length) {
+                return true;
+            }
+            i++;
+        }
+    }
+
+    /**
+     * A line of the input, kept to report its rejection.
+     */
+    private static final class Line {
+
+        private final long number;
+        private final String text;
+
+        Line(long number, String text) {
+            this.number = number;
+            this.text = text;
+        }
+
+        ImportReport.RejectedLine reject(String reason) {
+            return new ImportReport.RejectedLine(number, text, reason);
+        }
+    }
+
+    /**
+     * The outcome of parsing a chunk of lines.
+     */
+    private static final class Chunk {
+
+        private final ArrayList<Book> books = new ArrayList<>();
+        private final ArrayList<Line> bookLines = new ArrayList<>();
+        private final ArrayList<Member> members = new ArrayList<>();
+        private final ArrayList<Line> memberLines = new ArrayList<>();
+        private final ArrayList<ImportReport.RejectedLine> rejectedLines = new ArrayList<>();
+        private int records;
+    }
+
+    /**
+     * The running totals of an import.
+     */
+    private static final class Totals {
+
+        private long recordsRead;
+        private long booksImported;
+        private long membersImported;
+        private final ArrayList<ImportReport.RejectedLine> rejectedLines = new ArrayList<>();
+    }
+}
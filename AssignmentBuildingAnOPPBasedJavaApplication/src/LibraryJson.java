@@ -0,0 +1,433 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts libraries, books and members to and from JSON.
+ * <p>
+ * Libraries are written straight to a character stream with a {@link JsonWriter}, walking a single
+ * {@link LibrarySnapshot}, and read back with a {@link JsonReader}. Neither direction builds the
+ * document in memory, so catalogs of any size are handled with working memory for the loans on top
+ * of the objects themselves. The books, members and loans written all come from the same version
+ * of the library.
+ * <p>
+ * Document layout:
+ * - The library is an object with a {@code booksCollection} array and a {@code membersCollection} array.
+ * - Every book and member carries a {@code type} tag ({@code book}, {@code ebook}, {@code member} or
+ *   {@code premiumMember}) so that subtypes are restored as the same classes.
+ * - A member's {@code borrowedBooks} entries are book ID strings for the books it has on loan from
+ *   the library's catalog, or full book objects for books outside of it.
+ * - A member written with its library also carries a {@code loans} array of {@code bookId} and
+ *   {@code checkoutTime} objects, one per catalog book it has on loan, so that due dates survive a round trip.
+ * <p>
+ * A book's {@code availability} is only kept for books outside of a catalog. Catalog books are
+ * available exactly when no member has them on loan, so a catalog book written as unavailable comes
+ * back available unless a member lists it among its borrowed books.
+ * <p>
+ * Reading trusts the text fields of books and members, as they were validated before being written;
+ * IDs, ebook formats and sizes are still checked.
+ */
+public final class LibraryJson {
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private LibraryJson() {
+    }
+
+    /**
+     * Writes a library as JSON to a character stream.
+     * <p>
+     * The library is written as of {@link Library#snapshot()}; changes made while the document is
+     * written are left out. The stream is flushed but not closed.
+     *
+     * @param library The library to write. Must be non-null.
+     * @param out The destination of the document. Must be non-null.
+     * @throws IOException If the destination fails to accept the output.
+     */
+    public static void write(Library library, Writer out) throws IOException {
+        write(library.snapshot(), out);
+    }
+
+    /**
+     * Writes a version of a library's state as JSON to a character stream.
+     * <p>
+     * Books are written as available exactly when the snapshot has no loan for them, and members
+     * with the books they have on loan in the snapshot. The stream is flushed but not closed.
+     *
+     * @param snapshot The state to write. Must be non-null.
+     * @param out The destination of the document. Must be non-null.
+     * @throws IOException If the destination fails to accept the output.
+     */
+    public static void write(LibrarySnapshot snapshot, Writer out) throws IOException {
+        JsonWriter json = new JsonWriter(out);
+        json.beginObject();
+
+        json.name("booksCollection").beginArray();
+        for (Book book : snapshot.getBooks()) {
+            writeBook(json, book, snapshot.loanOf(book.getIdentifier()) == null);
+        }
+        json.endArray();
+
+        json.name("membersCollection").beginArray();
+        HashMap<Identifier, HashMap<Identifier, Loan>> loans = snapshot.loansByMember();
+        for (Member member : snapshot.getMembers()) {
+            writeMember(json, member, LibrarySnapshot.inBorrowingOrder(member, loans.get(member.getMemberIdentifier())));
+        }
+        json.endArray();
+
+        json.endObject();
+        json.flush();
+    }
+
+    /**
+     * Reads a library from a JSON character stream.
+     * <p>
+     * Books are added and members registered as they are read, so the document never needs to be
+     * held in memory. A registered member's loans take the checkout times of its {@code loans} array;
+     * loans missing from it count from the time the member is read. The stream is not closed.
+     *
+     * @param in The source of the document. Must be non-null.
+     * @return A new library holding the books and members of the document.
+     * @throws IOException If the source cannot be read, or the document is malformed or inconsistent.
+     */
+    public static Library read(Reader in) throws IOException {
+        JsonReader json = new JsonReader(in);
+        Library library = new Library();
+        try {
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "booksCollection":
+                        json.beginArray();
+                        while (json.hasNext()) {
+                            library.addBook(readBook(json));
+                        }
+                        json.endArray();
+                        break;
+                    case "membersCollection":
+                        json.beginArray();
+                        Map<Identifier, Long> checkoutTimes = new HashMap<>();
+                        while (json.hasNext()) {
+                            checkoutTimes.clear();
+                            Member member = readMember(json, library, checkoutTimes);
+                            library.registerMember(member);
+                            restoreLoans(library, member, checkoutTimes);
+                        }
+                        json.endArray();
+                        break;
+                    default:
+                        json.skipValue();
+                }
+            }
+            json.endObject();
+            json.peek(); // Reject trailing content
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid library document: " + e.getMessage(), e);
+        }
+        return library;
+    }
+
+    /**
+     * Writes a single book as a JSON object, with its current availability.
+     *
+     * @param json The writer positioned where the book's object belongs.
+     * @param book The book to write.
+     * @throws IOException If the writer fails to accept the output.
+     */
+    static void writeBook(JsonWriter json, Book book) throws IOException {
+        writeBook(json, book, book.getAvailability());
+    }
+
+    /**
+     * Writes a single book as a JSON object.
+     *
+     * @param json The writer positioned where the book's object belongs.
+     * @param book The book to write.
+     * @param availability The availability to write for the book.
+     * @throws IOException If the writer fails to accept the output.
+     */
+    private static void writeBook(JsonWriter json, Book book, boolean availability) throws IOException {
+        json.beginObject();
+        json.name("type").value(book.jsonType());
+        book.writeJsonFields(json, availability);
+        json.endObject();
+    }
+
+    /**
+     * Writes a single member as a JSON object.
+     *
+     * @param json The writer positioned where the member's object belongs.
+     * @param member The member to write.
+     * @param loans The loans of the member from a snapshot of its library, written as ID references
+     *              and with their checkout times, or {@code null} to write every borrowed book in full.
+     * @throws IOException If the writer fails to accept the output.
+     */
+    static void writeMember(JsonWriter json, Member member, List<Loan> loans) throws IOException {
+        json.beginObject();
+        json.name("type").value(member.jsonType());
+        member.writeJsonFields(json, loans);
+        if (loans != null) {
+            json.name("loans").beginArray();
+            for (Loan loan : loans) {
+                json.beginObject();
+                json.name("bookId").value(loan.getBookIdentifier().toString());
+                json.name("checkoutTime").value(loan.getCheckoutMillis());
+                json.endObject();
+            }
+            json.endArray();
+        }
+        json.endObject();
+    }
+
+    /**
+     * Reads a single book from its JSON object.
+     *
+     * @param json The reader positioned at the book's object.
+     * @return The restored book or ebook.
+     * @throws IOException If the source cannot be read or the object is malformed.
+     */
+    static Book readBook(JsonReader json) throws IOException {
+        String type = "book";
+        String id = null;
+        String title = null;
+        String author = null;
+        String isbn = null;
+        boolean availability = false;
+        String fileFormat = null;
+        int fileSize = 0;
+
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "type":
+                    type = json.nextString();
+                    break;
+                case "id":
+                    id = json.nextString();
+                    break;
+                case "title":
+                    title = json.nextString();
+                    break;
+                case "author":
+                    author = json.nextString();
+                    break;
+                case "ISBN":
+                    isbn = json.nextString();
+                    break;
+                case "availability":
+                    availability = json.nextBoolean();
+                    break;
+                case "fileFormat":
+                    fileFormat = json.nextString();
+                    break;
+                case "fileSize":
+                    fileSize = json.nextInt();
+                    break;
+                default:
+                    json.skipValue();
+            }
+        }
+        json.endObject();
+
+        if (id == null || title == null || author == null || isbn == null) {
+            throw new IOException("Invalid library document: a book is missing its id, title, author or ISBN.");
+        }
+        Identifier identifier = Identifier.fromString(id);
+        switch (type) {
+            case "book":
+                return new Book(identifier, title, author, isbn, availability);
+            case "ebook":
+                if (fileFormat == null) {
+                    throw new IOException("Invalid library document: an ebook is missing its file format.");
+                }
+                return new Ebook(identifier, title, author, isbn, availability, fileSize, fileFormat);
+            default:
+                throw new IOException("Invalid library document: unknown book type '" + type + "'.");
+        }
+    }
+
+    /**
+     * Reads a single member from its JSON object.
+     *
+     * @param json The reader positioned at the member's object.
+     * @param catalog The library used to resolve borrowed book ID references.
+     * @param checkoutTimes Receives the checkout times of the member's {@code loans} array, by book ID.
+     * @return The restored member or premium member.
+     * @throws IOException If the source cannot be read, the object is malformed, or a borrowed book
+     *                     reference does not match any book in the catalog.
+     */
+    static Member readMember(JsonReader json, Library catalog, Map<Identifier, Long> checkoutTimes) throws IOException {
+        String type = "member";
+        String memberId = null;
+        String name = null;
+        int borrowingLimit = -1;
+        ArrayList<Book> borrowedBooks = new ArrayList<>();
+
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "type":
+                    type = json.nextString();
+                    break;
+                case "memberId":
+                    memberId = json.nextString();
+                    break;
+                case "name":
+                    name = json.nextString();
+                    break;
+                case "borrowingLimit":
+                    borrowingLimit = json.nextInt();
+                    break;
+                case "borrowedBooks":
+                    json.beginArray();
+                    while (json.hasNext()) {
+                        if (json.peek() == JsonReader.Token.STRING) {
+                            String bookId = json.nextString();
+                            Book book = catalog.findBook(Identifier.fromString(bookId));
+                            if (book == null) {
+                                throw new IOException("Invalid library document: borrowed book " + bookId + " is not in the catalog.");
+                            }
+                            borrowedBooks.add(book);
+                        } else {
+                            borrowedBooks.add(readBook(json));
+                        }
+                    }
+                    json.endArray();
+                    break;
+                case "loans":
+                    json.beginArray();
+                    while (json.hasNext()) {
+                        readLoan(json, checkoutTimes);
+                    }
+                    json.endArray();
+                    break;
+                default:
+                    json.skipValue();
+            }
+        }
+        json.endObject();
+
+        if (memberId == null || name == null || borrowingLimit < 0) {
+            throw new IOException("Invalid library document: a member is missing its memberId, name or borrowingLimit.");
+        }
+        Identifier identifier = Identifier.fromString(memberId);
+        switch (type) {
+            case "member":
+                return new Member(identifier, name, borrowingLimit, borrowedBooks);
+            case "premiumMember":
+                return new PremiumMember(identifier, name, borrowingLimit, borrowedBooks);
+            default:
+                throw new IOException("Invalid library document: unknown member type '" + type + "'.");
+        }
+    }
+
+    /**
+     * Reads a single loan of a member's {@code loans} array.
+     *
+     * @param json The reader positioned at the loan's object.
+     * @param checkoutTimes Receives the checkout time of the loan, by book ID.
+     * @throws IOException If the source cannot be read or the object is malformed.
+     */
+    private static void readLoan(JsonReader json, Map<Identifier, Long> checkoutTimes) throws IOException {
+        String bookId = null;
+        long checkoutTime = -1;
+
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "bookId":
+                    bookId = json.nextString();
+                    break;
+                case "checkoutTime":
+                    checkoutTime = json.nextLong();
+                    break;
+                default:
+                    json.skipValue();
+            }
+        }
+        json.endObject();
+
+        if (bookId == null || checkoutTime < 0) {
+            throw new IOException("Invalid library document: a loan is missing its bookId or checkoutTime.");
+        }
+        checkoutTimes.put(Identifier.fromString(bookId), checkoutTime);
+    }
+
+    /**
+     * Gives the loans of a freshly registered member the checkout times read with it.
+     *
+     * @param library The library the member was registered with.
+     * @param member The registered member.
+     * @param checkoutTimes The checkout times of the member's loans, by book ID.
+     * @throws IOException If a loan names a book the member does not hold from the library.
+     */
+    private static void restoreLoans(Library library, Member member, Map<Identifier, Long> checkoutTimes) throws IOException {
+        for (Map.Entry<Identifier, Long> entry : checkoutTimes.entrySet()) {
+            Loan loan = library.findLoan(entry.getKey());
+            if (loan == null || !loan.getMemberIdentifier().equals(member.getMemberIdentifier())) {
+                throw new IOException("Invalid library document: member " + member.getMemberId()
+                        + " has a loan of book " + entry.getKey() + " that is not among its borrowed books.");
+            }
+            library.restoreCheckout(member, library.findBook(entry.getKey()), entry.getValue());
+        }
+    }
+
+    /**
+     * Builds the JSON representation of a library in memory.
+     *
+     * @param library The library to convert.
+     * @return The JSON document.
+     */
+    static String toJson(Library library) {
+        StringWriter out = new StringWriter();
+        try {
+            write(library, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Builds the JSON representation of a single book in memory.
+     *
+     * @param book The book to convert.
+     * @return The JSON object.
+     */
+    static String toJson(Book book) {
+        StringWriter out = new StringWriter();
+        try {
+            JsonWriter json = new JsonWriter(out);
+            writeBook(json, book);
+            json.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Builds the JSON representation of a single member in memory, with every borrowed book written in full.
+     *
+     * @param member The member to convert.
+     * @return The JSON object.
+     */
+    static String toJson(Member member) {
+        StringWriter out = new StringWriter();
+        try {
+            JsonWriter json = new JsonWriter(out);
+            writeMember(json, member, null);
+            json.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,288 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drives a {@link LibraryServer} with many concurrent connections and reports throughput and latency.
+ * <p>
+ * Every connection is opened before any request is sent, so the server holds all of them at once.
+ * Each connection then sends its requests one at a time, waiting for every response: mostly book
+ * lookups, with member lookups, checkouts followed by returns, and small listings mixed in. Book and
+ * member IDs are read from the server beforehand with listing requests.
+ * <p>
+ * Arguments: the number of connections (default 1000), the number of requests per connection
+ * (default 100), and optionally the host and port of a running server. Without a host, a library
+ * of generated books and members is served on the loopback interface by an embedded server, so the
+ * client can be tried out on a single machine.
+ */
+public final class LibraryLoadClient {
+
+    /**
+     * The number of books of the embedded library.
+     */
+    private static final int EMBEDDED_BOOKS = 10_000;
+
+    /**
+     * The number of members of the embedded library.
+     */
+    private static final int EMBEDDED_MEMBERS = 1_000;
+
+    /**
+     * The maximum number of book IDs and of member IDs read from the server before the run.
+     */
+    private static final int SAMPLED_IDS = 10_000;
+
+    /**
+     * Time allowed for a connection to be established, in milliseconds.
+     */
+    private static final int CONNECT_TIMEOUT_MILLIS = 30_000;
+
+    private final InetSocketAddress address;
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final AtomicInteger failedConnections = new AtomicInteger();
+
+    /**
+     * Constructs a client of a server.
+     *
+     * @param address The address of the server.
+     */
+    private LibraryLoadClient(InetSocketAddress address) {
+        this.address = address;
+    }
+
+    /**
+     * Runs the load test.
+     *
+     * @param args The command-line arguments.
+     * @throws IOException If the IDs cannot be read from the server.
+     * @throws InterruptedException If the main thread is interrupted while waiting for the connections.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int requestsPerConnection = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        LibraryServer server = null;
+        InetSocketAddress address;
+        if (args.length > 3) {
+            address = new InetSocketAddress(args[2], Integer.parseInt(args[3]));
+        } else {
+            server = new LibraryServer(generateLibrary(), new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            server.start();
+            address = new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort());
+            System.out.println("Embedded server on port " + server.getPort() + " with "
+                    + (server.usesVirtualThreads() ? "virtual" : "platform") + " threads");
+        }
+        try {
+            new LibraryLoadClient(address).run(connections, requestsPerConnection, server);
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+
+    /**
+     * Opens the connections, sends the requests and prints the results.
+     *
+     * @param connections The number of concurrent connections.
+     * @param requestsPerConnection The number of requests sent on each connection.
+     * @param server The embedded server, or {@code null} when testing a remote one.
+     */
+    private void run(int connections, int requestsPerConnection, LibraryServer server) throws IOException, InterruptedException {
+        List<String> bookIds;
+        List<String> memberIds;
+        try (Connection connection = new Connection(address)) {
+            bookIds = connection.listIds("BOOKS");
+            memberIds = connection.listIds("MEMBERS");
+        }
+        if (bookIds.isEmpty() || memberIds.isEmpty()) {
+            System.out.println("The server needs at least one book and one member.");
+            return;
+        }
+
+        CountDownLatch connected = new CountDownLatch(connections);
+        CountDownLatch finished = new CountDownLatch(connections);
+        ExecutorService threads = VirtualThreads.newThreadPerTaskExecutor("load-client");
+        long start = System.nanoTime();
+        for (int i = 0; i < connections; i++) {
+            threads.execute(() -> {
+                try {
+                    drive(bookIds, memberIds, requestsPerConnection, connected);
+                } finally {
+                    finished.countDown();
+                }
+            });
+        }
+        connected.await();
+        long connectedTime = System.nanoTime();
+        int open = server == null ? -1 : server.getOpenConnections();
+        finished.await();
+        long end = System.nanoTime();
+        threads.shutdown();
+
+        double seconds = (end - connectedTime) / 1e9;
+        System.out.println("Connections: " + (connections - failedConnections.get()) + " opened, "
+                + failedConnections.get() + " failed, in " + TimeUnit.NANOSECONDS.toMillis(connectedTime - start) + " ms"
+                + (open >= 0 ? "; " + open + " open on the server at once" : ""));
+        System.out.printf("Requests: %d in %.2f s (%.0f per second), %d error response(s)%n",
+                requests.sum(), seconds, requests.sum() / seconds, errors.sum());
+        System.out.println("Latency: " + latencies.snapshot());
+    }
+
+    /**
+     * Opens one connection, waits for every other connection to be opened, then sends its requests.
+     */
+    private void drive(List<String> bookIds, List<String> memberIds, int count, CountDownLatch connected) {
+        Connection connection;
+        try {
+            connection = new Connection(address);
+        } catch (IOException e) {
+            failedConnections.incrementAndGet();
+            connected.countDown();
+            return;
+        }
+        try (connection) {
+            connected.countDown();
+            connected.await();
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            String memberId = memberIds.get(random.nextInt(memberIds.size()));
+            String borrowed = null;
+            for (int i = 0; i < count; i++) {
+                String request;
+                if (borrowed != null) {
+                    request = "RETURN\t" + memberId + '\t' + borrowed;
+                    borrowed = null;
+                } else {
+                    int kind = random.nextInt(100);
+                    String bookId = bookIds.get(random.nextInt(bookIds.size()));
+                    if (kind < 70) {
+                        request = "BOOK\t" + bookId;
+                    } else if (kind < 80) {
+                        request = "MEMBER\t" + memberIds.get(random.nextInt(memberIds.size()));
+                    } else if (kind < 90) {
+                        request = "CHECKOUT\t" + memberId + '\t' + bookId;
+                        borrowed = bookId;
+                    } else {
+                        request = "BOOKS\t" + random.nextInt(bookIds.size()) + "\t10";
+                    }
+                }
+                long sent = System.nanoTime();
+                List<String> response = connection.send(request);
+                latencies.record(System.nanoTime() - sent);
+                requests.increment();
+                if (!response.get(0).startsWith("OK")) {
+                    errors.increment();
+                    borrowed = null; // The checkout did not happen
+                }
+            }
+        } catch (IOException e) {
+            failedConnections.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Builds the library served by the embedded server.
+     *
+     * @return A library of generated books and members.
+     */
+    private static Library generateLibrary() {
+        ArrayList<Book> books = new ArrayList<>(EMBEDDED_BOOKS);
+        for (int i = 0; i < EMBEDDED_BOOKS; i++) {
+            books.add(new Book("The Silent Voyager", "Emma Harper", "9781234567891", true));
+        }
+        ArrayList<Member> members = new ArrayList<>(EMBEDDED_MEMBERS);
+        for (int i = 0; i < EMBEDDED_MEMBERS; i++) {
+            members.add(i % 2 == 0 ? new Member("Liam Foster", new ArrayList<>()) : new PremiumMember("Ava Carter", new ArrayList<>()));
+        }
+        return new Library(books, members);
+    }
+
+    /**
+     * A client connection speaking the line protocol of the server.
+     */
+    private static final class Connection implements AutoCloseable {
+        private final Socket socket;
+        private final OutputStream out;
+        private final LineReader in;
+
+        Connection(InetSocketAddress address) throws IOException {
+            socket = new Socket();
+            try {
+                socket.setTcpNoDelay(true);
+                socket.connect(address, CONNECT_TIMEOUT_MILLIS);
+                out = socket.getOutputStream();
+                in = new LineReader(socket.getInputStream(), Integer.MAX_VALUE - 1);
+            } catch (IOException e) {
+                socket.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Sends a request and reads its response.
+         *
+         * @param request The request line.
+         * @return The lines of the response: the status line, followed by the entries of a listing.
+         */
+        List<String> send(String request) throws IOException {
+            out.write((request + '\n').getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            String status = in.readLine();
+            if (status == null) {
+                throw new IOException("Connection closed by the server.");
+            }
+            ArrayList<String> lines = new ArrayList<>(1);
+            lines.add(status);
+            String command = request.substring(0, request.indexOf('\t') < 0 ? request.length() : request.indexOf('\t'));
+            if (status.startsWith("OK") && (command.equals("BOOKS") || command.equals("MEMBERS"))) {
+                int count = Integer.parseInt(status.substring(status.lastIndexOf('\t') + 1));
+                for (int i = 0; i < count; i++) {
+                    lines.add(in.readLine());
+                }
+            }
+            return lines;
+        }
+
+        /**
+         * Reads the IDs of the books or members of the server, up to {@link #SAMPLED_IDS} of them.
+         *
+         * @param command {@code BOOKS} or {@code MEMBERS}.
+         * @return The IDs, in listing order.
+         */
+        List<String> listIds(String command) throws IOException {
+            ArrayList<String> ids = new ArrayList<>();
+            while (ids.size() < SAMPLED_IDS) {
+                List<String> page = send(command + '\t' + ids.size() + '\t' + LibraryProtocol.MAX_PAGE_SIZE);
+                if (!page.get(0).startsWith("OK")) {
+                    throw new IOException("Listing failed: " + page.get(0));
+                }
+                for (int i = 1; i < page.size(); i++) {
+                    ids.add(page.get(i).substring(0, page.get(i).indexOf('\t')));
+                }
+                if (page.size() - 1 < LibraryProtocol.MAX_PAGE_SIZE) {
+                    break;
+                }
+            }
+            return ids;
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
@@ -20,13 +20,12 @@ public class LibraryManagementSystem {
         Ebook ebook4 = new Ebook("Rise of the Fallen", "Mia Collins", "9787890123457", true, 1024, "MOBI");
         Ebook ebook5 = new Ebook("Into the Starlit Night", "Ethan Foster", "9788901234568", true, 8192, "TXT");
 
-        // Creating book lists
+        // Creating book lists. Members registered with books borrow them from the library,
+        // so each book is held by one member at most.
         ArrayList<Book> bookList1 = new ArrayList<>();
-        bookList1.add(book1);
         bookList1.add(ebook1);
 
         ArrayList<Book> bookList2 = new ArrayList<>();
-        bookList2.add(book2);
         bookList2.add(ebook2);
         bookList2.add(ebook3);
 
@@ -51,14 +50,14 @@ public class LibraryManagementSystem {
         // Create regular and premium members.
         Member member1 = new Member();
         Member member2 = new Member("Emma Rodriguez", book1);
-        Member member3 = new Member("Liam Foster", book2);
+        Member member3 = new Member("Liam Foster", book5);
         Member member4 = new Member("Sophia Morales", bookList1);
         Member member5 = new Member("Noah Turner", bookList2);
         PremiumMember premiumMember1 = new PremiumMember();
-        PremiumMember premiumMember2 = new PremiumMember("Ava Carter", book1);
-        PremiumMember premiumMember3 = new PremiumMember("Oliver Ramirez", book2);
-        PremiumMember premiumMember4 = new PremiumMember("Mia Bennett", bookList1);
-        PremiumMember premiumMember5 = new PremiumMember("Ethan Collins", bookList2);
+        PremiumMember premiumMember2 = new PremiumMember("Ava Carter", ebook4);
+        PremiumMember premiumMember3 = new PremiumMember("Oliver Ramirez", new ArrayList<>());
+        PremiumMember premiumMember4 = new PremiumMember("Mia Bennett", new ArrayList<>());
+        PremiumMember premiumMember5 = new PremiumMember("Ethan Collins", new ArrayList<>());
 
         // Register regular and premium members.
         System.out.println("\nLibrary's Initial Members");
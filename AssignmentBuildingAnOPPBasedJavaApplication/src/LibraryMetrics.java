@@ -0,0 +1,287 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counts and times the operations of a library.
+ * <p>
+ * Every library keeps its own metrics, always on: counters are {@link LongAdder}s, which spread
+ * concurrent increments over striped cells, and latencies go to lock-free {@link LatencyHistogram}s,
+ * so recording costs a few uncontended atomic additions and two reads of the nanosecond clock per
+ * operation. The metrics are read through this class or, once {@link #registerMBean(String)} has
+ * been called, over JMX through the platform MBean server.
+ */
+public final class LibraryMetrics implements LibraryMetricsMXBean {
+
+    /**
+     * The JMX domain of the metrics of every library.
+     */
+    static final String JMX_DOMAIN = "library";
+
+    private final LongAdder checkouts = new LongAdder();
+    private final LongAdder rejectedCheckouts = new LongAdder();
+    private final LongAdder borrowingLimitHits = new LongAdder();
+    private final LongAdder booksAdded = new LongAdder();
+    private final LongAdder membersRegistered = new LongAdder();
+    private final LongAdder validationFailures = new LongAdder();
+
+    private final LatencyHistogram checkoutLatency = new LatencyHistogram();
+    private final LatencyHistogram batchCheckoutLatency = new LatencyHistogram();
+    private final LatencyHistogram addBookLatency = new LatencyHistogram();
+    private final LatencyHistogram registerMemberLatency = new LatencyHistogram();
+
+    /**
+     * The name under which the metrics are registered, or null if they are not.
+     */
+    private ObjectName registeredName;
+
+    /**
+     * Constructs empty metrics. Libraries create their own.
+     */
+    LibraryMetrics() {
+    }
+
+    /**
+     * Publishes the metrics on the platform MBean server.
+     *
+     * @param name The name of the library, used as the {@code name} key of the object name.
+     * @return The object name under which the metrics were registered.
+     * @throws IllegalArgumentException If the name is null or empty, or already used by another library.
+     * @throws IllegalStateException If the metrics are already registered, or the registration fails.
+     */
+    public synchronized ObjectName registerMBean(String name) {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("Metrics name cannot be null or empty.");
+        }
+        if (registeredName != null) {
+            throw new IllegalStateException("Metrics are already registered as " + registeredName + ".");
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=LibraryMetrics,name=" + ObjectName.quote(name));
+            if (server.isRegistered(objectName)) {
+                throw new IllegalArgumentException("Metrics named " + name + " are already registered.");
+            }
+            server.registerMBean(this, objectName);
+            registeredName = objectName;
+            return objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException("Failed to register the library metrics.", e);
+        }
+    }
+
+    /**
+     * Removes the metrics from the platform MBean server. Does nothing if they are not registered.
+     *
+     * @throws IllegalStateException If the unregistration fails.
+     */
+    public synchronized void unregisterMBean() {
+        if (registeredName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+        } catch (JMException e) {
+            throw new IllegalStateException("Failed to unregister the library metrics.", e);
+        } finally {
+            registeredName = null;
+        }
+    }
+
+    /**
+     * Records the end of a single-book checkout request.
+     *
+     * @param start The value of {@link System#nanoTime()} when the request started.
+     * @param lent True if a book was lent, false if the request failed.
+     */
+    void checkoutCompleted(long start, boolean lent) {
+        checkoutLatency.record(System.nanoTime() - start);
+        if (!lent) {
+            rejectedCheckouts.increment();
+        }
+    }
+
+    /**
+     * Records the end of a batch checkout request.
+     *
+     * @param start The value of {@link System#nanoTime()} when the request started.
+     * @param completed True if the request returned its results, false if it failed.
+     */
+    void batchCheckoutCompleted(long start, boolean completed) {
+        batchCheckoutLatency.record(System.nanoTime() - start);
+        if (!completed) {
+            rejectedCheckouts.increment();
+        }
+    }
+
+    /**
+     * Records checkouts of a batch that were refused.
+     *
+     * @param count The number of refused checkouts.
+     */
+    void checkoutsRejected(int count) {
+        rejectedCheckouts.add(count);
+    }
+
+    /**
+     * Records books lent to a member.
+     *
+     * @param count The number of books lent.
+     */
+    void booksLent(int count) {
+        checkouts.add(count);
+    }
+
+    /**
+     * Records a loan refused because of the member's borrowing limit: a refused checkout, or a hold
+     * hand-off that passes over a holder at its limit.
+     */
+    void borrowingLimitHit() {
+        borrowingLimitHits.increment();
+    }
+
+    /**
+     * Records the end of a book addition.
+     *
+     * @param start The value of {@link System#nanoTime()} when the addition started.
+     * @param added True if the book was added, false if it was rejected.
+     */
+    void addBookCompleted(long start, boolean added) {
+        addBookLatency.record(System.nanoTime() - start);
+        if (added) {
+            booksAdded.increment();
+        } else {
+            validationFailures.increment();
+        }
+    }
+
+    /**
+     * Records the end of a member registration.
+     *
+     * @param start The value of {@link System#nanoTime()} when the registration started.
+     * @param registered True if the member was registered, false if the registration failed.
+     */
+    void registerMemberCompleted(long start, boolean registered) {
+        registerMemberLatency.record(System.nanoTime() - start);
+        if (registered) {
+            membersRegistered.increment();
+        } else {
+            validationFailures.increment();
+        }
+    }
+
+    /**
+     * Records a batch of books added and rejected by a bulk operation.
+     *
+     * @param added The number of books added.
+     * @param rejected The number of books rejected.
+     */
+    void booksAdded(int added, int rejected) {
+        booksAdded.add(added);
+        validationFailures.add(rejected);
+    }
+
+    /**
+     * Records a batch of members registered and rejected by a bulk operation.
+     *
+     * @param registered The number of members registered.
+     * @param rejected The number of members rejected.
+     */
+    void membersRegistered(int registered, int rejected) {
+        membersRegistered.add(registered);
+        validationFailures.add(rejected);
+    }
+
+    /**
+     * Records values rejected as invalid.
+     *
+     * @param count The number of rejected values.
+     */
+    void validationFailed(int count) {
+        validationFailures.add(count);
+    }
+
+    @Override
+    public long getCheckouts() {
+        return checkouts.sum();
+    }
+
+    @Override
+    public long getRejectedCheckouts() {
+        return rejectedCheckouts.sum();
+    }
+
+    @Override
+    public long getBorrowingLimitHits() {
+        return borrowingLimitHits.sum();
+    }
+
+    @Override
+    public long getBooksAdded() {
+        return booksAdded.sum();
+    }
+
+    @Override
+    public long getMembersRegistered() {
+        return membersRegistered.sum();
+    }
+
+    @Override
+    public long getValidationFailures() {
+        return validationFailures.sum();
+    }
+
+    @Override
+    public LatencySnapshot getCheckoutLatency() {
+        return checkoutLatency.snapshot();
+    }
+
+    @Override
+    public LatencySnapshot getBatchCheckoutLatency() {
+        return batchCheckoutLatency.snapshot();
+    }
+
+    @Override
+    public LatencySnapshot getAddBookLatency() {
+        return addBookLatency.snapshot();
+    }
+
+    @Override
+    public LatencySnapshot getRegisterMemberLatency() {
+        return registerMemberLatency.snapshot();
+    }
+
+    @Override
+    public void reset() {
+        checkouts.reset();
+        rejectedCheckouts.reset();
+        borrowingLimitHits.reset();
+        booksAdded.reset();
+        membersRegistered.reset();
+        validationFailures.reset();
+        checkoutLatency.reset();
+        batchCheckoutLatency.reset();
+        addBookLatency.reset();
+        registerMemberLatency.reset();
+    }
+
+    /**
+     * Returns a multi-line summary of the counters and latencies.
+     *
+     * @return The summary.
+     */
+    @Override
+    public String toString() {
+        return "Checkouts: " + getCheckouts() + " (" + getRejectedCheckouts() + " rejected, "
+                + getBorrowingLimitHits() + " over the borrowing limit)\n"
+                + "Books added: " + getBooksAdded() + ", members registered: " + getMembersRegistered()
+                + ", validation failures: " + getValidationFailures() + "\n"
+                + "Checkout latency: " + getCheckoutLatency() + "\n"
+                + "Batch checkout latency: " + getBatchCheckoutLatency() + "\n"
+                + "Add book latency: " + getAddBookLatency() + "\n"
+                + "Register member latency: " + getRegisterMemberLatency();
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * Management interface of the metrics of a library, published over JMX.
+ * <p>
+ * Counters are cumulative since the library was created or the metrics were last reset, so rates
+ * are obtained by sampling them over time. Latencies are summarized as {@link LatencySnapshot}s,
+ * which JMX clients see as composite values.
+ */
+public interface LibraryMetricsMXBean {
+
+    /**
+     * Retrieves the number of books lent, by single and batch checkouts alike.
+     *
+     * @return The number of books lent.
+     */
+    long getCheckouts();
+
+    /**
+     * Retrieves the number of checkout requests that failed, whatever the reason.
+     *
+     * @return The number of failed checkout requests.
+     */
+    long getRejectedCheckouts();
+
+    /**
+     * Retrieves the number of checkout requests refused because of a member's borrowing limit,
+     * including returned books not handed to a holder because the holder was at its limit.
+     *
+     * @return The number of times a borrowing limit was hit.
+     */
+    long getBorrowingLimitHits();
+
+    /**
+     * Retrieves the number of books added to the catalog, one at a time or in batches.
+     *
+     * @return The number of books added.
+     */
+    long getBooksAdded();
+
+    /**
+     * Retrieves the number of members registered, one at a time or in batches.
+     *
+     * @return The number of members registered.
+     */
+    long getMembersRegistered();
+
+    /**
+     * Retrieves the number of books, members, collections and import lines rejected as invalid.
+     *
+     * @return The number of validation failures.
+     */
+    long getValidationFailures();
+
+    /**
+     * Summarizes the latencies of single-book checkouts.
+     *
+     * @return The checkout latencies.
+     */
+    LatencySnapshot getCheckoutLatency();
+
+    /**
+     * Summarizes the latencies of batch checkouts.
+     *
+     * @return The batch checkout latencies.
+     */
+    LatencySnapshot getBatchCheckoutLatency();
+
+    /**
+     * Summarizes the latencies of book additions.
+     *
+     * @return The book addition latencies.
+     */
+    LatencySnapshot getAddBookLatency();
+
+    /**
+     * Summarizes the latencies of member registrations.
+     *
+     * @return The member registration latencies.
+     */
+    LatencySnapshot getRegisterMemberLatency();
+
+    /**
+     * Sets every counter back to zero and clears every latency histogram.
+     */
+    void reset();
+}
@@ -0,0 +1,342 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The line protocol spoken by {@link LibraryServer}: parses a request line, runs it against a
+ * library and writes the response.
+ * <p>
+ * A request is one line holding a command and its arguments, separated by tabs so that titles and
+ * names can contain spaces. Commands are case-insensitive:
+ * - {@code PING}
+ * - {@code BOOK <bookId>}
+ * - {@code MEMBER <memberId>}
+ * - {@code CHECKOUT <memberId> <bookId>}
+ * - {@code RETURN <memberId> <bookId>}
+ * - {@code REGISTER <name> [PREMIUM]}
+ * - {@code BOOKS [<offset> [<limit>]]} and {@code MEMBERS [<offset> [<limit>]]}
+ * - {@code QUIT}
+ * <p>
+ * A successful response is a line starting with {@code OK}, followed by its result fields:
+ * - a book is {@code <id> <title> <author> <ISBN> AVAILABLE|UNAVAILABLE};
+ * - a member is {@code <id> <name> REGULAR|PREMIUM <borrowed> <limit>};
+ * - a checkout returns the due time of the loan, a registration the ID of the new member;
+ * - a listing returns the number of entries, followed by one line per entry.
+ * <p>
+ * A failure is a single line {@code ERR <code> <message>}, where the code is one of
+ * {@code BAD_REQUEST}, {@code UNKNOWN_COMMAND}, {@code NOT_FOUND}, {@code UNAVAILABLE},
+ * {@code LIMIT_REACHED}, {@code NOT_BORROWED}, {@code INVALID}, {@code LINE_TOO_LONG} and
+ * {@code INTERNAL}. Listings read one snapshot of the library, so a page is always consistent.
+ */
+final class LibraryProtocol {
+
+    /**
+     * The separator of the fields of requests and responses.
+     */
+    static final char SEPARATOR = '\t';
+
+    /**
+     * The maximum length of a request line, in bytes.
+     */
+    static final int MAX_LINE_LENGTH = 4096;
+
+    /**
+     * The number of entries listed when a listing request gives no limit.
+     */
+    static final int DEFAULT_PAGE_SIZE = 100;
+
+    /**
+     * The maximum number of entries listed by one listing request.
+     */
+    static final int MAX_PAGE_SIZE = 1000;
+
+    private final Library library;
+
+    /**
+     * Constructs the protocol of a library.
+     *
+     * @param library The library the requests run against.
+     */
+    LibraryProtocol(Library library) {
+        this.library = library;
+    }
+
+    /**
+     * Runs a request and appends its response, line end included.
+     *
+     * @param request The request line, without its line end.
+     * @param response The buffer receiving the response.
+     * @return False if the client asked to close the connection, true otherwise.
+     */
+    boolean handle(String request, StringBuilder response) {
+        int start = response.length();
+        ArrayList<String> fields = split(request);
+        String command = fields.get(0).toUpperCase(Locale.ROOT);
+        try {
+            switch (command) {
+                case "PING":
+                    ok(response).append(SEPARATOR).append("PONG");
+                    break;
+                case "BOOK":
+                    book(fields, response);
+                    break;
+                case "MEMBER":
+                    member(fields, response);
+                    break;
+                case "CHECKOUT":
+                    checkout(fields, response);
+                    break;
+                case "RETURN":
+                    giveBack(fields, response);
+                    break;
+                case "REGISTER":
+                    register(fields, response);
+                    break;
+                case "BOOKS":
+                    listBooks(fields, response);
+                    break;
+                case "MEMBERS":
+                    listMembers(fields, response);
+                    break;
+                case "QUIT":
+                    ok(response).append(SEPARATOR).append("BYE").append('\n');
+                    return false;
+                default:
+                    error(response, "UNKNOWN_COMMAND", "Unknown command: " + fields.get(0));
+                    break;
+            }
+        } catch (RuntimeException e) {
+            response.setLength(start);
+            error(response, "INTERNAL", String.valueOf(e.getMessage()));
+        }
+        response.append('\n');
+        return true;
+    }
+
+    /**
+     * Appends the response to a line that was too long to be read.
+     *
+     * @param response The buffer receiving the response.
+     */
+    static void lineTooLong(StringBuilder response) {
+        error(response, "LINE_TOO_LONG", "Requests are limited to " + MAX_LINE_LENGTH + " bytes.");
+        response.append('\n');
+    }
+
+    private void book(ArrayList<String> fields, StringBuilder response) {
+        if (!expect(fields, 2, 2, response)) {
+            return;
+        }
+        Book book = library.findBook(fields.get(1));
+        if (book == null) {
+            error(response, "NOT_FOUND", "Book not found");
+            return;
+        }
+        appendBook(ok(response).append(SEPARATOR), book);
+    }
+
+    private void member(ArrayList<String> fields, StringBuilder response) {
+        if (!expect(fields, 2, 2, response)) {
+            return;
+        }
+        Member member = library.findMember(fields.get(1));
+        if (member == null) {
+            error(response, "NOT_FOUND", "Member not found");
+            return;
+        }
+        appendMember(ok(response).append(SEPARATOR), member);
+    }
+
+    private void checkout(ArrayList<String> fields, StringBuilder response) {
+        if (!expect(fields, 3, 3, response) || !resolve(fields, response)) {
+            return;
+        }
+        try {
+            library.assignBookToMember(fields.get(1), fields.get(2));
+        } catch (BorrowingLimitException e) {
+            error(response, "LIMIT_REACHED", e.getMessage());
+            return;
+        } catch (IllegalArgumentException e) {
+            error(response, "UNAVAILABLE", e.getMessage());
+            return;
+        }
+        ok(response);
+        Loan loan = library.getLoan(fields.get(2));
+        if (loan != null) {
+            response.append(SEPARATOR).append(loan.getDueTime());
+        }
+    }
+
+    private void giveBack(ArrayList<String> fields, StringBuilder response) {
+        if (!expect(fields, 3, 3, response) || !resolve(fields, response)) {
+            return;
+        }
+        try {
+            library.returnBook(fields.get(1), fields.get(2));
+        } catch (IllegalArgumentException e) {
+            error(response, "NOT_BORROWED", e.getMessage());
+            return;
+        }
+        ok(response);
+    }
+
+    private void register(ArrayList<String> fields, StringBuilder response) {
+        if (!expect(fields, 2, 3, response)) {
+            return;
+        }
+        boolean premium = fields.size() == 3;
+        if (premium && !fields.get(2).equalsIgnoreCase("PREMIUM")) {
+            error(response, "BAD_REQUEST", "Expected PREMIUM, found " + fields.get(2));
+            return;
+        }
+        Member member;
+        try {
+            member = premium ? new PremiumMember(fields.get(1), new ArrayList<>()) : new Member(fields.get(1), new ArrayList<>());
+        } catch (RuntimeException e) {
+            // The setters wrap validation failures
+            Throwable reason = e.getCause() instanceof IllegalArgumentException ? e.getCause() : e;
+            error(response, "INVALID", String.valueOf(reason.getMessage()));
+            return;
+        }
+        library.registerMember(member);
+        ok(response).append(SEPARATOR).append(member.getMemberId());
+    }
+
+    private void listBooks(ArrayList<String> fields, StringBuilder response) {
+        int[] page = page(fields, response);
+        if (page == null) {
+            return;
+        }
+        List<Book> books = library.snapshot().getBooks();
+        int end = (int) Math.min(books.size(), (long) page[0] + page[1]);
+        ok(response).append(SEPARATOR).append(Math.max(0, end - page[0]));
+        for (int i = page[0]; i < end; i++) {
+            appendBook(response.append('\n'), books.get(i));
+        }
+    }
+
+    private void listMembers(ArrayList<String> fields, StringBuilder response) {
+        int[] page = page(fields, response);
+        if (page == null) {
+            return;
+        }
+        List<Member> members = library.snapshot().getMembers();
+        int end = (int) Math.min(members.size(), (long) page[0] + page[1]);
+        ok(response).append(SEPARATOR).append(Math.max(0, end - page[0]));
+        for (int i = page[0]; i < end; i++) {
+            appendMember(response.append('\n'), members.get(i));
+        }
+    }
+
+    /**
+     * Checks that the member and book of a checkout or return exist.
+     *
+     * @return True if both exist, false if an error was written.
+     */
+    private boolean resolve(ArrayList<String> fields, StringBuilder response) {
+        if (library.findMember(fields.get(1)) == null) {
+            error(response, "NOT_FOUND", "Member not found");
+            return false;
+        }
+        if (library.findBook(fields.get(2)) == null) {
+            error(response, "NOT_FOUND", "Book not found");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Parses the optional offset and limit of a listing.
+     *
+     * @return The offset and the limit, or {@code null} if an error was written.
+     */
+    private static int[] page(ArrayList<String> fields, StringBuilder response) {
+        if (!expect(fields, 1, 3, response)) {
+            return null;
+        }
+        int[] page = {0, DEFAULT_PAGE_SIZE};
+        for (int i = 1; i < fields.size(); i++) {
+            try {
+                page[i - 1] = Integer.parseInt(fields.get(i));
+            } catch (NumberFormatException e) {
+                page[i - 1] = -1;
+            }
+            if (page[i - 1] < 0) {
+                error(response, "BAD_REQUEST", "Offset and limit must be non-negative integers.");
+                return null;
+            }
+        }
+        page[1] = Math.min(page[1], MAX_PAGE_SIZE);
+        return page;
+    }
+
+    /**
+     * Checks the number of fields of a request, command included.
+     *
+     * @return True if the count is within bounds, false if an error was written.
+     */
+    private static boolean expect(ArrayList<String> fields, int min, int max, StringBuilder response) {
+        if (fields.size() < min || fields.size() > max) {
+            error(response, "BAD_REQUEST", "Wrong number of arguments for " + fields.get(0).toUpperCase(Locale.ROOT));
+            return false;
+        }
+        return true;
+    }
+
+    private static StringBuilder ok(StringBuilder response) {
+        return response.append("OK");
+    }
+
+    private static void error(StringBuilder response, String code, String message) {
+        response.append("ERR").append(SEPARATOR).append(code).append(SEPARATOR);
+        appendField(response, message);
+    }
+
+    private static void appendBook(StringBuilder response, Book book) {
+        response.append(book.getId()).append(SEPARATOR);
+        appendField(response, book.getTitle());
+        response.append(SEPARATOR);
+        appendField(response, book.getAuthor());
+        response.append(SEPARATOR).append(book.getISBN()).append(SEPARATOR)
+                .append(book.getAvailability() ? "AVAILABLE" : "UNAVAILABLE");
+    }
+
+    private static void appendMember(StringBuilder response, Member member) {
+        int borrowed;
+        synchronized (member) {
+            borrowed = member.getBorrowedBooks().size();
+        }
+        response.append(member.getMemberId()).append(SEPARATOR);
+        appendField(response, member.getName());
+        response.append(SEPARATOR).append(member instanceof PremiumMember ? "PREMIUM" : "REGULAR")
+                .append(SEPARATOR).append(borrowed)
+                .append(SEPARATOR).append(member.getBorrowingLimit());
+    }
+
+    /**
+     * Appends a free-text field, replacing the characters that would break the framing with spaces.
+     */
+    private static void appendField(StringBuilder response, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            response.append(c == SEPARATOR || c == '\n' || c == '\r' ? ' ' : c);
+        }
+    }
+
+    /**
+     * Splits a request line into its fields.
+     *
+     * @return The fields; the first one is the command, possibly empty.
+     */
+    private static ArrayList<String> split(String line) {
+        ArrayList<String> fields = new ArrayList<>(4);
+        int start = 0;
+        int end;
+        while ((end = line.indexOf(SEPARATOR, start)) >= 0) {
+            fields.add(line.substring(start, end));
+            start = end + 1;
+        }
+        fields.add(line.substring(start));
+        return fields;
+    }
+}
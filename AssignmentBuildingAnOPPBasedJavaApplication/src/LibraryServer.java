@@ -0,0 +1,297 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Serves a library to other processes over TCP, with one thread per connection.
+ * <p>
+ * Clients speak the line protocol described in {@link LibraryProtocol}: one request per line, one
+ * response per request, in order. Each accepted connection is served by a thread of its own, which
+ * simply blocks while it waits for the client; on Java 21 and later that thread is a virtual thread,
+ * so tens of thousands of concurrent connections cost little more than their sockets and buffers.
+ * Requests a client sends without waiting for the responses are answered in the same order, and the
+ * responses are written together once no further request is waiting. A line longer than
+ * {@link LibraryProtocol#MAX_LINE_LENGTH} is answered with {@code LINE_TOO_LONG} and ends the
+ * connection, since the rest of it cannot be told apart from the next request.
+ * <p>
+ * The server only adds a network front end: every request goes through the public methods of the
+ * library, which is safe to share between threads.
+ */
+public final class LibraryServer implements AutoCloseable {
+
+    /**
+     * The number of pending connections the operating system may queue before they are accepted.
+     */
+    private static final int ACCEPT_BACKLOG = 4096;
+
+    /**
+     * Time the accepting thread waits before retrying after a failed accept, for example when the
+     * process has run out of file descriptors.
+     */
+    private static final long ACCEPT_RETRY_MILLIS = 10;
+
+    private final LibraryProtocol protocol;
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections;
+    private final Thread acceptor;
+
+    /**
+     * The sockets of the open connections, closed when the server is.
+     */
+    private final Set<Socket> openSockets = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder acceptedConnections = new LongAdder();
+    private final LongAdder servedRequests = new LongAdder();
+
+    private volatile boolean closed;
+
+    /**
+     * Constructs a server and binds it to an address. Connections are accepted once {@link #start()} is called.
+     *
+     * @param library The library to serve. Must be non-null.
+     * @param address The address to listen on; port 0 picks a free port.
+     * @throws IllegalArgumentException If the library or address is null.
+     * @throws IOException If the address cannot be bound.
+     */
+    public LibraryServer(Library library, SocketAddress address) throws IOException {
+        if (library == null) {
+            throw new IllegalArgumentException("Library cannot be null.");
+        }
+        if (address == null) {
+            throw new IllegalArgumentException("Address cannot be null.");
+        }
+        this.protocol = new LibraryProtocol(library);
+        this.serverSocket = new ServerSocket();
+        try {
+            this.serverSocket.setReuseAddress(true);
+            this.serverSocket.bind(address, ACCEPT_BACKLOG);
+        } catch (IOException e) {
+            this.serverSocket.close();
+            throw e;
+        }
+        this.connections = VirtualThreads.newThreadPerTaskExecutor("library-connection");
+        this.acceptor = new Thread(this::accept, "library-server-" + serverSocket.getLocalPort());
+        this.acceptor.setDaemon(true);
+    }
+
+    /**
+     * Starts accepting connections.
+     *
+     * @throws IllegalStateException If the server was already started.
+     */
+    public void start() {
+        acceptor.start();
+    }
+
+    /**
+     * Retrieves the port the server listens on.
+     *
+     * @return The local port.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Retrieves the number of connections currently open.
+     *
+     * @return The number of open connections.
+     */
+    public int getOpenConnections() {
+        return openSockets.size();
+    }
+
+    /**
+     * Retrieves the number of connections accepted since the server started.
+     *
+     * @return The number of accepted connections.
+     */
+    public long getAcceptedConnections() {
+        return acceptedConnections.sum();
+    }
+
+    /**
+     * Retrieves the number of requests answered since the server started.
+     *
+     * @return The number of served requests.
+     */
+    public long getServedRequests() {
+        return servedRequests.sum();
+    }
+
+    /**
+     * Checks whether the server runs its connections on virtual threads.
+     *
+     * @return True on Java 21 and later, false when connections run on platform threads.
+     */
+    public boolean usesVirtualThreads() {
+        return VirtualThreads.isAvailable();
+    }
+
+    /**
+     * Stops accepting connections, closes the open ones and waits briefly for their threads to end.
+     * <p>
+     * Requests being processed complete, but their responses may not reach the clients. Does nothing
+     * if the server is already closed.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            // Already closed
+        }
+        for (Socket socket : openSockets) {
+            closeQuietly(socket);
+        }
+        connections.shutdown();
+        boolean interrupted = false;
+        try {
+            acceptor.join(TimeUnit.SECONDS.toMillis(1));
+            connections.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            interrupted = true;
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Accepts connections until the server is closed, handing each one to a thread of its own.
+     */
+    private void accept() {
+        while (!closed) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (!closed) {
+                    sleep(ACCEPT_RETRY_MILLIS);
+                }
+                continue;
+            }
+            acceptedConnections.increment();
+            openSockets.add(socket);
+            if (closed) {
+                closeQuietly(socket); // Missed by close()
+                openSockets.remove(socket);
+                break;
+            }
+            connections.execute(() -> serve(socket));
+        }
+    }
+
+    /**
+     * Answers the requests of a connection until the client closes it or asks to quit.
+     *
+     * @param socket The socket of the connection.
+     */
+    private void serve(Socket socket) {
+        try {
+            socket.setTcpNoDelay(true);
+            InputStream in = socket.getInputStream();
+            OutputStream out = socket.getOutputStream();
+            LineReader reader = new LineReader(in, LibraryProtocol.MAX_LINE_LENGTH);
+            StringBuilder responses = new StringBuilder();
+            boolean open = true;
+            while (open && !closed) {
+                String request;
+                try {
+                    request = reader.readLine();
+                } catch (ProtocolException e) {
+                    LibraryProtocol.lineTooLong(responses);
+                    request = null;
+                }
+                if (request == null) {
+                    open = false;
+                } else {
+                    open = protocol.handle(request, responses);
+                    servedRequests.increment();
+                }
+
+                // Pipelined requests are answered with a single write
+                if (responses.length() > 0 && (!open || !reader.ready())) {
+                    out.write(responses.toString().getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                    responses.setLength(0);
+                    if (responses.capacity() > LibraryProtocol.MAX_LINE_LENGTH) {
+                        responses.trimToSize();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // The client went away; nothing to answer
+        } finally {
+            openSockets.remove(socket);
+            closeQuietly(socket);
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Nothing left to release
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Serves a library until the process is stopped.
+     * <p>
+     * Arguments: the port to listen on (default 7070); optionally a library JSON file written by
+     * {@link LibraryJson} to serve, or {@code -} to serve an empty library; and optionally the address
+     * to listen on. The server only listens on the loopback interface unless an address is given, so
+     * the library is not exposed to the network by accident: pass {@code 0.0.0.0} to listen on every
+     * interface.
+     *
+     * @param args The command-line arguments.
+     * @throws IOException If the library file cannot be read or the port cannot be bound.
+     * @throws InterruptedException If the main thread is interrupted while serving.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7070;
+        InetAddress host = args.length > 2 ? InetAddress.getByName(args[2]) : InetAddress.getLoopbackAddress();
+        Library library;
+        if (args.length > 1 && !args[1].equals("-")) {
+            try (Reader in = Files.newBufferedReader(Path.of(args[1]), StandardCharsets.UTF_8)) {
+                library = LibraryJson.read(in);
+            }
+        } else {
+            library = new Library();
+        }
+        LibraryServer server = new LibraryServer(library, new InetSocketAddress(host, port));
+        server.start();
+        System.out.println("Serving " + library.snapshot().getBookCount() + " book(s) and "
+                + library.snapshot().getMemberCount() + " member(s) on " + host.getHostAddress() + " port " + server.getPort()
+                + (server.usesVirtualThreads() ? " with virtual threads" : " with platform threads"));
+        server.acceptor.join();
+    }
+}
@@ -0,0 +1,262 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * An immutable view of a library's catalog, members and loans as they were at one point in time.
+ * <p>
+ * Taken with {@code Library.snapshot()}, which costs a single memory read: the library keeps its
+ * catalog, members and loans in persistent structures, and every change publishes a new version
+ * sharing all unchanged parts with the previous one. A snapshot therefore never changes, can be read
+ * for as long as needed without locking anything, and never delays checkouts, returns or additions.
+ * <p>
+ * The snapshot fixes which books are in the catalog, which members are registered and which books
+ * are on loan to whom. The books and members themselves are the library's live objects, so their
+ * fields read through a snapshot are current rather than frozen.
+ */
+public final class LibrarySnapshot {
+
+    /**
+     * The snapshot of a library without books, members or loans.
+     */
+    static final LibrarySnapshot EMPTY = new LibrarySnapshot(0, PersistentVector.empty(), PersistentVector.empty(),
+            PersistentMap.empty());
+
+    /**
+     * The number of changes the library had gone through when this version was published.
+     */
+    private final long version;
+
+    /**
+     * The books of the catalog, in catalog order.
+     */
+    private final PersistentVector<Book> books;
+
+    /**
+     * The registered members, in registration order.
+     */
+    private final PersistentVector<Member> members;
+
+    /**
+     * The current loans keyed by book ID.
+     */
+    private final PersistentMap<Identifier, Loan> loans;
+
+    /**
+     * Constructs a version of the library state.
+     *
+     * @param version The number of changes the library had gone through.
+     * @param books The books of the catalog.
+     * @param members The registered members.
+     * @param loans The current loans keyed by book ID.
+     */
+    private LibrarySnapshot(long version, PersistentVector<Book> books, PersistentVector<Member> members,
+                            PersistentMap<Identifier, Loan> loans) {
+        this.version = version;
+        this.books = books;
+        this.members = members;
+        this.loans = loans;
+    }
+
+    /**
+     * Retrieves the version of the library state captured by this snapshot.
+     * <p>
+     * Versions grow by one with every change of the catalog, the members or the loans, so two
+     * snapshots with the same version hold the same state.
+     *
+     * @return The version number.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Retrieves the books of the catalog, in catalog order.
+     *
+     * @return A read-only list that never changes.
+     */
+    public List<Book> getBooks() {
+        return books.asList();
+    }
+
+    /**
+     * Retrieves the registered members, in registration order.
+     *
+     * @return A read-only list that never changes.
+     */
+    public List<Member> getMembers() {
+        return members.asList();
+    }
+
+    /**
+     * Retrieves the number of books in the catalog.
+     *
+     * @return The number of books.
+     */
+    public int getBookCount() {
+        return books.size();
+    }
+
+    /**
+     * Retrieves the number of registered members.
+     *
+     * @return The number of members.
+     */
+    public int getMemberCount() {
+        return members.size();
+    }
+
+    /**
+     * Retrieves the number of books on loan from the library.
+     *
+     * @return The number of loans.
+     */
+    public int getLoanCount() {
+        return loans.size();
+    }
+
+    /**
+     * Finds the loan of a book.
+     *
+     * @param bookId The ID of the book.
+     * @return The loan of the book, or {@code null} if the book was not lent by the library or the ID is invalid.
+     */
+    public Loan getLoan(String bookId) {
+        Identifier identifier = Identifier.tryParse(bookId);
+        return identifier == null ? null : loans.get(identifier);
+    }
+
+    /**
+     * Lists the loans of the library.
+     *
+     * @return A new list of the loans, in no particular order.
+     */
+    public List<Loan> getLoans() {
+        ArrayList<Loan> list = new ArrayList<>(loans.size());
+        loans.forEachValue(list::add);
+        return list;
+    }
+
+    /**
+     * Finds the loan of a book by its parsed ID.
+     *
+     * @param bookId The ID of the book.
+     * @return The loan of the book, or {@code null} if the book was not lent by the library.
+     */
+    Loan loanOf(Identifier bookId) {
+        return loans.get(bookId);
+    }
+
+    /**
+     * Groups the loans by member, for writers that store each member together with the books it holds.
+     *
+     * @return The loans of every member holding books, keyed by member ID, then by book ID.
+     */
+    HashMap<Identifier, HashMap<Identifier, Loan>> loansByMember() {
+        HashMap<Identifier, HashMap<Identifier, Loan>> grouped = new HashMap<>();
+        loans.forEachValue(loan -> grouped.computeIfAbsent(loan.getMemberIdentifier(), id -> new HashMap<>())
+                .put(loan.getBookIdentifier(), loan));
+        return grouped;
+    }
+
+    /**
+     * Orders the loans of a member as the member lists its borrowed books.
+     * <p>
+     * Books returned since the snapshot was taken are no longer in the member's list; their loans
+     * follow the others in checkout order. Books borrowed since are left out, as they have no loan here.
+     *
+     * @param member The member holding the books.
+     * @param memberLoans The loans of the member keyed by book ID, as grouped by {@link #loansByMember()}, or {@code null}.
+     * @return A new list of the member's loans.
+     */
+    static ArrayList<Loan> inBorrowingOrder(Member member, HashMap<Identifier, Loan> memberLoans) {
+        if (memberLoans == null) {
+            return new ArrayList<>();
+        }
+        HashMap<Identifier, Loan> remaining = new HashMap<>(memberLoans);
+        ArrayList<Loan> ordered = new ArrayList<>(memberLoans.size());
+        synchronized (member) {
+            for (Book book : member.getBorrowedBooks()) {
+                Loan loan = remaining.remove(book.getIdentifier());
+                if (loan != null) {
+                    ordered.add(loan);
+                }
+            }
+        }
+        int listed = ordered.size();
+        ordered.addAll(remaining.values());
+        ordered.subList(listed, ordered.size()).sort(Comparator.comparingLong(Loan::getCheckoutMillis));
+        return ordered;
+    }
+
+    /**
+     * Builds the next version with books appended to the catalog.
+     *
+     * @param added The books to append.
+     * @return The new version.
+     */
+    LibrarySnapshot withBooksAdded(List<Book> added) {
+        return new LibrarySnapshot(version + 1, books.appendAll(added), members, loans);
+    }
+
+    /**
+     * Builds the next version with members appended to the registered members.
+     *
+     * @param added The members to append.
+     * @return The new version.
+     */
+    LibrarySnapshot withMembersAdded(List<Member> added) {
+        return new LibrarySnapshot(version + 1, books, members.appendAll(added), loans);
+    }
+
+    /**
+     * Builds the next version with a new catalog and the loans that survived the change.
+     *
+     * @param catalog The books of the new catalog.
+     * @param retained The loans keyed by book ID.
+     * @return The new version.
+     */
+    LibrarySnapshot withCatalog(PersistentVector<Book> catalog, PersistentMap<Identifier, Loan> retained) {
+        return new LibrarySnapshot(version + 1, catalog, members, retained);
+    }
+
+    /**
+     * Builds the next version with new members and the loans that survived the change.
+     *
+     * @param registered The new registered members.
+     * @param retained The loans keyed by book ID.
+     * @return The new version.
+     */
+    LibrarySnapshot withMembers(PersistentVector<Member> registered, PersistentMap<Identifier, Loan> retained) {
+        return new LibrarySnapshot(version + 1, books, registered, retained);
+    }
+
+    /**
+     * Builds the next version with loans set.
+     *
+     * @param made The loans to record, replacing any loan of the same books.
+     * @return The new version.
+     */
+    LibrarySnapshot withLoans(List<Loan> made) {
+        PersistentMap<Identifier, Loan> updated = loans;
+        for (Loan loan : made) {
+            updated = updated.put(loan.getBookIdentifier(), loan);
+        }
+        return new LibrarySnapshot(version + 1, books, members, updated);
+    }
+
+    /**
+     * Builds the next version without the loans of books.
+     *
+     * @param bookIds The IDs of the books.
+     * @return The new version, or this one if none of the books was on loan.
+     */
+    LibrarySnapshot withoutLoans(List<Identifier> bookIds) {
+        PersistentMap<Identifier, Loan> updated = loans;
+        for (Identifier bookId : bookIds) {
+            updated = updated.remove(bookId);
+        }
+        return updated == loans ? this : new LibrarySnapshot(version + 1, books, members, updated);
+    }
+}
@@ -0,0 +1,110 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ProtocolException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads UTF-8 lines of bounded length from a stream, for the line protocol of {@link LibraryServer}.
+ * <p>
+ * Unlike a {@code BufferedReader}, it starts with small buffers and only grows the line buffer for
+ * long lines, so tens of thousands of idle connections cost little memory, and it refuses lines
+ * longer than a fixed limit instead of buffering them whole. Lines end with {@code \n}; a
+ * {@code \r} before it is dropped.
+ */
+final class LineReader {
+
+    /**
+     * Number of bytes read from the stream at a time.
+     */
+    private static final int READ_SIZE = 512;
+
+    /**
+     * Initial capacity of the line buffer, in bytes.
+     */
+    private static final int INITIAL_LINE_SIZE = 128;
+
+    private final InputStream in;
+    private final int maxLineLength;
+    private final byte[] buffer = new byte[READ_SIZE];
+    private byte[] line = new byte[INITIAL_LINE_SIZE];
+
+    /**
+     * Position of the next unread byte in {@code buffer}.
+     */
+    private int position;
+
+    /**
+     * Number of bytes held in {@code buffer}.
+     */
+    private int limit;
+
+    /**
+     * Constructs a reader.
+     *
+     * @param in The stream to read.
+     * @param maxLineLength The maximum number of bytes in a line, excluding the line end.
+     */
+    LineReader(InputStream in, int maxLineLength) {
+        this.in = in;
+        this.maxLineLength = maxLineLength;
+    }
+
+    /**
+     * Reads the next line.
+     *
+     * @return The line without its line end, or {@code null} at the end of the stream. A last line
+     *         without line end is returned as is.
+     * @throws ProtocolException If the line is longer than the limit.
+     * @throws IOException If the stream cannot be read.
+     */
+    String readLine() throws IOException {
+        int length = 0;
+        while (true) {
+            if (position == limit) {
+                limit = in.read(buffer);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return length == 0 ? null : decode(length);
+                }
+            }
+            byte b = buffer[position++];
+            if (b == '\n') {
+                if (length > 0 && line[length - 1] == '\r') {
+                    length--;
+                }
+                if (length > maxLineLength) {
+                    break;
+                }
+                return decode(length);
+            }
+            if (length == maxLineLength + 1) { // Room for a trailing '\r'
+                break;
+            }
+            if (length == line.length) {
+                line = Arrays.copyOf(line, Math.min(line.length * 2, maxLineLength + 1));
+            }
+            line[length++] = b;
+        }
+        throw new ProtocolException("Line longer than " + maxLineLength + " bytes.");
+    }
+
+    /**
+     * Checks whether more input can be read without blocking.
+     *
+     * @return True if bytes are buffered or available from the stream.
+     * @throws IOException If the stream cannot be queried.
+     */
+    boolean ready() throws IOException {
+        return position < limit || in.available() > 0;
+    }
+
+    private String decode(int length) {
+        String text = new String(line, 0, length, StandardCharsets.UTF_8);
+        if (line.length > INITIAL_LINE_SIZE) {
+            line = new byte[INITIAL_LINE_SIZE]; // Long lines are rare: do not keep their buffer
+        }
+        return text;
+    }
+}
@@ -0,0 +1,139 @@
+import java.time.Instant;
+
+/**
+ * Represents a single book on loan: which book, which member holds it, since when, and until when.
+ * <p>
+ * Loans are immutable and created by the library's loan ledger when a book is lent. They can be
+ * looked up in constant time from either side through {@code Library.getLoan()} and
+ * {@code Library.getLoans()}.
+ */
+public final class Loan {
+
+    /**
+     * The ID of the book on loan.
+     */
+    private final Identifier bookId;
+
+    /**
+     * The ID of the member holding the book.
+     */
+    private final Identifier memberId;
+
+    /**
+     * The time the book was lent, in milliseconds since the epoch.
+     */
+    private final long checkoutTime;
+
+    /**
+     * The time the book is due back, in milliseconds since the epoch.
+     */
+    private final long dueTime;
+
+    /**
+     * Constructs a loan record.
+     *
+     * @param bookId The ID of the book on loan.
+     * @param memberId The ID of the member holding the book.
+     * @param checkoutTime The time the book was lent, in milliseconds since the epoch.
+     * @param dueTime The time the book is due back, in milliseconds since the epoch.
+     */
+    Loan(Identifier bookId, Identifier memberId, long checkoutTime, long dueTime) {
+        this.bookId = bookId;
+        this.memberId = memberId;
+        this.checkoutTime = checkoutTime;
+        this.dueTime = dueTime;
+    }
+
+    /**
+     * Retrieves the ID of the book on loan.
+     *
+     * @return The ID of the book as a string.
+     */
+    public String getBookId() {
+        return bookId.toString();
+    }
+
+    /**
+     * Retrieves the ID of the member holding the book.
+     *
+     * @return The ID of the member as a string.
+     */
+    public String getMemberId() {
+        return memberId.toString();
+    }
+
+    /**
+     * Retrieves the time the book was lent.
+     *
+     * @return The checkout time.
+     */
+    public Instant getCheckoutTime() {
+        return Instant.ofEpochMilli(checkoutTime);
+    }
+
+    /**
+     * Retrieves the time the book is due back.
+     *
+     * @return The due time.
+     */
+    public Instant getDueTime() {
+        return Instant.ofEpochMilli(dueTime);
+    }
+
+    /**
+     * Checks whether the book is overdue at a given time.
+     *
+     * @param time The time to check. Must be non-null.
+     * @return True if the due time is at or before the given time.
+     */
+    public boolean isOverdueAt(Instant time) {
+        return dueTime <= time.toEpochMilli();
+    }
+
+    /**
+     * Retrieves the compact form of the ID of the book on loan.
+     *
+     * @return The ID of the book.
+     */
+    Identifier getBookIdentifier() {
+        return bookId;
+    }
+
+    /**
+     * Retrieves the compact form of the ID of the member holding the book.
+     *
+     * @return The ID of the member.
+     */
+    Identifier getMemberIdentifier() {
+        return memberId;
+    }
+
+    /**
+     * Retrieves the time the book was lent, in milliseconds since the epoch.
+     *
+     * @return The checkout time in milliseconds.
+     */
+    long getCheckoutMillis() {
+        return checkoutTime;
+    }
+
+    /**
+     * Retrieves the time the book is due back, in milliseconds since the epoch.
+     *
+     * @return The due time in milliseconds.
+     */
+    long getDueMillis() {
+        return dueTime;
+    }
+
+    /**
+     * Generates a string representation of the loan.
+     *
+     * @return The book ID, member ID, checkout time and due time of the loan.
+     */
+    @Override
+    public String toString() {
+        return "Loan{bookId=" + bookId + ", memberId=" + memberId + ", checkoutTime=" + getCheckoutTime()
+                + ", dueTime=" + getDueTime() + "}";
+    }
+}
@@ -0,0 +1,338 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records which member holds each book of a library's catalog, and since when.
+ * <p>
+ * The ledger is the single source of truth for loans made by the library. A book of the catalog is
+ * available exactly when the ledger has no loan for it, and a registered member holds exactly the
+ * books the ledger has lent it: books a member already held when it was registered are recorded as
+ * loans made at its registration. Lending and returning go through the ledger, and it updates the
+ * book's indexed availability and the member's borrowed books as part of the same step, so neither
+ * can disagree with it. Loans are indexed both by book ID and by member ID, so "who has this book?"
+ * and "what does this member hold?" are answered without scanning any collection.
+ * <p>
+ * Every loan is due back after the loan period the member gets for the book, and is scheduled on the
+ * library's overdue wheel when it is made and cancelled when it ends. Loans made and ended are also
+ * published to the library's versioned state, so that snapshots see them; a ledger built to replace
+ * another one is published by the library as a whole.
+ * <p>
+ * Concurrency follows the library's checkout locking: changes to the loan of a book happen under the
+ * lock stripe of that book and the monitor of the member involved. The book index is a concurrent map
+ * that can be read without locks; a member's loans are guarded by the member's monitor.
+ */
+final class LoanLedger {
+
+    /**
+     * Current loans keyed by book ID.
+     */
+    private final ConcurrentHashMap<Identifier, Loan> loansByBook;
+
+    /**
+     * Current loans of each member keyed by member ID, then by book ID in checkout order.
+     */
+    private final ConcurrentHashMap<Identifier, LinkedHashMap<Identifier, Loan>> loansByMember;
+
+    /**
+     * The wheel on which the due dates of the loans are scheduled, shared with the ledgers replacing this one.
+     */
+    private final OverdueWheel dueDates;
+
+    /**
+     * The versioned state to which loans are published, shared with the ledgers replacing this one.
+     */
+    private final VersionedState versions;
+
+    /**
+     * Constructs an empty ledger.
+     *
+     * @param dueDates The wheel on which to schedule the due dates of the loans.
+     * @param versions The versioned state to which to publish the loans.
+     */
+    LoanLedger(OverdueWheel dueDates, VersionedState versions) {
+        this.loansByBook = new ConcurrentHashMap<>();
+        this.loansByMember = new ConcurrentHashMap<>();
+        this.dueDates = dueDates;
+        this.versions = versions;
+    }
+
+    /**
+     * Builds a ledger holding the loans of this one that survive a change of the catalog or of the members.
+     * <p>
+     * A loan survives if its book is still in the catalog, its member is still registered, and the
+     * member still holds the book. Surviving loans keep their checkout and due times, and the others
+     * are taken off the overdue wheel.
+     * <p>
+     * The caller must hold every lock stripe of the library.
+     *
+     * @param members The registered members by ID.
+     * @param catalog The books of the catalog by ID.
+     * @return The new ledger.
+     */
+    LoanLedger retain(Map<Identifier, Member> members, Map<Identifier, Book> catalog) {
+        LoanLedger ledger = new LoanLedger(dueDates, versions);
+        for (Loan loan : loansByBook.values()) {
+            Member member = members.get(loan.getMemberIdentifier());
+            Book book = catalog.get(loan.getBookIdentifier());
+            boolean kept = false;
+            if (member != null && book != null) {
+                synchronized (member) {
+                    if (member.hasBorrowed(book)) {
+                        ledger.put(loan);
+                        kept = true;
+                    }
+                }
+            }
+            if (!kept) {
+                dueDates.cancel(loan);
+            }
+        }
+        return ledger;
+    }
+
+    /**
+     * Ends the loans that were dropped when this ledger replaced another one: the books are taken out
+     * of the hands of their members and made available again.
+     * <p>
+     * The caller must hold every lock stripe of the library.
+     *
+     * @param previous The ledger that was replaced.
+     * @param members The members registered when the loans were made, by ID.
+     * @param catalog The books of the catalog when the loans were made, by ID.
+     */
+    void releaseDropped(LoanLedger previous, Map<Identifier, Member> members, Map<Identifier, Book> catalog) {
+        for (Loan loan : previous.loansByBook.values()) {
+            Book book = catalog.get(loan.getBookIdentifier());
+            if (book == null || loansByBook.containsKey(loan.getBookIdentifier())) {
+                continue;
+            }
+            Member member = members.get(loan.getMemberIdentifier());
+            if (member != null) {
+                synchronized (member) {
+                    member.removeBorrowedBook(book);
+                }
+            }
+            book.setAvailability(true);
+        }
+    }
+
+    /**
+     * Retrieves the current loan of a book.
+     *
+     * @param bookId The ID of the book.
+     * @return The loan of the book, or {@code null} if it is not on loan.
+     */
+    Loan loanOf(Identifier bookId) {
+        return loansByBook.get(bookId);
+    }
+
+    /**
+     * Retrieves every current loan.
+     *
+     * @return A read-only view of the loans, in no particular order.
+     */
+    Collection<Loan> loans() {
+        return Collections.unmodifiableCollection(loansByBook.values());
+    }
+
+    /**
+     * Retrieves the current loans of a member, in checkout order.
+     * <p>
+     * The caller must hold the member's monitor.
+     *
+     * @param memberId The ID of the member.
+     * @return A new list of the member's loans; empty if the member holds no book.
+     */
+    ArrayList<Loan> loansOf(Identifier memberId) {
+        LinkedHashMap<Identifier, Loan> loans = loansByMember.get(memberId);
+        return loans == null ? new ArrayList<>() : new ArrayList<>(loans.values());
+    }
+
+    /**
+     * Lends a book to a member, enforcing the member's borrowing limit.
+     * <p>
+     * The caller must hold the book's lock stripe and the member's monitor, and have checked that the book is available.
+     *
+     * @param member The borrowing member.
+     * @param book The book to lend.
+     * @param now The checkout time, in milliseconds since the epoch.
+     * @throws IllegalArgumentException If the member's borrowing limit would be exceeded.
+     */
+    void lend(Member member, Book book, long now) {
+        member.borrowBook(book);
+        book.setAvailability(false);
+        versions.loansMade(List.of(schedule(member, book, now)));
+    }
+
+    /**
+     * Lends several books to a member at once, enforcing the member's borrowing limit.
+     * <p>
+     * The caller must hold the lock stripes of the books and the member's monitor, and have checked
+     * that every book is available. Either every book is lent or, if the member rejects them, none is.
+     *
+     * @param member The borrowing member.
+     * @param books The books to lend.
+     * @param now The checkout time, in milliseconds since the epoch.
+     * @throws IllegalArgumentException If the member's borrowing limit would be exceeded.
+     */
+    void lendAll(Member member, ArrayList<Book> books, long now) {
+        member.borrowBooks(books);
+        ArrayList<Loan> loans = new ArrayList<>(books.size());
+        for (Book book : books) {
+            book.setAvailability(false);
+            loans.add(schedule(member, book, now));
+        }
+        versions.loansMade(loans);
+    }
+
+    /**
+     * Records a loan that is being restored rather than made, without enforcing the borrowing limit.
+     * <p>
+     * The loan is due back one loan period after its original checkout time, so a restored loan may
+     * be overdue straight away. If the member already has the book on loan, the loan takes the
+     * restored checkout time.
+     * <p>
+     * The caller must hold the book's lock stripe and the member's monitor, and have checked that no
+     * other member has the book on loan.
+     *
+     * @param member The member holding the book.
+     * @param book The book on loan.
+     * @param checkoutTime The original checkout time, in milliseconds since the epoch.
+     */
+    void restore(Member member, Book book, long checkoutTime) {
+        Loan previous = loansByBook.get(book.getIdentifier());
+        if (previous != null) {
+            dueDates.cancel(previous);
+        }
+        if (!member.hasBorrowed(book)) {
+            member.addBorrowedBook(book);
+        }
+        book.setAvailability(false);
+        versions.loansMade(List.of(schedule(member, book, checkoutTime)));
+    }
+
+    /**
+     * Records the books a member holds as it is registered as loans made at its registration.
+     * <p>
+     * Books the member already has on loan are left as they are, so a member replaced by another one
+     * with the same ID keeps its loans.
+     * <p>
+     * The caller must hold the lock stripes of the books and the member's monitor, and have checked
+     * that every book is in the catalog and that no other member has it on loan.
+     *
+     * @param member The member being registered.
+     * @param now The registration time, in milliseconds since the epoch.
+     * @return The books recorded as new loans, in the member's order.
+     */
+    ArrayList<Book> adopt(Member member, long now) {
+        ArrayList<Book> adopted = new ArrayList<>();
+        ArrayList<Loan> loans = new ArrayList<>();
+        for (Book book : member.getBorrowedBooks()) {
+            if (!loansByBook.containsKey(book.getIdentifier())) {
+                book.setAvailability(false);
+                loans.add(schedule(member, book, now));
+                adopted.add(book);
+            }
+        }
+        if (!loans.isEmpty()) {
+            versions.loansMade(loans);
+        }
+        return adopted;
+    }
+
+    /**
+     * Ends the loan of a book to a member, making the book available again.
+     * <p>
+     * The caller must hold the book's lock stripe and the member's monitor.
+     *
+     * @param member The member returning the book.
+     * @param book The book being returned.
+     * @return True if the member held the book and it has been returned, false otherwise.
+     */
+    boolean release(Member member, Book book) {
+        ArrayList<Identifier> ended = new ArrayList<>(1);
+        boolean released = end(member, book, ended);
+        versions.loansEnded(ended);
+        return released;
+    }
+
+    /**
+     * Ends the loans of several books to a member, making the books available again.
+     * <p>
+     * Books are handled as by {@link #release(Member, Book)}, and the loans ended are published as
+     * a single change, so no snapshot sees only some of them ended.
+     * <p>
+     * The caller must hold the lock stripes of the books and the member's monitor.
+     *
+     * @param member The member returning the books.
+     * @param books The books being returned.
+     * @return For each book, in order, true if it has been returned, false if the member did not hold it.
+     */
+    boolean[] releaseAll(Member member, List<Book> books) {
+        boolean[] released = new boolean[books.size()];
+        ArrayList<Identifier> ended = new ArrayList<>(books.size());
+        for (int i = 0; i < released.length; i++) {
+            released[i] = end(member, books.get(i), ended);
+        }
+        versions.loansEnded(ended);
+        return released;
+    }
+
+    /**
+     * Ends the loan of a book to a member without publishing it.
+     *
+     * @param member The member returning the book.
+     * @param book The book being returned.
+     * @param ended The list to which the ID of the book is added if its loan ended.
+     * @return True if the member held the book and it has been returned, false otherwise.
+     */
+    private boolean end(Member member, Book book, List<Identifier> ended) {
+        Loan loan = loansByBook.get(book.getIdentifier());
+        if (loan == null || !loan.getMemberIdentifier().equals(member.getMemberIdentifier())) {
+            return false;
+        }
+        loansByBook.remove(book.getIdentifier());
+        dueDates.cancel(loan);
+        ended.add(book.getIdentifier());
+        LinkedHashMap<Identifier, Loan> loans = loansByMember.get(member.getMemberIdentifier());
+        loans.remove(book.getIdentifier());
+        if (loans.isEmpty()) {
+            loansByMember.remove(member.getMemberIdentifier());
+        }
+        member.returnBook(book);
+        book.setAvailability(true);
+        return true;
+    }
+
+    /**
+     * Records a new loan of a book to a member, due back after the member's loan period for the book,
+     * and schedules its due date.
+     *
+     * @param member The borrowing member.
+     * @param book The book on loan.
+     * @param checkoutTime The checkout time, in milliseconds since the epoch.
+     * @return The new loan.
+     */
+    private Loan schedule(Member member, Book book, long checkoutTime) {
+        long dueTime = checkoutTime + member.getLoanPeriod(book).toMillis();
+        Loan loan = new Loan(book.getIdentifier(), member.getMemberIdentifier(), checkoutTime, dueTime);
+        put(loan);
+        dueDates.schedule(loan);
+        return loan;
+    }
+
+    /**
+     * Adds a loan to both indexes.
+     *
+     * @param loan The loan to add.
+     */
+    private void put(Loan loan) {
+        loansByBook.put(loan.getBookIdentifier(), loan);
+        loansByMember.computeIfAbsent(loan.getMemberIdentifier(), id -> new LinkedHashMap<>()).put(loan.getBookIdentifier(), loan);
+    }
+}
@@ -0,0 +1,132 @@
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Provides a fixed set of locks shared by hashing identifiers onto them (lock striping).
+ * <p>
+ * Operations on different identifiers usually land on different stripes and can proceed in parallel,
+ * while operations on the same identifier always contend for the same lock. The number of locks stays
+ * constant no matter how many identifiers exist.
+ * <p>
+ * When several stripes must be held at once, they are always acquired in ascending stripe order so that
+ * concurrent multi-stripe operations cannot deadlock.
+ */
+final class LockStripes {
+
+    /**
+     * The locks making up the stripes. The length is always a power of two.
+     */
+    private final ReentrantLock[] locks;
+
+    /**
+     * Mask applied to a spread hash to select a stripe.
+     */
+    private final int mask;
+
+    /**
+     * Constructs a set of lock stripes.
+     *
+     * @param minimumStripes The minimum number of stripes; rounded up to the next power of two.
+     * @throws IllegalArgumentException If the number of stripes is not positive.
+     */
+    LockStripes(int minimumStripes) {
+        if (minimumStripes <= 0) {
+            throw new IllegalArgumentException("Number of lock stripes must be positive.");
+        }
+        int size = 1;
+        while (size < minimumStripes) {
+            size <<= 1;
+        }
+        this.locks = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            this.locks[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Finds the stripe guarding an identifier.
+     *
+     * @param id The identifier to map.
+     * @return The index of the stripe guarding the identifier.
+     */
+    int stripeOf(Identifier id) {
+        int hash = id.hashCode();
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    /**
+     * Lists every stripe, in the order they must be acquired.
+     *
+     * @return The indexes of all stripes in ascending order.
+     */
+    int[] allStripes() {
+        int[] stripes = new int[locks.length];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = i;
+        }
+        return stripes;
+    }
+
+    /**
+     * Acquires the lock of a single stripe.
+     *
+     * @param stripe The index of the stripe to lock.
+     */
+    void lock(int stripe) {
+        locks[stripe].lock();
+    }
+
+    /**
+     * Releases the lock of a single stripe.
+     *
+     * @param stripe The index of the stripe to unlock.
+     */
+    void unlock(int stripe) {
+        locks[stripe].unlock();
+    }
+
+    /**
+     * Computes the sorted, distinct stripes guarding a group of identifiers.
+     *
+     * @param ids The identifiers to map.
+     * @param count The number of identifiers to use from the start of the array.
+     * @return The distinct stripe indices in ascending order.
+     */
+    int[] stripesOf(Identifier[] ids, int count) {
+        int[] stripes = new int[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = stripeOf(ids[i]);
+        }
+        Arrays.sort(stripes);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || stripes[distinct - 1] != stripes[i]) {
+                stripes[distinct++] = stripes[i];
+            }
+        }
+        return Arrays.copyOf(stripes, distinct);
+    }
+
+    /**
+     * Acquires the locks of several stripes in ascending order.
+     *
+     * @param stripes The distinct stripe indices in ascending order, as returned by {@link #stripesOf}.
+     */
+    void lockAll(int[] stripes) {
+        for (int stripe : stripes) {
+            locks[stripe].lock();
+        }
+    }
+
+    /**
+     * Releases the locks of several stripes in reverse acquisition order.
+     *
+     * @param stripes The stripe indices previously passed to {@link #lockAll(int[])}.
+     */
+    void unlockAll(int[] stripes) {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            locks[stripes[i]].unlock();
+        }
+    }
+}
@@ -1,11 +1,25 @@
+import java.io.IOException;
+import java.time.Duration;
 import java.util.ArrayList;
-import java.util.UUID;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 
 /**
  * Represents a library member in the system, including their personal details, borrowed books and benefits.
+ * <p>
+ * Once the member is registered in a library, its borrowed books are the books the library has lent
+ * it: they change only through the library's checkouts and returns, which keep them in step with the
+ * library's loans.
  */
 public class Member {
 
+    /**
+     * Visible widths of the ID, Name and Borrowing Limit columns used when members are rendered
+     * as table rows.
+     */
+    static final int[] TABLE_COLUMN_WIDTHS = {37, 50, 16};
+
     /**
      * The name of the member. Used for identifying the member.
      */
@@ -13,9 +27,10 @@ public class Member {
 
     /**
      * The unique identifier for the member.
-     * Must be a String and serves as an ID for the member.
+     * Follows the UUID format and is kept in its compact 128-bit form; it is only
+     * converted to a string when read through {@link #getMemberId()}.
      */
-    private String memberId;
+    private Identifier memberId;
 
     /**
      * A list of books borrowed by the member.
@@ -23,23 +38,37 @@ public class Member {
      */
     private ArrayList<Book> borrowedBooks;
 
+    /**
+     * Positions of the borrowed books in {@code borrowedBooks}, keyed by book ID.
+     * <p>
+     * Lets a returned book be found and removed in constant time. Built on first use, and rebuilt
+     * whenever it is found out of step with the list.
+     */
+    private HashMap<Identifier, Integer> loanPositions;
+
     /**
      * The maximum number of books the member can borrow.
      * Default value is set to 3.
      */
     private int borrowingLimit = 3;
 
+    /**
+     * The library the member is registered in, or {@code null} if the member is not registered.
+     * The library finds the member and its loans by ID, so the ID is fixed while it is set.
+     */
+    private Library library;
+
     // Constructor
     /**
      * Default constructor for the Member class.
      * Initializes the member with default values:
      * - Name is set to "FirstName LastName".
-     * - Member ID is set to 0.
+     * - Member ID is set to a randomly generated UUID.
      * - Creates an empty list for borrowed books.
      */
     public Member() {
         this.name = "FirstName LastName";
-        this.memberId = UUID.randomUUID().toString();
+        this.memberId = Identifier.random();
         this.borrowedBooks = new ArrayList<>();
     }
 
@@ -52,7 +81,7 @@ public class Member {
      */
     public Member(String name, Book borrowedBook) {
         this.setName(name);
-        this.memberId = UUID.randomUUID().toString();
+        this.memberId = Identifier.random();
         this.borrowedBooks = new ArrayList<>();
         this.borrowedBooks.add(borrowedBook);
     }
@@ -66,8 +95,8 @@ public class Member {
      */
     public Member(String name, ArrayList<Book> borrowedBooks) {
         this.setName(name);
-        this.memberId = UUID.randomUUID().toString();
-        this.borrowedBooks = borrowedBooks;
+        this.memberId = Identifier.random();
+        this.borrowedBooks = borrowedBooks == null ? null : new ArrayList<>(borrowedBooks);
     }
 
     /**
@@ -96,6 +125,24 @@ public class Member {
     public Member(String name, String memberId, ArrayList<Book> borrowedBooks) {
         this.setName(name);
         this.setMemberId(memberId);
+        this.borrowedBooks = borrowedBooks == null ? null : new ArrayList<>(borrowedBooks);
+    }
+
+    /**
+     * Constructs a Member object from trusted data without validation.
+     * <p>
+     * Used when loading members that were validated before they were saved, such as from a JSON dump
+     * written by {@link LibraryJson}, so that loading does not re-run field validation.
+     *
+     * @param memberId The unique identifier for the member.
+     * @param name The name of the member.
+     * @param borrowingLimit The maximum number of books the member can borrow.
+     * @param borrowedBooks The books currently borrowed by the member.
+     */
+    Member(Identifier memberId, String name, int borrowingLimit, ArrayList<Book> borrowedBooks) {
+        this.memberId = memberId;
+        this.name = name;
+        this.borrowingLimit = borrowingLimit;
         this.borrowedBooks = borrowedBooks;
     }
 
@@ -131,39 +178,96 @@ public class Member {
     /**
      * Retrieves the id of the member.
      *
-     * @return The id of the member as an Integer.
+     * @return The id of the member as a String in UUID format.
      */
     public String getMemberId() {
+        return this.memberId.toString();
+    }
+
+    /**
+     * Retrieves the id of the member in its compact 128-bit form.
+     * <p>
+     * Used by the library for indexing and comparisons without converting the ID to a string.
+     *
+     * @return The id of the member as an {@link Identifier}.
+     */
+    Identifier getMemberIdentifier() {
         return this.memberId;
     }
 
     /**
      * Updates the id of the member.
+     * <p>
+     * The id of a member registered in a library cannot change.
      *
      * @param memberId The new id to be assigned to the member.
+     * @throws IllegalArgumentException If the member is registered in a library.
      */
     public void setMemberId(String memberId) {
 
+        Identifier identifier;
         try {
-            isValidMemberId(memberId);
+            identifier = parseMemberId(memberId);
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
 
-        this.memberId = memberId;
+        synchronized (this) {
+            if (this.library != null) {
+                throw new IllegalArgumentException("Member ID cannot change while the member is registered in a library.");
+            }
+            this.memberId = identifier;
+        }
+    }
+
+    /**
+     * Retrieves the library the member is registered in.
+     *
+     * @return The library of the member, or {@code null} if the member is not registered in any library.
+     */
+    synchronized Library getLibrary() {
+        return this.library;
+    }
+
+    /**
+     * Records that the member has been registered in a library.
+     *
+     * @param library The library the member is registered in.
+     * @throws IllegalArgumentException If the member is already registered in a library.
+     */
+    synchronized void joinLibrary(Library library) {
+        if (this.library != null) {
+            throw new IllegalArgumentException("Member is already registered in a library.");
+        }
+        this.library = library;
+    }
+
+    /**
+     * Records that the member is no longer registered in a library.
+     *
+     * @param library The library the member was registered in.
+     */
+    synchronized void leaveLibrary(Library library) {
+        if (this.library == library) {
+            this.library = null;
+        }
     }
 
     /**
      * Retrieves the list of borrowed books associated to the member.
+     * <p>
+     * The list is a read-only view: books are borrowed and returned through the library.
      *
-     * @return The list of borrowed books associated to the member as an Array List of Books.
+     * @return The list of borrowed books associated to the member, or {@code null} if the member has no list.
      */
-    public ArrayList<Book> getBorrowedBooks() {
-        return this.borrowedBooks;
+    public List<Book> getBorrowedBooks() {
+        return this.borrowedBooks == null ? null : Collections.unmodifiableList(this.borrowedBooks);
     }
 
     /**
      * Updates the list of borrowed books for the member with validation.
+     * <p>
+     * Used before the member is registered; the books of a registered member change only through its library.
      *
      * @param borrowedBooks The new list of books to be assigned to the member.
      *                      Must not be null, contain null entries, or exceed the borrowing limit.
@@ -171,7 +275,7 @@ public class Member {
      * @throws IllegalArgumentException If the list contains null book entries.
      * @throws IllegalArgumentException If the size of the list exceeds the borrowing limit.
      */
-    public void setBorrowedBooks(ArrayList<Book> borrowedBooks) {
+    void setBorrowedBooks(ArrayList<Book> borrowedBooks) {
 
         try {
             areValidBorrowedBooks(borrowedBooks);
@@ -179,7 +283,8 @@ public class Member {
             throw new RuntimeException(e);
         }
 
-        this.borrowedBooks = borrowedBooks;
+        this.borrowedBooks = new ArrayList<>(borrowedBooks);
+        this.loanPositions = null;
     }
 
     /**
@@ -191,6 +296,16 @@ public class Member {
         return this.borrowingLimit;
     }
 
+    /**
+     * Retrieves the time the member may keep a book before it is due back.
+     *
+     * @param book The borrowed book. Must be non-null.
+     * @return The loan period of the book for this member; the book's own loan period for regular members.
+     */
+    public Duration getLoanPeriod(Book book) {
+        return book.getLoanPeriod();
+    }
+
     /**
      * Updates the borrowing limit for the member with validation.
      *
@@ -211,39 +326,46 @@ public class Member {
 
     /**
      * Allows the member to borrow a single book while enforcing borrowing limits.
+     * <p>
+     * Called by the library's loan ledger as it lends the book, so the member never holds a book the
+     * library has not lent it.
      *
      * @param borrowedBook The book to be added to the borrowed books list.
-     * @throws IllegalArgumentException If the book is null or borrowing it exceeds the borrowing limit.
+     * @throws IllegalArgumentException If the book is null.
+     * @throws BorrowingLimitException If borrowing the book exceeds the borrowing limit.
      */
-    public void borrowBook(Book borrowedBook) {
+    void borrowBook(Book borrowedBook) {
         if (borrowedBook == null) {
             throw new IllegalArgumentException("Book cannot be null.");
         }
         if (this.borrowedBooks.size() + 1 > borrowingLimit) {
-            throw new IllegalArgumentException("Borrowing limit exceeded: You need to return "
+            throw new BorrowingLimitException("Borrowing limit exceeded: You need to return "
                     + (borrowingLimit - this.borrowedBooks.size()) + " book(s) before borrowing more books");
         }
-        this.borrowedBooks.add(borrowedBook);
+        addBorrowedBook(borrowedBook);
     }
 
     /**
      * Allows the member to borrow multiple books at once while checking borrowing limits.
+     * <p>
+     * Called by the library's loan ledger as it lends the books, so the member never holds a book the
+     * library has not lent it.
      *
      * @param booksList The list of books to be added to the list of borrowed books.
      *                  Must not be null or contain null entries.
      * @throws IllegalArgumentException If the books list is null.
      * @throws IllegalArgumentException If the books list contains null entries.
-     * @throws IllegalArgumentException If borrowing these books exceeds the borrowing limit.
+     * @throws BorrowingLimitException If borrowing these books exceeds the borrowing limit.
      */
-    public void borrowBooks(ArrayList<Book> booksList) {
+    void borrowBooks(ArrayList<Book> booksList) {
 
-        // Ensures the provided borrowedBooks list is not null
-        if (borrowedBooks == null) {
+        // Ensures the provided books list is not null
+        if (booksList == null) {
             throw new IllegalArgumentException("Borrowed books list cannot be null.");
         }
 
         // Check for null books in the list
-        for (Book book : borrowedBooks) {
+        for (Book book : booksList) {
             if (book == null) {
                 throw new IllegalArgumentException("Borrowed books list cannot contain null entries.");
             }
@@ -251,10 +373,128 @@ public class Member {
 
         // Validate that the borrowing limit won't be exceeded
         if (this.borrowedBooks.size() + booksList.size() > borrowingLimit) {
-            throw new IllegalArgumentException("Borrowing limit exceeded: You need to return "
-                    + (this.borrowedBooks.size() + borrowedBooks.size() - borrowingLimit) + " book(s) before borrowing more books");
+            throw new BorrowingLimitException("Borrowing limit exceeded: You need to return "
+                    + (this.borrowedBooks.size() + booksList.size() - borrowingLimit) + " book(s) before borrowing more books");
+        }
+        addBorrowedBooks(booksList);
+    }
+
+    /**
+     * Returns a borrowed book, removing it from the member's borrowed books.
+     * <p>
+     * The book is found through the member's loan index and removed by moving the last borrowed book
+     * into its place, so returning runs in constant time. The order of the remaining borrowed books
+     * may change.
+     * <p>
+     * Called by the library's loan ledger as it ends the loan of the book; members return books
+     * through {@code Library.returnBook()}.
+     *
+     * @param returnedBook The book being returned.
+     * @throws IllegalArgumentException If the book is null or not borrowed by the member.
+     */
+    void returnBook(Book returnedBook) {
+        if (returnedBook == null) {
+            throw new IllegalArgumentException("Book cannot be null.");
+        }
+        if (!removeBorrowedBook(returnedBook)) {
+            throw new IllegalArgumentException("Book is not borrowed by this member.");
+        }
+    }
+
+    /**
+     * Appends a book to the borrowed books without checking the borrowing limit, keeping the loan index in step.
+     *
+     * @param book The book to append.
+     */
+    void addBorrowedBook(Book book) {
+        if (loanPositions != null) {
+            loanPositions.put(book.getIdentifier(), borrowedBooks.size());
         }
-        this.borrowedBooks.addAll(booksList);
+        borrowedBooks.add(book);
+    }
+
+    /**
+     * Appends books to the borrowed books without checking the borrowing limit, keeping the loan index in step.
+     *
+     * @param books The books to append.
+     */
+    void addBorrowedBooks(List<Book> books) {
+        borrowedBooks.ensureCapacity(borrowedBooks.size() + books.size());
+        for (Book book : books) {
+            addBorrowedBook(book);
+        }
+    }
+
+    /**
+     * Removes a book from the borrowed books in constant time by moving the last borrowed book into its place.
+     *
+     * @param book The book to remove.
+     * @return True if the book was borrowed by the member and has been removed, false otherwise.
+     */
+    boolean removeBorrowedBook(Book book) {
+        int position = loanPosition(book);
+        if (position < 0) {
+            return false;
+        }
+        Book last = borrowedBooks.remove(borrowedBooks.size() - 1);
+        loanPositions.remove(book.getIdentifier());
+        if (last != book) {
+            borrowedBooks.set(position, last);
+            loanPositions.put(last.getIdentifier(), position);
+        }
+        return true;
+    }
+
+    /**
+     * Empties the borrowed books, as the member leaves the library that lent them.
+     */
+    void clearBorrowedBooks() {
+        if (borrowedBooks != null) {
+            borrowedBooks.clear();
+        }
+        loanPositions = null;
+    }
+
+    /**
+     * Checks whether the member currently holds a book, in constant time.
+     *
+     * @param book The book to look for.
+     * @return True if the book is among the member's borrowed books, false otherwise.
+     */
+    boolean hasBorrowed(Book book) {
+        return loanPosition(book) >= 0;
+    }
+
+    /**
+     * Finds the position of a book in the borrowed books through the loan index.
+     * <p>
+     * The index entry is checked against the list; if it does not match, or the index no longer
+     * covers every borrowed book, the index is rebuilt from the list before giving up.
+     *
+     * @param book The book to look for.
+     * @return The position of the book in {@code borrowedBooks}, or -1 if the member does not hold it.
+     */
+    private int loanPosition(Book book) {
+        if (loanPositions != null) {
+            Integer position = loanPositions.get(book.getIdentifier());
+            if (position != null && position < borrowedBooks.size() && borrowedBooks.get(position) == book) {
+                return position;
+            }
+            if (position == null && loanPositions.size() == borrowedBooks.size()) {
+                return -1;
+            }
+        }
+
+        // The list was changed behind the index's back
+        loanPositions = new HashMap<>(Math.max(16, borrowedBooks.size() * 2));
+        for (int i = 0; i < borrowedBooks.size(); i++) {
+            Book borrowed = borrowedBooks.get(i);
+            if (borrowed != null) {
+                loanPositions.put(borrowed.getIdentifier(), i);
+            }
+        }
+        Integer position = loanPositions.get(book.getIdentifier());
+        return position != null && borrowedBooks.get(position) == book ? position : -1;
     }
 
     /**
@@ -270,58 +510,91 @@ public class Member {
      * Formats the table for improved readability using ANSI escape codes for text styling.
      */
     public void displayDetails() {
-        System.out.println("-".repeat(165));
-        System.out.printf("|  \033[1mMember:\033[0m %-56s\033[1mId:\033[0m %-56s", name, memberId);
-        System.out.print(" ".repeat(37));
-        System.out.println("|");
-        System.out.print("|  \033[1mBorrowed Books:\033[0m");
-        System.out.print(" ".repeat(146));
-        System.out.println("|");
-        System.out.println("-".repeat(165));
-        System.out.printf("| %-45s| %-60s| %-46s| %-22s| %-21s|\n",
-                "\033[1m" + "Id" + "\033[0m",
-                "\033[1m" + "Title" + "\033[0m",
-                "\033[1m" + "Author" + "\033[0m",
-                "\033[1m" + "ISBN" + "\033[0m",
-                "\033[1m" + "Availability" + "\033[0m");
+        displayDetails(System.out, true, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Writes the details of the member and one page of the list of borrowed books to the given output.
+     * <p>
+     * The page is copied under the member's monitor and rendered after releasing it, so checkouts and
+     * returns of the member never wait for a slow output.
+     *
+     * @param out The destination of the table. Must be non-null.
+     * @param ansi True to render bold labels and headers with ANSI escape codes, false for plain text.
+     * @param offset The number of borrowed books to skip. Must be non-negative.
+     * @param limit The maximum number of borrowed books to write. Must be non-negative.
+     * @throws IllegalArgumentException If the output is null, or the offset or limit is negative.
+     * @throws java.io.UncheckedIOException If the output fails to accept the table.
+     */
+    public void displayDetails(Appendable out, boolean ansi, int offset, int limit) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Offset cannot be negative.");
+        }
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit cannot be negative.");
+        }
+
+        Book[] page;
+        synchronized (this) {
+            int end = (int) Math.min(borrowedBooks.size(), (long) offset + limit);
+            page = borrowedBooks.subList(Math.min(offset, end), end).toArray(new Book[0]);
+        }
+
+        TableRenderer table = new TableRenderer(out, ansi, Book.TABLE_COLUMN_WIDTHS);
+        table.rule();
+        table.beginCaption();
+        table.captionField("Member:", name, 56);
+        table.captionField("Id:", getMemberId(), 56);
+        table.endCaption();
+        table.caption("Borrowed Books:");
+        table.rule();
+        Book.renderTableHeader(table);
 
         // Print table rows
-        for (Book book : borrowedBooks) {
-            System.out.printf("| %-37s| %-52s| %-38s| %-14s| %-13s|\n",
-                    book.getId(),
-                    book.getTitle(),
-                    book.getAuthor(),
-                    book.getISBN(),
-                    book.getAvailability());
+        for (Book book : page) {
+            book.renderTableRow(table);
         }
-        System.out.println("-".repeat(165));
+        table.rule();
+        table.flush();
     }
 
-    public static void isValidName(String name) {
+    /**
+     * Renders the header row of a member table, naming the columns in {@link #TABLE_COLUMN_WIDTHS}.
+     *
+     * @param table The renderer of the table, laid out with {@link #TABLE_COLUMN_WIDTHS}.
+     */
+    static void renderTableHeader(TableRenderer table) {
+        table.header("ID", "Name", "Borrowing Limit");
+    }
 
-        String tmpName = name.trim();
+    /**
+     * Renders the member as a row of a member table.
+     *
+     * @param table The renderer of the table, laid out with {@link #TABLE_COLUMN_WIDTHS}.
+     */
+    void renderTableRow(TableRenderer table) {
+        table.row(getMemberId(), getName(), getBorrowingLimit());
+    }
 
-        if (tmpName.isEmpty()) {
-            throw new IllegalArgumentException("Name cannot be null or empty.");
-        }
-        if (tmpName.length() < 2) {
-            throw new IllegalArgumentException("Name must be at least 2 characters long.");
-        }
-        if (tmpName.length() > 50) {
-            throw new IllegalArgumentException("Name cannot be longer than 50 characters.");
-        }
-        if (!tmpName.matches("[a-zA-Z\\s]+")) {
-            throw new IllegalArgumentException("Name can only contain letters and spaces.");
-        }
-        if (!tmpName.contains(" ")) {
-            throw new IllegalArgumentException("Name must include at least a first and last name.");
-        }
+    public static void isValidName(String name) {
+        FieldValidator.validateName(name);
     }
 
     public static void isValidMemberId(String memberId) {
+        parseMemberId(memberId);
+    }
+
+    /**
+     * Parses a member ID into its compact form, validating that it follows the UUID format.
+     *
+     * @param memberId The member ID to parse.
+     * @return The parsed member ID.
+     * @throws IllegalArgumentException If the member ID does not follow the UUID format.
+     */
+    private static Identifier parseMemberId(String memberId) {
         try {
             // Validate the member ID by attempting to parse it as a UUID.
-            UUID.fromString(memberId);
+            return Identifier.fromString(memberId);
         } catch (IllegalArgumentException e) {
             throw new IllegalArgumentException("Invalid Member ID. It must follow the UUID format.");
         }
@@ -360,23 +633,56 @@ public class Member {
     }
 
     /**
-     * Generates a JSON-like string representation of the Member object.
+     * Retrieves the type tag identifying this kind of member in JSON documents.
+     *
+     * @return The type tag {@code "member"}.
+     */
+    String jsonType() {
+        return "member";
+    }
+
+    /**
+     * Writes the attributes of the member as members of the JSON object currently being written.
+     * <p>
+     * When loans are given, the borrowed books are the books of those loans, written as references
+     * to their IDs in the catalog of the library that made them. Otherwise the member's own borrowed
+     * books are written in full.
+     *
+     * @param json The writer positioned inside the member's JSON object.
+     * @param loans The loans of the member from a snapshot of its library, or {@code null} to write every book in full.
+     * @throws IOException If the writer fails to accept the output.
+     */
+    void writeJsonFields(JsonWriter json, List<Loan> loans) throws IOException {
+        json.name("memberId").value(getMemberId());
+        json.name("name").value(name);
+        json.name("borrowingLimit").value(getBorrowingLimit());
+        json.name("borrowedBooks").beginArray();
+        if (loans != null) {
+            for (Loan loan : loans) {
+                json.value(loan.getBookIdentifier().toString());
+            }
+        } else {
+            synchronized (this) {
+                for (Book book : borrowedBooks) {
+                    LibraryJson.writeBook(json, book);
+                }
+            }
+        }
+        json.endArray();
+    }
+
+    /**
+     * Generates a JSON representation of the Member object.
      * <p>
      * The string includes the following details:
-     * - Member's name
-     * - Member's ID
+     * - Member's type, ID and name
      * - Member's borrowing limit
-     * - List of borrowed books
+     * - List of borrowed books, each written in full
      *
-     * @return A formatted string representation of the Member object.
+     * @return A JSON representation of the Member object.
      */
     @Override
     public String toString() {
-        return "{\n" +
-                "  \"memberId\": " + memberId + ",\n" +
-                "  \"name\": \"" + name + "\",\n" +
-                "  \"borrowingLimit\": " + borrowingLimit + ",\n" +
-                "  \"borrowedBooks\": " + borrowedBooks + "\n" +
-                "}";
+        return LibraryJson.toJson(this);
     }
 }
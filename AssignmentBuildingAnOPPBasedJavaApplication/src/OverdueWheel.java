@@ -0,0 +1,264 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Finds the loans that have just become overdue, using hierarchical timing wheels.
+ * <p>
+ * Time is divided into one-minute ticks. A wheel has {@value #LEVELS} levels of {@value #SLOTS}
+ * slots: a slot of the first level holds the loans due in one tick, a slot of the next level the
+ * loans due in {@value #SLOTS} ticks, and so on, so the levels together cover about 32 years. As
+ * a wheel advances, the loans of a higher-level slot move down a level when their range comes up,
+ * and the loans of the current first-level slot are reported. A loan therefore moves at most once
+ * per level: scheduling, cancelling and reporting a loan cost amortized constant time whatever the
+ * number of loans, and advancing never looks at loans that are not yet due.
+ * <p>
+ * Concurrency follows the library's checkout locking: there is one wheel per lock stripe, holding
+ * the loans of the books of that stripe, and a wheel is only used under its stripe. Loans are
+ * scheduled and cancelled by the checkouts and returns that already hold the stripe, so tracking
+ * due dates adds no lock and no contention to them. Within a wheel, loans are keyed by identity:
+ * the book IDs of a stripe all hash alike, and would crowd a few buckets of a hash table.
+ * <p>
+ * A wheel starts at the current tick of the library's clock, not at the checkout time of its first
+ * loan: a loan restored from long ago would otherwise make the first advance step through every
+ * tick since, and a loan checked out in the future would leave earlier due dates unreported.
+ */
+final class OverdueWheel {
+
+    /**
+     * Length of a tick, in milliseconds.
+     */
+    private static final long TICK_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * Number of bits of a tick number consumed by each level.
+     */
+    private static final int SLOT_BITS = 6;
+
+    /**
+     * Number of slots per level.
+     */
+    private static final int SLOTS = 1 << SLOT_BITS;
+
+    /**
+     * Number of levels.
+     */
+    private static final int LEVELS = 4;
+
+    /**
+     * The lock stripes the wheels are aligned on.
+     */
+    private final LockStripes stripes;
+
+    /**
+     * The wheel of each stripe, created the first time a loan of the stripe is scheduled.
+     */
+    private final Wheel[] wheels;
+
+    /**
+     * The library's clock, in milliseconds since the epoch, read when a wheel is created.
+     */
+    private final LongSupplier clock;
+
+    /**
+     * Constructs empty wheels, one per lock stripe.
+     *
+     * @param stripes The lock stripes guarding the books whose loans are scheduled.
+     * @param clock The library's clock, in milliseconds since the epoch.
+     */
+    OverdueWheel(LockStripes stripes, LongSupplier clock) {
+        this.stripes = stripes;
+        this.wheels = new Wheel[stripes.allStripes().length];
+        this.clock = clock;
+    }
+
+    /**
+     * Schedules a loan to be reported once it is due.
+     * <p>
+     * The caller must hold the lock stripe of the book.
+     *
+     * @param loan The loan.
+     */
+    void schedule(Loan loan) {
+        int stripe = stripes.stripeOf(loan.getBookIdentifier());
+        Wheel wheel = wheels[stripe];
+        if (wheel == null) {
+            wheel = new Wheel(Math.floorDiv(clock.getAsLong(), TICK_MILLIS));
+            wheels[stripe] = wheel;
+        }
+        wheel.place(loan);
+    }
+
+    /**
+     * Cancels a scheduled loan. Does nothing if the loan is not scheduled.
+     * <p>
+     * The caller must hold the lock stripe of the book.
+     *
+     * @param loan The loan.
+     */
+    void cancel(Loan loan) {
+        Wheel wheel = wheels[stripes.stripeOf(loan.getBookIdentifier())];
+        if (wheel != null) {
+            wheel.cancel(loan);
+        }
+    }
+
+    /**
+     * Advances the wheel of a stripe to a point in time, removing and reporting every loan that
+     * became due since it last advanced.
+     * <p>
+     * The caller must hold the lock stripe.
+     *
+     * @param stripe The stripe.
+     * @param now The time to advance to, in milliseconds since the epoch.
+     * @return The loans due at or before {@code now}, tick by tick.
+     */
+    ArrayList<Loan> advance(int stripe, long now) {
+        Wheel wheel = wheels[stripe];
+        return wheel == null ? new ArrayList<>() : wheel.advance(now);
+    }
+
+    /**
+     * The timing wheel of one stripe.
+     */
+    private static final class Wheel {
+
+        /**
+         * The loans of each slot, level by level; a slot is {@code null} while empty.
+         */
+        private final ArrayList<HashSet<Loan>> slots = new ArrayList<>(LEVELS * SLOTS);
+
+        /**
+         * The slot of each scheduled loan.
+         */
+        private final HashMap<Loan, Integer> slotOfLoan = new HashMap<>();
+
+        /**
+         * The next tick to process.
+         */
+        private long currentTick;
+
+        /**
+         * Constructs an empty wheel.
+         *
+         * @param currentTick The first tick to process.
+         */
+        Wheel(long currentTick) {
+            this.currentTick = currentTick;
+            for (int i = 0; i < LEVELS * SLOTS; i++) {
+                slots.add(null);
+            }
+        }
+
+        /**
+         * Places a loan in the slot covering its due tick.
+         * <p>
+         * A loan is due on the first tick that starts after its due time, and never earlier than the
+         * next tick to process.
+         *
+         * @param loan The loan.
+         */
+        void place(Loan loan) {
+            long dueTick = Math.max(Math.floorDiv(loan.getDueMillis(), TICK_MILLIS) + 1, currentTick);
+            long delta = dueTick - currentTick;
+            int level = 0;
+            while (level < LEVELS - 1 && delta >= 1L << ((level + 1) * SLOT_BITS)) {
+                level++;
+            }
+            int index = slotIndex(level, dueTick);
+            HashSet<Loan> slot = slots.get(index);
+            if (slot == null) {
+                slot = new HashSet<>();
+                slots.set(index, slot);
+            }
+            slot.add(loan);
+            slotOfLoan.put(loan, index);
+        }
+
+        /**
+         * Removes a loan, if it is scheduled.
+         *
+         * @param loan The loan.
+         */
+        void cancel(Loan loan) {
+            Integer index = slotOfLoan.remove(loan);
+            if (index != null) {
+                HashSet<Loan> slot = slots.get(index);
+                slot.remove(loan);
+                if (slot.isEmpty()) {
+                    slots.set(index, null);
+                }
+            }
+        }
+
+        /**
+         * Advances to a point in time, removing and reporting the loans that became due.
+         *
+         * @param now The time to advance to, in milliseconds since the epoch.
+         * @return The loans due at or before {@code now}.
+         */
+        ArrayList<Loan> advance(long now) {
+            ArrayList<Loan> due = new ArrayList<>();
+            long nowTick = Math.floorDiv(now, TICK_MILLIS);
+            while (currentTick <= nowTick) {
+                if (slotOfLoan.isEmpty()) {
+                    currentTick = nowTick + 1; // Nothing to move or report on the ticks in between
+                    break;
+                }
+                for (int level = LEVELS - 1; level > 0; level--) {
+                    if ((currentTick & ((1L << (level * SLOT_BITS)) - 1)) == 0) {
+                        HashSet<Loan> cascaded = take(level, currentTick);
+                        if (cascaded != null) {
+                            for (Loan loan : cascaded) {
+                                place(loan);
+                            }
+                        }
+                    }
+                }
+                HashSet<Loan> expiring = take(0, currentTick);
+                currentTick++;
+                if (expiring != null) {
+                    for (Loan loan : expiring) {
+                        if (loan.getDueMillis() <= now) {
+                            due.add(loan);
+                        } else {
+                            place(loan); // Only reachable when the clock went back
+                        }
+                    }
+                }
+            }
+            return due;
+        }
+
+        /**
+         * Empties the slot of a level covering a tick.
+         *
+         * @param level The level.
+         * @param tick The tick.
+         * @return The loans of the slot, or {@code null} if it was empty.
+         */
+        private HashSet<Loan> take(int level, long tick) {
+            int index = slotIndex(level, tick);
+            HashSet<Loan> slot = slots.set(index, null);
+            if (slot != null) {
+                for (Loan loan : slot) {
+                    slotOfLoan.remove(loan);
+                }
+            }
+            return slot;
+        }
+
+        /**
+         * Computes the index of the slot of a level covering a tick.
+         *
+         * @param level The level.
+         * @param tick The tick.
+         * @return The index in {@code slots}.
+         */
+        private static int slotIndex(int level, long tick) {
+            return level * SLOTS + (int) ((tick >>> (level * SLOT_BITS)) & (SLOTS - 1));
+        }
+    }
+}
@@ -0,0 +1,340 @@
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * An immutable hash map that is updated by sharing structure with the map it updates.
+ * <p>
+ * Entries are stored in a hash array mapped trie: each node covers five bits of the key hashes and
+ * holds, for each value of those bits in use, either an entry or a child node, located through a
+ * 32-bit occupancy bitmap. Adding or removing an entry copies only the nodes on the path to it,
+ * about log<sub>32</sub>(n) small arrays, so every earlier version stays valid and unchanged while
+ * lookups take a handful of steps. Keys must not be {@code null}; versions can be shared between
+ * threads freely.
+ *
+ * @param <K> The type of the keys.
+ * @param <V> The type of the values.
+ */
+final class PersistentMap<K, V> {
+
+    /**
+     * Number of hash bits consumed by each level of the trie.
+     */
+    private static final int BITS = 5;
+
+    /**
+     * The map without entries.
+     */
+    private static final PersistentMap<?, ?> EMPTY = new PersistentMap<>(BitmapNode.EMPTY, 0);
+
+    /**
+     * Root of the trie.
+     */
+    private final Node root;
+
+    /**
+     * Number of entries.
+     */
+    private final int size;
+
+    private PersistentMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Retrieves the map without entries.
+     *
+     * @param <K> The type of the keys.
+     * @param <V> The type of the values.
+     * @return The empty map.
+     */
+    @SuppressWarnings("unchecked")
+    static <K, V> PersistentMap<K, V> empty() {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+
+    /**
+     * Retrieves the number of entries.
+     *
+     * @return The size of the map.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Retrieves the value of a key.
+     *
+     * @param key The key.
+     * @return The value of the key, or {@code null} if the map has no entry for it.
+     */
+    @SuppressWarnings("unchecked")
+    V get(Object key) {
+        return (V) root.get(0, key.hashCode(), key);
+    }
+
+    /**
+     * Builds the map with a key set to a value.
+     *
+     * @param key The key.
+     * @param value The value.
+     * @return The new map; this one is unchanged. This map itself if the key already had this value.
+     */
+    PersistentMap<K, V> put(K key, V value) {
+        boolean[] added = new boolean[1];
+        Node newRoot = root.put(0, key.hashCode(), key, value, added);
+        return newRoot == root ? this : new PersistentMap<>(newRoot, added[0] ? size + 1 : size);
+    }
+
+    /**
+     * Builds the map without the entry of a key.
+     *
+     * @param key The key.
+     * @return The new map; this one is unchanged. This map itself if it has no entry for the key.
+     */
+    PersistentMap<K, V> remove(Object key) {
+        Node newRoot = root.remove(0, key.hashCode(), key);
+        if (newRoot == root) {
+            return this;
+        }
+        return new PersistentMap<>(newRoot == null ? BitmapNode.EMPTY : newRoot, size - 1);
+    }
+
+    /**
+     * Performs an action for every value, in an order fixed by the hashes of the keys.
+     *
+     * @param action The action.
+     */
+    @SuppressWarnings("unchecked")
+    void forEachValue(Consumer<? super V> action) {
+        root.forEachValue((Consumer<Object>) action);
+    }
+
+    /**
+     * A node of the trie.
+     */
+    private abstract static class Node {
+
+        abstract Object get(int shift, int hash, Object key);
+
+        /**
+         * Builds the node with a key set to a value.
+         *
+         * @return The new node, or this node if nothing changed.
+         */
+        abstract Node put(int shift, int hash, Object key, Object value, boolean[] added);
+
+        /**
+         * Builds the node without the entry of a key.
+         *
+         * @return The new node, this node if it has no entry for the key, or {@code null} if the node is left empty.
+         */
+        abstract Node remove(int shift, int hash, Object key);
+
+        abstract void forEachValue(Consumer<Object> action);
+    }
+
+    /**
+     * A node holding up to 32 entries or children, one per value of the five hash bits it covers.
+     * <p>
+     * {@code array} holds a pair of slots for each bit set in {@code bitmap}, in bit order: a key and
+     * its value, or {@code null} and a child node.
+     */
+    private static final class BitmapNode extends Node {
+        static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        private final int bitmap;
+        private final Object[] array;
+
+        BitmapNode(int bitmap, Object[] array) {
+            this.bitmap = bitmap;
+            this.array = array;
+        }
+
+        @Override
+        Object get(int shift, int hash, Object key) {
+            int bit = bitOf(shift, hash);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            int index = indexOf(bit);
+            Object keyOrNull = array[index];
+            if (keyOrNull == null) {
+                return ((Node) array[index + 1]).get(shift + BITS, hash, key);
+            }
+            return key.equals(keyOrNull) ? array[index + 1] : null;
+        }
+
+        @Override
+        Node put(int shift, int hash, Object key, Object value, boolean[] added) {
+            int bit = bitOf(shift, hash);
+            int index = indexOf(bit);
+            if ((bitmap & bit) == 0) {
+                Object[] newArray = new Object[array.length + 2];
+                System.arraycopy(array, 0, newArray, 0, index);
+                newArray[index] = key;
+                newArray[index + 1] = value;
+                System.arraycopy(array, index, newArray, index + 2, array.length - index);
+                added[0] = true;
+                return new BitmapNode(bitmap | bit, newArray);
+            }
+            Object keyOrNull = array[index];
+            Object valueOrNode = array[index + 1];
+            if (keyOrNull == null) {
+                Node child = (Node) valueOrNode;
+                Node newChild = child.put(shift + BITS, hash, key, value, added);
+                return newChild == child ? this : with(index + 1, newChild);
+            }
+            if (key.equals(keyOrNull)) {
+                return valueOrNode == value ? this : with(index + 1, value);
+            }
+
+            // Two keys share these hash bits: they move down to a child node
+            added[0] = true;
+            Node child = pair(shift + BITS, keyOrNull, valueOrNode, hash, key, value);
+            Object[] newArray = array.clone();
+            newArray[index] = null;
+            newArray[index + 1] = child;
+            return new BitmapNode(bitmap, newArray);
+        }
+
+        @Override
+        Node remove(int shift, int hash, Object key) {
+            int bit = bitOf(shift, hash);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int index = indexOf(bit);
+            Object keyOrNull = array[index];
+            if (keyOrNull == null) {
+                Node child = (Node) array[index + 1];
+                Node newChild = child.remove(shift + BITS, hash, key);
+                if (newChild == child) {
+                    return this;
+                }
+                if (newChild != null) {
+                    return with(index + 1, newChild);
+                }
+            } else if (!key.equals(keyOrNull)) {
+                return this;
+            }
+            if (bitmap == bit) {
+                return null;
+            }
+            Object[] newArray = new Object[array.length - 2];
+            System.arraycopy(array, 0, newArray, 0, index);
+            System.arraycopy(array, index + 2, newArray, index, newArray.length - index);
+            return new BitmapNode(bitmap ^ bit, newArray);
+        }
+
+        @Override
+        void forEachValue(Consumer<Object> action) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (array[i] == null) {
+                    ((Node) array[i + 1]).forEachValue(action);
+                } else {
+                    action.accept(array[i + 1]);
+                }
+            }
+        }
+
+        private Node with(int index, Object slot) {
+            Object[] newArray = array.clone();
+            newArray[index] = slot;
+            return new BitmapNode(bitmap, newArray);
+        }
+
+        private int indexOf(int bit) {
+            return 2 * Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        private static int bitOf(int shift, int hash) {
+            return 1 << ((hash >>> shift) & 31);
+        }
+
+        /**
+         * Builds a node holding two entries whose hashes agree on the bits covered above it.
+         */
+        private static Node pair(int shift, Object key1, Object value1, int hash2, Object key2, Object value2) {
+            int hash1 = key1.hashCode();
+            if (hash1 == hash2) {
+                return new CollisionNode(hash1, new Object[] {key1, value1, key2, value2});
+            }
+            boolean[] added = new boolean[1];
+            return EMPTY.put(shift, hash1, key1, value1, added).put(shift, hash2, key2, value2, added);
+        }
+    }
+
+    /**
+     * A node holding the entries of keys with the same full hash.
+     */
+    private static final class CollisionNode extends Node {
+        private final int hash;
+        private final Object[] array;
+
+        CollisionNode(int hash, Object[] array) {
+            this.hash = hash;
+            this.array = array;
+        }
+
+        @Override
+        Object get(int shift, int hash, Object key) {
+            int index = indexOf(key);
+            return index < 0 ? null : array[index + 1];
+        }
+
+        @Override
+        Node put(int shift, int hash, Object key, Object value, boolean[] added) {
+            if (hash != this.hash) {
+                // Keys of other hashes may share the bits covered so far: nest this node one level down
+                Node parent = new BitmapNode(BitmapNode.bitOf(shift, this.hash), new Object[] {null, this});
+                return parent.put(shift, hash, key, value, added);
+            }
+            int index = indexOf(key);
+            if (index >= 0) {
+                if (array[index + 1] == value) {
+                    return this;
+                }
+                Object[] newArray = array.clone();
+                newArray[index + 1] = value;
+                return new CollisionNode(hash, newArray);
+            }
+            Object[] newArray = Arrays.copyOf(array, array.length + 2);
+            newArray[array.length] = key;
+            newArray[array.length + 1] = value;
+            added[0] = true;
+            return new CollisionNode(hash, newArray);
+        }
+
+        @Override
+        Node remove(int shift, int hash, Object key) {
+            int index = indexOf(key);
+            if (index < 0) {
+                return this;
+            }
+            if (array.length == 2) {
+                return null;
+            }
+            Object[] newArray = new Object[array.length - 2];
+            System.arraycopy(array, 0, newArray, 0, index);
+            System.arraycopy(array, index + 2, newArray, index, newArray.length - index);
+            return new CollisionNode(hash, newArray);
+        }
+
+        @Override
+        void forEachValue(Consumer<Object> action) {
+            for (int i = 1; i < array.length; i += 2) {
+                action.accept(array[i]);
+            }
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (key.equals(array[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * An immutable list that is extended by sharing structure with the list it extends.
+ * <p>
+ * Elements are stored in a tree of 32-element arrays, plus a tail array holding the last elements.
+ * Appending copies at most the tail and one path of the tree, so a list is extended in amortized
+ * constant time while every earlier version stays valid and unchanged; reading an element takes a
+ * handful of array lookups whatever the size. Versions can be shared between threads freely.
+ *
+ * @param <E> The type of the elements.
+ */
+final class PersistentVector<E> {
+
+    /**
+     * Number of bits of an index consumed by each level of the tree.
+     */
+    private static final int BITS = 5;
+
+    /**
+     * Number of elements or children per array.
+     */
+    private static final int WIDTH = 1 << BITS;
+
+    /**
+     * Mask selecting the index within an array.
+     */
+    private static final int MASK = WIDTH - 1;
+
+    /**
+     * The list without elements.
+     */
+    private static final PersistentVector<?> EMPTY = new PersistentVector<>(0, BITS, new Object[0], new Object[0]);
+
+    /**
+     * Number of elements.
+     */
+    private final int size;
+
+    /**
+     * Number of index bits below the root of the tree.
+     */
+    private final int shift;
+
+    /**
+     * Root of the tree holding every element before the tail; its arrays are only as long as needed.
+     */
+    private final Object[] root;
+
+    /**
+     * The last elements, between 1 and 32 of them unless the list is empty.
+     */
+    private final Object[] tail;
+
+    private PersistentVector(int size, int shift, Object[] root, Object[] tail) {
+        this.size = size;
+        this.shift = shift;
+        this.root = root;
+        this.tail = tail;
+    }
+
+    /**
+     * Retrieves the list without elements.
+     *
+     * @param <E> The type of the elements.
+     * @return The empty list.
+     */
+    @SuppressWarnings("unchecked")
+    static <E> PersistentVector<E> empty() {
+        return (PersistentVector<E>) EMPTY;
+    }
+
+    /**
+     * Retrieves the number of elements.
+     *
+     * @return The size of the list.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Retrieves the element at a position.
+     *
+     * @param index The position of the element.
+     * @return The element.
+     * @throws IndexOutOfBoundsException If the position is negative or not less than the size.
+     */
+    @SuppressWarnings("unchecked")
+    E get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        if (index >= tailOffset()) {
+            return (E) tail[index & MASK];
+        }
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Object[]) node[(index >>> level) & MASK];
+        }
+        return (E) node[index & MASK];
+    }
+
+    /**
+     * Builds the list extended by one element.
+     *
+     * @param element The element to append.
+     * @return The new list; this one is unchanged.
+     */
+    PersistentVector<E> append(E element) {
+        if (size - tailOffset() < WIDTH) {
+            Object[] newTail = Arrays.copyOf(tail, tail.length + 1);
+            newTail[tail.length] = element;
+            return new PersistentVector<>(size + 1, shift, root, newTail);
+        }
+
+        // The tail is full: it moves into the tree, growing a level if the tree is full as well
+        Object[] newRoot;
+        int newShift = shift;
+        if ((size >>> BITS) > (1 << shift)) {
+            newRoot = new Object[] {root, newPath(shift, tail)};
+            newShift += BITS;
+        } else {
+            newRoot = pushTail(shift, root);
+        }
+        return new PersistentVector<>(size + 1, newShift, newRoot, new Object[] {element});
+    }
+
+    /**
+     * Builds the list extended by several elements.
+     *
+     * @param elements The elements to append, in order.
+     * @return The new list; this one is unchanged.
+     */
+    PersistentVector<E> appendAll(List<? extends E> elements) {
+        PersistentVector<E> vector = this;
+        for (E element : elements) {
+            vector = vector.append(element);
+        }
+        return vector;
+    }
+
+    /**
+     * Provides a read-only view of the list.
+     *
+     * @return A list reading this version; it never changes.
+     */
+    List<E> asList() {
+        return new View<>(this);
+    }
+
+    /**
+     * Computes the position of the first element of the tail.
+     *
+     * @return The number of elements held by the tree.
+     */
+    private int tailOffset() {
+        return size < WIDTH ? 0 : ((size - 1) >>> BITS) << BITS;
+    }
+
+    /**
+     * Copies the path of the tree leading to the first free leaf, with the tail as that leaf.
+     *
+     * @param level The number of index bits below the node.
+     * @param parent The node on the path.
+     * @return The copied node.
+     */
+    private Object[] pushTail(int level, Object[] parent) {
+        int child = ((size - 1) >>> level) & MASK;
+        Object[] node = Arrays.copyOf(parent, child + 1);
+        if (level == BITS) {
+            node[child] = tail;
+        } else if (child < parent.length) {
+            node[child] = pushTail(level - BITS, (Object[]) parent[child]);
+        } else {
+            node[child] = newPath(level - BITS, tail);
+        }
+        return node;
+    }
+
+    /**
+     * Builds a path of single-child nodes down to a leaf.
+     *
+     * @param level The number of index bits below the top of the path.
+     * @param leaf The leaf at the bottom of the path.
+     * @return The top of the path.
+     */
+    private static Object[] newPath(int level, Object[] leaf) {
+        return level == 0 ? leaf : new Object[] {newPath(level - BITS, leaf)};
+    }
+
+    /**
+     * Read-only list view of one version.
+     */
+    private static final class View<E> extends AbstractList<E> implements RandomAccess {
+        private final PersistentVector<E> vector;
+
+        View(PersistentVector<E> vector) {
+            this.vector = vector;
+        }
+
+        @Override
+        public E get(int index) {
+            return vector.get(index);
+        }
+
+        @Override
+        public int size() {
+            return vector.size();
+        }
+    }
+}
@@ -1,3 +1,4 @@
+import java.time.Duration;
 import java.util.ArrayList;
 
 /**
@@ -12,6 +13,11 @@ public class PremiumMember extends Member {
      */
     private final int premiumLimit = 10;
 
+    /**
+     * The factor applied to the loan period of a book borrowed by a premium member.
+     */
+    private static final int PREMIUM_LOAN_PERIOD_FACTOR = 2;
+
     /**
      * Default constructor for PremiumMember.
      * Initializes the member and sets the borrowing limit to the premium limit.
@@ -72,6 +78,18 @@ public class PremiumMember extends Member {
         super.setBorrowingLimit(premiumLimit); // Override the borrowing limit
     }
 
+    /**
+     * Constructor for PremiumMember that restores a premium member from trusted data without validation.
+     *
+     * @param memberId The unique ID of the member.
+     * @param name The name of the member.
+     * @param borrowingLimit The borrowing limit of the member, at least the premium limit.
+     * @param borrowedBooks The list of books borrowed by the member.
+     */
+    PremiumMember(Identifier memberId, String name, int borrowingLimit, ArrayList<Book> borrowedBooks) {
+        super(memberId, name, borrowingLimit, borrowedBooks);
+    }
+
     /**
      * Retrieves the borrowing limit for the member.
      *
@@ -122,10 +140,11 @@ public class PremiumMember extends Member {
      * Allows the premium member to borrow a single book while enforcing borrowing limits.
      *
      * @param borrowedBook The book to be added to the borrowed books list.
-     * @throws IllegalArgumentException If the book is null or borrowing it exceeds the premium borrowing limit.
+     * @throws IllegalArgumentException If the book is null.
+     * @throws BorrowingLimitException If borrowing the book exceeds the premium borrowing limit.
      */
     @Override
-    public void borrowBook(Book borrowedBook) {
+    void borrowBook(Book borrowedBook) {
 
         // Ensures the provided borrowedBook is not null
         if (borrowedBook == null) {
@@ -134,10 +153,10 @@ public class PremiumMember extends Member {
 
         // Validate that the borrowing limit won't be exceeded
         if (super.getBorrowedBooks().size() + 1 > super.getBorrowingLimit()) {
-            throw new IllegalArgumentException("Borrowing limit exceeded: You need to return "
+            throw new BorrowingLimitException("Borrowing limit exceeded: You need to return "
                     + (super.getBorrowingLimit() - super.getBorrowedBooks().size()) + " book(s) before borrowing more books");
         }
-        super.getBorrowedBooks().add(borrowedBook);
+        addBorrowedBook(borrowedBook);
     }
 
 
@@ -148,10 +167,10 @@ public class PremiumMember extends Member {
      *                  Must not be null or contain null entries.
      * @throws IllegalArgumentException If the books list is null.
      * @throws IllegalArgumentException If the books list contains null entries.
-     * @throws IllegalArgumentException If borrowing these books exceeds the premium borrowing limit.
+     * @throws BorrowingLimitException If borrowing these books exceeds the premium borrowing limit.
      */
     @Override
-    public void borrowBooks(ArrayList<Book> booksList) {
+    void borrowBooks(ArrayList<Book> booksList) {
 
         // Ensures the provided borrowedBooks list is not null
         if (booksList == null) {
@@ -167,9 +186,30 @@ public class PremiumMember extends Member {
 
         // Validate that the borrowing limit won't be exceeded
         if (super.getBorrowedBooks().size() + booksList.size() > super.getBorrowingLimit()) {
-            throw new IllegalArgumentException("Borrowing limit exceeded: You need to return "
+            throw new BorrowingLimitException("Borrowing limit exceeded: You need to return "
                     + (super.getBorrowingLimit() - super.getBorrowedBooks().size()) + " book(s) before borrowing more books");
         }
-        super.getBorrowedBooks().addAll(booksList);
+        addBorrowedBooks(booksList);
+    }
+
+    /**
+     * Retrieves the time the premium member may keep a book before it is due back.
+     *
+     * @param book The borrowed book. Must be non-null.
+     * @return Twice the loan period of the book.
+     */
+    @Override
+    public Duration getLoanPeriod(Book book) {
+        return book.getLoanPeriod().multipliedBy(PREMIUM_LOAN_PERIOD_FACTOR);
+    }
+
+    /**
+     * Retrieves the type tag identifying premium members in JSON documents.
+     *
+     * @return The type tag {@code "premiumMember"}.
+     */
+    @Override
+    String jsonType() {
+        return "premiumMember";
     }
 }
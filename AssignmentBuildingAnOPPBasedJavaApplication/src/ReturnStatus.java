@@ -0,0 +1,23 @@
+/**
+ * Represents the outcome of returning a single book ID as part of a batch return.
+ * <p>
+ * Returned per requested ID by {@code Library.returnBooks()} so that callers can tell
+ * which books were taken back and why the others were not.
+ */
+public enum ReturnStatus {
+
+    /**
+     * The book was borrowed by the member and is now available again.
+     */
+    RETURNED,
+
+    /**
+     * No book with the requested ID exists in the library.
+     */
+    NOT_FOUND,
+
+    /**
+     * The book exists but is not currently borrowed by the member.
+     */
+    NOT_BORROWED
+}
@@ -0,0 +1,80 @@
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Represents one page of the books matching a catalog search, best matches first.
+ * <p>
+ * Results are returned by {@code Library.searchBooks()} together with the total number of matches,
+ * so callers can page through them without running the query to completion themselves.
+ */
+public final class SearchResults {
+
+    /**
+     * The books of the page, in rank order.
+     */
+    private final List<Book> books;
+
+    /**
+     * The number of books matching the query, across all pages.
+     */
+    private final int totalHits;
+
+    /**
+     * The number of ranked matches skipped before this page.
+     */
+    private final int offset;
+
+    /**
+     * Constructs a page of search results.
+     *
+     * @param books The books of the page, in rank order.
+     * @param totalHits The number of books matching the query, across all pages.
+     * @param offset The number of ranked matches skipped before this page.
+     */
+    SearchResults(List<Book> books, int totalHits, int offset) {
+        this.books = Collections.unmodifiableList(books);
+        this.totalHits = totalHits;
+        this.offset = offset;
+    }
+
+    /**
+     * Retrieves the books of the page.
+     *
+     * @return An unmodifiable list of the matching books, best matches first.
+     */
+    public List<Book> getBooks() {
+        return books;
+    }
+
+    /**
+     * Retrieves the number of books matching the query, across all pages.
+     *
+     * @return The total number of matches.
+     */
+    public int getTotalHits() {
+        return totalHits;
+    }
+
+    /**
+     * Retrieves the number of ranked matches skipped before this page.
+     *
+     * @return The offset of the page.
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Checks whether more matches follow this page.
+     *
+     * @return True if there are matches after this page, false otherwise.
+     */
+    public boolean hasMore() {
+        return offset + books.size() < totalHits;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchResults[" + books.size() + " of " + totalHits + " from " + offset + "]";
+    }
+}
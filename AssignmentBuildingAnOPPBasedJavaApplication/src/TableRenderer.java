@@ -0,0 +1,258 @@
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Renders bordered text tables to any {@code Appendable} through a large reusable buffer.
+ * <p>
+ * The renderer builds every line directly in an internal buffer instead of formatting each row with
+ * {@code printf}, and only hands text to the underlying destination once the buffer is full or when
+ * {@link #flush()} is called. Writing a large table therefore costs a handful of writes to the
+ * destination instead of one synchronized console write per row.
+ * <p>
+ * Key Features:
+ * - Fixed-width columns, padded on the right, separated by {@code "| "} and framed by horizontal rules.
+ * - ANSI mode renders captions and headers in bold; plain mode emits no escape codes, for piping to files.
+ * - One renderer can be reused for any number of rows; its buffer and column layout are kept between rows.
+ */
+public final class TableRenderer {
+
+    /**
+     * Number of buffered characters that triggers a write to the destination.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * ANSI escape code that starts bold text.
+     */
+    private static final String BOLD = "\033[1m";
+
+    /**
+     * ANSI escape code that resets text formatting.
+     */
+    private static final String RESET = "\033[0m";
+
+    /**
+     * Destination of the rendered text.
+     */
+    private final Appendable out;
+
+    /**
+     * True to render captions and headers in bold using ANSI escape codes, false for plain text.
+     */
+    private final boolean ansi;
+
+    /**
+     * Visible width of each column, excluding the separators.
+     */
+    private final int[] columnWidths;
+
+    /**
+     * Visible width of a full table line, including the borders.
+     */
+    private final int tableWidth;
+
+    /**
+     * Buffer holding rendered text that has not yet been written to the destination.
+     */
+    private final StringBuilder buffer = new StringBuilder(BUFFER_SIZE + 1024);
+
+    /**
+     * Position in the buffer where the current caption line started, used to measure its visible width.
+     */
+    private int captionStart;
+
+    /**
+     * Number of invisible ANSI characters written to the current caption line.
+     */
+    private int captionEscapes;
+
+    /**
+     * Constructs a table renderer.
+     *
+     * @param out The destination of the rendered text. Must be non-null.
+     * @param ansi True to render captions and headers in bold using ANSI escape codes, false for plain text.
+     * @param columnWidths The visible width of each column. Must contain at least one positive width.
+     * @throws IllegalArgumentException If the destination is null or the column widths are invalid.
+     */
+    public TableRenderer(Appendable out, boolean ansi, int... columnWidths) {
+        if (out == null) {
+            throw new IllegalArgumentException("Output cannot be null.");
+        }
+        if (columnWidths == null || columnWidths.length == 0) {
+            throw new IllegalArgumentException("A table must have at least one column.");
+        }
+        int width = 1;
+        for (int columnWidth : columnWidths) {
+            if (columnWidth <= 0) {
+                throw new IllegalArgumentException("Column widths must be positive.");
+            }
+            width += columnWidth + 2;
+        }
+        this.out = out;
+        this.ansi = ansi;
+        this.columnWidths = columnWidths.clone();
+        this.tableWidth = width;
+    }
+
+    /**
+     * Renders a horizontal rule spanning the full width of the table.
+     */
+    public void rule() {
+        repeat('-', tableWidth);
+        endLine();
+    }
+
+    /**
+     * Renders a caption line holding a single bold title, such as {@code "|  All Books   ...   |"}.
+     *
+     * @param title The title to render.
+     */
+    public void caption(String title) {
+        beginCaption();
+        appendBold(title);
+        endCaption();
+    }
+
+    /**
+     * Starts a caption line made of labelled fields. Must be followed by any number of
+     * {@link #captionField(String, Object, int)} calls and one {@link #endCaption()} call.
+     */
+    public void beginCaption() {
+        captionStart = buffer.length();
+        captionEscapes = 0;
+        buffer.append("|  ");
+    }
+
+    /**
+     * Renders a labelled field on the current caption line: a bold label, a space, and the value padded to a width.
+     *
+     * @param label The label of the field.
+     * @param value The value of the field.
+     * @param width The minimum visible width of the value.
+     */
+    public void captionField(String label, Object value, int width) {
+        appendBold(label);
+        buffer.append(' ');
+        appendPadded(String.valueOf(value), width);
+    }
+
+    /**
+     * Pads the current caption line to the full width of the table and closes it with a border.
+     */
+    public void endCaption() {
+        int visible = buffer.length() - captionStart - captionEscapes;
+        repeat(' ', tableWidth - 1 - visible);
+        buffer.append('|');
+        endLine();
+    }
+
+    /**
+     * Renders a header row with one bold name per column.
+     *
+     * @param names The column names. Must contain one name per column.
+     */
+    public void header(String... names) {
+        for (int i = 0; i < columnWidths.length; i++) {
+            buffer.append("| ");
+            appendBold(names[i]);
+            repeat(' ', columnWidths[i] - names[i].length());
+        }
+        buffer.append('|');
+        endLine();
+    }
+
+    /**
+     * Renders a data row with one value per column.
+     *
+     * @param values The cell values. Must contain one value per column.
+     */
+    public void row(Object... values) {
+        for (int i = 0; i < columnWidths.length; i++) {
+            buffer.append("| ");
+            appendPadded(String.valueOf(values[i]), columnWidths[i]);
+        }
+        buffer.append('|');
+        endLine();
+    }
+
+    /**
+     * Writes all buffered text to the destination and flushes it if it supports flushing.
+     *
+     * @throws UncheckedIOException If the destination fails to accept the text.
+     */
+    public void flush() {
+        drain();
+        if (out instanceof Flushable) {
+            try {
+                ((Flushable) out).flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Appends text in bold when rendering in ANSI mode, or as-is in plain mode.
+     *
+     * @param text The text to append.
+     */
+    private void appendBold(String text) {
+        if (ansi) {
+            buffer.append(BOLD).append(text).append(RESET);
+            captionEscapes += BOLD.length() + RESET.length();
+        } else {
+            buffer.append(text);
+        }
+    }
+
+    /**
+     * Appends text followed by enough spaces to reach the given visible width.
+     *
+     * @param text The text to append.
+     * @param width The minimum visible width.
+     */
+    private void appendPadded(String text, int width) {
+        buffer.append(text);
+        repeat(' ', width - text.length());
+    }
+
+    /**
+     * Appends a character a number of times; does nothing if the count is not positive.
+     *
+     * @param c The character to append.
+     * @param count The number of times to append it.
+     */
+    private void repeat(char c, int count) {
+        for (int i = 0; i < count; i++) {
+            buffer.append(c);
+        }
+    }
+
+    /**
+     * Ends the current line and writes the buffer to the destination once it is full.
+     */
+    private void endLine() {
+        buffer.append(System.lineSeparator());
+        if (buffer.length() >= BUFFER_SIZE) {
+            drain();
+        }
+    }
+
+    /**
+     * Writes all buffered text to the destination and clears the buffer.
+     *
+     * @throws UncheckedIOException If the destination fails to accept the text.
+     */
+    private void drain() {
+        if (buffer.length() == 0) {
+            return;
+        }
+        try {
+            out.append(buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.setLength(0);
+    }
+}
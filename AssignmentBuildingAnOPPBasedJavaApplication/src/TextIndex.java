@@ -0,0 +1,573 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index over the words of the titles and authors of a library's catalog.
+ * <p>
+ * Titles and authors are split into tokens of letters and digits and case-folded. Each field keeps a
+ * sorted map from token to the catalog positions of the books containing it, held as a sorted array of
+ * positions, so a term is found by one map lookup and a prefix by one range of the map.
+ * <p>
+ * Queries are made of whitespace-separated clauses, all of which must match:
+ * - {@code word} matches books with the token in their title or author.
+ * - {@code word*} matches books with a token starting with {@code word}.
+ * - {@code "some words"} matches books whose title or author holds the tokens next to each other, in order.
+ * <p>
+ * Matches are ranked by score: each clause adds {@link #TITLE_WEIGHT} if it matches the title and
+ * {@link #AUTHOR_WEIGHT} if it matches the author. Books with the same score come in catalog order.
+ * Evaluation starts from the clause with the fewest candidates and probes the others by binary search,
+ * so selective queries stay fast however large the catalog is.
+ * <p>
+ * The index is updated by the library when a book joins the catalog and by the book's title and
+ * author setters, and guarded by its own read-write lock.
+ */
+final class TextIndex {
+
+    /**
+     * Score added by a clause that matches the title of a book.
+     */
+    static final int TITLE_WEIGHT = 2;
+
+    /**
+     * Score added by a clause that matches the author of a book.
+     */
+    static final int AUTHOR_WEIGHT = 1;
+
+    /**
+     * Matches of a clause that matches nothing in a field. Never modified.
+     */
+    private static final Postings NO_HITS = new Postings();
+
+    /**
+     * Postings of the title tokens.
+     */
+    private final TreeMap<String, Postings> titleTerms = new TreeMap<>();
+
+    /**
+     * Postings of the author tokens.
+     */
+    private final TreeMap<String, Postings> authorTerms = new TreeMap<>();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Updates the index after the title or author of a book changed.
+     * <p>
+     * Only tokens that appear on one side are touched, so unchanged words cost nothing.
+     *
+     * @param position The catalog position of the book.
+     * @param oldTitle The title previously indexed, or {@code null} if the book was not indexed.
+     * @param title The current title.
+     * @param oldAuthor The author previously indexed, or {@code null} if the book was not indexed.
+     * @param author The current author.
+     */
+    void update(int position, String oldTitle, String title, String oldAuthor, String author) {
+        lock.writeLock().lock();
+        try {
+            update(titleTerms, position, oldTitle, title);
+            update(authorTerms, position, oldAuthor, author);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Updates the postings of one field.
+     *
+     * @param terms The postings of the field.
+     * @param position The catalog position of the book.
+     * @param oldText The text previously indexed, or {@code null}.
+     * @param text The current text.
+     */
+    private void update(TreeMap<String, Postings> terms, int position, String oldText, String text) {
+        if (oldText != null && oldText.equals(text)) {
+            return;
+        }
+        List<String> oldTokens = oldText == null ? List.of() : distinct(tokenize(oldText));
+        List<String> tokens = text == null ? List.of() : distinct(tokenize(text));
+        for (String token : oldTokens) {
+            if (!tokens.contains(token)) {
+                Postings postings = terms.get(token);
+                if (postings != null && postings.remove(position) && postings.size == 0) {
+                    terms.remove(token);
+                }
+            }
+        }
+        for (String token : tokens) {
+            if (!oldTokens.contains(token)) {
+                terms.computeIfAbsent(token, t -> new Postings()).add(position);
+            }
+        }
+    }
+
+    /**
+     * Finds the books matching a query, ranked and paged.
+     * <p>
+     * The caller must keep the catalog from changing structurally, by holding the library's read lock.
+     *
+     * @param query The query text.
+     * @param catalog The books of the catalog by position, used to verify phrases and to return results.
+     * @param offset The number of ranked matches to skip.
+     * @param limit The maximum number of matches to return.
+     * @return The requested page of matches and the total number of matches.
+     * @throws IllegalArgumentException If the query is null or holds no searchable word.
+     */
+    SearchResults search(String query, List<Book> catalog, int offset, int limit) {
+        List<Clause> clauses = parse(query);
+        lock.readLock().lock();
+        try {
+            // Resolve every clause to the positions it matches in each field
+            for (Clause clause : clauses) {
+                clause.resolve(this, catalog);
+            }
+            clauses.sort((a, b) -> Integer.compare(a.candidates(), b.candidates()));
+
+            // Score the candidates of the most selective clause against every other clause
+            Clause first = clauses.get(0);
+            int[] positions = new int[first.candidates()];
+            int[] scores = new int[positions.length];
+            int count = union(first.titleHits, first.authorHits, positions, scores);
+            for (int c = 1; c < clauses.size() && count > 0; c++) {
+                Clause clause = clauses.get(c);
+                Postings titleHits = clause.titleHits;
+                Postings authorHits = clause.authorHits;
+                int kept = 0;
+                int titleFrom = 0;
+                int authorFrom = 0;
+                for (int i = 0; i < count; i++) {
+                    int position = positions[i];
+                    int score = 0;
+                    titleFrom = seek(titleHits.positions, titleHits.size, titleFrom, position);
+                    if (titleFrom < titleHits.size && titleHits.positions[titleFrom] == position) {
+                        score += TITLE_WEIGHT;
+                    }
+                    authorFrom = seek(authorHits.positions, authorHits.size, authorFrom, position);
+                    if (authorFrom < authorHits.size && authorHits.positions[authorFrom] == position) {
+                        score += AUTHOR_WEIGHT;
+                    }
+                    if (score > 0) {
+                        positions[kept] = position;
+                        scores[kept] = scores[i] + score;
+                        kept++;
+                    }
+                }
+                count = kept;
+            }
+
+            return page(positions, scores, count, clauses.size() * (TITLE_WEIGHT + AUTHOR_WEIGHT), catalog, offset, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Picks a page of matches by descending score, then ascending catalog position, in linear time.
+     *
+     * @param positions The matching positions in ascending order.
+     * @param scores The score of each match.
+     * @param count The number of matches.
+     * @param maxScore The highest score a match can have.
+     * @param catalog The books of the catalog by position.
+     * @param offset The number of ranked matches to skip.
+     * @param limit The maximum number of matches to return.
+     * @return The page of matches.
+     */
+    private static SearchResults page(int[] positions, int[] scores, int count, int maxScore,
+                                      List<Book> catalog, int offset, int limit) {
+        int[] perScore = new int[maxScore + 1];
+        for (int i = 0; i < count; i++) {
+            perScore[scores[i]]++;
+        }
+
+        ArrayList<Book> books = new ArrayList<>(Math.max(0, Math.min(limit, count - offset)));
+        int skip = offset;
+        for (int score = maxScore; score > 0 && books.size() < limit; score--) {
+            if (skip >= perScore[score]) {
+                skip -= perScore[score];
+                continue;
+            }
+            for (int i = 0; i < count && books.size() < limit; i++) {
+                if (scores[i] == score) {
+                    if (skip > 0) {
+                        skip--;
+                    } else {
+                        books.add(catalog.get(positions[i]));
+                    }
+                }
+            }
+        }
+        return new SearchResults(books, count, offset);
+    }
+
+    /**
+     * Merges the title and author hits of a clause into one sorted list of positions with their scores.
+     *
+     * @param titleHits The positions matching in titles.
+     * @param authorHits The positions matching in authors.
+     * @param positions Receives the merged positions.
+     * @param scores Receives the score of each merged position.
+     * @return The number of merged positions.
+     */
+    private static int union(Postings titleHits, Postings authorHits, int[] positions, int[] scores) {
+        int t = 0;
+        int a = 0;
+        int count = 0;
+        while (t < titleHits.size || a < authorHits.size) {
+            int title = t < titleHits.size ? titleHits.positions[t] : Integer.MAX_VALUE;
+            int author = a < authorHits.size ? authorHits.positions[a] : Integer.MAX_VALUE;
+            if (title == author) {
+                positions[count] = title;
+                scores[count++] = TITLE_WEIGHT + AUTHOR_WEIGHT;
+                t++;
+                a++;
+            } else if (title < author) {
+                positions[count] = title;
+                scores[count++] = TITLE_WEIGHT;
+                t++;
+            } else {
+                positions[count] = author;
+                scores[count++] = AUTHOR_WEIGHT;
+                a++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Finds the first index at or after {@code from} whose value is not below {@code target}, by galloping.
+     *
+     * @param sorted An array whose first {@code length} values are sorted.
+     * @param length The number of values in use.
+     * @param from The index to start from.
+     * @param target The value to look for.
+     * @return The index found, or {@code length} if every remaining value is below the target.
+     */
+    private static int seek(int[] sorted, int length, int from, int target) {
+        int step = 1;
+        int low = from;
+        int high = from;
+        while (high < length && sorted[high] < target) {
+            low = high + 1;
+            high += step;
+            step <<= 1;
+        }
+        high = Math.min(high, length);
+        int index = Arrays.binarySearch(sorted, low, high, target);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * Intersects postings.
+     *
+     * @param lists The postings to intersect; none may be empty.
+     * @return New postings of the positions present in every list.
+     */
+    private static Postings intersect(List<Postings> lists) {
+        lists.sort((a, b) -> Integer.compare(a.size, b.size));
+        int[] result = Arrays.copyOf(lists.get(0).positions, lists.get(0).size);
+        int count = result.length;
+        for (int l = 1; l < lists.size() && count > 0; l++) {
+            Postings other = lists.get(l);
+            int kept = 0;
+            int from = 0;
+            for (int i = 0; i < count; i++) {
+                from = seek(other.positions, other.size, from, result[i]);
+                if (from < other.size && other.positions[from] == result[i]) {
+                    result[kept++] = result[i];
+                }
+            }
+            count = kept;
+        }
+        return new Postings(result, count);
+    }
+
+    /**
+     * Splits a text into case-folded tokens of letters and digits.
+     *
+     * @param text The text to split.
+     * @return The tokens in order of appearance.
+     */
+    static ArrayList<String> tokenize(String text) {
+        ArrayList<String> tokens = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                token.append(Character.toLowerCase(c));
+            } else if (token.length() > 0) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        if (token.length() > 0) {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+
+    /**
+     * Removes repeated tokens, keeping the first occurrence of each.
+     *
+     * @param tokens The tokens.
+     * @return The distinct tokens.
+     */
+    private static List<String> distinct(ArrayList<String> tokens) {
+        ArrayList<String> distinct = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            if (!distinct.contains(token)) {
+                distinct.add(token);
+            }
+        }
+        return distinct;
+    }
+
+    /**
+     * Checks whether a sequence of tokens appears, contiguous and in order, in a text.
+     *
+     * @param text The text to look in.
+     * @param phrase The tokens of the phrase.
+     * @return True if the text holds the phrase, false otherwise.
+     */
+    private static boolean containsPhrase(String text, List<String> phrase) {
+        ArrayList<String> tokens = tokenize(text);
+        for (int start = 0; start + phrase.size() <= tokens.size(); start++) {
+            if (tokens.subList(start, start + phrase.size()).equals(phrase)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parses a query into its clauses.
+     *
+     * @param query The query text.
+     * @return The clauses of the query.
+     * @throws IllegalArgumentException If the query is null or holds no searchable word.
+     */
+    private static List<Clause> parse(String query) {
+        if (query == null) {
+            throw new IllegalArgumentException("Search query cannot be null.");
+        }
+        ArrayList<Clause> clauses = new ArrayList<>();
+        int i = 0;
+        while (i < query.length()) {
+            char c = query.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '"') {
+                int end = query.indexOf('"', i + 1);
+                if (end < 0) {
+                    end = query.length();
+                }
+                addClause(clauses, tokenize(query.substring(i + 1, end)), false);
+                i = end + 1;
+            } else {
+                int end = i;
+                while (end < query.length() && !Character.isWhitespace(query.charAt(end)) && query.charAt(end) != '"') {
+                    end++;
+                }
+                String word = query.substring(i, end);
+                addClause(clauses, tokenize(word), word.endsWith("*"));
+                i = end;
+            }
+        }
+        if (clauses.isEmpty()) {
+            throw new IllegalArgumentException("Search query must contain at least one word.");
+        }
+        return clauses;
+    }
+
+    /**
+     * Adds the clause for a group of query tokens, if there is any token.
+     *
+     * @param clauses The clauses parsed so far.
+     * @param tokens The tokens of the group; a single token is a term, several form a phrase.
+     * @param prefix Whether the last token is a prefix.
+     */
+    private static void addClause(List<Clause> clauses, List<String> tokens, boolean prefix) {
+        if (!tokens.isEmpty()) {
+            clauses.add(new Clause(tokens, prefix && tokens.size() == 1));
+        }
+    }
+
+    /**
+     * A single query clause and, once resolved, the positions it matches in each field.
+     */
+    private static final class Clause {
+
+        private final List<String> tokens;
+        private final boolean prefix;
+        private Postings titleHits = NO_HITS;
+        private Postings authorHits = NO_HITS;
+
+        Clause(List<String> tokens, boolean prefix) {
+            this.tokens = tokens;
+            this.prefix = prefix;
+        }
+
+        /**
+         * Looks up the positions matched by the clause. The caller holds the index's read lock.
+         * <p>
+         * A term resolves to the index's own postings, read in place, so they must not be modified
+         * and are only valid until the read lock is released.
+         *
+         * @param index The index to look in.
+         * @param catalog The books of the catalog by position, used to verify phrases.
+         */
+        void resolve(TextIndex index, List<Book> catalog) {
+            titleHits = resolve(index.titleTerms, catalog, true);
+            authorHits = resolve(index.authorTerms, catalog, false);
+        }
+
+        private Postings resolve(TreeMap<String, Postings> terms, List<Book> catalog, boolean title) {
+            if (prefix) {
+                return merge(terms.subMap(tokens.get(0), tokens.get(0) + Character.MAX_VALUE));
+            }
+            if (tokens.size() == 1) {
+                Postings postings = terms.get(tokens.get(0));
+                return postings == null ? NO_HITS : postings;
+            }
+
+            // Phrase: books holding every token, then checked for the tokens being adjacent
+            ArrayList<Postings> lists = new ArrayList<>(tokens.size());
+            for (String token : tokens) {
+                Postings postings = terms.get(token);
+                if (postings == null) {
+                    return NO_HITS;
+                }
+                lists.add(postings);
+            }
+            Postings candidates = intersect(lists);
+            int count = 0;
+            for (int i = 0; i < candidates.size; i++) {
+                int position = candidates.positions[i];
+                Book book = catalog.get(position);
+                if (containsPhrase(title ? book.getTitle() : book.getAuthor(), tokens)) {
+                    candidates.positions[count++] = position;
+                }
+            }
+            candidates.size = count;
+            return candidates;
+        }
+
+        /**
+         * Merges the postings of every term in a range into one sorted array without duplicates.
+         *
+         * @param range The terms sharing the prefix.
+         * @return The positions of books holding any of the terms.
+         */
+        private static Postings merge(Map<String, Postings> range) {
+            if (range.isEmpty()) {
+                return NO_HITS;
+            }
+            if (range.size() == 1) {
+                return range.values().iterator().next();
+            }
+            int total = 0;
+            for (Postings postings : range.values()) {
+                total += postings.size;
+            }
+            int[] merged = new int[total];
+            int count = 0;
+            for (Postings postings : range.values()) {
+                System.arraycopy(postings.positions, 0, merged, count, postings.size);
+                count += postings.size;
+            }
+            Arrays.sort(merged);
+            int distinct = 0;
+            for (int i = 0; i < merged.length; i++) {
+                if (distinct == 0 || merged[distinct - 1] != merged[i]) {
+                    merged[distinct++] = merged[i];
+                }
+            }
+            return new Postings(merged, distinct);
+        }
+
+        /**
+         * Counts the positions this clause could contribute, used to pick the most selective clause.
+         *
+         * @return The number of title and author hits.
+         */
+        int candidates() {
+            return titleHits.size + authorHits.size;
+        }
+    }
+
+    /**
+     * Sorted, growable array of the catalog positions holding a token.
+     * <p>
+     * Only the first {@code size} entries are in use. Searches read them in place under the index's
+     * read lock, so the spare capacity is kept between changes rather than trimmed away; the storage
+     * is halved once a quarter of it is in use, so that it never grows and shrinks on every change.
+     */
+    private static final class Postings {
+
+        private int[] positions;
+        private int size;
+
+        /**
+         * Constructs empty postings.
+         */
+        Postings() {
+            this(new int[2], 0);
+        }
+
+        /**
+         * Constructs postings over the first positions of an array.
+         *
+         * @param positions The array holding the sorted positions.
+         * @param size The number of positions in use.
+         */
+        Postings(int[] positions, int size) {
+            this.positions = positions;
+            this.size = size;
+        }
+
+        /**
+         * Adds a position, appending in constant time when it is the highest so far.
+         *
+         * @param position The position to add.
+         */
+        void add(int position) {
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            if (size == 0 || positions[size - 1] < position) {
+                positions[size++] = position;
+                return;
+            }
+            int index = Arrays.binarySearch(positions, 0, size, position);
+            if (index >= 0) {
+                return;
+            }
+            index = -index - 1;
+            System.arraycopy(positions, index, positions, index + 1, size - index);
+            positions[index] = position;
+            size++;
+        }
+
+        /**
+         * Removes a position.
+         *
+         * @param position The position to remove.
+         * @return True if the position was present, false otherwise.
+         */
+        boolean remove(int position) {
+            int index = Arrays.binarySearch(positions, 0, size, position);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(positions, index + 1, positions, index, size - index - 1);
+            size--;
+            if (positions.length > 8 && size <= positions.length / 4) {
+                positions = Arrays.copyOf(positions, positions.length / 2);
+            }
+            return true;
+        }
+    }
+}
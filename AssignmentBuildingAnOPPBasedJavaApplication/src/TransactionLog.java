@@ -0,0 +1,835 @@
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Write-ahead transaction log that makes the state changes of a {@link Library} survive a crash.
+ * <p>
+ * Once a library is opened through a log, every state-changing library operation appends a record
+ * describing it while it still holds the locks of the operation, and only returns after the record
+ * has been forced to disk. Concurrent operations share that cost through group commit: whichever
+ * caller finds no flush in progress writes and forces every record appended so far in one go, while
+ * the others wait for it, so a single {@code fsync} acknowledges a whole batch of operations.
+ * <p>
+ * The log lives in a directory on local disk:
+ * - Segment files ({@code wal-<n>.log}) hold the records in order. A segment is closed and a new one
+ *   started once it grows past the segment size.
+ * - Snapshot files ({@code snapshot-<n>.bin}) hold a {@link BinarySnapshot} of the library taken
+ *   when segment {@code n} was started, so that segments before {@code n} are no longer needed.
+ * <p>
+ * Opening a log restores the latest snapshot and replays the segments that follow it. Replay skips
+ * records whose effect is already present, because a snapshot may have been taken while they were
+ * being appended. A torn record at the end of the last segment, left by a crash during a write, is
+ * discarded. {@link #checkpoint()} compacts the log by taking a new snapshot and deleting the
+ * segments and snapshots it replaces.
+ * <p>
+ * Records are framed as a 4-byte length and a CRC-32C checksum followed by the record itself: a type
+ * byte and the fields of the operation, encoded as in {@link BinarySnapshot}. Books of the catalog
+ * are referred to by ID; other books are stored in full.
+ * <p>
+ * Only operations on the library are logged. Changes made directly through the setters of books and
+ * members are not. Once a write to the log fails, the log refuses every further operation, as the
+ * library may then hold changes that were never made durable.
+ */
+public final class TransactionLog implements Closeable {
+
+    /**
+     * Default size past which a segment is closed and a new one started.
+     */
+    public static final long DEFAULT_SEGMENT_SIZE = 64L << 20;
+
+    /**
+     * Magic number at the start of every segment file ("LWAL").
+     */
+    private static final int SEGMENT_MAGIC = 0x4C57414C;
+
+    /**
+     * Version of the record layout written by this class.
+     */
+    private static final int SEGMENT_VERSION = 2;
+
+    /**
+     * Size of the segment header in bytes.
+     */
+    private static final int SEGMENT_HEADER_SIZE = 8;
+
+    /**
+     * Size of a record frame header in bytes: the record length and its checksum.
+     */
+    private static final int FRAME_HEADER_SIZE = 8;
+
+    /**
+     * File system types that are refused because they do not guarantee that a forced write is on disk.
+     */
+    private static final Set<String> REMOTE_FILE_SYSTEMS = Set.of("nfs", "nfs4", "cifs", "smbfs", "smb3", "9p", "fuse.sshfs");
+
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+
+    static final byte RECORD_ADD_BOOK = 1;
+    static final byte RECORD_REGISTER_MEMBER = 2;
+    static final byte RECORD_CHECKOUT = 3;
+    static final byte RECORD_REPLACE_BOOKS = 4;
+    static final byte RECORD_REPLACE_MEMBERS = 5;
+    static final byte RECORD_RETURN = 6;
+
+    private static final byte REFERENCE_CATALOG = 0;
+    private static final byte REFERENCE_INLINE = 1;
+
+    private final Path directory;
+    private final long segmentSize;
+    private final Library library;
+
+    /**
+     * Guards the pending buffer, the sequence numbers and the flushing flag.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Signalled whenever a flush completes or fails.
+     */
+    private final Condition flushed = lock.newCondition();
+
+    /**
+     * Serializes checkpoints.
+     */
+    private final Object checkpointLock = new Object();
+
+    /**
+     * Records appended but not yet written. Swapped with {@code spare} by the flushing caller.
+     */
+    private ByteBuffer pending = ByteBuffer.allocate(1 << 16);
+    private ByteBuffer spare = ByteBuffer.allocate(1 << 16);
+
+    /**
+     * Sequence number of the last record appended.
+     */
+    private long appendedSequence;
+
+    /**
+     * Sequence number of the last record known to be on disk.
+     */
+    private long durableSequence;
+
+    /**
+     * Whether a caller is currently writing and forcing the log.
+     */
+    private boolean flushing;
+
+    /**
+     * The first write failure, after which the log refuses further records.
+     */
+    private IOException failure;
+
+    private boolean closed;
+
+    /**
+     * The segment being appended to, its number and its size. Only touched by the flushing caller.
+     */
+    private FileChannel segment;
+    private long segmentNumber;
+    private long segmentBytes;
+
+    /**
+     * Creates a log over a directory whose contents have been replayed into the library.
+     *
+     * @param directory The log directory.
+     * @param segmentSize The size past which segments are rotated.
+     * @param library The library restored from the log.
+     * @param segmentNumber The number of the segment to start appending to.
+     * @throws IOException If the new segment cannot be created.
+     */
+    private TransactionLog(Path directory, long segmentSize, Library library, long segmentNumber) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.library = library;
+        startSegment(segmentNumber);
+    }
+
+    /**
+     * Opens the transaction log in a directory with the default segment size.
+     *
+     * @param directory The directory holding the log. Created if it does not exist.
+     * @return The opened log, whose library holds the state recorded in the directory.
+     * @throws IOException If the directory is not on a local disk, or the log cannot be read or is corrupt.
+     * @see #open(Path, long)
+     */
+    public static TransactionLog open(Path directory) throws IOException {
+        return open(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Opens the transaction log in a directory, restoring the library it records.
+     * <p>
+     * The latest snapshot is loaded and the segments that follow it are replayed. The returned log is
+     * attached to the restored library, which logs every subsequent operation to it.
+     *
+     * @param directory The directory holding the log. Created if it does not exist.
+     * @param segmentSize The size in bytes past which a segment is closed and a new one started. Must be positive.
+     * @return The opened log, whose library holds the state recorded in the directory.
+     * @throws IllegalArgumentException If the segment size is not positive.
+     * @throws IOException If the directory is not on a local disk, or the log cannot be read or is corrupt.
+     */
+    public static TransactionLog open(Path directory, long segmentSize) throws IOException {
+        if (segmentSize <= 0) {
+            throw new IllegalArgumentException("Segment size must be positive.");
+        }
+        Files.createDirectories(directory);
+        String type = Files.getFileStore(directory).type();
+        if (REMOTE_FILE_SYSTEMS.contains(type)) {
+            throw new IOException("Transaction log must be on a local disk, not on a " + type + " file system: " + directory);
+        }
+
+        TreeMap<Long, Path> snapshots = list(directory, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        TreeMap<Long, Path> segments = list(directory, SEGMENT_PREFIX, SEGMENT_SUFFIX);
+
+        // Start from the latest snapshot and replay only the segments it does not cover
+        Library library = new Library();
+        long firstSegment = 0;
+        if (!snapshots.isEmpty()) {
+            firstSegment = snapshots.lastKey();
+            library = BinarySnapshot.read(snapshots.lastEntry().getValue());
+        }
+        long lastSegment = segments.isEmpty() ? firstSegment : Math.max(firstSegment, segments.lastKey());
+        for (Path path : segments.tailMap(firstSegment).values()) {
+            replaySegment(path, library, path.equals(segments.lastEntry().getValue()));
+        }
+
+        TransactionLog log = new TransactionLog(directory, segmentSize, library, lastSegment + 1);
+        library.attachJournal(log);
+        log.deleteBefore(firstSegment);
+        return log;
+    }
+
+    /**
+     * Retrieves the library whose operations are recorded in this log.
+     *
+     * @return The library restored when the log was opened.
+     */
+    public Library getLibrary() {
+        return library;
+    }
+
+    /**
+     * Compacts the log by taking a snapshot of the library and deleting the files it replaces.
+     * <p>
+     * Appending moves to a new segment first. The snapshot is then taken as a single version of the
+     * library, once every change logged in the earlier segments has been published, so it covers them
+     * all. Operations may continue while the snapshot is written; their records land in the new
+     * segment and are skipped on replay if the snapshot already reflects them.
+     *
+     * @throws IOException If the log cannot be flushed or the snapshot cannot be written.
+     */
+    public void checkpoint() throws IOException {
+        synchronized (checkpointLock) {
+            long covered = flush(true);
+            LibrarySnapshot snapshot = library.settledSnapshot();
+            BinarySnapshot.write(snapshot, directory.resolve(fileName(SNAPSHOT_PREFIX, covered, SNAPSHOT_SUFFIX)));
+            forceDirectory();
+            deleteBefore(covered);
+        }
+    }
+
+    /**
+     * Forces every appended record to disk and closes the log.
+     * <p>
+     * Later operations on the library fail.
+     *
+     * @throws IOException If the remaining records cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            lock.unlock();
+        }
+        try {
+            awaitDurable(Long.MAX_VALUE);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            segment.close();
+        }
+    }
+
+    /**
+     * Appends an encoded record to the log without waiting for it to reach the disk.
+     * <p>
+     * Called by the library while it holds the locks of the operation, so records are appended in
+     * the order the operations take effect.
+     *
+     * @param record The encoded record.
+     * @return The sequence number of the record, to pass to {@link #awaitDurable(long)}.
+     * @throws UncheckedIOException If an earlier write to the log failed.
+     * @throws IllegalStateException If the log is closed.
+     */
+    long append(BinarySnapshot.Output record) {
+        ByteBuffer payload = record.buffer.duplicate().flip();
+        CRC32C checksum = new CRC32C();
+        checksum.update(payload.duplicate());
+
+        lock.lock();
+        try {
+            if (failure != null) {
+                throw new UncheckedIOException("Transaction log has failed.", failure);
+            }
+            if (closed) {
+                throw new IllegalStateException("Transaction log is closed.");
+            }
+            int needed = FRAME_HEADER_SIZE + payload.remaining();
+            if (pending.remaining() < needed) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + needed));
+                pending.flip();
+                grown.put(pending);
+                pending = grown;
+            }
+            pending.putInt(payload.remaining());
+            pending.putInt((int) checksum.getValue());
+            pending.put(payload);
+            return ++appendedSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until a record is on disk, flushing the log if no other caller is doing so.
+     *
+     * @param sequence The sequence number returned when the record was appended.
+     * @throws UncheckedIOException If the log cannot be written.
+     */
+    void awaitDurable(long sequence) {
+        lock.lock();
+        try {
+            while (durableSequence < Math.min(sequence, appendedSequence)) {
+                if (failure != null) {
+                    throw new UncheckedIOException("Transaction log has failed.", failure);
+                }
+                if (flushing) {
+                    flushed.awaitUninterruptibly();
+                    continue;
+                }
+                lock.unlock();
+                try {
+                    flush(false);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    lock.lock();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes and forces every record appended so far, on behalf of all waiting callers.
+     *
+     * @param rotate Whether to start a new segment afterwards regardless of the size of the current one.
+     * @return The number of the segment being appended to once the flush completes.
+     * @throws IOException If the log cannot be written; the failure is kept and reported to every later caller.
+     */
+    private long flush(boolean rotate) throws IOException {
+        ByteBuffer batch;
+        long sequence;
+        lock.lock();
+        try {
+            while (flushing) {
+                flushed.awaitUninterruptibly();
+            }
+            if (failure != null) {
+                throw new IOException("Transaction log has failed.", failure);
+            }
+            flushing = true;
+            batch = pending;
+            pending = spare;
+            sequence = appendedSequence;
+        } finally {
+            lock.unlock();
+        }
+
+        IOException error = null;
+        try {
+            batch.flip();
+            while (batch.hasRemaining()) {
+                segmentBytes += segment.write(batch);
+            }
+            segment.force(false);
+            if (rotate || segmentBytes >= segmentSize) {
+                startSegment(segmentNumber + 1);
+            }
+        } catch (IOException e) {
+            error = e;
+        }
+        batch.clear();
+
+        lock.lock();
+        try {
+            spare = batch;
+            flushing = false;
+            if (error != null) {
+                failure = error;
+            } else {
+                durableSequence = sequence;
+            }
+            flushed.signalAll();
+            if (error != null) {
+                throw error;
+            }
+            return segmentNumber;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes the current segment, if any, and starts appending to a new one.
+     *
+     * @param number The number of the new segment.
+     * @throws IOException If the segment cannot be created.
+     */
+    private void startSegment(long number) throws IOException {
+        FileChannel channel = FileChannel.open(directory.resolve(fileName(SEGMENT_PREFIX, number, SEGMENT_SUFFIX)),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE);
+            header.putInt(SEGMENT_MAGIC).putInt(SEGMENT_VERSION).flip();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            channel.force(false);
+            forceDirectory();
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        if (segment != null) {
+            segment.close();
+        }
+        segment = channel;
+        segmentNumber = number;
+        segmentBytes = SEGMENT_HEADER_SIZE;
+    }
+
+    /**
+     * Deletes the segments and snapshots numbered below a segment.
+     *
+     * @param number The first segment that is still needed.
+     * @throws IOException If the directory cannot be listed or a file cannot be deleted.
+     */
+    private void deleteBefore(long number) throws IOException {
+        for (Path path : list(directory, SEGMENT_PREFIX, SEGMENT_SUFFIX).headMap(number).values()) {
+            Files.deleteIfExists(path);
+        }
+        for (Path path : list(directory, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX).headMap(number).values()) {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    /**
+     * Forces the directory entry of newly created files to disk, where the platform supports it.
+     */
+    private void forceDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Directories cannot be opened for forcing on every platform; file contents are forced regardless
+        }
+    }
+
+    /**
+     * Replays the records of a segment into a library.
+     *
+     * @param path The segment file.
+     * @param library The library to apply the records to.
+     * @param last Whether this is the last segment, where a torn record at the end is discarded rather than reported.
+     * @throws IOException If the segment cannot be read or is corrupt.
+     */
+    private static void replaySegment(Path path, Library library, boolean last) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            if (size < SEGMENT_HEADER_SIZE) {
+                if (last) {
+                    return; // Crashed while creating the segment
+                }
+                throw new IOException("Transaction log segment is truncated: " + path);
+            }
+            ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (data.getInt() != SEGMENT_MAGIC || data.getInt() != SEGMENT_VERSION) {
+                throw new IOException("Not a transaction log segment: " + path);
+            }
+
+            CRC32C checksum = new CRC32C();
+            while (data.hasRemaining()) {
+                int start = data.position();
+                boolean torn = data.remaining() < FRAME_HEADER_SIZE;
+                int length = torn ? 0 : data.getInt();
+                int expected = torn ? 0 : data.getInt();
+                torn = torn || length <= 0 || length > data.remaining();
+                if (!torn) {
+                    ByteBuffer record = data.slice(data.position(), length);
+                    checksum.reset();
+                    checksum.update(record.duplicate());
+                    torn = (int) checksum.getValue() != expected;
+                    if (!torn) {
+                        data.position(data.position() + length);
+                        replayRecord(record, library, path);
+                        continue;
+                    }
+                }
+                if (!last) {
+                    throw new IOException("Transaction log segment is corrupt at offset " + start + ": " + path);
+                }
+                channel.truncate(start);
+                channel.force(false);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Applies a single record to a library, skipping effects that are already present.
+     *
+     * @param record The record, without its frame header.
+     * @param library The library to apply the record to.
+     * @param path The segment holding the record, for error messages.
+     * @throws IOException If the record is malformed or inconsistent with the library.
+     */
+    private static void replayRecord(ByteBuffer record, Library library, Path path) throws IOException {
+        BinarySnapshot.Input in = new BinarySnapshot.Input(record);
+        try {
+            byte type = record.get();
+            switch (type) {
+                case RECORD_ADD_BOOK: {
+                    Book book = BinarySnapshot.readBook(in);
+                    if (library.findBook(book.getIdentifier()) == null) {
+                        library.addBook(book);
+                    }
+                    break;
+                }
+                case RECORD_REGISTER_MEMBER: {
+                    Member member = readMember(in, library);
+                    if (library.findMember(member.getMemberIdentifier()) == null) {
+                        library.registerMember(member);
+                    }
+                    break;
+                }
+                case RECORD_CHECKOUT:
+                case RECORD_RETURN: {
+                    Member member = library.findMember(in.getIdentifier());
+                    in.require(12);
+                    long time = record.getLong();
+                    int count = record.getInt();
+                    for (int i = 0; i < count; i++) {
+                        Book book = library.findBook(in.getIdentifier());
+                        if (member == null || book == null) {
+                            throw new IOException("Transaction log refers to an unknown book or member: " + path);
+                        }
+                        if (type == RECORD_CHECKOUT) {
+                            library.restoreCheckout(member, book, time);
+                        } else {
+                            library.restoreReturn(member, book);
+                        }
+                    }
+                    break;
+                }
+                case RECORD_REPLACE_BOOKS: {
+                    in.require(4);
+                    int count = record.getInt();
+                    ArrayList<Book> books = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        books.add(readReference(in, library));
+                    }
+                    library.setBooksCollection(books);
+                    break;
+                }
+                case RECORD_REPLACE_MEMBERS: {
+                    in.require(4);
+                    int count = record.getInt();
+                    ArrayList<Member> members = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        members.add(readMember(in, library));
+                    }
+                    library.setMembersCollection(members);
+                    break;
+                }
+                default:
+                    throw new IOException("Unknown transaction log record type " + type + ": " + path);
+            }
+        } catch (EOFException | RuntimeException e) {
+            throw new IOException("Invalid transaction log record in " + path + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Encodes the record of a book being added to the catalog.
+     *
+     * @param book The book being added.
+     * @return The encoded record.
+     */
+    static BinarySnapshot.Output addBookRecord(Book book) {
+        return encode(RECORD_ADD_BOOK, out -> BinarySnapshot.writeBook(out, book));
+    }
+
+    /**
+     * Encodes the record of a member being registered.
+     *
+     * @param member The member being registered.
+     * @param catalog The library whose books are referred to by ID.
+     * @return The encoded record.
+     */
+    static BinarySnapshot.Output registerMemberRecord(Member member, Library catalog) {
+        return encode(RECORD_REGISTER_MEMBER, out -> writeMember(out, member, catalog));
+    }
+
+    /**
+     * Encodes the record of books being lent to a member.
+     *
+     * @param member The borrowing member.
+     * @param books The books being lent.
+     * @param time The checkout time, in milliseconds since the epoch.
+     * @return The encoded record.
+     */
+    static BinarySnapshot.Output checkoutRecord(Member member, List<Book> books, long time) {
+        return loanRecord(RECORD_CHECKOUT, member, books, time);
+    }
+
+    /**
+     * Encodes the record of books being returned by a member.
+     *
+     * @param member The returning member.
+     * @param books The books being returned.
+     * @param time The return time, in milliseconds since the epoch.
+     * @return The encoded record.
+     */
+    static BinarySnapshot.Output returnRecord(Member member, List<Book> books, long time) {
+        return loanRecord(RECORD_RETURN, member, books, time);
+    }
+
+    /**
+     * Encodes a record of books moving to or from a member.
+     *
+     * @param type The record type.
+     * @param member The member.
+     * @param books The books.
+     * @param time The time of the move, in milliseconds since the epoch.
+     * @return The encoded record.
+     */
+    private static BinarySnapshot.Output loanRecord(byte type, Member member, List<Book> books, long time) {
+        return encode(type, out -> {
+            out.putIdentifier(member.getMemberIdentifier());
+            out.require(12);
+            out.buffer.putLong(time);
+            out.buffer.putInt(books.size());
+            for (Book book : books) {
+                out.putIdentifier(book.getIdentifier());
+            }
+        });
+    }
+
+    /**
+     * Encodes the record of the books collection being replaced.
+     *
+     * @param books The new books collection.
+     * @param catalog The library whose books are referred to by ID.
+     * @return The encoded record.
+     */
+    static BinarySnapshot.Output replaceBooksRecord(List<Book> books, Library catalog) {
+        return encode(RECORD_REPLACE_BOOKS, out -> {
+            out.require(4);
+            out.buffer.putInt(books.size());
+            for (Book book : books) {
+                writeReference(out, book, catalog);
+            }
+        });
+    }
+
+    /**
+     * Encodes the record of the members collection being replaced.
+     *
+     * @param members The new members collection.
+     * @param catalog The library whose books are referred to by ID.
+     * @return The encoded record.
+     */
+    static BinarySnapshot.Output replaceMembersRecord(List<Member> members, Library catalog) {
+        return encode(RECORD_REPLACE_MEMBERS, out -> {
+            out.require(4);
+            out.buffer.putInt(members.size());
+            for (Member member : members) {
+                writeMember(out, member, catalog);
+            }
+        });
+    }
+
+    /**
+     * Writes the fields of a record.
+     */
+    private interface RecordBody {
+        void write(BinarySnapshot.Output out) throws IOException;
+    }
+
+    /**
+     * Encodes a record in memory.
+     *
+     * @param type The record type.
+     * @param body Writes the fields of the record.
+     * @return The encoded record.
+     */
+    private static BinarySnapshot.Output encode(byte type, RecordBody body) {
+        BinarySnapshot.Output out = new BinarySnapshot.Output(128);
+        try {
+            out.buffer.put(type);
+            body.write(out);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+        return out;
+    }
+
+    /**
+     * Writes a member with its borrowed books.
+     *
+     * @param out The output to write to.
+     * @param member The member to write.
+     * @param catalog The library whose books are referred to by ID.
+     * @throws IOException If a field cannot be encoded.
+     */
+    private static void writeMember(BinarySnapshot.Output out, Member member, Library catalog) throws IOException {
+        out.require(1);
+        out.buffer.put((byte) (member instanceof PremiumMember ? 1 : 0));
+        out.putIdentifier(member.getMemberIdentifier());
+        out.putString(member.getName());
+        synchronized (member) {
+            List<Book> borrowedBooks = member.getBorrowedBooks();
+            out.require(8);
+            out.buffer.putInt(member.getBorrowingLimit());
+            out.buffer.putInt(borrowedBooks.size());
+            for (Book book : borrowedBooks) {
+                writeReference(out, book, catalog);
+            }
+        }
+    }
+
+    /**
+     * Reads a member with its borrowed books.
+     *
+     * @param in The input to read from.
+     * @param catalog The library used to resolve book references.
+     * @return The restored member or premium member.
+     * @throws IOException If the member is malformed or refers to a book outside the catalog.
+     */
+    private static Member readMember(BinarySnapshot.Input in, Library catalog) throws IOException {
+        in.require(1);
+        boolean premium = in.window.get() != 0;
+        Identifier id = in.getIdentifier();
+        String name = in.getString();
+        in.require(8);
+        int borrowingLimit = in.window.getInt();
+        int count = in.window.getInt();
+        ArrayList<Book> borrowedBooks = new ArrayList<>(Math.max(count, 0));
+        for (int i = 0; i < count; i++) {
+            borrowedBooks.add(readReference(in, catalog));
+        }
+        return premium
+                ? new PremiumMember(id, name, borrowingLimit, borrowedBooks)
+                : new Member(id, name, borrowingLimit, borrowedBooks);
+    }
+
+    /**
+     * Writes a book as its ID if it is in the catalog, or in full otherwise.
+     *
+     * @param out The output to write to.
+     * @param book The book to write.
+     * @param catalog The library whose books are referred to by ID.
+     * @throws IOException If a field cannot be encoded.
+     */
+    private static void writeReference(BinarySnapshot.Output out, Book book, Library catalog) throws IOException {
+        out.require(1);
+        if (book.getLibrary() == catalog) {
+            out.buffer.put(REFERENCE_CATALOG);
+            out.putIdentifier(book.getIdentifier());
+        } else {
+            out.buffer.put(REFERENCE_INLINE);
+            BinarySnapshot.writeBook(out, book);
+        }
+    }
+
+    /**
+     * Reads a book written by {@link #writeReference}.
+     *
+     * @param in The input to read from.
+     * @param catalog The library used to resolve book IDs.
+     * @return The referenced or restored book.
+     * @throws IOException If the book is malformed or its ID is not in the catalog.
+     */
+    private static Book readReference(BinarySnapshot.Input in, Library catalog) throws IOException {
+        in.require(1);
+        if (in.window.get() == REFERENCE_INLINE) {
+            return BinarySnapshot.readBook(in);
+        }
+        Identifier id = in.getIdentifier();
+        Book book = catalog.findBook(id);
+        if (book == null) {
+            throw new IOException("Book " + id + " is not in the catalog.");
+        }
+        return book;
+    }
+
+    /**
+     * Lists the numbered files of one kind in a directory.
+     *
+     * @param directory The directory to list.
+     * @param prefix The file name prefix of the kind.
+     * @param suffix The file name suffix of the kind.
+     * @return The files keyed and ordered by number.
+     * @throws IOException If the directory cannot be listed.
+     */
+    private static TreeMap<Long, Path> list(Path directory, String prefix, String suffix) throws IOException {
+        TreeMap<Long, Path> files = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "*" + suffix)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                try {
+                    files.put(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())), path);
+                } catch (NumberFormatException e) {
+                    // Not one of ours
+                }
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Builds the name of a numbered file, padded so that names sort in numeric order.
+     *
+     * @param prefix The file name prefix.
+     * @param number The file number.
+     * @param suffix The file name suffix.
+     * @return The file name.
+     */
+    private static String fileName(String prefix, long number, String suffix) {
+        return String.format("%s%020d%s", prefix, number, suffix);
+    }
+}
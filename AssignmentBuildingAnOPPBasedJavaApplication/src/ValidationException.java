@@ -0,0 +1,55 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Signals that one or more values failed validation.
+ * <p>
+ * Thrown by bulk validation, which checks a whole batch and gathers every violation instead of
+ * stopping at the first one. The exception message describes the first violation, and the full
+ * list is available through {@link #getViolations()}.
+ * <p>
+ * Extends {@code IllegalArgumentException} so existing callers that expect validation failures
+ * as illegal arguments keep working.
+ */
+public class ValidationException extends IllegalArgumentException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The list of every violation found, in the order they were detected.
+     */
+    private final ArrayList<String> violations;
+
+    /**
+     * Constructs a ValidationException with the given list of violations.
+     *
+     * @param violations The violations found. Must be non-null and non-empty.
+     */
+    public ValidationException(List<String> violations) {
+        super(describe(violations));
+        this.violations = new ArrayList<>(violations);
+    }
+
+    /**
+     * Retrieves every violation found during validation.
+     *
+     * @return An unmodifiable list of violation messages.
+     */
+    public List<String> getViolations() {
+        return Collections.unmodifiableList(this.violations);
+    }
+
+    /**
+     * Builds the exception message from the first violation and the number of remaining ones.
+     *
+     * @param violations The violations found.
+     * @return The exception message.
+     */
+    private static String describe(List<String> violations) {
+        if (violations.size() == 1) {
+            return violations.get(0);
+        }
+        return violations.get(0) + " (and " + (violations.size() - 1) + " more violation(s))";
+    }
+}
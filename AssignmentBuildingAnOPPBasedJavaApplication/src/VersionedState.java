@@ -0,0 +1,137 @@
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * Publishes the successive versions of a library's state as immutable snapshots.
+ * <p>
+ * Every change of the catalog, the members or the loans builds the next {@link LibrarySnapshot}
+ * from the current one and swaps it in with a compare-and-set, retrying if another change got in
+ * first. Changes are made while the locks of the operation are held, so the versions follow the
+ * order in which the operations take effect, and reading the current version is a single volatile
+ * read.
+ */
+final class VersionedState {
+
+    /**
+     * The latest published version.
+     */
+    private final AtomicReference<LibrarySnapshot> current = new AtomicReference<>(LibrarySnapshot.EMPTY);
+
+    /**
+     * Retrieves the latest published version.
+     *
+     * @return The current snapshot.
+     */
+    LibrarySnapshot current() {
+        return current.get();
+    }
+
+    /**
+     * Publishes the books appended to the catalog.
+     * <p>
+     * The caller must hold the write lock of the library's collections.
+     *
+     * @param books The books, in catalog order.
+     */
+    void booksAdded(List<Book> books) {
+        if (!books.isEmpty()) {
+            update(snapshot -> snapshot.withBooksAdded(books));
+        }
+    }
+
+    /**
+     * Publishes the members appended to the registered members.
+     * <p>
+     * The caller must hold the write lock of the library's collections.
+     *
+     * @param members The members, in registration order.
+     */
+    void membersAdded(List<Member> members) {
+        if (!members.isEmpty()) {
+            update(snapshot -> snapshot.withMembersAdded(members));
+        }
+    }
+
+    /**
+     * Publishes a replaced catalog together with the loans that survived the replacement.
+     * <p>
+     * The caller must hold the write lock of the library's collections and every lock stripe.
+     *
+     * @param catalog The books of the new catalog.
+     * @param loans The loans of the new ledger.
+     */
+    void catalogReplaced(List<Book> catalog, Collection<Loan> loans) {
+        PersistentVector<Book> books = PersistentVector.<Book>empty().appendAll(catalog);
+        PersistentMap<Identifier, Loan> retained = toMap(loans);
+        update(snapshot -> snapshot.withCatalog(books, retained));
+    }
+
+    /**
+     * Publishes replaced members together with the loans that survived the replacement.
+     * <p>
+     * The caller must hold the write lock of the library's collections and every lock stripe.
+     *
+     * @param registered The new registered members.
+     * @param loans The loans of the new ledger.
+     */
+    void membersReplaced(List<Member> registered, Collection<Loan> loans) {
+        PersistentVector<Member> members = PersistentVector.<Member>empty().appendAll(registered);
+        PersistentMap<Identifier, Loan> retained = toMap(loans);
+        update(snapshot -> snapshot.withMembers(members, retained));
+    }
+
+    /**
+     * Publishes new loans as one change.
+     * <p>
+     * The caller must hold the lock stripes of the books.
+     *
+     * @param loans The loans.
+     */
+    void loansMade(List<Loan> loans) {
+        update(snapshot -> snapshot.withLoans(loans));
+    }
+
+    /**
+     * Publishes the end of the loans of books as one change.
+     * <p>
+     * The caller must hold the lock stripes of the books.
+     *
+     * @param bookIds The IDs of the books.
+     */
+    void loansEnded(List<Identifier> bookIds) {
+        if (!bookIds.isEmpty()) {
+            update(snapshot -> snapshot.withoutLoans(bookIds));
+        }
+    }
+
+    /**
+     * Swaps in the version built from the current one, retrying until no other change interferes.
+     *
+     * @param change Builds the next version; may be called more than once.
+     */
+    private void update(UnaryOperator<LibrarySnapshot> change) {
+        while (true) {
+            LibrarySnapshot snapshot = current.get();
+            LibrarySnapshot next = change.apply(snapshot);
+            if (next == snapshot || current.compareAndSet(snapshot, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Indexes loans by book ID in a persistent map.
+     *
+     * @param loans The loans.
+     * @return The map of the loans.
+     */
+    private static PersistentMap<Identifier, Loan> toMap(Collection<Loan> loans) {
+        PersistentMap<Identifier, Loan> map = PersistentMap.empty();
+        for (Loan loan : loans) {
+            map = map.put(loan.getBookIdentifier(), loan);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,80 @@
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates executors that run every task on a thread of its own, virtual when the runtime has them.
+ * <p>
+ * The project is compiled for Java 17, which has no virtual threads, so the virtual-thread executor
+ * of Java 21 and later is looked up when this class loads. On older runtimes tasks run on daemon
+ * platform threads with a small stack instead, which keeps the code the same but scales to far fewer
+ * concurrent tasks.
+ */
+final class VirtualThreads {
+
+    /**
+     * Stack size of the platform threads used when virtual threads are not available, in bytes.
+     */
+    private static final long PLATFORM_STACK_SIZE = 256 * 1024;
+
+    /**
+     * {@code Executors.newVirtualThreadPerTaskExecutor()}, or {@code null} if the runtime has no virtual threads.
+     */
+    private static final MethodHandle NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = findVirtualThreadPerTaskExecutor();
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private VirtualThreads() {
+    }
+
+    /**
+     * Checks whether the runtime has virtual threads.
+     *
+     * @return True if tasks run on virtual threads, false if they run on platform threads.
+     */
+    static boolean isAvailable() {
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * Creates an executor that starts a new thread for each task.
+     *
+     * @param name The prefix of the names of the platform threads, used when virtual threads are not available.
+     * @return The executor, to be shut down once no longer needed.
+     */
+    static ExecutorService newThreadPerTaskExecutor(String name) {
+        if (NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null) {
+            try {
+                return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invokeExact();
+            } catch (Throwable e) {
+                throw new IllegalStateException("Cannot create a virtual thread executor.", e);
+            }
+        }
+        AtomicInteger number = new AtomicInteger();
+        ThreadFactory factory = task -> {
+            Thread thread = new Thread(null, task, name + "-" + number.incrementAndGet(), PLATFORM_STACK_SIZE);
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newCachedThreadPool(factory);
+    }
+
+    /**
+     * Looks up the virtual-thread executor factory of the runtime.
+     *
+     * @return A handle on the factory, or {@code null} if the runtime has none.
+     */
+    private static MethodHandle findVirtualThreadPerTaskExecutor() {
+        try {
+            return MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+}
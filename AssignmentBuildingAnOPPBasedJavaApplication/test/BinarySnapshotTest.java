@@ -0,0 +1,138 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of {@link BinarySnapshot}.
+ */
+class BinarySnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void roundTripKeepsBooksMembersAndLoans() throws IOException {
+        Library library = new Library();
+        library.setClock(Clock.fixed(Instant.ofEpochMilli(1_700_000_000_000L), ZoneOffset.UTC));
+        Book book = new Book("Dune", "Frank Herbert", "9780441013593", true);
+        Ebook ebook = new Ebook("Emma", "Jane Austen", "9780141439587", true, 2048, "EPUB");
+        Book shelved = new Book("Persuasion", "Jane Austen", "9780141439686", true);
+        library.addBook(book);
+        library.addBook(ebook);
+        library.addBook(shelved);
+        Member reader = new Member("Reader One", new ArrayList<>());
+        PremiumMember premium = new PremiumMember("Premium One", new ArrayList<>());
+        library.registerMember(reader);
+        library.registerMember(premium);
+        library.assignBookToMember(reader.getMemberId(), book.getId());
+        library.setClock(Clock.fixed(Instant.ofEpochMilli(1_700_000_600_000L), ZoneOffset.UTC));
+        library.assignBookToMember(premium.getMemberId(), ebook.getId());
+        Path file = directory.resolve("library.bin");
+
+        BinarySnapshot.write(library, file);
+        Library restored = BinarySnapshot.read(file);
+
+        assertEquals(library.toString(), restored.toString());
+        assertInstanceOf(Ebook.class, restored.findBook(ebook.getId()));
+        assertInstanceOf(PremiumMember.class, restored.findMember(premium.getMemberId()));
+        assertFalse(restored.findBook(book.getId()).getAvailability());
+        assertTrue(restored.findBook(shelved.getId()).getAvailability());
+        assertEquals(library.getLoan(book.getId()).getCheckoutTime(), restored.getLoan(book.getId()).getCheckoutTime());
+        assertEquals(library.getLoan(ebook.getId()).getDueTime(), restored.getLoan(ebook.getId()).getDueTime());
+        assertEquals(reader.getMemberId(), restored.getBorrower(book.getId()).getMemberId());
+    }
+
+    @Test
+    void roundTripOfAnEmptyLibrary() throws IOException {
+        Library library = new Library();
+        Path file = directory.resolve("empty.bin");
+
+        BinarySnapshot.write(library, file);
+
+        assertEquals(library.toString(), BinarySnapshot.read(file).toString());
+    }
+
+    @Test
+    void writeSavesTheGivenVersionOnly() throws IOException {
+        Library library = new Library();
+        Book book = new Book("Dune", "Frank Herbert", "9780441013593", true);
+        library.addBook(book);
+        Member reader = new Member("Reader One", new ArrayList<>());
+        library.registerMember(reader);
+        LibrarySnapshot before = library.snapshot();
+        String expected = library.toString();
+        Book later = new Book("Emma", "Jane Austen", "9780141439587", true);
+        library.addBook(later);
+        library.assignBookToMember(reader.getMemberId(), book.getId());
+        Path file = directory.resolve("library.bin");
+
+        BinarySnapshot.write(before, file);
+        Library restored = BinarySnapshot.read(file);
+
+        assertEquals(expected, restored.toString());
+        assertNull(restored.findBook(later.getId()));
+        assertTrue(restored.findBook(book.getId()).getAvailability());
+    }
+
+    @Test
+    void readRejectsCountsTheFileCannotHold() throws IOException {
+        Library library = new Library();
+        library.registerMember(new Member("Reader One", new ArrayList<>()));
+        Path file = directory.resolve("library.bin");
+        BinarySnapshot.write(library, file);
+        byte[] bytes = Files.readAllBytes(file);
+        Path books = directory.resolve("books.bin");
+        Files.write(books, withInt(bytes, 8, Integer.MAX_VALUE));
+        Path members = directory.resolve("members.bin");
+        Files.write(members, withInt(bytes, 12, Integer.MAX_VALUE));
+        Path borrowed = directory.resolve("borrowed.bin");
+        Files.write(borrowed, withInt(bytes, bytes.length - 4, Integer.MAX_VALUE));
+
+        assertThrows(IOException.class, () -> BinarySnapshot.read(books));
+        assertThrows(IOException.class, () -> BinarySnapshot.read(members));
+        assertThrows(IOException.class, () -> BinarySnapshot.read(borrowed));
+    }
+
+    @Test
+    void readRejectsOtherFilesAndOtherVersions() throws IOException {
+        Path other = directory.resolve("other.bin");
+        Files.write(other, new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16});
+        Path file = directory.resolve("library.bin");
+        BinarySnapshot.write(new Library(), file);
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer.wrap(bytes).putInt(4, 1);
+        Path oldVersion = directory.resolve("old.bin");
+        Files.write(oldVersion, bytes);
+
+        assertThrows(IOException.class, () -> BinarySnapshot.read(other));
+        assertThrows(IOException.class, () -> BinarySnapshot.read(oldVersion));
+    }
+
+    /**
+     * Copies a file's bytes with one integer overwritten.
+     *
+     * @param bytes The bytes of the file.
+     * @param offset The offset of the integer.
+     * @param value The value to write.
+     * @return The changed copy.
+     */
+    private static byte[] withInt(byte[] bytes, int offset, int value) {
+        byte[] copy = bytes.clone();
+        ByteBuffer.wrap(copy).putInt(offset, value);
+        return copy;
+    }
+}
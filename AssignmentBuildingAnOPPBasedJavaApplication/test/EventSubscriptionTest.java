@@ -0,0 +1,91 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link EventSubscription}.
+ */
+class EventSubscriptionTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    @Test
+    void eventPublishedAfterAnIdlePeriodWakesTheSubscriber() throws InterruptedException {
+        Library library = new Library();
+        BlockingQueue<LibraryEvent> received = new LinkedBlockingQueue<>();
+        try (EventSubscription subscription = library.subscribe(received::addAll)) {
+            Thread.sleep(100); // Long enough for the delivery thread to park
+            Book book = new Book("Dune", "Frank Herbert", "9780441013593", true);
+            library.addBook(book);
+
+            LibraryEvent event = received.poll(TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+            assertNotNull(event, "Event not delivered to a parked subscriber");
+            assertEquals(LibraryEventType.BOOK_ADDED, event.getType());
+            assertEquals(book.getId(), event.getBookId());
+            assertEquals(1, subscription.getDeliveredEvents());
+        }
+    }
+
+    @Test
+    void closeEndsAParkedSubscription() throws InterruptedException {
+        Library library = new Library();
+        EventSubscription subscription = library.subscribe(batch -> { });
+        Thread.sleep(100);
+
+        assertTimeoutPreemptively(TIMEOUT, subscription::close);
+        assertTrue(subscription.isClosed());
+        assertEquals(0, subscription.getDeliveredEvents());
+    }
+
+    @Test
+    void eventsOfConcurrentPublishersAreDeliveredOnceInOrder() throws InterruptedException {
+        Library library = new Library();
+        List<LibraryEvent> received = new ArrayList<>();
+        EventSubscription subscription = library.subscribe(event -> true, 16, batch -> {
+            synchronized (received) {
+                received.addAll(batch);
+            }
+        });
+        int publishers = 4;
+        int perPublisher = 500;
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < publishers; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < perPublisher; i++) {
+                    library.addBook(new Book("Emma", "Jane Austen", "9780141439587", true));
+                    if (i % 50 == 0) {
+                        Thread.yield(); // Let the subscriber catch up and park between bursts
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (subscription.getDeliveredEvents() < publishers * perPublisher && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        subscription.close();
+
+        assertEquals(0, subscription.getDroppedEvents());
+        synchronized (received) {
+            assertEquals(publishers * perPublisher, received.size());
+            for (int i = 0; i < received.size(); i++) {
+                assertEquals(i, received.get(i).getSequence());
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link Isbn}.
+ */
+class IsbnTest {
+
+    @Test
+    void isbn10AndIsbn13OfTheSameBookShareTheirKey() {
+        assertEquals(9780441013593L, Isbn.key("9780441013593"));
+        assertEquals(Isbn.key("9780441013593"), Isbn.key("0441013597"));
+        assertEquals(Isbn.key("9780141439587"), Isbn.key("0141439580"));
+        assertEquals(Isbn.key("9780441013593"), Isbn.key("  0441013597 "));
+        assertTrue(Isbn.hasValidCheckDigit("0441013597"));
+    }
+
+    @Test
+    void isbn10WithAnXCheckDigitMapsToItsIsbn13() {
+        assertEquals(9780804429573L, Isbn.key("080442957X"));
+        assertEquals(Isbn.key("080442957X"), Isbn.key("080442957x"));
+        assertTrue(Isbn.hasValidCheckDigit("080442957X"));
+        assertEquals(Isbn.NO_KEY, Isbn.key("044101359X"));
+        assertEquals(Isbn.NO_KEY, Isbn.key("9780804429X73"));
+    }
+
+    @Test
+    void wrongCheckDigitsNeverMergeWithValidKeysOrEachOther() {
+        Set<Long> keys = new HashSet<>();
+        long valid = Isbn.key("9780441013593");
+        for (char check = '0'; check <= '9'; check++) {
+            long key10 = Isbn.key("044101359" + check);
+            long key13 = Isbn.key("978044101359" + check);
+            if (check == '7') {
+                assertEquals(valid, key10);
+            } else {
+                assertTrue(key10 < 0 && key10 != Isbn.NO_KEY, "Wrong ISBN-10 check digit " + check);
+                assertTrue(keys.add(key10), "Wrong ISBN-10 keys collide");
+            }
+            if (check == '3') {
+                assertEquals(valid, key13);
+            } else {
+                assertTrue(key13 < 0 && key13 != Isbn.NO_KEY, "Wrong ISBN-13 check digit " + check);
+                assertTrue(keys.add(key13), "Wrong ISBN-13 keys collide");
+            }
+        }
+        assertFalse(Isbn.hasValidCheckDigit("0441013598"));
+        assertEquals(Isbn.key("0441013598"), Isbn.key("0441013598"));
+    }
+
+    @Test
+    void keysOfWrongIsbn10sAndIsbn13sDoNotOverlap() {
+        // Keys of wrong ISBN-10s start just below the lowest key of a wrong ISBN-13
+        long lowest13 = Isbn.key("9999999999999");
+        long highest10 = Isbn.key("0000000001");
+
+        assertEquals(-10_000_000_000_000L, lowest13);
+        assertEquals(lowest13 - 2, highest10);
+        assertNotEquals(Isbn.key("0000000000001"), Isbn.key("0000000001"));
+        assertEquals(0L, Isbn.key("0000000000000"));
+        assertEquals(9780000000002L, Isbn.key("0000000000"));
+    }
+
+    @Test
+    void malformedIsbnsHaveNoKey() {
+        assertEquals(Isbn.NO_KEY, Isbn.key(null));
+        assertEquals(Isbn.NO_KEY, Isbn.key(""));
+        assertEquals(Isbn.NO_KEY, Isbn.key("978044101359"));
+        assertEquals(Isbn.NO_KEY, Isbn.key("97804410135930"));
+        assertEquals(Isbn.NO_KEY, Isbn.key("978-0441013593"));
+        assertEquals(Isbn.NO_KEY, Isbn.key("04410a3597"));
+        assertFalse(Isbn.hasValidCheckDigit("978044101359"));
+    }
+}
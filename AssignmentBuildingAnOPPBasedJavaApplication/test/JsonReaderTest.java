@@ -0,0 +1,86 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.StringReader;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link JsonReader}.
+ */
+class JsonReaderTest {
+
+    @Test
+    void unescapesStrings() throws IOException {
+        JsonReader json = reader("[\"a\\\"b\\\\c\\/d\\n\\u00e9\\u2028\"]");
+        json.beginArray();
+        assertEquals("a\"b\\c/d\n\u00e9\u2028", json.nextString());
+        json.endArray();
+    }
+
+    @Test
+    void skipsUnknownValuesOfAnyShape() throws IOException {
+        JsonReader json = reader("{\"skip\": {\"a\": [1, {\"b\": null}, \"]\"]}, \"keep\": 42, \"tail\": [true]}");
+        json.beginObject();
+        assertEquals("skip", json.nextName());
+        json.skipValue();
+        assertEquals("keep", json.nextName());
+        assertEquals(42, json.nextInt());
+        assertEquals("tail", json.nextName());
+        json.skipValue();
+        assertFalse(json.hasNext());
+        json.endObject();
+        assertEquals(JsonReader.Token.END_DOCUMENT, json.peek());
+    }
+
+    @Test
+    void rejectsMalformedInput() {
+        assertThrows(IOException.class, () -> readAll("{\"a\": 1 \"b\": 2}"));
+        assertThrows(IOException.class, () -> readAll("{a: 1}"));
+        assertThrows(IOException.class, () -> readAll("[\"unterminated]"));
+        assertThrows(IOException.class, () -> readAll("[\"bad \\q escape\"]"));
+        assertThrows(IOException.class, () -> readAll("[\"raw\nnewline\"]"));
+        assertThrows(IOException.class, () -> readAll("[tru]"));
+        assertThrows(IOException.class, () -> readAll("[1,]"));
+    }
+
+    @Test
+    void rejectsTrailingContent() throws IOException {
+        JsonReader json = reader("{} {}");
+        json.beginObject();
+        json.endObject();
+        assertThrows(IOException.class, json::peek);
+    }
+
+    @Test
+    void rejectsValuesOfAnotherType() throws IOException {
+        JsonReader json = reader("[\"42\", 3000000000]");
+        json.beginArray();
+        assertThrows(IOException.class, json::nextInt);
+        json.nextString();
+        assertThrows(IOException.class, json::nextInt);
+    }
+
+    /**
+     * Creates a reader over a document.
+     *
+     * @param document The JSON text.
+     * @return The reader.
+     */
+    private static JsonReader reader(String document) {
+        return new JsonReader(new StringReader(document));
+    }
+
+    /**
+     * Reads a whole document, skipping its root value and checking that nothing follows it.
+     *
+     * @param document The JSON text.
+     * @throws IOException If the document is malformed.
+     */
+    private static void readAll(String document) throws IOException {
+        JsonReader json = reader(document);
+        json.skipValue();
+        json.peek();
+    }
+}
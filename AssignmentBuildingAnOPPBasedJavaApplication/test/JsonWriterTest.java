@@ -0,0 +1,70 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link JsonWriter}.
+ */
+class JsonWriterTest {
+
+    @Test
+    void escapesQuotesBackslashesAndControlCharacters() throws IOException {
+        String text = "say \"hi\"\\ back\n\tnow\u0001\u2028";
+        StringWriter out = new StringWriter();
+        JsonWriter json = new JsonWriter(out);
+        json.beginObject().name("text").value(text).endObject().flush();
+
+        String document = out.toString();
+        assertTrue(document.contains("\"say \\\"hi\\\"\\\\ back\\n\\tnow\\u0001\\u2028\""), document);
+        assertFalse(document.contains("\u0001"));
+        JsonReader reader = new JsonReader(new StringReader(document));
+        reader.beginObject();
+        assertEquals("text", reader.nextName());
+        assertEquals(text, reader.nextString());
+        reader.endObject();
+    }
+
+    @Test
+    void writesNestedValuesThatReadBack() throws IOException {
+        StringWriter out = new StringWriter();
+        JsonWriter json = new JsonWriter(out);
+        json.beginObject();
+        json.name("count").value(Long.MIN_VALUE);
+        json.name("flags").beginArray().value(true).value(false).nullValue().endArray();
+        json.name("empty").beginObject().endObject();
+        json.endObject().flush();
+
+        JsonReader reader = new JsonReader(new StringReader(out.toString()));
+        reader.beginObject();
+        assertEquals("count", reader.nextName());
+        assertEquals(Long.MIN_VALUE, reader.nextLong());
+        assertEquals("flags", reader.nextName());
+        reader.beginArray();
+        assertTrue(reader.nextBoolean());
+        assertFalse(reader.nextBoolean());
+        reader.nextNull();
+        reader.endArray();
+        assertEquals("empty", reader.nextName());
+        reader.beginObject();
+        reader.endObject();
+        reader.endObject();
+        assertEquals(JsonReader.Token.END_DOCUMENT, reader.peek());
+    }
+
+    @Test
+    void rejectsValuesOutOfPlace() throws IOException {
+        JsonWriter json = new JsonWriter(new StringWriter());
+        assertThrows(IllegalStateException.class, () -> json.name("title"));
+        json.beginObject();
+        assertThrows(IllegalStateException.class, () -> json.value("Dune"));
+        assertThrows(IllegalStateException.class, json::endArray);
+        json.endObject();
+        assertThrows(IllegalStateException.class, json::beginObject);
+    }
+}
@@ -0,0 +1,113 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link LibraryImporter}.
+ */
+class LibraryImporterTest {
+
+    @Test
+    void quotedFieldsKeepTheirDelimiters() {
+        ArrayList<String> fields = new ArrayList<>();
+
+        assertTrue(LibraryImporter.split("book,\"Dune, Part One\",Frank Herbert,,", ',', fields));
+        assertEquals(List.of("book", "Dune, Part One", "Frank Herbert", "", ""), fields);
+        assertTrue(LibraryImporter.split("member\t\"Ada\tLovelace\"", '\t', fields));
+        assertEquals(List.of("member", "Ada\tLovelace"), fields);
+        assertTrue(LibraryImporter.split("\"Dune\" Messiah,x", ',', fields));
+        assertEquals(List.of("Dune Messiah", "x"), fields);
+    }
+
+    @Test
+    void doubledQuotesInQuotedFieldsAreUnescaped() {
+        ArrayList<String> fields = new ArrayList<>();
+
+        assertTrue(LibraryImporter.split("\"The \"\"Dune\"\" saga\",\"\"\"\",\"\"", ',', fields));
+        assertEquals(List.of("The \"Dune\" saga", "\"", ""), fields);
+        assertFalse(LibraryImporter.split("book,\"Dune \"\",x", ',', fields));
+    }
+
+    @Test
+    void quotedRecordsAreImported() throws IOException {
+        Library library = new Library();
+        String id = Identifier.random().toString();
+
+        ImportReport report = importCsv(library,
+                "book,\"Dune, Part One\",\"Frank Herbert\",9780441013593,false," + id + "\n"
+                + "\"premiumMember\",\"Ada Lovelace\"\n");
+
+        assertEquals(2, report.getRecordsRead());
+        assertEquals(1, report.getBooksImported());
+        assertEquals(1, report.getMembersImported());
+        assertEquals(List.of(), report.getRejectedLines());
+        Book book = library.findBook(id);
+        assertEquals("Dune, Part One", book.getTitle());
+        assertTrue(book.getAvailability(), "Imported books are never on loan");
+        assertTrue(library.getMembersCollection().get(0) instanceof PremiumMember);
+    }
+
+    @Test
+    void headerIsOnlySkippedOnTheFirstLine() throws IOException {
+        Library library = new Library();
+
+        ImportReport report = importCsv(library,
+                "type,title,author,isbn,availability\n"
+                + "book,Dune,Frank Herbert,9780441013593,true\n"
+                + "type,title,author,isbn,availability\n");
+
+        assertEquals(2, report.getRecordsRead());
+        assertEquals(1, report.getBooksImported());
+        assertEquals(1, report.getRejectedLines().size());
+        ImportReport.RejectedLine rejected = report.getRejectedLines().get(0);
+        assertEquals(3, rejected.getLineNumber());
+        assertEquals("Unknown record type 'type'.", rejected.getReason());
+    }
+
+    @Test
+    void rejectedLinesAreReportedInOrderWithTheirReasons() throws IOException {
+        Library library = new Library();
+        String id = Identifier.random().toString();
+        String invalidAvailability = "book,Dune,Frank Herbert,9780441013593,maybe";
+        String duplicate = "member,Grace Hopper," + id;
+
+        ImportReport report = importCsv(library,
+                "# Comment\n"
+                + "member,Ada Lovelace," + id + "\n"
+                + "\n"
+                + invalidAvailability + "\n"
+                + "book,Dune,Frank Herbert\n"
+                + "book,\"Dune,Frank Herbert,9780441013593,true\n"
+                + duplicate + "\n");
+
+        assertEquals(5, report.getRecordsRead());
+        assertEquals(1, report.getMembersImported());
+        List<ImportReport.RejectedLine> rejected = report.getRejectedLines();
+        assertEquals(List.of(4L, 5L, 6L, 7L), rejected.stream().map(ImportReport.RejectedLine::getLineNumber).toList());
+        assertEquals(invalidAvailability, rejected.get(0).getLine());
+        assertEquals("Availability must be true or false.", rejected.get(0).getReason());
+        assertEquals("A book record must have 5 or 6 fields.", rejected.get(1).getReason());
+        assertEquals("Unterminated quoted field.", rejected.get(2).getReason());
+        assertEquals(duplicate, rejected.get(3).getLine());
+        assertEquals("A member with the same ID is already registered.", rejected.get(3).getReason());
+        assertEquals("Ada Lovelace", library.findMember(id).getName());
+    }
+
+    /**
+     * Imports comma-separated records into a library.
+     *
+     * @param library The library receiving the records.
+     * @param csv The records.
+     * @return The report of the import.
+     * @throws IOException Never thrown by a string source.
+     */
+    private static ImportReport importCsv(Library library, String csv) throws IOException {
+        return LibraryImporter.importRecords(library, new StringReader(csv), ',');
+    }
+}
@@ -0,0 +1,118 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link LibraryJson}.
+ */
+class LibraryJsonTest {
+
+    @Test
+    void roundTripKeepsSubtypesAndLoans() throws IOException {
+        Library library = new Library();
+        library.setClock(Clock.fixed(Instant.ofEpochMilli(1_700_000_000_000L), ZoneOffset.UTC));
+        Book book = new Book("Children's Dune, Part One", "Frank Herbert", "9780441013593", true);
+        Ebook ebook = new Ebook("Emma", "Jane Austen", "9780141439587", true, 2048, "EPUB");
+        library.addBook(book);
+        library.addBook(ebook);
+        Member reader = new Member("Reader One", new ArrayList<>());
+        PremiumMember premium = new PremiumMember("Premium One", new ArrayList<>());
+        library.registerMember(reader);
+        library.registerMember(premium);
+        library.assignBookToMember(reader.getMemberId(), book.getId());
+        library.setClock(Clock.fixed(Instant.ofEpochMilli(1_700_000_600_000L), ZoneOffset.UTC));
+        library.assignBookToMember(premium.getMemberId(), ebook.getId());
+
+        Library restored = LibraryJson.read(new StringReader(write(library)));
+
+        assertEquals(library.toString(), restored.toString());
+        assertInstanceOf(Ebook.class, restored.findBook(ebook.getId()));
+        assertInstanceOf(PremiumMember.class, restored.findMember(premium.getMemberId()));
+        assertEquals(book.getTitle(), restored.findBook(book.getId()).getTitle());
+        assertEquals(library.getLoan(book.getId()).getCheckoutTime(), restored.getLoan(book.getId()).getCheckoutTime());
+        assertEquals(library.getLoan(ebook.getId()).getDueTime(), restored.getLoan(ebook.getId()).getDueTime());
+        assertEquals(premium.getMemberId(), restored.getBorrower(ebook.getId()).getMemberId());
+    }
+
+    @Test
+    void writeSavesTheGivenVersionOnly() throws IOException {
+        Library library = new Library();
+        Book book = new Book("Dune", "Frank Herbert", "9780441013593", true);
+        library.addBook(book);
+        Member reader = new Member("Reader One", new ArrayList<>());
+        library.registerMember(reader);
+        LibrarySnapshot before = library.snapshot();
+        String expected = library.toString();
+        Book later = new Book("Emma", "Jane Austen", "9780141439587", true);
+        library.addBook(later);
+        library.assignBookToMember(reader.getMemberId(), book.getId());
+        StringWriter out = new StringWriter();
+
+        LibraryJson.write(before, out);
+        Library restored = LibraryJson.read(new StringReader(out.toString()));
+
+        assertEquals(expected, restored.toString());
+        assertNull(restored.findBook(later.getId()));
+        assertTrue(restored.findBook(book.getId()).getAvailability());
+    }
+
+    @Test
+    void readRejectsMalformedAndInconsistentDocuments() throws IOException {
+        Library library = new Library();
+        Book book = new Book("Dune", "Frank Herbert", "9780441013593", true);
+        library.addBook(book);
+        String document = write(library);
+        String unknownBook = "{\"booksCollection\": [], \"membersCollection\": [{\"type\": \"member\", "
+                + "\"memberId\": \"" + new Member("Reader One", new ArrayList<>()).getMemberId() + "\", "
+                + "\"name\": \"Reader One\", \"borrowingLimit\": 3, \"borrowedBooks\": [\"" + book.getId() + "\"]}]}";
+
+        assertThrows(IOException.class, () -> read(document.replace("\"book\"", "\"scroll\"")));
+        assertThrows(IOException.class, () -> read(document.replace("\"ISBN\"", "\"isbn\"")));
+        assertThrows(IOException.class, () -> read(document.replace(book.getId(), "not-an-id")));
+        assertThrows(IOException.class, () -> read(document.substring(0, document.length() / 2)));
+        assertThrows(IOException.class, () -> read(unknownBook));
+    }
+
+    @Test
+    void readRejectsTrailingContent() throws IOException {
+        String document = write(new Library());
+
+        assertThrows(IOException.class, () -> read(document + " {}"));
+        assertThrows(IOException.class, () -> read(document + ","));
+    }
+
+    /**
+     * Writes a library to a string.
+     *
+     * @param library The library to write.
+     * @return The JSON document.
+     * @throws IOException Never, as the destination is in memory.
+     */
+    private static String write(Library library) throws IOException {
+        StringWriter out = new StringWriter();
+        LibraryJson.write(library, out);
+        return out.toString();
+    }
+
+    /**
+     * Reads a library from a string.
+     *
+     * @param document The JSON document.
+     * @return The library read.
+     * @throws IOException If the document is malformed or inconsistent.
+     */
+    private static Library read(String document) throws IOException {
+        return LibraryJson.read(new StringReader(document));
+    }
+}
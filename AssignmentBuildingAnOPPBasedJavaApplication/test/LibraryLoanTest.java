@@ -0,0 +1,158 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of the loan ledger and hold queues, through the library operations that use them.
+ */
+class LibraryLoanTest {
+
+    private Library library;
+    private Book book;
+    private Member reader;
+    private Member waiter;
+    private PremiumMember premium;
+
+    @BeforeEach
+    void setUp() {
+        library = new Library();
+        book = new Book("Dune", "Frank Herbert", "9780441013593", true);
+        library.addBook(book);
+        reader = new Member("Reader One", new ArrayList<>());
+        waiter = new Member("Waiter One", new ArrayList<>());
+        premium = new PremiumMember("Premium One", new ArrayList<>());
+        library.registerMember(reader);
+        library.registerMember(waiter);
+        library.registerMember(premium);
+    }
+
+    @Test
+    void availabilityFollowsTheLoan() {
+        library.assignBookToMember(reader.getMemberId(), book.getId());
+
+        assertFalse(book.getAvailability());
+        assertSame(reader, library.getBorrower(book.getId()));
+        assertEquals(List.of(book), reader.getBorrowedBooks());
+
+        library.returnBook(reader.getMemberId(), book.getId());
+
+        assertTrue(book.getAvailability());
+        assertNull(library.getBorrower(book.getId()));
+        assertEquals(List.of(), reader.getBorrowedBooks());
+    }
+
+    @Test
+    void bookIsNeverLentTwice() {
+        library.assignBookToMember(reader.getMemberId(), book.getId());
+
+        assertThrows(IllegalArgumentException.class, () -> library.assignBookToMember(waiter.getMemberId(), book.getId()));
+        assertThrows(IllegalArgumentException.class, () -> library.returnBook(waiter.getMemberId(), book.getId()));
+        assertSame(reader, library.getBorrower(book.getId()));
+        assertEquals(List.of(), waiter.getBorrowedBooks());
+    }
+
+    @Test
+    void borrowedBooksCannotBeChangedOutsideTheLibrary() {
+        library.assignBookToMember(reader.getMemberId(), book.getId());
+
+        assertThrows(UnsupportedOperationException.class, () -> reader.getBorrowedBooks().clear());
+        assertSame(reader, library.getBorrower(book.getId()));
+    }
+
+    @Test
+    void unavailableBookJoinsTheCatalogAvailable() {
+        Book unlent = new Book("Emma", "Jane Austen", "9780141439587", false);
+
+        library.addBook(unlent);
+
+        assertTrue(unlent.getAvailability());
+        assertNull(library.getLoan(unlent.getId()));
+    }
+
+    @Test
+    void registeredMemberHoldingACatalogBookBorrowsIt() {
+        ArrayList<Book> held = new ArrayList<>();
+        held.add(book);
+        Member holder = new Member("Holder One", held);
+
+        library.registerMember(holder);
+
+        assertSame(holder, library.getBorrower(book.getId()));
+        assertFalse(book.getAvailability());
+    }
+
+    @Test
+    void memberHoldingALentOrForeignBookIsRejected() {
+        library.assignBookToMember(reader.getMemberId(), book.getId());
+        ArrayList<Book> lent = new ArrayList<>();
+        lent.add(book);
+        ArrayList<Book> foreign = new ArrayList<>();
+        foreign.add(new Book("Emma", "Jane Austen", "9780141439587", true));
+
+        assertThrows(IllegalArgumentException.class, () -> library.registerMember(new Member("Holder One", lent)));
+        assertThrows(IllegalArgumentException.class, () -> library.registerMember(new Member("Holder Two", foreign)));
+        assertSame(reader, library.getBorrower(book.getId()));
+    }
+
+    @Test
+    void holdOnAnAvailableBookBorrowsIt() {
+        assertEquals(HoldStatus.BORROWED, library.placeHold(reader.getMemberId(), book.getId()));
+        assertSame(reader, library.getBorrower(book.getId()));
+        assertEquals(0, library.getHoldCount(book.getId()));
+    }
+
+    @Test
+    void returnedBookGoesToTheFirstHolderPremiumFirst() {
+        library.assignBookToMember(reader.getMemberId(), book.getId());
+        assertEquals(HoldStatus.QUEUED, library.placeHold(waiter.getMemberId(), book.getId()));
+        assertEquals(HoldStatus.QUEUED, library.placeHold(premium.getMemberId(), book.getId()));
+        assertEquals(List.of(premium, waiter), library.getHoldQueue(book.getId()));
+
+        library.returnBook(reader.getMemberId(), book.getId());
+
+        assertSame(premium, library.getBorrower(book.getId()));
+        assertEquals(List.of(book), premium.getBorrowedBooks());
+        assertFalse(book.getAvailability());
+        assertEquals(List.of(waiter), library.getHoldQueue(book.getId()));
+
+        library.returnBook(premium.getMemberId(), book.getId());
+
+        assertSame(waiter, library.getBorrower(book.getId()));
+        assertEquals(0, library.getHoldCount(book.getId()));
+    }
+
+    @Test
+    void handOffSkipsHoldersAtTheirLimit() {
+        Member second = new Member("Second Waiter", new ArrayList<>());
+        library.registerMember(second);
+        library.assignBookToMember(reader.getMemberId(), book.getId());
+        library.placeHold(waiter.getMemberId(), book.getId());
+        library.placeHold(second.getMemberId(), book.getId());
+        waiter.setBorrowingLimit(0);
+
+        library.returnBook(reader.getMemberId(), book.getId());
+
+        assertSame(second, library.getBorrower(book.getId()));
+        assertEquals(List.of(), waiter.getBorrowedBooks());
+    }
+
+    @Test
+    void cancelledHoldIsSkipped() {
+        library.assignBookToMember(reader.getMemberId(), book.getId());
+        library.placeHold(premium.getMemberId(), book.getId());
+
+        assertTrue(library.cancelHold(premium.getMemberId(), book.getId()));
+        library.returnBook(reader.getMemberId(), book.getId());
+
+        assertTrue(book.getAvailability());
+        assertNull(library.getBorrower(book.getId()));
+    }
+}
@@ -0,0 +1,163 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link LibraryProtocol}.
+ */
+class LibraryProtocolTest {
+
+    private Library library;
+    private LibraryProtocol protocol;
+    private Book dune;
+    private Book emma;
+    private Member reader;
+
+    @BeforeEach
+    void createLibrary() {
+        library = new Library();
+        dune = new Book("Dune", "Frank Herbert", "9780441013593", true);
+        emma = new Book("Emma", "Jane Austen", "9780141439587", true);
+        library.addBook(dune);
+        library.addBook(emma);
+        reader = new Member("Reader One", new ArrayList<>());
+        library.registerMember(reader);
+        protocol = new LibraryProtocol(library);
+    }
+
+    @Test
+    void commandsAreCaseInsensitiveAndQuitEndsTheConnection() {
+        StringBuilder response = new StringBuilder();
+
+        assertTrue(protocol.handle("ping", response));
+        assertFalse(protocol.handle("Quit", response));
+        assertEquals("OK\tPONG\nOK\tBYE\n", response.toString());
+    }
+
+    @Test
+    void lookupsReturnTheFieldsOfBooksAndMembers() {
+        assertEquals("OK\t" + dune.getId() + "\tDune\tFrank Herbert\t9780441013593\tAVAILABLE\n",
+                handle("BOOK\t" + dune.getId()));
+        assertEquals("OK\t" + reader.getMemberId() + "\tReader One\tREGULAR\t0\t" + reader.getBorrowingLimit() + "\n",
+                handle("MEMBER\t" + reader.getMemberId()));
+    }
+
+    @Test
+    void malformedRequestsGetBadRequestOrUnknownCommand() {
+        assertEquals("UNKNOWN_COMMAND", code(handle("BORROW\t" + reader.getMemberId())));
+        assertEquals("UNKNOWN_COMMAND", code(handle("")));
+        assertEquals("BAD_REQUEST", code(handle("BOOK")));
+        assertEquals("BAD_REQUEST", code(handle("CHECKOUT\t" + reader.getMemberId())));
+        assertEquals("BAD_REQUEST", code(handle("REGISTER\tReader Two\tGOLD")));
+        assertEquals("BAD_REQUEST", code(handle("BOOKS\t-1")));
+        assertEquals("BAD_REQUEST", code(handle("MEMBERS\t0\tten")));
+        assertEquals("BAD_REQUEST", code(handle("BOOKS\t0\t1\t2")));
+    }
+
+    @Test
+    void failedOperationsGetTheirErrorCode() {
+        Member other = new Member("Reader Two", new ArrayList<>());
+        library.registerMember(other);
+        handle("CHECKOUT\t" + reader.getMemberId() + "\t" + dune.getId());
+
+        assertEquals("NOT_FOUND", code(handle("BOOK\t" + reader.getMemberId())));
+        assertEquals("NOT_FOUND", code(handle("MEMBER\tnot-an-id")));
+        assertEquals("NOT_FOUND", code(handle("CHECKOUT\t" + dune.getId() + "\t" + dune.getId())));
+        assertEquals("UNAVAILABLE", code(handle("CHECKOUT\t" + other.getMemberId() + "\t" + dune.getId())));
+        assertEquals("NOT_BORROWED", code(handle("RETURN\t" + other.getMemberId() + "\t" + dune.getId())));
+        assertEquals("INVALID", code(handle("REGISTER\tR2")));
+    }
+
+    @Test
+    void checkoutReturnsTheDueTimeAndReturnEndsTheLoan() {
+        String checkout = handle("CHECKOUT\t" + reader.getMemberId() + "\t" + emma.getId());
+
+        assertEquals("OK\t" + library.getLoan(emma.getId()).getDueTime() + "\n", checkout);
+        assertTrue(handle("BOOK\t" + emma.getId()).endsWith("\tUNAVAILABLE\n"));
+        assertEquals("OK\n", handle("RETURN\t" + reader.getMemberId() + "\t" + emma.getId()));
+        assertTrue(handle("BOOK\t" + emma.getId()).endsWith("\tAVAILABLE\n"));
+    }
+
+    @Test
+    void checkoutsBeyondTheBorrowingLimitAreRefused() {
+        int limit = reader.getBorrowingLimit();
+        List<String> codes = new ArrayList<>();
+        for (int i = 0; i <= limit; i++) {
+            Book book = new Book("Persuasion", "Jane Austen", "9780141439686", true);
+            library.addBook(book);
+            String response = handle("CHECKOUT\t" + reader.getMemberId() + "\t" + book.getId());
+            codes.add(response.startsWith("OK") ? "OK" : code(response));
+        }
+
+        assertEquals("LIMIT_REACHED", codes.get(limit));
+        assertEquals(List.of("OK"), codes.subList(0, limit).stream().distinct().toList());
+    }
+
+    @Test
+    void registerReturnsTheIdOfTheNewMember() {
+        String response = handle("REGISTER\tPremium One\tpremium");
+        String id = response.substring("OK\t".length(), response.length() - 1);
+
+        assertTrue(library.findMember(id) instanceof PremiumMember);
+        assertTrue(handle("MEMBER\t" + id).contains("\tPremium One\tPREMIUM\t"));
+    }
+
+    @Test
+    void listingsArePagedByOffsetAndLimit() {
+        for (int i = 0; i < 3; i++) {
+            library.addBook(new Book("Persuasion", "Jane Austen", "9780141439686", true));
+        }
+
+        String[] page = handle("BOOKS\t1\t2").split("\n");
+        String[] all = handle("books").split("\n");
+
+        assertEquals(List.of("OK\t2", library.snapshot().getBooks().get(1).getId(), library.snapshot().getBooks().get(2).getId()),
+                List.of(page[0], page[1].split("\t")[0], page[2].split("\t")[0]));
+        assertEquals(3, page.length);
+        assertEquals("OK\t5", all[0]);
+        assertEquals(6, all.length);
+        assertEquals("OK\t0\n", handle("BOOKS\t5"));
+        assertEquals("OK\t0\n", handle("MEMBERS\t" + Integer.MAX_VALUE + "\t" + Integer.MAX_VALUE));
+        assertEquals("OK\t1\n" + handle("MEMBER\t" + reader.getMemberId()).substring("OK\t".length()), handle("MEMBERS"));
+    }
+
+    @Test
+    void lineTooLongResponseIsASingleErrorLine() {
+        StringBuilder response = new StringBuilder();
+
+        LibraryProtocol.lineTooLong(response);
+
+        assertEquals("LINE_TOO_LONG", code(response.toString()));
+        assertEquals(1, response.toString().split("\n").length);
+    }
+
+    /**
+     * Runs a request.
+     *
+     * @param request The request line.
+     * @return The response, line ends included.
+     */
+    private String handle(String request) {
+        StringBuilder response = new StringBuilder();
+        protocol.handle(request, response);
+        return response.toString();
+    }
+
+    /**
+     * Extracts the code of an error response.
+     *
+     * @param response The response.
+     * @return The error code.
+     * @throws AssertionError If the response is not an error.
+     */
+    private static String code(String response) {
+        String[] fields = response.split("\t");
+        assertEquals("ERR", fields[0], response);
+        return fields[1];
+    }
+}
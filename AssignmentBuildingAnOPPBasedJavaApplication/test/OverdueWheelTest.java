@@ -0,0 +1,131 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link OverdueWheel}.
+ */
+class OverdueWheelTest {
+
+    private static final long TICK = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * A start time that is not aligned on any level of the wheel.
+     */
+    private static final long START = 1_700_000_000_123L;
+
+    /**
+     * Due offsets, in ticks, on and around the boundaries of every level of the wheel.
+     */
+    private static final long[] DUE_TICKS = {
+        0, 1, 2, 62, 63, 64, 65, 100, 4_095, 4_096, 4_097, 5_000,
+        262_143, 262_144, 262_145, 300_000, 1_000_000
+    };
+
+    @Test
+    void reportsEveryLoanOnceWithinATickOfItsDueTime() {
+        OverdueWheel wheel = new OverdueWheel(new LockStripes(1), () -> START);
+        List<Loan> loans = new ArrayList<>();
+        for (long dueTicks : DUE_TICKS) {
+            Loan loan = loan(START + dueTicks * TICK + 17);
+            loans.add(loan);
+            wheel.schedule(loan);
+        }
+
+        Set<Loan> reported = new HashSet<>();
+        long end = START + (DUE_TICKS[DUE_TICKS.length - 1] + 2) * TICK;
+        for (long now = START; now <= end; now += TICK) {
+            for (Loan loan : wheel.advance(0, now)) {
+                assertTrue(loan.getDueMillis() <= now, "Loan reported before it was due");
+                assertTrue(reported.add(loan), "Loan reported twice");
+            }
+            long lastFullTick = Math.floorDiv(now, TICK) * TICK;
+            for (Loan loan : loans) {
+                if (loan.getDueMillis() < lastFullTick) {
+                    assertTrue(reported.contains(loan), "Loan not reported a tick after it was due");
+                }
+            }
+        }
+        assertEquals(loans.size(), reported.size());
+    }
+
+    @Test
+    void reportsEveryLoanOnceWhenAdvancedInLargeSteps() {
+        OverdueWheel wheel = new OverdueWheel(new LockStripes(1), () -> START);
+        Set<Loan> loans = new HashSet<>();
+        for (long dueTicks : DUE_TICKS) {
+            Loan loan = loan(START + dueTicks * TICK);
+            loans.add(loan);
+            wheel.schedule(loan);
+        }
+
+        Set<Loan> reported = new HashSet<>();
+        long end = START + (DUE_TICKS[DUE_TICKS.length - 1] + 2) * TICK;
+        for (long now = START; now <= end; now += 7_919 * TICK) {
+            for (Loan loan : wheel.advance(0, now)) {
+                assertTrue(loan.getDueMillis() <= now, "Loan reported before it was due");
+                assertTrue(reported.add(loan), "Loan reported twice");
+            }
+        }
+        reported.addAll(wheel.advance(0, end));
+        assertEquals(loans, reported);
+    }
+
+    @Test
+    void cancelledLoansAreNeverReported() {
+        OverdueWheel wheel = new OverdueWheel(new LockStripes(1), () -> START);
+        Loan kept = loan(START + 5_000 * TICK);
+        Loan cancelled = loan(START + 5_000 * TICK);
+        Loan cancelledAfterCascade = loan(START + 300_000 * TICK);
+        wheel.schedule(kept);
+        wheel.schedule(cancelled);
+        wheel.schedule(cancelledAfterCascade);
+
+        wheel.cancel(cancelled);
+        assertEquals(List.of(kept), wheel.advance(0, START + 290_000 * TICK));
+        wheel.cancel(cancelledAfterCascade);
+
+        assertEquals(List.of(), wheel.advance(0, START + 400_000 * TICK));
+    }
+
+    @Test
+    void loansScheduledInThePastAreReportedOnTheNextAdvance() {
+        OverdueWheel wheel = new OverdueWheel(new LockStripes(1), () -> START);
+        wheel.schedule(loan(START + 10 * TICK));
+        wheel.advance(0, START + 100 * TICK);
+
+        Loan late = loan(START);
+        wheel.schedule(late);
+
+        assertEquals(List.of(late), wheel.advance(0, START + 101 * TICK));
+    }
+
+    @Test
+    void wheelStartsAtTheClockRatherThanAtTheFirstCheckout() {
+        OverdueWheel wheel = new OverdueWheel(new LockStripes(1), () -> START);
+        Loan restored = new Loan(Identifier.random(), Identifier.random(), 0, TICK);
+        Loan current = loan(START + 5 * TICK);
+        wheel.schedule(restored);
+        wheel.schedule(current);
+
+        assertEquals(List.of(restored), wheel.advance(0, START));
+        assertEquals(List.of(), wheel.advance(0, START + 4 * TICK));
+        assertEquals(List.of(current), wheel.advance(0, START + 6 * TICK));
+    }
+
+    /**
+     * Builds a loan checked out at the start time.
+     *
+     * @param due The due time of the loan.
+     * @return The loan.
+     */
+    private static Loan loan(long due) {
+        return new Loan(Identifier.random(), Identifier.random(), START, due);
+    }
+}
@@ -0,0 +1,98 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link PersistentMap}.
+ */
+class PersistentMapTest {
+
+    /**
+     * A key with a chosen hash code, so that tests can force hash collisions.
+     */
+    private static final class Key {
+
+        private final int hash;
+        private final int id;
+
+        Key(int hash, int id) {
+            this.hash = hash;
+            this.id = id;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key && ((Key) other).id == id;
+        }
+    }
+
+    @Test
+    void matchesHashMapUnderRandomUpdatesWithCollidingKeys() {
+        Random random = new Random(1);
+        Key[] keys = new Key[5000];
+        for (int i = 0; i < keys.length; i++) {
+            // Few distinct hashes, some sharing their low bits, so that keys collide fully and partially
+            keys[i] = new Key(random.nextInt(300) * (random.nextBoolean() ? 1 : 0x10001), i);
+        }
+
+        PersistentMap<Key, Integer> map = PersistentMap.empty();
+        HashMap<Key, Integer> expected = new HashMap<>();
+        for (int operation = 0; operation < 200_000; operation++) {
+            Key key = keys[random.nextInt(keys.length)];
+            if (random.nextInt(3) == 0) {
+                map = map.remove(key);
+                expected.remove(key);
+            } else {
+                int value = random.nextInt();
+                map = map.put(key, value);
+                expected.put(key, value);
+            }
+            assertEquals(expected.size(), map.size());
+        }
+
+        for (Key key : keys) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+        List<Integer> values = new ArrayList<>();
+        map.forEachValue(values::add);
+        assertEquals(expected.size(), values.size());
+    }
+
+    @Test
+    void updatesLeaveEarlierVersionsUnchanged() {
+        PersistentMap<String, Integer> empty = PersistentMap.empty();
+        PersistentMap<String, Integer> one = empty.put("a", 1);
+        PersistentMap<String, Integer> two = one.put("b", 2);
+        PersistentMap<String, Integer> changed = two.put("a", 3);
+        PersistentMap<String, Integer> removed = changed.remove("b");
+
+        assertEquals(0, empty.size());
+        assertNull(empty.get("a"));
+        assertEquals(1, one.get("a"));
+        assertNull(one.get("b"));
+        assertEquals(1, two.get("a"));
+        assertEquals(2, two.get("b"));
+        assertEquals(3, changed.get("a"));
+        assertEquals(1, removed.size());
+        assertNull(removed.get("b"));
+    }
+
+    @Test
+    void noOpUpdatesReturnTheSameMap() {
+        PersistentMap<String, Integer> map = PersistentMap.<String, Integer>empty().put("a", 1);
+
+        assertSame(map, map.put("a", 1));
+        assertSame(map, map.remove("b"));
+    }
+}
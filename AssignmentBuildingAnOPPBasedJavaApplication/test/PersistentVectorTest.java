@@ -0,0 +1,72 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link PersistentVector}.
+ */
+class PersistentVectorTest {
+
+    /**
+     * Number of elements appended, enough for the trie to grow three levels deep.
+     */
+    private static final int SIZE = 100_000;
+
+    @Test
+    void appendKeepsEveryElementInOrder() {
+        PersistentVector<Integer> vector = PersistentVector.empty();
+        for (int i = 0; i < SIZE; i++) {
+            vector = vector.append(i);
+        }
+
+        assertEquals(SIZE, vector.size());
+        for (int i = 0; i < SIZE; i++) {
+            assertEquals(i, vector.get(i));
+        }
+    }
+
+    @Test
+    void appendLeavesEarlierVersionsUnchanged() {
+        PersistentVector<Integer> vector = PersistentVector.empty();
+        List<PersistentVector<Integer>> versions = new ArrayList<>();
+        for (int i = 0; i < SIZE; i++) {
+            vector = vector.append(i);
+            if (i % 9973 == 0) {
+                versions.add(vector);
+            }
+        }
+
+        for (PersistentVector<Integer> version : versions) {
+            for (int i = 0; i < version.size(); i++) {
+                assertEquals(i, version.get(i));
+            }
+        }
+    }
+
+    @Test
+    void appendAllMatchesRepeatedAppend() {
+        List<Integer> elements = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            elements.add(i);
+        }
+        PersistentVector<Integer> base = PersistentVector.<Integer>empty().append(-1);
+
+        PersistentVector<Integer> vector = base.appendAll(elements);
+
+        assertEquals(1, base.size());
+        assertEquals(elements.size() + 1, vector.size());
+        assertEquals(-1, vector.get(0));
+        assertEquals(elements, vector.asList().subList(1, vector.size()));
+    }
+
+    @Test
+    void getRejectsIndicesOutOfRange() {
+        PersistentVector<String> vector = PersistentVector.<String>empty().append("a");
+
+        assertThrows(IndexOutOfBoundsException.class, () -> vector.get(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> vector.get(-1));
+    }
+}
@@ -0,0 +1,112 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link TextIndex}, through {@link Library#searchBooks(String, int, int)}.
+ */
+class TextIndexTest {
+
+    private Library library;
+
+    @BeforeEach
+    void fillCatalog() {
+        library = new Library();
+        library.addBook(new Book("Dune", "Frank Herbert", "9780441013593", true));
+        library.addBook(new Book("Dune Messiah", "Frank Herbert", "9780593098233", true));
+        library.addBook(new Book("Children of Dune", "Frank Herbert", "9780593098240", true));
+        library.addBook(new Book("Emma", "Jane Austen", "9780141439587", true));
+        library.addBook(new Book("Persuasion", "Jane Austen", "9780141439686", true));
+        library.addBook(new Book("Herbert West, Reanimator", "Howard Lovecraft", "9781515424437", true));
+    }
+
+    @Test
+    void termMatchesWholeTokensInAnyCase() {
+        assertEquals(List.of("Dune", "Dune Messiah", "Children of Dune"), titles("DUNE", 0, 10));
+        assertEquals(List.of("Emma", "Persuasion"), titles("austen", 0, 10));
+        assertEquals(List.of(), titles("dun", 0, 10));
+    }
+
+    @Test
+    void prefixMatchesEveryTokenStartingWithIt() {
+        assertEquals(List.of("Dune", "Dune Messiah", "Children of Dune"), titles("dun*", 0, 10));
+        assertEquals(List.of("Persuasion"), titles("pers*", 0, 10));
+        assertEquals(List.of("Dune", "Dune Messiah", "Children of Dune"), titles("her* frank", 0, 10));
+    }
+
+    @Test
+    void phraseRequiresAdjacentTokensInOrder() {
+        assertEquals(List.of("Children of Dune"), titles("\"of dune\"", 0, 10));
+        assertEquals(List.of(), titles("\"dune of\"", 0, 10));
+        assertEquals(List.of("Dune", "Dune Messiah", "Children of Dune"), titles("\"frank herbert\"", 0, 10));
+    }
+
+    @Test
+    void titleMatchesRankAboveAuthorMatches() {
+        assertEquals(List.of("Herbert West, Reanimator", "Dune", "Dune Messiah", "Children of Dune"),
+                titles("herbert", 0, 10));
+        assertEquals(List.of("Dune", "Dune Messiah", "Children of Dune"), titles("dune herbert", 0, 10));
+    }
+
+    @Test
+    void pagesFollowTheRanking() {
+        SearchResults first = library.searchBooks("herbert", 0, 2);
+        SearchResults last = library.searchBooks("herbert", 3, 5);
+
+        assertEquals(4, first.getTotalHits());
+        assertEquals(List.of("Herbert West, Reanimator", "Dune"), titlesOf(first));
+        assertTrue(first.hasMore());
+        assertEquals(List.of("Children of Dune"), titlesOf(last));
+        assertFalse(last.hasMore());
+        assertEquals(List.of(), titlesOf(library.searchBooks("herbert", 4, 5)));
+    }
+
+    @Test
+    void renamedBooksAreFoundByTheirNewTitleOnly() {
+        for (int i = 0; i < 20; i++) {
+            library.addBook(new Book("Emma", "Jane Austen", "9780141439587", true));
+        }
+        List<Book> emmas = library.searchBooks("emma", 0, 50).getBooks();
+
+        for (Book book : emmas.subList(0, 15)) {
+            book.setTitle("Sanditon");
+        }
+
+        assertEquals(emmas.subList(15, 21), library.searchBooks("emma", 0, 50).getBooks());
+        assertEquals(emmas.subList(0, 15), library.searchBooks("sanditon", 0, 50).getBooks());
+    }
+
+    @Test
+    void rejectsQueriesWithoutWords() {
+        assertThrows(IllegalArgumentException.class, () -> library.searchBooks(" * \"\" ", 0, 10));
+        assertThrows(IllegalArgumentException.class, () -> library.searchBooks(null, 0, 10));
+    }
+
+    /**
+     * Searches the catalog and lists the titles of a page of matches.
+     *
+     * @param query The query.
+     * @param offset The number of matches to skip.
+     * @param limit The maximum number of matches.
+     * @return The titles in ranked order.
+     */
+    private List<String> titles(String query, int offset, int limit) {
+        return titlesOf(library.searchBooks(query, offset, limit));
+    }
+
+    /**
+     * Lists the titles of a page of matches.
+     *
+     * @param results The page.
+     * @return The titles in ranked order.
+     */
+    private static List<String> titlesOf(SearchResults results) {
+        return results.getBooks().stream().map(Book::getTitle).collect(Collectors.toList());
+    }
+}
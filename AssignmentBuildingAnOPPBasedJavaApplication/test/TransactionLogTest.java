@@ -0,0 +1,189 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of {@link TransactionLog}.
+ */
+class TransactionLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void reopenReplaysEveryOperation() throws IOException {
+        String expected;
+        Book book;
+        Member reader;
+        try (TransactionLog log = TransactionLog.open(directory)) {
+            Library library = log.getLibrary();
+            book = new Book("Dune", "Frank Herbert", "9780441013593", true);
+            Book returned = new Book("Emma", "Jane Austen", "9780141439587", true);
+            library.addBook(book);
+            library.addBook(returned);
+            reader = new Member("Reader One", new ArrayList<>());
+            library.registerMember(reader);
+            library.assignBookToMember(reader.getMemberId(), book.getId());
+            library.assignBookToMember(reader.getMemberId(), returned.getId());
+            library.returnBook(reader.getMemberId(), returned.getId());
+            expected = library.toString();
+        }
+
+        try (TransactionLog log = TransactionLog.open(directory)) {
+            Library library = log.getLibrary();
+            assertEquals(expected, library.toString());
+            assertEquals(reader.getMemberId(), library.getBorrower(book.getId()).getMemberId());
+        }
+    }
+
+    @Test
+    void tornRecordAtTheEndIsDiscarded() throws IOException {
+        String expected;
+        Member reader;
+        try (TransactionLog log = TransactionLog.open(directory)) {
+            Library library = log.getLibrary();
+            library.addBook(new Book("Dune", "Frank Herbert", "9780441013593", true));
+            reader = new Member("Reader One", new ArrayList<>());
+            library.registerMember(reader);
+            expected = library.toString();
+        }
+        Book lost = new Book("Emma", "Jane Austen", "9780141439587", true);
+        try (TransactionLog log = TransactionLog.open(directory)) {
+            log.getLibrary().addBook(lost);
+        }
+
+        // A crash in the middle of the last write leaves only part of its record on disk
+        Path last = segments().get(segments().size() - 1);
+        try (FileChannel channel = FileChannel.open(last, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        Book added = new Book("Persuasion", "Jane Austen", "9780141439686", true);
+        String afterRecovery;
+        try (TransactionLog log = TransactionLog.open(directory)) {
+            Library library = log.getLibrary();
+            assertEquals(expected, library.toString());
+            assertNull(library.findBook(lost.getId()));
+            library.addBook(added);
+            library.assignBookToMember(reader.getMemberId(), added.getId());
+            afterRecovery = library.toString();
+        }
+
+        try (TransactionLog log = TransactionLog.open(directory)) {
+            assertEquals(afterRecovery, log.getLibrary().toString());
+        }
+    }
+
+    @Test
+    void checkpointReplacesOldSegmentsAndLaterOperationsAreReplayed() throws IOException {
+        String expected;
+        Book book;
+        Member reader;
+        try (TransactionLog log = TransactionLog.open(directory, 1024)) {
+            Library library = log.getLibrary();
+            for (int i = 0; i < 50; i++) {
+                library.addBook(new Book("Dune", "Frank Herbert", "9780441013593", true));
+            }
+            reader = new Member("Reader One", new ArrayList<>());
+            library.registerMember(reader);
+            List<Path> before = segments();
+            assertTrue(before.size() > 1, "Small segments should have been rotated");
+
+            log.checkpoint();
+
+            List<Path> after = segments();
+            assertTrue(after.size() < before.size(), "Checkpoint should delete the segments it replaces");
+            book = new Book("Emma", "Jane Austen", "9780141439587", true);
+            library.addBook(book);
+            library.assignBookToMember(reader.getMemberId(), book.getId());
+            expected = library.toString();
+        }
+
+        try (TransactionLog log = TransactionLog.open(directory, 1024)) {
+            Library library = log.getLibrary();
+            assertEquals(expected, library.toString());
+            assertEquals(reader.getMemberId(), library.getBorrower(book.getId()).getMemberId());
+        }
+    }
+
+    @Test
+    void checkpointWhileBooksAreAddedAndLentKeepsEveryOperation() throws IOException, InterruptedException {
+        String expected;
+        ArrayList<Book> books = new ArrayList<>();
+        ArrayList<Member> readers = new ArrayList<>();
+        try (TransactionLog log = TransactionLog.open(directory, 4096)) {
+            Library library = log.getLibrary();
+            RuntimeException[] failure = new RuntimeException[1];
+            Thread writer = new Thread(() -> {
+                try {
+                    for (int i = 0; i < 300; i++) {
+                        Book book = new Book("Dune", "Frank Herbert", "9780441013593", true);
+                        Member reader = new Member("Reader One", new ArrayList<>());
+                        library.addBook(book);
+                        library.registerMember(reader);
+                        library.assignBookToMember(reader.getMemberId(), book.getId());
+                        books.add(book);
+                        readers.add(reader);
+                    }
+                } catch (RuntimeException e) {
+                    failure[0] = e;
+                }
+            });
+            writer.start();
+            while (writer.isAlive()) {
+                log.checkpoint();
+            }
+            writer.join();
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+            expected = library.toString();
+        }
+
+        try (TransactionLog log = TransactionLog.open(directory, 4096)) {
+            Library library = log.getLibrary();
+            assertEquals(expected, library.toString());
+            for (int i = 0; i < books.size(); i++) {
+                assertEquals(readers.get(i).getMemberId(), library.getBorrower(books.get(i).getId()).getMemberId());
+            }
+        }
+    }
+
+    @Test
+    void closedLogRefusesOperations() throws IOException {
+        TransactionLog log = TransactionLog.open(directory);
+        Library library = log.getLibrary();
+        log.close();
+
+        assertThrows(IllegalStateException.class, () -> library.addBook(new Book("Dune", "Frank Herbert", "9780441013593", true)));
+        assertSame(library, log.getLibrary());
+    }
+
+    /**
+     * Lists the segment files of the log directory, oldest first.
+     *
+     * @return The paths of the segments.
+     * @throws IOException If the directory cannot be listed.
+     */
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("wal-"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks and keeps their results in machine-readable form.
+ * <p>
+ * Accepts the usual JMH command line. Unless {@code -rf} or {@code -rff} say otherwise, results are
+ * written as JSON to {@code results/jmh-<timestamp>.json}, one file per run, so runs can be compared
+ * over time with any JMH result viewer or script. For example, to measure checkouts on small catalogs:
+ * {@code java -jar benchmarks/target/benchmarks.jar Checkout -p catalogSize=1000,10000}
+ */
+public final class BenchmarkRunner {
+
+    /**
+     * Directory receiving the result files, relative to the working directory.
+     */
+    private static final Path RESULTS_DIRECTORY = Path.of("results");
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws CommandLineOptionException, IOException, RunnerException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+        if (!commandLine.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        if (!commandLine.getResult().hasValue()) {
+            Files.createDirectories(RESULTS_DIRECTORY);
+            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+            ResultFormatType format = commandLine.getResultFormat().orElse(ResultFormatType.JSON);
+            options.result(RESULTS_DIRECTORY.resolve("jmh-" + timestamp + "." + format.name().toLowerCase()).toString());
+        }
+        new Runner(options.build()).run();
+    }
+}
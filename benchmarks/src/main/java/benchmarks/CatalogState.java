@@ -0,0 +1,76 @@
+package benchmarks;
+
+import java.util.ArrayList;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * A library filled with a catalog of the benchmarked size, shared by all threads of a trial.
+ * <p>
+ * Every fourth book is lent to a member that is not used by the benchmarks, so the availability filters
+ * of the display methods have both kinds of books to walk. The IDs of the available books are kept for
+ * the checkout benchmarks, which return every book they borrow, so the catalog is the same at the start
+ * of every invocation.
+ */
+@State(Scope.Benchmark)
+public class CatalogState {
+
+    /**
+     * Number of members registered in the library.
+     */
+    static final int MEMBERS = 1024;
+
+    /**
+     * Number of books in the catalog.
+     */
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int catalogSize;
+
+    Object library;
+    String[] availableBookIds;
+    String[] memberIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        library = LibraryApi.newLibrary();
+
+        ArrayList<Object> books = new ArrayList<>(catalogSize);
+        ArrayList<String> available = new ArrayList<>(catalogSize);
+        ArrayList<Object> lent = new ArrayList<>(catalogSize / 4 + 1);
+        for (int i = 0; i < catalogSize; i++) {
+            boolean isAvailable = i % 4 != 0;
+            Object book = i % 10 == 9
+                    ? LibraryApi.newEbook("Ebook Volume " + i, "Ava Ramirez", "9785678901235", isAvailable, 1 + i % 9000, "pdf")
+                    : LibraryApi.newBook("Book Volume " + i, "Emma Harper", "9781234567891", isAvailable);
+            books.add(book);
+            if (isAvailable) {
+                available.add(LibraryApi.getBookId(book));
+            } else {
+                lent.add(book);
+            }
+        }
+        LibraryApi.setBooksCollection(library, books);
+        availableBookIds = available.toArray(new String[0]);
+
+        ArrayList<Object> members = new ArrayList<>(MEMBERS);
+        memberIds = new String[MEMBERS];
+        for (int i = 0; i < MEMBERS; i++) {
+            Object member = i % 2 == 0
+                    ? LibraryApi.newMember("Member Number", new ArrayList<>())
+                    : LibraryApi.newPremiumMember("Premium Member", new ArrayList<>());
+            LibraryApi.setBorrowingLimit(member, Integer.MAX_VALUE);
+            members.add(member);
+            memberIds[i] = LibraryApi.getMemberId(member);
+        }
+
+        // The books a member holds as it is registered are lent to it
+        Object holder = LibraryApi.newMember("Catalog Holder", lent);
+        LibraryApi.setBorrowingLimit(holder, Integer.MAX_VALUE);
+        members.add(holder);
+        LibraryApi.setMembersCollection(library, members);
+    }
+}
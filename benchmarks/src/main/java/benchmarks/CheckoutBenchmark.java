@@ -0,0 +1,88 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.infra.ThreadParams;
+
+/**
+ * Measures checkouts through {@code Library.assignBookToMember} and {@code Library.assignBooksToMember}.
+ * <p>
+ * Each invocation borrows books and returns them, so the catalog does not run out of available books
+ * however long the benchmark runs; the time reported is that of the checkout and the return together.
+ * Threads walk disjoint slices of the available books and use their own member, so runs with
+ * {@code -t} measure concurrent checkouts without failed ones.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx12g")
+public class CheckoutBenchmark {
+
+    /**
+     * Number of books borrowed by each batch checkout.
+     */
+    private static final int BATCH_SIZE = 8;
+
+    /**
+     * The position of a thread in its slice of the available books.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int position;
+        private int stride;
+        private String memberId;
+        private final String[] batch = new String[BATCH_SIZE];
+
+        @Setup(Level.Trial)
+        public void setUp(CatalogState catalog, ThreadParams thread) {
+            position = thread.getThreadIndex();
+            stride = thread.getThreadCount();
+            memberId = catalog.memberIds[thread.getThreadIndex() % CatalogState.MEMBERS];
+        }
+
+        String next(CatalogState catalog) {
+            String[] ids = catalog.availableBookIds;
+            if (position >= ids.length) {
+                position %= stride;
+            }
+            String id = ids[position];
+            position += stride;
+            return id;
+        }
+
+        String[] nextBatch(CatalogState catalog) {
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                batch[i] = next(catalog);
+            }
+            return batch;
+        }
+    }
+
+    @Benchmark
+    public void assignBookToMember(CatalogState catalog, Cursor cursor) {
+        String bookId = cursor.next(catalog);
+        LibraryApi.assignBookToMember(catalog.library, cursor.memberId, bookId);
+        LibraryApi.returnBook(catalog.library, cursor.memberId, bookId);
+    }
+
+    @Benchmark
+    public void assignBooksToMember(CatalogState catalog, Cursor cursor, Blackhole blackhole) {
+        String[] bookIds = cursor.nextBatch(catalog);
+        blackhole.consume(LibraryApi.assignBooksToMember(catalog.library, cursor.memberId, bookIds));
+        blackhole.consume(LibraryApi.returnBooks(catalog.library, cursor.memberId, bookIds));
+    }
+}
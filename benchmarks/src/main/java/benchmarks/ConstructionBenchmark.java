@@ -0,0 +1,46 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the public constructors of {@code Book}, {@code Ebook}, {@code Member} and {@code PremiumMember},
+ * including the validation of every field they run.
+ * <p>
+ * Construction does not depend on any catalog, so these benchmarks take no catalog size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConstructionBenchmark {
+
+    @Benchmark
+    public Object newBook() {
+        return LibraryApi.newBook("The Silent Voyager", "Emma Harper", "9781234567891", true);
+    }
+
+    @Benchmark
+    public Object newEbook() {
+        return LibraryApi.newEbook("Shadows of the Unknown", "Ava Ramirez", "9785678901235", true, 2048, "PDF");
+    }
+
+    @Benchmark
+    public Object newMember() {
+        return LibraryApi.newMember("Emma Rodriguez", new ArrayList<>());
+    }
+
+    @Benchmark
+    public Object newPremiumMember() {
+        return LibraryApi.newPremiumMember("Ava Carter", new ArrayList<>());
+    }
+}
@@ -0,0 +1,64 @@
+package benchmarks;
+
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the {@code display*} methods of {@code Library}, rendering one page of a table.
+ * <p>
+ * Pages are taken from the middle of the catalog, so the cost of skipping to the page is included,
+ * and rendered to a writer that discards its input, so only table building and formatting are measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx12g")
+public class DisplayBenchmark {
+
+    /**
+     * The destination of the tables and the size of the pages rendered.
+     */
+    @State(Scope.Thread)
+    public static class Page {
+
+        /**
+         * Number of rows rendered per call.
+         */
+        @Param({"100"})
+        public int pageSize;
+
+        final Writer out = Writer.nullWriter();
+    }
+
+    @Benchmark
+    public void displayBooks(CatalogState catalog, Page page) {
+        LibraryApi.displayBooks(catalog.library, page.out, catalog.catalogSize / 2, page.pageSize);
+    }
+
+    @Benchmark
+    public void displayAvailableBooks(CatalogState catalog, Page page) {
+        LibraryApi.displayAvailableBooks(catalog.library, page.out, catalog.catalogSize / 2, page.pageSize);
+    }
+
+    @Benchmark
+    public void displayUnavailableBooks(CatalogState catalog, Page page) {
+        LibraryApi.displayUnavailableBooks(catalog.library, page.out, catalog.catalogSize / 8, page.pageSize);
+    }
+
+    @Benchmark
+    public void displayMembers(CatalogState catalog, Page page) {
+        LibraryApi.displayMembers(catalog.library, page.out, CatalogState.MEMBERS / 2, page.pageSize);
+    }
+}
@@ -0,0 +1,257 @@
+package benchmarks;
+
+import java.io.Writer;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Typed access to the library classes for the benchmarks.
+ * <p>
+ * The library is compiled in the unnamed package, which code in a named package cannot refer to, while
+ * JMH only accepts benchmarks in named packages. Every operation used by the benchmarks is therefore
+ * bound once to a {@code static final} method handle; the JIT compiler treats such handles as constants
+ * and inlines the target, so a call through this class costs the same as a direct call.
+ */
+final class LibraryApi {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.publicLookup();
+
+    private static final Class<?> LIBRARY = load("Library");
+    private static final Class<?> BOOK = load("Book");
+    private static final Class<?> EBOOK = load("Ebook");
+    private static final Class<?> MEMBER = load("Member");
+    private static final Class<?> PREMIUM_MEMBER = load("PremiumMember");
+    private static final Class<?> LIBRARY_JSON = load("LibraryJson");
+
+    private static final MethodHandle NEW_LIBRARY = constructor(LIBRARY);
+    private static final MethodHandle NEW_BOOK = constructor(BOOK, String.class, String.class, String.class, boolean.class);
+    private static final MethodHandle NEW_EBOOK = constructor(EBOOK, String.class, String.class, String.class, boolean.class, int.class, String.class);
+    private static final MethodHandle NEW_MEMBER = constructor(MEMBER, String.class, ArrayList.class);
+    private static final MethodHandle NEW_PREMIUM_MEMBER = constructor(PREMIUM_MEMBER, String.class, ArrayList.class);
+
+    private static final MethodHandle SET_BOOKS_COLLECTION = method(LIBRARY, "setBooksCollection", void.class, ArrayList.class);
+    private static final MethodHandle SET_MEMBERS_COLLECTION = method(LIBRARY, "setMembersCollection", void.class, ArrayList.class);
+    private static final MethodHandle ASSIGN_BOOK = method(LIBRARY, "assignBookToMember", void.class, String.class, String.class);
+    private static final MethodHandle ASSIGN_BOOKS = method(LIBRARY, "assignBooksToMember", java.util.LinkedHashMap.class, String.class, String[].class);
+    private static final MethodHandle RETURN_BOOK = method(LIBRARY, "returnBook", void.class, String.class, String.class);
+    private static final MethodHandle RETURN_BOOKS = method(LIBRARY, "returnBooks", java.util.LinkedHashMap.class, String.class, String[].class);
+    private static final MethodHandle DISPLAY_BOOKS = display("displayBooks");
+    private static final MethodHandle DISPLAY_AVAILABLE_BOOKS = display("displayAvailableBooks");
+    private static final MethodHandle DISPLAY_UNAVAILABLE_BOOKS = display("displayUnavailableBooks");
+    private static final MethodHandle DISPLAY_MEMBERS = display("displayMembers");
+
+    private static final MethodHandle GET_BOOK_ID = method(BOOK, "getId", String.class);
+    private static final MethodHandle GET_MEMBER_ID = method(MEMBER, "getMemberId", String.class);
+    private static final MethodHandle SET_BORROWING_LIMIT = method(MEMBER, "setBorrowingLimit", void.class, int.class);
+    private static final MethodHandle GET_BORROWED_BOOKS = method(MEMBER, "getBorrowedBooks", List.class);
+
+    private static final MethodHandle WRITE_JSON = findStatic(LIBRARY_JSON, "write", void.class, LIBRARY, Writer.class);
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private LibraryApi() {
+    }
+
+    static Object newLibrary() {
+        try {
+            return NEW_LIBRARY.invoke();
+        } catch (Throwable e) {
+            throw propagate(e);
+        }
+    }
+
+    static Object newBook(String title, String author, String isbn, boolean availability) {
+        try {
+            return NEW_BOOK.invoke(title, author, isbn, availability);
+        } catch (Throwable e) {
+            throw propagate(e);
+        }
+    }
+
+    static Object newEbook(String title, String author, String isbn, boolean availability, int fileSize, String fileFormat) {
+        try {
+            return NEW_EBOOK.invoke(title, author, isbn, availability, fileSize, fileFormat);
+        } catch (Throwable e) {
+            throw propagate(e);
+        }
+    }
+
+    static Object newMember(String name, ArrayList<Object> borrowedBooks) {
+        try {
+            return NEW_MEMBER.invoke(name, borrowedBooks);
+        } catch (Throwable e) {
+            throw propagate(e);
+        }
+    }
+
+    static Object newPremiumMember(String name, ArrayList<Object> borrowedBooks) {
+        try {
+            return NEW_PREMIUM_MEMBER.invoke(name, borrowedBooks);
+        } catch (Throwable e) {
+            throw propagate(e);
+        }
+    }
+
+    static void setBooksCollection(Object library, ArrayList<Object> books) {
+        try {
+            SET_BOOKS_COLLECTION.invoke(library, books);
+        } catch (Throwable e) {
+            throw propagate(e);
+        }
+    }
+
+    static void setMembersCollection(Object library, ArrayList<Object> members) {
+        try {
+            SET_MEMBERS_COLLECTION.invoke(library, members);
+        } catch (Throwable e) {
+            throw propagate(e);
+        }
+    }
+
+    static void assignBookToMember(Object library, String memberId, String bookId) {
+        try {
+            ASSIGN_BOOK.invoke(library, memberId, bookId);
+        } catch (Throwable e) {
+            throw propagate(e);
+        }
+    }
+
+    static Object assignBooksToMember(Object library, String memberId, String[] bookIds) {
+        try {
+            return ASSIGN_BOOKS.invoke(library, memberId, bookIds);
+        } catch (Throwable e) {
+            throw propagate(e);
+        }
+    }
+
+    static void returnBook(Object library, String memberId, String bookId) {
+        try {
+            RETURN_BOOK.invoke(library, memberId, bookId);
+        } catch (Throwable e) {
+            throw propagate(e);
+        }
+    }
+
+    static Object returnBooks(Object library, String memberId, String[] bookIds) {
+        try {
+            return RETURN_BOOKS.invoke(library, memberId, bookIds);
+        } catch (Throwable e) {
+            throw propagate(e);
+        }
+    }
+
+    static void displayBooks(Object library, Appendable out, int offset, int limit) {
+        display(DISPLAY_BOOKS, library, out, offset, limit);
+    }
+
+    static void displayAvailableBooks(Object library, Appendable out, int offset, int limit) {
+        display(DISPLAY_AVAILABLE_BOOKS, library, out, offset, limit);
+    }
+
+    static void displayUnavailableBooks(Object library, Appendable out, int offset, int limit) {
+        display(DISPLAY_UNAVAILABLE_BOOKS, library, out, offset, limit);
+    }
+
+    static void displayMembers(Object library, Appendable out, int offset, int limit) {
+        display(DISPLAY_MEMBERS, library, out, offset, limit);
+    }
+
+    static String getBookId(Object book) {
+        try {
+            return (String) GET_BOOK_ID.invoke(book);
+        } catch (Throwable e) {
+            throw propagate(e);
+        }
+    }
+
+    static String getMemberId(Object member) {
+        try {
+            return (String) GET_MEMBER_ID.invoke(member);
+        } catch (Throwable e) {
+            throw propagate(e);
+        }
+    }
+
+    static void setBorrowingLimit(Object member, int borrowingLimit) {
+        try {
+            SET_BORROWING_LIMIT.invoke(member, borrowingLimit);
+        } catch (Throwable e) {
+            throw propagate(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static List<Object> getBorrowedBooks(Object member) {
+        try {
+            return (List<Object>) GET_BORROWED_BOOKS.invoke(member);
+        } catch (Throwable e) {
+            throw propagate(e);
+        }
+    }
+
+    static void writeJson(Object library, Writer out) {
+        try {
+            WRITE_JSON.invoke(library, out);
+        } catch (Throwable e) {
+            throw propagate(e);
+        }
+    }
+
+    private static void display(MethodHandle handle, Object library, Appendable out, int offset, int limit) {
+        try {
+            handle.invoke(library, out, false, offset, limit);
+        } catch (Throwable e) {
+            throw propagate(e);
+        }
+    }
+
+    private static Class<?> load(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Library class " + name + " is not on the class path.", e);
+        }
+    }
+
+    private static MethodHandle constructor(Class<?> type, Class<?>... parameters) {
+        try {
+            return LOOKUP.findConstructor(type, MethodType.methodType(void.class, parameters));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Missing constructor of " + type.getName() + ".", e);
+        }
+    }
+
+    private static MethodHandle method(Class<?> type, String name, Class<?> returnType, Class<?>... parameters) {
+        try {
+            return LOOKUP.findVirtual(type, name, MethodType.methodType(returnType, parameters));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Missing method " + type.getName() + "." + name + ".", e);
+        }
+    }
+
+    private static MethodHandle findStatic(Class<?> type, String name, Class<?> returnType, Class<?>... parameters) {
+        try {
+            return LOOKUP.findStatic(type, name, MethodType.methodType(returnType, parameters));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Missing method " + type.getName() + "." + name + ".", e);
+        }
+    }
+
+    private static MethodHandle display(String name) {
+        return method(LIBRARY, name, void.class, Appendable.class, boolean.class, int.class, int.class);
+    }
+
+    private static RuntimeException propagate(Throwable e) {
+        if (e instanceof RuntimeException) {
+            return (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        return new IllegalStateException(e);
+    }
+}
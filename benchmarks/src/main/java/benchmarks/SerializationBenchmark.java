@@ -0,0 +1,75 @@
+package benchmarks;
+
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the {@code toString} JSON serialization of books, ebooks and members, and the serialization
+ * of a whole catalog.
+ * <p>
+ * {@code Library.toString} goes through {@code LibraryJson}; the catalog benchmark streams the same
+ * document to a writer that discards its input, so catalogs of every size can be measured without
+ * building a string of several gigabytes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx12g")
+public class SerializationBenchmark {
+
+    /**
+     * A book, an ebook and a member holding three books.
+     */
+    @State(Scope.Thread)
+    public static class Entries {
+
+        Object book;
+        Object ebook;
+        Object member;
+
+        @Setup
+        public void setUp() {
+            book = LibraryApi.newBook("The Silent Voyager", "Emma Harper", "9781234567891", false);
+            ebook = LibraryApi.newEbook("Shadows of the Unknown", "Ava Ramirez", "9785678901235", false, 2048, "PDF");
+            ArrayList<Object> borrowed = new ArrayList<>();
+            borrowed.add(book);
+            borrowed.add(ebook);
+            borrowed.add(LibraryApi.newBook("Whispering Shadows", "Liam Thornton", "9782345678902", false));
+            member = LibraryApi.newMember("Emma Rodriguez", borrowed);
+        }
+    }
+
+    @Benchmark
+    public String bookToString(Entries entries) {
+        return entries.book.toString();
+    }
+
+    @Benchmark
+    public String ebookToString(Entries entries) {
+        return entries.ebook.toString();
+    }
+
+    @Benchmark
+    public String memberToString(Entries entries) {
+        return entries.member.toString();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void libraryToJson(CatalogState catalog) {
+        LibraryApi.writeJson(catalog.library, Writer.nullWriter());
+    }
+}